@@ -0,0 +1,323 @@
+package com.utils.excel;
+
+import com.utils.excel.entity.Range;
+import com.utils.util.FPath;
+import lombok.Getter;
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.ss.util.CellAddress;
+import org.apache.poi.ss.util.CellRangeAddress;
+
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 流式读取公共实现；负责预读行、行定位和 sheet 切换，子类只需要实现打开 sheet 和按顺序读取下一行
+ *
+ * @author 谢长春 on 2018-8-8 .
+ */
+@SuppressWarnings("unchecked")
+abstract class AbstractStreamReader<T extends AbstractStreamReader<T>> implements IStreamReader<T> {
+    AbstractStreamReader() {
+        this.dataFormatter = new DataFormatter();
+        this.cellFormats = new CellFormats();
+    }
+
+    private final DataFormatter dataFormatter;
+    /**
+     * 样式格式缓存，复制的读取器使用独立的缓存
+     */
+    @Getter
+    private final CellFormats cellFormats;
+    /**
+     * 当前操作 sheet 索引
+     */
+    private int sheetIndex = -1;
+    /**
+     * 预读的下一行，流式读取只能向后读，需要预读一行判断行索引
+     */
+    private StreamRow pending;
+    /**
+     * 当前 sheet 是否已经读完
+     */
+    private boolean eof = true;
+    /**
+     * sheet 声明的最后一行索引，未声明时为 -1
+     */
+    int dimensionLastRowIndex = -1;
+    /**
+     * 已经读到的最后一行索引
+     */
+    private int lastReadRowIndex = -1;
+    /**
+     * 当前操作行索引
+     */
+    @Getter
+    private int rowIndex;
+    /**
+     * 当前操作行
+     */
+    @Getter
+    private Row row;
+    /**
+     * 当前操作单元格
+     */
+    @Getter
+    private Cell cell;
+
+    /**
+     * 打开指定 sheet ，定位到第一行数据之前
+     *
+     * @param index int sheet索引，已确认在有效范围内
+     */
+    abstract void openSheet(final int index);
+
+    /**
+     * 按顺序读取下一行；行索引必须递增，没有更多行时返回 null
+     *
+     * @return {@link StreamRow}
+     */
+    abstract StreamRow readRow();
+
+    /**
+     * 关闭当前 sheet 打开的流
+     */
+    abstract void closeSheet();
+
+    /**
+     * 关闭文件
+     */
+    abstract void closeFile();
+
+    @Override
+    public DataFormatter getDataFormatter() {
+        return dataFormatter;
+    }
+
+    /**
+     * 流式读取不加载 Workbook 对象模型
+     *
+     * @return null
+     */
+    @Override
+    public Workbook getWorkbook() {
+        return null;
+    }
+
+    /**
+     * 流式读取不加载 Sheet 对象模型
+     *
+     * @return null
+     */
+    @Override
+    public Sheet getSheet() {
+        return null;
+    }
+
+    @Override
+    public T sheet(final int index) {
+        closeSheet();
+        cell = null;
+        row = null;
+        rowIndex = 0;
+        pending = null;
+        dimensionLastRowIndex = -1;
+        lastReadRowIndex = -1;
+        if (index < 0 || index >= sheetNames().size()) {
+            sheetIndex = -1;
+            eof = true;
+            return (T) this;
+        }
+        sheetIndex = index;
+        eof = false;
+        openSheet(index);
+        return (T) this;
+    }
+
+    @Override
+    public T sheet(final String name) {
+        return sheet(sheetNames().indexOf(name));
+    }
+
+    @Override
+    public T setRowIndex(final int rowIndex) {
+        this.rowIndex = rowIndex;
+        return (T) this;
+    }
+
+    @Override
+    public T row(final Row row) {
+        if (Objects.nonNull(row)) {
+            rowIndex = row.getRowNum();
+        }
+        this.row = row;
+        this.cell = null;
+        return (T) this;
+    }
+
+    @Override
+    public T cell(final Cell cell) {
+        this.cell = cell;
+        return (T) this;
+    }
+
+    /**
+     * 选择操作行；流式读取只能向后定位，指定行不存在时当前行为 null
+     *
+     * @param rowIndex int 行索引
+     * @return <T extends AbstractStreamReader>
+     */
+    @Override
+    public T row(final int rowIndex) {
+        if (Objects.nonNull(row) && row.getRowNum() == rowIndex) {
+            return setRowIndex(rowIndex);
+        }
+        if (Objects.nonNull(row) && row.getRowNum() > rowIndex) {
+            throw new IllegalStateException(String.format("流式读取不能回退到已经读过的行：%d < %d", rowIndex, row.getRowNum()));
+        }
+        final StreamRow next = seek(rowIndex);
+        setRowIndex(rowIndex);
+        if (Objects.nonNull(next) && next.getRowNum() == rowIndex) {
+            pending = null;
+            return row(next);
+        }
+        this.row = null;
+        this.cell = null;
+        return (T) this;
+    }
+
+    @Override
+    public T next() {
+        final StreamRow next = seek(rowIndex + 1);
+        if (Objects.isNull(next)) {
+            setRowIndex(Math.max(rowIndex, lastReadRowIndex) + 1);
+            return null;
+        }
+        pending = null;
+        return row(next);
+    }
+
+    @Override
+    public boolean hasEnd() {
+        return Objects.isNull(seek(rowIndex)) && (Objects.isNull(row) || rowIndex > row.getRowNum());
+    }
+
+    /**
+     * 获取最后一行索引；流式读取时取 sheet 声明的行索引和已经读到的行索引中较大的值
+     *
+     * @return int
+     */
+    @Override
+    public int getLastRowIndex() {
+        return Math.max(dimensionLastRowIndex, lastReadRowIndex);
+    }
+
+    @Override
+    public Optional<T> hasSheet() {
+        return sheetIndex < 0 ? Optional.empty() : Optional.of((T) this);
+    }
+
+    @Override
+    public T hasSheet(final Supplier<? extends RuntimeException> ex) {
+        if (sheetIndex < 0 && Objects.nonNull(ex)) {
+            throw ex.get();
+        }
+        return (T) this;
+    }
+
+    @Override
+    public T hasSheet(final Consumer<T> hasFalse, final Consumer<T> hasTrue) {
+        if (sheetIndex >= 0) {
+            if (Objects.nonNull(hasTrue)) hasTrue.accept((T) this);
+        } else {
+            if (Objects.nonNull(hasFalse)) hasFalse.accept((T) this);
+        }
+        return (T) this;
+    }
+
+    @Override
+    public int sheetCount() {
+        return sheetNames().size();
+    }
+
+    @Override
+    public int sheetIndex() {
+        return sheetIndex;
+    }
+
+    @Override
+    public String sheetName() {
+        return sheetIndex < 0 ? null : sheetNames().get(sheetIndex);
+    }
+
+    @Override
+    public FPath saveWorkBook(final FPath path) {
+        throw new UnsupportedOperationException("流式读取不支持写操作");
+    }
+
+    @Override
+    public void saveWorkBook(final OutputStream outputStream) {
+        throw new UnsupportedOperationException("流式读取不支持写操作");
+    }
+
+    @Override
+    public CellRangeAddress mergedRegionAt(final int rowIndex, final int columnIndex) {
+        throw new UnsupportedOperationException("流式读取不支持合并单元格查找");
+    }
+
+    @Override
+    public List<CellRangeAddress> mergedRegionsIn(final Range range) {
+        throw new UnsupportedOperationException("流式读取不支持合并单元格查找");
+    }
+
+    @Override
+    public LinkedHashMap<CellAddress, Comment> commentsIn(final Range range) {
+        throw new UnsupportedOperationException("【.xls】流式读取不支持按区域查找批注，使用 comments()");
+    }
+
+    @Override
+    public FPath saveWorkBook(final FPath path, final String password) {
+        throw new UnsupportedOperationException("流式读取不支持写操作");
+    }
+
+    @Override
+    public void saveWorkBook(final OutputStream outputStream, final String password) {
+        throw new UnsupportedOperationException("流式读取不支持写操作");
+    }
+
+    @Override
+    public void close() {
+        closeSheet();
+        closeFile();
+    }
+
+    /**
+     * 跳过行索引小于 rowIndex 的行，返回预读的下一行；没有更多行时返回 null
+     *
+     * @param rowIndex int 行索引
+     * @return {@link StreamRow}
+     */
+    private StreamRow seek(final int rowIndex) {
+        while (true) {
+            if (Objects.isNull(pending)) {
+                if (eof) {
+                    return null;
+                }
+                pending = readRow();
+                if (Objects.isNull(pending)) {
+                    eof = true;
+                    return null;
+                }
+                lastReadRowIndex = pending.getRowNum();
+            }
+            if (pending.getRowNum() >= rowIndex) {
+                return pending;
+            }
+            pending = null;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.utils.excel;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.apache.poi.ss.usermodel.BuiltinFormats;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DateUtil;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * 单元格样式格式缓存，每个 workbook 一个；按样式索引缓存格式索引、格式字符串、是否为日期格式
+ * 相同样式的单元格只解析一次格式，避免每次读取都重复调用 getDataFormatString 和 DateUtil.isADateFormat
+ * 缓存不是线程安全的，与读取器一样只能在一个线程中使用
+ *
+ * @author 谢长春 on 2018-8-8 .
+ */
+public final class CellFormats {
+    public CellFormats() {
+        this.entries = new Entry[64];
+    }
+
+    /**
+     * 按样式索引缓存的格式
+     */
+    private Entry[] entries;
+
+    /**
+     * 获取样式对应的格式，没有缓存或样式格式已被修改时重新解析
+     *
+     * @param style {@link CellStyle} 单元格样式
+     * @return {@link Entry}
+     */
+    public Entry of(final CellStyle style) {
+        Objects.requireNonNull(style, "参数【style】是必须的");
+        final int index = style.getIndex() & 0xFFFF;
+        if (index >= entries.length) {
+            entries = Arrays.copyOf(entries, Math.max(index + 1, entries.length << 1));
+        }
+        Entry entry = entries[index];
+        if (Objects.isNull(entry) || entry.index != style.getDataFormat()) { // 样式格式可以被写操作修改，格式索引不一致时重新解析
+            entries[index] = entry = Entry.of(style);
+        }
+        return entry;
+    }
+
+    /**
+     * 单元格格式
+     */
+    @Getter
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    public static final class Entry {
+        /**
+         * 格式索引
+         */
+        private final short index;
+        /**
+         * 格式字符串，样式未指定时使用内置格式
+         */
+        private final String pattern;
+        /**
+         * 是否为日期格式
+         */
+        private final boolean date;
+        /**
+         * 是否为百分比格式
+         */
+        private final boolean percent;
+
+        private static Entry of(final CellStyle style) {
+            final short index = style.getDataFormat();
+            final String pattern = Optional
+                    .ofNullable(style.getDataFormatString())
+                    .map(v -> "".equals(v) ? null : v)
+                    .orElse(BuiltinFormats.getBuiltinFormat(index));
+            return new Entry(
+                    index,
+                    pattern,
+                    DateUtil.isADateFormat(index, pattern),
+                    Objects.nonNull(pattern) && pattern.endsWith("%")
+            );
+        }
+
+        /**
+         * 判断数值按当前格式是否为日期，与 {@link DateUtil#isCellDateFormatted} 一致
+         *
+         * @param value double 单元格数值
+         * @return boolean true：日期
+         */
+        public boolean isDate(final double value) {
+            return date && DateUtil.isValidExcelDate(value);
+        }
+    }
+}
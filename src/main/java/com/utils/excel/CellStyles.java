@@ -12,9 +12,7 @@ import org.apache.poi.xssf.usermodel.XSSFCellStyle;
 import org.apache.poi.xssf.usermodel.XSSFColor;
 
 import java.awt.Color;
-import java.util.HashMap;
 import java.util.Objects;
-import java.util.Optional;
 
 /**
  * 单元格样式
@@ -163,45 +161,36 @@ public final class CellStyles
     // ↑↑↑↑↑↑↑↑↑↑↑↑↑↑↑↑↑↑↑↑↑↑↑↑↑↑↑↑↑↑↑↑↑↑↑↑↑↑↑↑ 实现 CellStyle 接口必须实现的方法，有一部分可以通过 @data实现，剩下这些不能实现的
 
     /**
-     * 克隆追加样式缓存
-     */
-    private final HashMap<Short, CellStyle> CACHE = new HashMap<>();
-
-    /**
-     * 创建并缓存 CellStyle
+     * 获取样式；相等的样式定义在同一个 workbook 中只创建一次，参考 {@link StyleRegistry}
      *
      * @param workbook Workbook 指定样式库
      * @return CellStyle
      */
     public CellStyle createCellStyle(final Workbook workbook) {
-        // Short.MIN_VALUE 存储初始化时默认缓存样式
-        return Optional
-                .ofNullable(CACHE.get(Short.MIN_VALUE))
-                .orElseGet(() -> {
-                    CACHE.put(Short.MIN_VALUE, append(workbook.createCellStyle())); // 若样式没有缓存，则创建并缓存，便于样式复用
-                    return CACHE.get(Short.MIN_VALUE);
-                });
+        return StyleRegistry.of(workbook).resolve(workbook, null, this);
     }
 
     /**
-     * 克隆 fromStyle 并追加样式；若参数 fromStyle 为空，则创建并返回默认样式（存储在 Short.MIN_VALUE 中）
+     * 克隆 fromStyle 并追加样式；若参数 fromStyle 为空，则以默认样式为基础追加样式
+     * 同一个基础样式追加相等的样式定义只创建一次，参考 {@link StyleRegistry}
      *
      * @param workbook  Workbook 指定样式库
      * @param fromStyle CellStyle
      * @return CellStyle
      */
     public CellStyle appendClone(final Workbook workbook, final CellStyle fromStyle) {
-        if (Objects.isNull(fromStyle)) return createCellStyle(workbook);
-        return Optional
-                .ofNullable(CACHE.get(fromStyle.getIndex()))
-                .orElseGet(() -> {
-                    final CellStyle style = workbook.createCellStyle();
-                    style.cloneStyleFrom(fromStyle);
-                    append(style);
-                    CACHE.put(fromStyle.getIndex(), style); // 缓存被克隆的样式，当下次克隆，直接获取缓存
-                    CACHE.put(style.getIndex(), style); // 缓存克隆并追加后的样式，当使用此样式继续克隆是无效的（本身无变化，直接取缓存即可）
-                    return style;
-                });
+        return StyleRegistry.of(workbook).resolve(workbook, fromStyle, this);
+    }
+
+    /**
+     * 复制样式定义；{@link StyleRegistry} 使用副本作为缓存 key ，之后修改原对象不影响已缓存的样式
+     *
+     * @return {@link CellStyles}
+     */
+    CellStyles copy() {
+        return new CellStyles(index, dataFormat, font, hidden, locked, quotePrefixed, alignment, wrapText, verticalAlignment, rotation, indention,
+                borderLeft, borderRight, borderTop, borderBottom, leftBorderColor, rightBorderColor, topBorderColor, bottomBorderColor,
+                fillPattern, fillBackgroundColor, fillForegroundColor);
     }
 
     /**
@@ -4,11 +4,12 @@ import org.apache.poi.ss.usermodel.CellStyle;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.xssf.model.StylesTable;
 
-import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * 样式库依赖对象
+ * 样式库依赖对象；线程安全，多个 sheet 并行写入时可以共享同一个样式库
  *
  * @author 谢长春 on 2018-8-8 .
  */
@@ -27,21 +28,21 @@ final class CloneStyles {
      */
     private final Workbook toWorkbook;
     /**
-     * 克隆样式缓存
+     * 样式索引 => 目标文档样式；同一个来源样式只向 {@link StyleRegistry} 查找一次
      */
-    private final HashMap<Integer, CellStyle> CACHE = new HashMap<>();
+    private final Map<Integer, CellStyle> CACHE = new ConcurrentHashMap<>();
 
     CellStyle clone(int styleIndex) {
         if (Objects.isNull(fromStyleTable)) {
             return null;
         }
-        if (!CACHE.containsKey(styleIndex)) { // 克隆并缓存样式，下次直接使用引用，不会重新创建样式
-            CellStyle style = toWorkbook.createCellStyle();
-            style.cloneStyleFrom(fromStyleTable.getStyleAt(styleIndex));
-            CACHE.put(styleIndex, style);
-//            CACHE.put((int) style.getIndex(), style); // 新产生的样式不能缓存
-            return style;
+        final CellStyle cache = CACHE.get(styleIndex);
+        if (Objects.nonNull(cache)) {
+            return cache;
         }
-        return CACHE.get(styleIndex);
+        // 来源样式属于其他文档，StyleRegistry 不缓存，同一个来源样式只在这里缓存
+        final CellStyle style = StyleRegistry.of(toWorkbook).resolve(toWorkbook, fromStyleTable.getStyleAt(styleIndex), null);
+        CACHE.putIfAbsent(styleIndex, style);
+        return style;
     }
 }
@@ -0,0 +1,375 @@
+package com.utils.excel;
+
+import com.utils.excel.entity.Cell;
+import com.utils.excel.enums.DataType;
+import com.utils.exception.NotFoundException;
+import com.utils.util.Dates;
+import com.utils.util.FPath;
+import com.utils.util.Num;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.xssf.model.StylesTable;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.*;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.*;
+
+import static com.utils.util.Dates.Pattern.yyyy_MM_dd_HH_mm_ss_SSS;
+
+/**
+ * 【.csv|.tsv】 流式读取；按 RFC 4180 解析，支持引号包围的字段、字段内的分隔符、换行和双引号转义
+ * 与 {@link XSSFStreamReader} 一样实现 {@link IStreamReader} ，可以直接使用 headers 、rowObject 、rows(Class) 等读取方法
+ * 文件只有一个 sheet ，名称为文件名（不含后缀）；读取完成之后需要调用 close 方法
+ * <pre>
+ * 默认所有单元格都是文本；调用 {@link #types(List)} 之后按表头 {@link DataType} 和 format 转换单元格：
+ * 数值类型：数字文本转换为数值单元格
+ * PERCENT：50% 转换为 0.5
+ * DATE：按 format 解析，未指定 format 时按 yyyy-MM-dd HH:mm:ss.SSS 、yyyy-MM-dd HH:mm:ss 、yyyy-MM-dd 依次尝试
+ * 无法转换的值保留为文本单元格
+ *
+ * final CsvReader reader = CsvReader.of("/data/用户.csv");
+ * final List&lt;Cell&gt; headers = reader.sheet(0).row(Rownum.of(1)).headers();
+ * reader.types(headers).rows(headers, User.class).forEach(...);
+ * reader.close();
+ *
+ * @author 谢长春 on 2018-8-8 .
+ */
+@Slf4j
+public final class CsvReader extends AbstractStreamReader<CsvReader> {
+    private CsvReader(final File file, final char delimiter, final Charset charset) {
+        this.file = file;
+        this.delimiter = delimiter;
+        this.charset = charset;
+        this.sheetNames = Collections.singletonList(file.getName().replaceAll("\\.[^.]*$", ""));
+        final StylesTable styles = new StylesTable(); // 只用于判断日期和百分比格式，创建之后只读，复制的读取器可以共享
+        this.textStyle = styles.getStyleAt(0);
+        this.dateStyle = styles.createCellStyle();
+        this.dateStyle.setDataFormat((short) styles.putNumberFormat("yyyy-mm-dd hh:mm:ss"));
+        this.percentStyle = styles.createCellStyle();
+        this.percentStyle.setDataFormat((short) styles.putNumberFormat("0.00%"));
+        this.types = new DataType[0];
+        this.formats = new DateTimeFormatter[0];
+    }
+
+    /**
+     * 复制读取器，共享分隔符、编码、样式和单元格类型，使用独立的文件句柄
+     *
+     * @param source {@link CsvReader} 原读取器
+     */
+    private CsvReader(final CsvReader source) {
+        this.file = source.file;
+        this.delimiter = source.delimiter;
+        this.charset = source.charset;
+        this.sheetNames = source.sheetNames;
+        this.textStyle = source.textStyle;
+        this.dateStyle = source.dateStyle;
+        this.percentStyle = source.percentStyle;
+        this.types = source.types;
+        this.formats = source.formats;
+    }
+
+    public static CsvReader of(final String path, String... names) {
+        return of(FPath.of(path, names).file());
+    }
+
+    /**
+     * 按文件后缀选择分隔符：.tsv 使用制表符，其他使用逗号；编码为 UTF-8
+     *
+     * @param file {@link File} 文件
+     * @return {@link CsvReader}
+     */
+    public static CsvReader of(final File file) {
+        Objects.requireNonNull(file, "参数【file】是必须的");
+        return of(file, file.getName().toLowerCase().endsWith(".tsv") ? '\t' : ',', StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param file      {@link File} 文件
+     * @param delimiter char 分隔符
+     * @param charset   {@link Charset} 文件编码，例：UTF-8 、GBK
+     * @return {@link CsvReader}
+     */
+    public static CsvReader of(final File file, final char delimiter, final Charset charset) {
+        Objects.requireNonNull(file, "参数【file】是必须的");
+        Objects.requireNonNull(charset, "参数【charset】是必须的");
+        if (!file.exists()) {
+            throw new NotFoundException("文件不存在：".concat(file.getAbsolutePath()));
+        }
+        if (delimiter == '"' || delimiter == '\r' || delimiter == '\n') {
+            throw new IllegalArgumentException("分隔符不能是双引号或换行符");
+        }
+        return new CsvReader(file, delimiter, charset);
+    }
+
+    private final File file;
+    private final char delimiter;
+    private final Charset charset;
+    private final List<String> sheetNames;
+    private final CellStyle textStyle;
+    private final CellStyle dateStyle;
+    private final CellStyle percentStyle;
+    /**
+     * 按列索引存放的单元格类型和日期格式，来自 {@link #types(List)}
+     */
+    private DataType[] types;
+    private DateTimeFormatter[] formats;
+
+    private FileChannel channel;
+    private CharsetDecoder decoder;
+    /**
+     * 读取缓冲区，每个 sheet 复用
+     */
+    private final ByteBuffer bytes = ByteBuffer.allocate(1 << 16);
+    private final CharBuffer chars = CharBuffer.allocate(1 << 16);
+    /**
+     * 字段缓冲区，每个字段复用
+     */
+    private final StringBuilder field = new StringBuilder(64);
+    /**
+     * 文件已经读完，缓冲区中可能还有未解码的字节
+     */
+    private boolean inputEnd;
+    /**
+     * 已经读取的最后一行索引
+     */
+    private int rowNum;
+
+    /**
+     * 按表头指定列的数据类型；读取数据行之前调用，之后读取的行按类型转换单元格
+     *
+     * @param headers {@link List}{@link List<Cell>} 表头，使用 index 、type 、format
+     * @return {@link CsvReader}
+     */
+    public CsvReader types(final List<Cell> headers) {
+        Objects.requireNonNull(headers, "参数【headers】是必须的");
+        final int size = headers.stream().map(Cell::index).filter(Objects::nonNull).mapToInt(Integer::intValue).max().orElse(-1) + 1;
+        final DataType[] types = new DataType[size];
+        final DateTimeFormatter[] formats = new DateTimeFormatter[size];
+        for (Cell header : headers) {
+            if (Objects.isNull(header.index())) {
+                continue;
+            }
+            types[header.index()] = header.getType();
+            if (Objects.equals(DataType.DATE, header.getType()) && Objects.nonNull(header.getFormat())) {
+                formats[header.index()] = DateTimeFormatter.ofPattern(header.getFormat());
+            }
+        }
+        this.types = types;
+        this.formats = formats;
+        return this;
+    }
+
+    @Override
+    public List<String> sheetNames() {
+        return sheetNames;
+    }
+
+    @Override
+    public CsvReader fork() {
+        return new CsvReader(this);
+    }
+
+    @SneakyThrows
+    @Override
+    void openSheet(final int index) {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        bytes.clear();
+        chars.clear().flip();
+        inputEnd = false;
+        rowNum = -1;
+        if (fill() && chars.get(chars.position()) == '\uFEFF') { // 跳过 BOM
+            chars.get();
+        }
+    }
+
+    @Override
+    StreamRow readRow() {
+        int c = read();
+        if (c < 0) {
+            return null;
+        }
+        final StreamRow row = new StreamRow(++rowNum, false);
+        int columnIndex = 0;
+        while (true) {
+            field.setLength(0);
+            boolean quoted = false;
+            if (c == '"') {
+                quoted = true;
+                while ((c = read()) >= 0) {
+                    if (c == '"') {
+                        if ((c = read()) != '"') {
+                            break; // 结束引号，c 为引号之后的字符
+                        }
+                    }
+                    field.append((char) c);
+                }
+            }
+            while (c >= 0 && c != delimiter && c != '\n' && c != '\r') { // 引号之后到分隔符之前的字符按原样保留
+                field.append((char) c);
+                c = read();
+            }
+            addCell(row, columnIndex++, quoted);
+            if (c == delimiter) {
+                c = read();
+                continue;
+            }
+            if (c == '\r' && (c = read()) >= 0 && c != '\n') { // \r\n 作为一个换行符
+                chars.position(chars.position() - 1);
+            }
+            return row;
+        }
+    }
+
+    @SneakyThrows
+    @Override
+    void closeSheet() {
+        if (Objects.nonNull(channel)) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    @Override
+    void closeFile() {
+    }
+
+    /**
+     * 读取下一个字符，没有更多字符时返回 -1
+     *
+     * @return int
+     */
+    private int read() {
+        if (!chars.hasRemaining() && !fill()) {
+            return -1;
+        }
+        return chars.get();
+    }
+
+    /**
+     * 从文件读取并解码下一批字符
+     *
+     * @return boolean true：读到了字符
+     */
+    @SneakyThrows
+    private boolean fill() {
+        chars.clear();
+        while (chars.position() == 0) {
+            if (!inputEnd && channel.read(bytes) < 0) {
+                inputEnd = true;
+            }
+            bytes.flip();
+            decoder.decode(bytes, chars, inputEnd);
+            bytes.compact();
+            if (inputEnd) {
+                decoder.flush(chars);
+                break;
+            }
+        }
+        chars.flip();
+        return chars.hasRemaining();
+    }
+
+    /**
+     * 将字段缓冲区写入单元格；空字段不创建单元格，引号包围的字段始终作为文本
+     *
+     * @param row         {@link StreamRow} 当前行
+     * @param columnIndex int 列索引
+     * @param quoted      boolean 字段是否被引号包围
+     */
+    private void addCell(final StreamRow row, final int columnIndex, final boolean quoted) {
+        if (field.length() == 0) {
+            return;
+        }
+        final String value = field.toString();
+        final DataType type = quoted || columnIndex >= types.length ? null : types[columnIndex];
+        if (Objects.nonNull(type)) {
+            switch (type) {
+                case DATE:
+                    final Double date = excelDate(value.trim(), formats[columnIndex]);
+                    if (Objects.nonNull(date)) {
+                        row.addCell(columnIndex, dateStyle).numeric(date);
+                        return;
+                    }
+                    break;
+                case PERCENT:
+                    final String text = value.trim();
+                    final Num percent = Num.of(text.endsWith("%") ? text.substring(0, text.length() - 1) : text);
+                    if (!percent.isNull()) {
+                        row.addCell(columnIndex, percentStyle).numeric(text.endsWith("%") ? percent.doubleValue() / 100 : percent.doubleValue());
+                        return;
+                    }
+                    break;
+                case SEQ:
+                case NUMBER:
+                case BIGDECIMAL:
+                case DOUBLE:
+                case FLOAT:
+                case LONG:
+                case INTEGER:
+                case SHORT:
+                    final Num num = Num.of(value.trim());
+                    if (!num.isNull()) {
+                        row.addCell(columnIndex, textStyle).numeric(num.doubleValue());
+                        return;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        row.addCell(columnIndex, textStyle).string(value);
+    }
+
+    /**
+     * 解析日期，返回 excel 日期序号；无法解析时返回 null
+     *
+     * @param value     String 日期文本
+     * @param formatter {@link DateTimeFormatter} 日期格式，为 null 时使用默认格式
+     * @return Double
+     */
+    private static Double excelDate(final String value, final DateTimeFormatter formatter) {
+        try {
+            if (Objects.isNull(formatter)) {
+                return DateUtil.getExcelDate(yyyy_MM_dd_HH_mm_ss_SSS.parse(value).get());
+            }
+            final TemporalAccessor temporal = formatter.parseBest(value, LocalDateTime::from, LocalDate::from);
+            return temporal instanceof LocalDateTime
+                    ? DateUtil.getExcelDate((LocalDateTime) temporal)
+                    : DateUtil.getExcelDate((LocalDate) temporal);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    public static void main(String[] args) {
+        final CsvReader reader = CsvReader.of("logs", "10.文本导出.csv");
+        try {
+            final List<Cell> headers = reader.sheet(0).row(Rownum.of(1)).headers();
+            headers.get(2).setType(DataType.NUMBER);
+            headers.get(3).setType(DataType.PERCENT);
+            headers.get(4).setType(DataType.DATE);
+            reader.types(headers).rows(headers).limit(5).forEach(row -> log.info("{}", row.toJSONString()));
+            reader.row(Rownum.of(10));
+            log.info("第 10 行：数量 {} ，占比 {} ，日期 {}",
+                    reader.cell(2).numberValue(),
+                    reader.cell(3).value(true).orElse(null),
+                    Optional.ofNullable(reader.cell(4).dateValue()).map(Dates::formatDateTime).orElse(null)
+            );
+        } finally {
+            reader.close();
+        }
+    }
+}
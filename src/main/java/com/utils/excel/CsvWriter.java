@@ -0,0 +1,401 @@
+package com.utils.excel;
+
+import com.utils.excel.entity.Cell;
+import com.utils.excel.enums.Column;
+import com.utils.excel.enums.DataType;
+import com.utils.util.Dates;
+import com.utils.util.FPath;
+import com.utils.util.Num;
+import lombok.Cleanup;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.text.DecimalFormat;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * 【.csv|.tsv】 流式写入；与 {@link TableWriter} 使用相同的表头模型，按表头 {@link DataType} 和 format 格式化单元格
+ * 表头只编译一次，生成每列的格式化方法；每行写入一个复用的 {@link StringBuilder} ，不经过 POI
+ * <pre>
+ * 格式化规则：
+ * SEQ：写入序号，从 1 开始
+ * DATE：按 format 格式化，默认 yyyy-MM-dd ；值可以是时间戳、{@link Date}、{@link Dates}、{@link LocalDate}、{@link LocalDateTime}
+ * PERCENT：按 format 格式化，默认 0.00%
+ * 数值类型：指定 format 时使用 {@link DecimalFormat} ，否则输出不带科学计数法的数字
+ * 其他：按文本写入
+ * 值为 null 时写入空字段；包含分隔符、双引号、换行的字段使用双引号包围
+ *
+ * &#64;Cleanup final CsvWriter writer = CsvWriter.of(response.getOutputStream());
+ * writer.writeHeader(header).write(header, rows);
+ *
+ * @author 谢长春 on 2018-8-8 .
+ */
+@Slf4j
+public final class CsvWriter implements AutoCloseable {
+    private CsvWriter(final OutputStream outputStream, final char delimiter, final Charset charset, final boolean bom) {
+        this.out = new BufferedWriter(new OutputStreamWriter(outputStream, charset), 1 << 16);
+        this.delimiter = delimiter;
+        if (bom) {
+            write("\uFEFF");
+        }
+    }
+
+    /**
+     * UTF-8 编码，逗号分隔，写入 BOM 使 excel 能识别编码
+     *
+     * @param outputStream {@link OutputStream} 输出流，例：response.getOutputStream()；{@link #close()} 时关闭
+     * @return {@link CsvWriter}
+     */
+    public static CsvWriter of(final OutputStream outputStream) {
+        return of(outputStream, ',', StandardCharsets.UTF_8, true);
+    }
+
+    /**
+     * UTF-8 编码，写入 BOM ；按文件后缀选择分隔符：.tsv 使用制表符，其他使用逗号
+     *
+     * @param path {@link FPath} 文件路径
+     * @return {@link CsvWriter}
+     */
+    @SneakyThrows
+    public static CsvWriter of(final FPath path) {
+        Objects.requireNonNull(path, "参数【path】是必须的");
+        final FileChannel channel = FileChannel.open(path.get(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        return of(Channels.newOutputStream(channel), path.file().getName().toLowerCase().endsWith(".tsv") ? '\t' : ',', StandardCharsets.UTF_8, true);
+    }
+
+    /**
+     * @param outputStream {@link OutputStream} 输出流；{@link #close()} 时关闭
+     * @param delimiter    char 分隔符
+     * @param charset      {@link Charset} 编码，例：UTF-8 、GBK
+     * @param bom          boolean 是否写入 BOM ，只对 UTF 编码有意义
+     * @return {@link CsvWriter}
+     */
+    public static CsvWriter of(final OutputStream outputStream, final char delimiter, final Charset charset, final boolean bom) {
+        Objects.requireNonNull(outputStream, "参数【outputStream】是必须的");
+        Objects.requireNonNull(charset, "参数【charset】是必须的");
+        if (delimiter == '"' || delimiter == '\r' || delimiter == '\n') {
+            throw new IllegalArgumentException("分隔符不能是双引号或换行符");
+        }
+        return new CsvWriter(outputStream, delimiter, charset, bom);
+    }
+
+    private final Writer out;
+    private final char delimiter;
+    /**
+     * 当前行缓冲区，每行复用
+     */
+    private final StringBuilder line = new StringBuilder(256);
+
+    /**
+     * 写入表头行，按列索引输出 label
+     *
+     * @param header {@link List}{@link List<Cell>} 表头
+     * @return {@link CsvWriter}
+     */
+    public CsvWriter writeHeader(final List<Cell> header) {
+        Objects.requireNonNull(header, "参数【header】是必须的");
+        final Plan[] plans = plans(header);
+        line.setLength(0);
+        int columnIndex = 0;
+        for (Plan plan : plans) {
+            columnIndex = pad(columnIndex, plan.index);
+            append(plan.head.getLabel());
+        }
+        return writeLine();
+    }
+
+    /**
+     * 写入 {@link Map} 数据行；与 {@link TableWriter#ofMap(List)} 一致，优先使用 alias 取值，取不到再用 label 取值
+     *
+     * @param header {@link List}{@link List<Cell>} 表头
+     * @param rows   {@link Iterable}{@link Iterable<Map>} 数据行
+     * @return {@link CsvWriter}
+     */
+    public CsvWriter write(final List<Cell> header, final Iterable<? extends Map<String, ?>> rows) {
+        return write(header, rows, (row, head) -> {
+            final Object value = Objects.isNull(head.getAlias()) ? null : row.get(head.getAlias());
+            return Objects.isNull(value) ? row.get(head.getLabel()) : value;
+        });
+    }
+
+    /**
+     * 写入任意类型数据行
+     *
+     * @param header {@link List}{@link List<Cell>} 表头
+     * @param rows   {@link Iterable}{@link Iterable<E>} 数据行
+     * @param getter {@link BiFunction}{@link BiFunction<E:数据行, Cell:表头, Object:单元格值>} 取值方法
+     * @param <E>    数据行类型
+     * @return {@link CsvWriter}
+     */
+    public <E> CsvWriter write(final List<Cell> header, final Iterable<E> rows, final BiFunction<E, Cell, Object> getter) {
+        Objects.requireNonNull(header, "参数【header】是必须的");
+        Objects.requireNonNull(rows, "参数【rows】是必须的");
+        Objects.requireNonNull(getter, "参数【getter】是必须的");
+        final Plan[] plans = plans(header);
+        int seq = 0;
+        for (E data : rows) {
+            seq++;
+            line.setLength(0);
+            int columnIndex = 0;
+            for (Plan plan : plans) {
+                columnIndex = pad(columnIndex, plan.index);
+                if (Objects.equals(DataType.SEQ, plan.type)) {
+                    line.append(seq);
+                } else {
+                    final Object value = getter.apply(data, plan.head);
+                    if (Objects.nonNull(value)) {
+                        append(plan.format.apply(value));
+                    }
+                }
+            }
+            writeLine();
+        }
+        return this;
+    }
+
+    /**
+     * 写入一行，值按 toString 输出
+     *
+     * @param values Object[] 单元格值
+     * @return {@link CsvWriter}
+     */
+    public CsvWriter writeRow(final Object... values) {
+        return writeRow(Arrays.asList(values));
+    }
+
+    /**
+     * 写入一行，值按 toString 输出
+     *
+     * @param values {@link Iterable} 单元格值
+     * @return {@link CsvWriter}
+     */
+    public CsvWriter writeRow(final Iterable<?> values) {
+        Objects.requireNonNull(values, "参数【values】是必须的");
+        line.setLength(0);
+        boolean first = true;
+        for (Object value : values) {
+            if (!first) {
+                line.append(delimiter);
+            }
+            first = false;
+            if (Objects.nonNull(value)) {
+                append(value.toString());
+            }
+        }
+        return writeLine();
+    }
+
+    @SneakyThrows
+    @Override
+    public void close() {
+        out.close();
+    }
+
+    /**
+     * 补齐分隔符到指定列；第一列之前不输出分隔符
+     *
+     * @param columnIndex int 已输出的列数
+     * @param index       int 目标列索引
+     * @return int 输出目标列之后的列数
+     */
+    private int pad(final int columnIndex, final int index) {
+        for (int i = columnIndex; i <= index; i++) { // 跳过的列输出空字段
+            if (i > 0) {
+                line.append(delimiter);
+            }
+        }
+        return index + 1;
+    }
+
+    /**
+     * 输出字段，包含分隔符、双引号、换行时使用双引号包围，双引号转义为两个双引号
+     *
+     * @param value String 字段值
+     */
+    private void append(final String value) {
+        if (Objects.isNull(value)) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == delimiter || c == '"' || c == '\n' || c == '\r') {
+                quote = true;
+                break;
+            }
+        }
+        if (!quote) {
+            line.append(value);
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        line.append('"');
+    }
+
+    @SneakyThrows
+    private CsvWriter writeLine() {
+        line.append("\r\n");
+        out.append(line);
+        return this;
+    }
+
+    @SneakyThrows
+    private void write(final String value) {
+        out.write(value);
+    }
+
+    /**
+     * 按列索引排序的列写入计划
+     *
+     * @param header {@link List}{@link List<Cell>} 表头
+     * @return {@link Plan}[]
+     */
+    private static Plan[] plans(final List<Cell> header) {
+        final Plan[] plans = header.stream().map(Plan::new).sorted(Comparator.comparingInt(plan -> plan.index)).toArray(Plan[]::new);
+        for (int i = 1; i < plans.length; i++) {
+            if (plans[i].index == plans[i - 1].index) {
+                throw new IllegalArgumentException(String.format("表头列索引重复：%d", plans[i].index));
+            }
+        }
+        return plans;
+    }
+
+    /**
+     * 列写入计划
+     */
+    private static final class Plan {
+        private Plan(final Cell head) {
+            this.head = head;
+            this.index = Objects.requireNonNull(head.index(), "表头【index|column】是必须的");
+            this.type = Optional.ofNullable(head.getType()).orElse(DataType.TEXT);
+            this.format = format(type, head.getFormat());
+        }
+
+        private final Cell head;
+        private final int index;
+        private final DataType type;
+        private final Function<Object, String> format;
+
+        private static Function<Object, String> format(final DataType type, final String pattern) {
+            switch (type) {
+                case DATE:
+                    final DateTimeFormatter formatter = DateTimeFormatter.ofPattern(Optional.ofNullable(pattern).orElse("yyyy-MM-dd"));
+                    return value -> {
+                        final LocalDateTime date = localDateTime(value);
+                        return Objects.isNull(date) ? value.toString() : formatter.format(date);
+                    };
+                case PERCENT:
+                    return number(new DecimalFormat(Optional.ofNullable(pattern).orElse("0.00%")));
+                case NUMBER:
+                case BIGDECIMAL:
+                case DOUBLE:
+                case FLOAT:
+                case LONG:
+                case INTEGER:
+                case SHORT:
+                    return number(Objects.isNull(pattern) ? null : new DecimalFormat(pattern));
+                default:
+                    return Object::toString;
+            }
+        }
+
+        /**
+         * 数值格式化，{@link DecimalFormat} 不是线程安全的，与写入器一样只能在一个线程中使用
+         *
+         * @param decimalFormat {@link DecimalFormat} 为 null 时输出不带科学计数法的数字
+         * @return {@link Function}
+         */
+        private static Function<Object, String> number(final DecimalFormat decimalFormat) {
+            return value -> {
+                final Number number;
+                if (value instanceof Number) {
+                    number = (Number) value;
+                } else {
+                    final Num num = Num.of(value.toString());
+                    if (num.isNull()) {
+                        return value.toString(); // 非数字按文本写入
+                    }
+                    number = num.doubleValue();
+                }
+                if (Objects.nonNull(decimalFormat)) {
+                    return decimalFormat.format(number);
+                }
+                if (number instanceof Long || number instanceof Integer || number instanceof Short || number instanceof Byte) {
+                    return number.toString();
+                }
+                if (number instanceof BigDecimal) {
+                    return ((BigDecimal) number).toPlainString();
+                }
+                final double doubleValue = number.doubleValue();
+                return Double.isNaN(doubleValue) || Double.isInfinite(doubleValue)
+                        ? null
+                        : BigDecimal.valueOf(doubleValue).stripTrailingZeros().toPlainString();
+            };
+        }
+
+        private static LocalDateTime localDateTime(final Object value) {
+            if (value instanceof LocalDateTime) return (LocalDateTime) value;
+            if (value instanceof LocalDate) return ((LocalDate) value).atStartOfDay();
+            if (value instanceof Dates) return ((Dates) value).get();
+            final Long timeMillis;
+            if (value instanceof Number) timeMillis = ((Number) value).longValue();
+            else if (value instanceof Date) timeMillis = ((Date) value).getTime();
+            else timeMillis = Optional.ofNullable(Num.of(value.toString()).toDate()).map(Dates::getTimeMillis).orElse(null);
+            return Objects.isNull(timeMillis) ? null : LocalDateTime.ofInstant(Instant.ofEpochMilli(timeMillis), ZoneId.systemDefault());
+        }
+    }
+
+    public static void main(String[] args) {
+        final List<Cell> header = Arrays.asList(
+                Cell.builder().column(Column.A).label("序号").type(DataType.SEQ).build(),
+                Cell.builder().column(Column.B).label("名称").alias("name").type(DataType.TEXT).build(),
+                Cell.builder().column(Column.C).label("数量").alias("count").type(DataType.NUMBER).build(),
+                Cell.builder().column(Column.D).label("占比").alias("rate").type(DataType.PERCENT).build(),
+                Cell.builder().column(Column.E).label("日期").alias("date").type(DataType.DATE).format("yyyy-MM-dd HH:mm:ss").build()
+        );
+        final List<Map<String, Object>> rows = IntStream.range(0, 100_000)
+                .mapToObj(i -> {
+                    final Map<String, Object> row = new HashMap<>();
+                    row.put("name", i % 10 == 0 ? "名称,\"" + i + "\"\n换行" : "名称" + i);
+                    row.put("count", i * 1.5);
+                    row.put("rate", i / 100_000D);
+                    row.put("date", Dates.now().getTimeMillis());
+                    return row;
+                })
+                .collect(Collectors.toList());
+        try {
+            final long start = System.currentTimeMillis();
+            @Cleanup final CsvWriter writer = CsvWriter.of(FPath.of("logs/10.文本导出.csv"));
+            writer.writeHeader(header).write(header, rows);
+            log.info("写入 {} 行，耗时：{}ms", rows.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.utils.excel;
+
+import com.utils.excel.enums.DataType;
+
+import java.lang.annotation.*;
+
+/**
+ * 实体类字段与 excel 数据列的映射；index 、label 、alias 按顺序匹配，都未指定时使用字段名匹配表头中的 alias
+ * <pre>
+ * &#64;ExcelColumn(label = "姓名")
+ * private String name;
+ * &#64;ExcelColumn(index = 2, type = DataType.DATE)
+ * private Date birthday;
+ *
+ * @author 谢长春 on 2018-8-8 .
+ */
+@Documented
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ExcelColumn {
+    /**
+     * 数据列索引，小于 0 表示不指定
+     *
+     * @return int
+     */
+    int index() default -1;
+
+    /**
+     * 数据列名，匹配表头中的 label
+     *
+     * @return String
+     */
+    String label() default "";
+
+    /**
+     * 数据列别名，匹配表头中的 alias
+     *
+     * @return String
+     */
+    String alias() default "";
+
+    /**
+     * 读取单元格时使用的数据类型，不指定时按字段类型推断
+     *
+     * @return {@link DataType}
+     */
+    DataType[] type() default {};
+}
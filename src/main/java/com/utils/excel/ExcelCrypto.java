@@ -0,0 +1,201 @@
+package com.utils.excel;
+
+import com.utils.exception.NotFoundException;
+import com.utils.util.FPath;
+import lombok.Cleanup;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.EncryptedDocumentException;
+import org.apache.poi.hssf.record.crypto.Biff8EncryptionKey;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.poifs.crypt.Decryptor;
+import org.apache.poi.poifs.crypt.EncryptionInfo;
+import org.apache.poi.poifs.crypt.EncryptionMode;
+import org.apache.poi.poifs.crypt.Encryptor;
+import org.apache.poi.poifs.filesystem.FileMagic;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.util.TempFile;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Objects;
+
+/**
+ * 【.xlsx】 加密文件流式解密、加密；解密和加密过程中的数据都经过临时文件，不在内存中保存整个文件
+ * <pre>
+ * 解密：加密的 .xlsx 是一个 OLE2 文件，EncryptedPackage 中保存加密之后的 zip 包；按块解密写入临时文件，之后可以用流式读取器或 OPCPackage 打开临时文件
+ * 加密：使用 Agile 加密（Excel 2010 之后的默认方式），workbook 写入加密流，POI 将加密之后的数据暂存在临时文件；OLE2 文件系统直接建立在目标文件（或临时文件）上，不在内存中组装
+ * .xls 使用 RC4 加密，按记录解密，HSSFStreamReader 本身就是流式读取；写入时设置 {@link Biff8EncryptionKey} 由 HSSFWorkbook 加密
+ *
+ * ExcelCrypto.write(workbook, FPath.of("logs/加密.xlsx").file(), "123456");
+ * ExcelReader.ofStream(FPath.of("logs/加密.xlsx").file(), "123456");
+ *
+ * @author 谢长春 on 2018-8-8 .
+ */
+@Slf4j
+public final class ExcelCrypto {
+    private ExcelCrypto() {
+    }
+
+    /**
+     * 判断文件是否为加密的 .xlsx ；未加密的 .xlsx 是 zip 文件，加密之后是 OLE2 文件
+     *
+     * @param file {@link File}
+     * @return boolean true：加密文件
+     */
+    @SneakyThrows
+    public static boolean isEncrypted(final File file) {
+        Objects.requireNonNull(file, "参数【file】是必须的");
+        if (!file.exists()) {
+            throw new NotFoundException("文件不存在：".concat(file.getAbsolutePath()));
+        }
+        if (!file.getName().endsWith(".xlsx")) {
+            return false;
+        }
+        @Cleanup final InputStream inputStream = FileMagic.prepareToCheckMagic(new FileInputStream(file));
+        return FileMagic.OLE2 == FileMagic.valueOf(inputStream);
+    }
+
+    /**
+     * 解密 .xlsx 文件到临时文件；按块解密，内存占用与文件大小无关
+     * 密码错误时抛出 {@link EncryptedDocumentException} ，与 .xls 一致
+     *
+     * @param file     {@link File} 加密的 .xlsx 文件
+     * @param password String 文件密码
+     * @return {@link File} 解密之后的临时文件，使用完之后需要删除
+     */
+    @SneakyThrows
+    public static File decrypt(final File file, final String password) {
+        Objects.requireNonNull(file, "参数【file】是必须的");
+        Objects.requireNonNull(password, "参数【password】是必须的");
+        if (!isEncrypted(file)) {
+            throw new IllegalArgumentException("文件未加密：".concat(file.getAbsolutePath()));
+        }
+        @Cleanup final POIFSFileSystem fs = new POIFSFileSystem(file, true);
+        final Decryptor decryptor = Decryptor.getInstance(new EncryptionInfo(fs));
+        if (!decryptor.verifyPassword(password)) {
+            throw new EncryptedDocumentException("密码错误：".concat(file.getAbsolutePath())); // 与 .xls 密码错误时 POI 抛出的异常一致
+        }
+        final File temp = TempFile.createTempFile("excel-decrypted", ".xlsx");
+        try (final InputStream inputStream = decryptor.getDataStream(fs)) {
+            Files.copy(inputStream, temp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (Exception e) {
+            delete(temp);
+            throw e;
+        }
+        return temp;
+    }
+
+    /**
+     * 加密写入文件；password 为 null 时不加密
+     * .xlsx 使用 Agile 加密，OLE2 文件系统直接建立在目标文件上；.xls 使用 RC4 加密
+     *
+     * @param workbook {@link Workbook} XSSFWorkbook、SXSSFWorkbook 或 HSSFWorkbook
+     * @param file     {@link File} 目标文件
+     * @param password String 文件密码
+     */
+    @SneakyThrows
+    public static void write(final Workbook workbook, final File file, final String password) {
+        Objects.requireNonNull(workbook, "参数【workbook】是必须的");
+        Objects.requireNonNull(file, "参数【file】是必须的");
+        if (Objects.isNull(password) || workbook instanceof HSSFWorkbook) {
+            @Cleanup final FileOutputStream fileOutputStream = new FileOutputStream(file);
+            write(workbook, fileOutputStream, password);
+            return;
+        }
+        @Cleanup final POIFSFileSystem fs = POIFSFileSystem.create(file);
+        encrypt(workbook, fs, password);
+        fs.writeFilesystem();
+    }
+
+    /**
+     * 加密写入输出流；password 为 null 时不加密，不会关闭输出流
+     * .xlsx 的 OLE2 文件系统先建立在临时文件上，完成之后复制到输出流
+     *
+     * @param workbook     {@link Workbook} XSSFWorkbook、SXSSFWorkbook 或 HSSFWorkbook
+     * @param outputStream {@link OutputStream}
+     * @param password     String 文件密码
+     */
+    @SneakyThrows
+    public static void write(final Workbook workbook, final OutputStream outputStream, final String password) {
+        Objects.requireNonNull(workbook, "参数【workbook】是必须的");
+        Objects.requireNonNull(outputStream, "参数【outputStream】是必须的");
+        if (Objects.isNull(password)) {
+            workbook.write(outputStream);
+            return;
+        }
+        if (workbook instanceof HSSFWorkbook) {
+            final String current = Biff8EncryptionKey.getCurrentUserPassword();
+            try { // 密码保存在 ThreadLocal 中，写入之后恢复
+                Biff8EncryptionKey.setCurrentUserPassword(password);
+                workbook.write(outputStream);
+            } finally {
+                Biff8EncryptionKey.setCurrentUserPassword(current);
+            }
+            return;
+        }
+        final File temp = TempFile.createTempFile("excel-encrypted", ".xlsx");
+        try {
+            try (final POIFSFileSystem fs = POIFSFileSystem.create(temp)) {
+                encrypt(workbook, fs, password);
+                fs.writeFilesystem();
+            }
+            Files.copy(temp.toPath(), outputStream);
+        } finally {
+            delete(temp);
+        }
+    }
+
+    /**
+     * 使用 Agile 加密将 workbook 写入 OLE2 文件系统
+     */
+    @SneakyThrows
+    private static void encrypt(final Workbook workbook, final POIFSFileSystem fs, final String password) {
+        final EncryptionInfo info = new EncryptionInfo(EncryptionMode.agile);
+        final Encryptor encryptor = info.getEncryptor();
+        encryptor.confirmPassword(password);
+        try (final OutputStream outputStream = encryptor.getDataStream(fs)) { // 关闭时写入 EncryptionInfo 和 EncryptedPackage
+            workbook.write(outputStream);
+        }
+    }
+
+    /**
+     * 删除临时文件
+     *
+     * @param file {@link File}
+     */
+    static void delete(final File file) {
+        if (Objects.nonNull(file) && file.exists() && !file.delete()) {
+            log.warn("临时文件删除失败：{}", file.getAbsolutePath());
+            file.deleteOnExit();
+        }
+    }
+
+    @SneakyThrows
+    public static void main(String[] args) {
+        Paths.get("logs").toFile().mkdir();
+        final FPath path = FPath.of("logs", "15.加密.xlsx");
+        {
+            @Cleanup final SSheetWriter writer = SSheetWriter.ofNewWorkBook("加密");
+            for (int i = 0; i < 100_000; i++) {
+                writer.nextRowOfNew()
+                        .cellOfNew(0).writeNumber(i)
+                        .cellOfNew(1).writeText("名称" + i);
+            }
+            writer.saveWorkBook(path, "123456");
+            log.info("加密保存：{}，是否加密：{}", path.absolute(), isEncrypted(path.file()));
+        }
+        {
+            @Cleanup final IStreamReader<?> reader = ExcelReader.ofStream(path.file(), "123456");
+            reader.sheet(0);
+            int count = 0;
+            while (reader.hasNext()) {
+                count++;
+            }
+            log.info("流式读取：{} 行", count);
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package com.utils.excel;
 
-import com.alibaba.fastjson.JSONObject;
 import com.utils.excel.entity.Position;
 import com.utils.exception.NotFoundException;
 import com.utils.util.FPath;
@@ -10,12 +9,16 @@ import lombok.Getter;
 import lombok.Setter;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 
 /**
@@ -28,6 +31,7 @@ public final class ExcelReader implements ISheetReader<ExcelReader> {
     private ExcelReader(final Workbook workbook) {
         this.workbook = workbook;
         this.dataFormatter = new DataFormatter();
+        this.cellFormats = new CellFormats();
     }
 
     public static ExcelReader of(final String path, String... names) {
@@ -73,9 +77,67 @@ public final class ExcelReader implements ISheetReader<ExcelReader> {
         if (!file.getName().matches("[\\s\\S]+\\.xls(x)?$")) {
             throw new IllegalArgumentException("未知的文件后缀");
         }
+        if (Objects.nonNull(password) && ExcelCrypto.isEncrypted(file)) { // 加密的 .xlsx 先按块解密到临时文件，避免解密之后的文件内容全部留在内存中
+            final File temp = ExcelCrypto.decrypt(file, password);
+            try {
+                final ExcelReader reader = new ExcelReader(new XSSFWorkbook(OPCPackage.open(temp, PackageAccess.READ)));
+                reader.tempFile = temp;
+                return reader;
+            } catch (Exception e) {
+                ExcelCrypto.delete(temp);
+                throw e;
+            }
+        }
         return new ExcelReader(WorkbookFactory.create(file, password, readOnly));
     }
 
+    /**
+     * 流式读取【.xls|.xlsx】，按行解析，适用于大文件读取；只能从上往下顺序读取
+     *
+     * @param file {@link File}
+     * @return {@link IStreamReader}
+     */
+    public static IStreamReader<?> ofStream(final File file) {
+        Objects.requireNonNull(file, "参数【file】是必须的");
+        if (file.getName().endsWith(".xlsx")) {
+            return XSSFStreamReader.of(file);
+        } else if (file.getName().endsWith(".xls")) {
+            return HSSFStreamReader.of(file);
+        } else {
+            throw new IllegalArgumentException("未知的文件后缀");
+        }
+    }
+
+    /**
+     * 流式读取加密的【.xls|.xlsx】；.xlsx 先按块解密到临时文件，关闭读取器时删除临时文件；.xls 按记录解密
+     *
+     * @param file     {@link File}
+     * @param password String 文件密码，为 null 时按未加密文件读取
+     * @return {@link IStreamReader}
+     */
+    public static IStreamReader<?> ofStream(final File file, final String password) {
+        Objects.requireNonNull(file, "参数【file】是必须的");
+        if (file.getName().endsWith(".xlsx")) {
+            return XSSFStreamReader.of(file, password);
+        } else if (file.getName().endsWith(".xls")) {
+            return HSSFStreamReader.of(file, password);
+        } else {
+            throw new IllegalArgumentException("未知的文件后缀");
+        }
+    }
+
+    /**
+     * 多线程流式读取【.xls|.xlsx】所有 sheet ，共享字符串和样式只解析一次；每个 sheet 以第 1 行作为表头
+     *
+     * @param file     {@link File}
+     * @param executor {@link Executor} 执行读取的线程池
+     * @return {@link LinkedHashMap}{@link LinkedHashMap<String:sheet名称, Table:sheet表格>}
+     */
+    public static LinkedHashMap<String, com.utils.excel.entity.Table> tables(final File file, final Executor executor) {
+        @Cleanup final IStreamReader<?> reader = ofStream(file);
+        return reader.tables(executor);
+    }
+
     public static ExcelReader of(final Sheet sheet) {
         Objects.requireNonNull(sheet, "参数【sheet】是必须的");
         final ExcelReader reader = new ExcelReader(sheet.getWorkbook());
@@ -107,6 +169,22 @@ public final class ExcelReader implements ISheetReader<ExcelReader> {
     @Setter
     private Cell cell;
     private DataFormatter dataFormatter;
+    @Getter
+    private final CellFormats cellFormats;
+    /**
+     * 加密文件解密之后的临时文件，关闭时删除
+     */
+    private File tempFile;
+
+    /**
+     * 关闭 Workbook 对象，删除解密之后的临时文件
+     */
+    @SneakyThrows
+    @Override
+    public void close() {
+        workbook.close();
+        ExcelCrypto.delete(tempFile);
+    }
 
     @Override
     public DataFormatter getDataFormatter() {
@@ -172,68 +250,6 @@ public final class ExcelReader implements ISheetReader<ExcelReader> {
         return this;
     }
 
-    /**
-     * 获取当前行指定列数据
-     *
-     * @param headers {@link List}{@link List< com.utils.excel.entity.Cell >} 来自 {@link ExcelReader#headers()}
-     * @return {@link com.utils.excel.entity.Row}{@link com.utils.excel.entity.Row<int:Header对象中的index字段值, String:单元格内容>}
-     */
-    public com.utils.excel.entity.Row rowObject(final List<com.utils.excel.entity.Cell> headers) {
-//        final LinkedHashMap<String, String> map = new LinkedHashMap<>();
-        final com.utils.excel.entity.Row row = com.utils.excel.entity.Row.build();
-        headers.forEach(header -> row.addCell(header.index(),
-                com.utils.excel.entity.Cell.builder()
-                        .text(cell(header.index()).stringValue())
-//                        .type()
-//                        .value()
-//                        .formula()
-//                        .sindex()
-                        .build()
-        ));
-        return row;
-    }
-
-    /**
-     * 获取当前行指定列数据
-     *
-     * @param mapHeaders {@link Map}{@link Map<String:列头字段名, Integer:列索引>} 来自 {@link ExcelReader#mapHeaders()}
-     * @return {@link LinkedHashMap}{@link LinkedHashMap<String:Header对象中的label字段值, String:单元格内容>}
-     */
-    public LinkedHashMap<String, String> rowObject(final Map<String, Integer> mapHeaders) {
-        final LinkedHashMap<String, String> map = new LinkedHashMap<>();
-        mapHeaders.forEach((key, value) -> map.put(key, cell(value).stringValue()));
-        return map;
-    }
-
-    /**
-     * 获取当前行，整行数据
-     *
-     * @return {@link LinkedHashMap}{@link LinkedHashMap<Integer:列索引, String:单元格内容>}
-     */
-    public LinkedHashMap<Integer, String> rowObject() {
-        final LinkedHashMap<Integer, String> map = new LinkedHashMap<>();
-        for (int i = 0; i < getRow().getLastCellNum(); i++) {
-            map.put(i, cell(i).stringValue());
-        }
-        return map;
-    }
-
-    /**
-     * 获取当前行指定列数据
-     *
-     * @param headers {@link List}{@link List< com.utils.excel.entity.Cell >} 来自 {@link ExcelReader#headers()}
-     * @return {@link JSONObject}{@link JSONObject<int:Header对象中的alias或label, String:单元格内容>}
-     */
-    public JSONObject rowJSONObject(final List<com.utils.excel.entity.Cell> headers) {
-//        final LinkedHashMap<String, String> map = new LinkedHashMap<>();
-        final JSONObject row = new JSONObject(true);
-        headers.forEach(header -> cell(header.index())
-                .value()
-                .ifPresent(value -> row.put(Optional.ofNullable(header.getAlias()).orElseGet(header::getLabel), value))
-        );
-        return row;
-    }
-
     public static void main(String[] args) {
         {
             final Consumer<File> read = (file) -> {
@@ -307,5 +323,14 @@ public final class ExcelReader implements ISheetReader<ExcelReader> {
             read.accept(FPath.of("src/test/files/excel/联系人-111111.xls").file());
             read.accept(FPath.of("src/test/files/excel/联系人-111111.xlsx").file());
         }
+        {
+            final Consumer<File> read = (file) -> {
+                @Cleanup final IStreamReader<?> reader = ExcelReader.ofStream(file).sheet(0); // 流式读取第 1 个 sheet
+                reader.row(Rownum.of(1)) // 第 1 行作为表头
+                        .forEachBatch(500, rows -> log.info("批量处理：{} 行", rows.size())); // 每 500 行处理一次，例如 JDBC 批量写入
+            };
+            read.accept(FPath.of("src/test/files/excel/联系人.xls").file());
+            read.accept(FPath.of("src/test/files/excel/联系人.xlsx").file());
+        }
     }
 }
@@ -9,7 +9,10 @@ import lombok.Cleanup;
 import lombok.Getter;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -27,6 +30,7 @@ public final class ExcelRewriter implements ISheetWriter<ExcelRewriter>, ISheetR
         this.ops = Objects.isNull(ops) ? Options.builder().build() : ops;
         this.workbook = workbook;
         this.dataFormatter = new DataFormatter();
+        this.cellFormats = new CellFormats();
 //        this.sheet.setForceFormulaRecalculation(true); // 设置强制刷新公式
         // 若此上面一行设置不起作用，则在写入文件之前使用这行代码强制刷新公式：FormulaEvaluator.evaluateAllFormulaCells(workbook);
     }
@@ -61,10 +65,50 @@ public final class ExcelRewriter implements ISheetWriter<ExcelRewriter>, ISheetR
             throw new IllegalArgumentException("未知的文件后缀");
         }
 //        return new ExcelRewriter(WorkbookFactory.create(file, password, false), ops);
+        if (Objects.nonNull(password) && ExcelCrypto.isEncrypted(file)) { // 加密的 .xlsx 先按块解密到临时文件，修改只作用于临时文件，不会篡改原文件
+            final File temp = ExcelCrypto.decrypt(file, password);
+            try {
+                final ExcelRewriter rewriter = new ExcelRewriter(new XSSFWorkbook(OPCPackage.open(temp, PackageAccess.READ_WRITE)), ops);
+                rewriter.tempFile = temp;
+                return rewriter;
+            } catch (Exception e) {
+                ExcelCrypto.delete(temp);
+                throw e;
+            }
+        }
         // 用 new FileInputStream(file) 初始化可以防止篡改模板
         return new ExcelRewriter(WorkbookFactory.create(new FileInputStream(file), password), ops);
     }
 
+    /**
+     * 从模板缓存打开文件；同一个模板只从磁盘读取一次，适用于反复使用同一个模板生成报表的场景，模板文件修改之后自动重新加载
+     * 参考：{@link TemplateCache}
+     *
+     * @param file {@link File} 模板文件
+     * @param ops  {@link Options}
+     * @return {@link ExcelRewriter}
+     */
+    public static ExcelRewriter ofTemplate(final File file, final Options ops) {
+        return ofTemplate(file, ops, null);
+    }
+
+    /**
+     * 从模板缓存打开文件；同一个模板只从磁盘读取一次，适用于反复使用同一个模板生成报表的场景，模板文件修改之后自动重新加载
+     * 参考：{@link TemplateCache}
+     *
+     * @param file     {@link File} 模板文件
+     * @param ops      {@link Options}
+     * @param password String 文件密码
+     * @return {@link ExcelRewriter}
+     */
+    public static ExcelRewriter ofTemplate(final File file, final Options ops, final String password) {
+        Objects.requireNonNull(file, "参数【file】是必须的");
+        if (!file.getName().matches("[\\s\\S]*\\.xls(x)?$")) {
+            throw new IllegalArgumentException("未知的文件后缀");
+        }
+        return new ExcelRewriter(TemplateCache.getDefault().open(file, password), ops);
+    }
+
     @Getter
     private final Options ops;
     @Getter
@@ -86,8 +130,32 @@ public final class ExcelRewriter implements ISheetWriter<ExcelRewriter>, ISheetR
      */
     @Getter
     private Cell cell;
+    /**
+     * 公式增量计算，第一次调用 {@link #evaluateChangedFormulaCells()} 时创建
+     */
+    private FormulaRecalculator formulaRecalculator;
     @Getter
     private DataFormatter dataFormatter;
+    @Getter
+    private final CellFormats cellFormats;
+    /**
+     * 加密文件解密之后的临时文件，关闭时删除
+     */
+    private File tempFile;
+
+    /**
+     * 关闭 Workbook 对象；打开加密文件时放弃对临时文件的修改并删除临时文件
+     */
+    @SneakyThrows
+    @Override
+    public void close() {
+        if (Objects.isNull(tempFile)) {
+            workbook.close();
+            return;
+        }
+        ((XSSFWorkbook) workbook).getPackage().revert(); // close 会把修改写回临时文件，这里直接放弃
+        ExcelCrypto.delete(tempFile);
+    }
 
     /**
      * 按索引选择读取sheet
@@ -117,6 +185,15 @@ public final class ExcelRewriter implements ISheetWriter<ExcelRewriter>, ISheetR
         return this;
     }
 
+    @Override
+    public ExcelRewriter evaluateChangedFormulaCells() {
+        if (Objects.isNull(formulaRecalculator)) {
+            formulaRecalculator = FormulaRecalculator.of(workbook);
+        }
+        formulaRecalculator.evaluate();
+        return this;
+    }
+
     @Override
     public ExcelRewriter setRowIndex(final int rowIndex) {
         this.rowIndex = rowIndex;
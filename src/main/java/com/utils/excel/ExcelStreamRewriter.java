@@ -0,0 +1,526 @@
+package com.utils.excel;
+
+import com.utils.excel.entity.TotalRange;
+import com.utils.excel.enums.Formula;
+import com.utils.util.FPath;
+import lombok.Cleanup;
+import lombok.Getter;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.ss.formula.FormulaParser;
+import org.apache.poi.ss.formula.FormulaRenderer;
+import org.apache.poi.ss.formula.FormulaType;
+import org.apache.poi.ss.formula.ptg.AreaPtgBase;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.formula.ptg.Pxg;
+import org.apache.poi.ss.formula.ptg.RefPtgBase;
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFEvaluationWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static com.utils.excel.enums.Column.*;
+
+/**
+ * 【.xlsx】模板流式改写；模板的表头、表尾保留在 XSSF 中，数据行通过 SXSSF 写入临时文件，内存只保留 rowAccessWindowSize 行，可以向模板追加几十万行数据
+ * <pre>
+ * 模板约定（参数 {@link TotalRange}）：
+ * begin ~ end：数据样例行，提供数据行的行高、行样式、单元格样式和公式（例：E3=C3*D3），可以是多行，按顺序循环使用；样例行本身的值不会写入
+ * total：合计行；end 之后的所有行（合计、备注、签名等）都属于表尾
+ * begin 之前的行为表头，保持不变
+ *
+ * 写入：{@link #nextRow()} 按样例行创建下一个数据行并返回 {@link SSheetWriter} ，之后按列写入值；也可以通过 {@link #getWriter()} 自行写入，行号从 begin 开始递增，writer 的当前行视为最后一个数据行
+ * 保存时表尾移动到最后一个数据行之后：
+ * 表尾、表头公式中引用表尾的行号按移动的行数平移；行范围完全落在样例行内的区域引用（例：SUM(C3:C3)）扩展为所有数据行（SUM(C3:C200002)）
+ * 表尾中完全落在表尾内的合并单元格随表尾移动；没有数据行时保留一个空的数据行，避免合计公式引用到自身
+ * 不保留：样例行、表尾中的批注、超链接、条件格式、数据验证；其他 sheet 引用本 sheet 表尾的公式不会改写
+ * 只能向后追加数据行，已经写入临时文件的行不能再读取或修改
+ *
+ * &#64;Cleanup final ExcelStreamRewriter rewriter = ExcelStreamRewriter.of(FPath.of("template.xlsx").file(), 0, TotalRange.of().beginIndex(2).endIndex(2).totalIndex(3), null);
+ * rows.forEach(row -&gt; rewriter.nextRow().cell(A).writeText(row.getName()).cell(C).writeNumber(row.getAmount()));
+ * rewriter.saveWorkBook(FPath.of("logs/report.xlsx"));
+ *
+ * @author 谢长春 on 2018-8-8 .
+ */
+@Slf4j
+public final class ExcelStreamRewriter implements AutoCloseable {
+    private ExcelStreamRewriter(final XSSFWorkbook template, final int sheetIndex, final TotalRange range, final ISheetWriter.Options ops) {
+        final XSSFSheet sheet = template.getSheetAt(sheetIndex);
+        this.sheetIndex = sheetIndex;
+        this.beginRowIndex = range.begin().index();
+        this.endRowIndex = range.end().index();
+        this.totalRowIndex = range.total().index();
+        if (beginRowIndex < 0 || endRowIndex < beginRowIndex || totalRowIndex <= endRowIndex) {
+            throw new IllegalArgumentException(String.format("模板区间无效：begin=%d，end=%d，total=%d", range.begin().get(), range.end().get(), range.total().get()));
+        }
+        this.parsingWorkbook = XSSFEvaluationWorkbook.create(template);
+        this.samples = new ArrayList<>(endRowIndex - beginRowIndex + 1);
+        for (int i = beginRowIndex; i <= endRowIndex; i++) {
+            samples.add(new RowTemplate(sheet, i));
+        }
+        this.footer = new ArrayList<>();
+        for (int i = endRowIndex + 1; i <= sheet.getLastRowNum(); i++) {
+            footer.add(new RowTemplate(sheet, i));
+        }
+        // 表尾的合并单元格随表尾移动，与样例行、表尾相交的其他合并单元格删除
+        this.merges = new ArrayList<>();
+        for (int i = sheet.getNumMergedRegions() - 1; i >= 0; i--) {
+            final CellRangeAddress region = sheet.getMergedRegion(i);
+            if (region.getLastRow() >= beginRowIndex) {
+                if (region.getFirstRow() > endRowIndex) {
+                    merges.add(region);
+                }
+                sheet.removeMergedRegion(i);
+            }
+        }
+        for (int i = sheet.getLastRowNum(); i >= beginRowIndex; i--) {
+            final Row row = sheet.getRow(i);
+            if (Objects.nonNull(row)) {
+                sheet.removeRow(row);
+            }
+        }
+        // 表头中引用表尾的公式在保存时改写
+        this.headers = new ArrayList<>();
+        for (Row row : sheet) {
+            for (Cell cell : row) {
+                if (CellType.FORMULA == cell.getCellType()) {
+                    headers.add(new CellTemplate(cell));
+                }
+            }
+        }
+        this.workbook = SSheetWriter.newWorkbook(template, ops);
+        this.writer = SSheetWriter.of(workbook.getSheetAt(sheetIndex), ops).setRowIndex(beginRowIndex - 1);
+    }
+
+    /**
+     * 打开模板；模板通过 {@link TemplateCache} 读取，同一个模板只从磁盘读取一次
+     *
+     * @param file       {@link File} 模板文件，只支持 .xlsx
+     * @param sheetIndex int 写入数据的 sheet 索引
+     * @param range      {@link TotalRange} 模板中的数据样例行（begin ~ end）和合计行（total）
+     * @param ops        {@link ISheetWriter.Options} 写入参数，rowAccessWindowSize 、临时文件、字符串写入方式等
+     * @return {@link ExcelStreamRewriter}
+     */
+    public static ExcelStreamRewriter of(final File file, final int sheetIndex, final TotalRange range, final ISheetWriter.Options ops) {
+        Objects.requireNonNull(file, "参数【file】是必须的");
+        Objects.requireNonNull(range, "参数【range】是必须的");
+        if (!file.getName().endsWith(".xlsx")) {
+            throw new IllegalArgumentException("只支持 .xlsx 模板");
+        }
+        return new ExcelStreamRewriter(
+                (XSSFWorkbook) TemplateCache.getDefault().open(file, null),
+                sheetIndex,
+                range,
+                Objects.isNull(ops) ? ISheetWriter.Options.builder().build() : ops
+        );
+    }
+
+    @Getter
+    private final SXSSFWorkbook workbook;
+    /**
+     * 数据行写入器
+     */
+    @Getter
+    private final SSheetWriter writer;
+    private final int sheetIndex;
+    private final int beginRowIndex;
+    private final int endRowIndex;
+    private final int totalRowIndex;
+    private final XSSFEvaluationWorkbook parsingWorkbook;
+    private final List<RowTemplate> samples;
+    private final List<RowTemplate> footer;
+    private final List<CellRangeAddress> merges;
+    private final List<CellTemplate> headers;
+    /**
+     * 已写入表尾
+     */
+    private boolean finished;
+
+    /**
+     * 按样例行创建下一个数据行，并选中该行
+     *
+     * @return {@link SSheetWriter}
+     */
+    public SSheetWriter nextRow() {
+        final int rowIndex = writer.getRowIndex() + 1;
+        return writer.row(samples.get((rowIndex - beginRowIndex) % samples.size()).write(writer.getSheet(), rowIndex));
+    }
+
+    /**
+     * 当前数据行区间和合计行；未写入表尾之前 total 为表尾写入之后的位置
+     *
+     * @return {@link TotalRange}
+     */
+    public TotalRange getTotalRange() {
+        final int lastRowIndex = lastRowIndex();
+        return TotalRange.of()
+                .beginIndex(beginRowIndex)
+                .endIndex(lastRowIndex)
+                .totalIndex(totalRowIndex + offset(lastRowIndex));
+    }
+
+    /**
+     * 最后一个数据行，即 writer 的当前行；没有数据行时为 begin ，保留一个空行
+     */
+    private int lastRowIndex() {
+        return Math.max(writer.getRowIndex(), beginRowIndex);
+    }
+
+    /**
+     * 表尾移动的行数
+     */
+    private int offset(final int lastRowIndex) {
+        return lastRowIndex + 1 - (endRowIndex + 1);
+    }
+
+    /**
+     * 在最后一个数据行之后写入表尾，并改写表头中引用表尾的公式；只执行一次，之后不能再写入数据行
+     *
+     * @return {@link ExcelStreamRewriter}
+     */
+    public ExcelStreamRewriter finish() {
+        if (finished) {
+            return this;
+        }
+        finished = true;
+        final Sheet sheet = writer.getSheet();
+        final int lastRowIndex = lastRowIndex();
+        final int offset = offset(lastRowIndex);
+        if (writer.getRowIndex() < beginRowIndex) {
+            sheet.createRow(beginRowIndex);
+        }
+        for (RowTemplate row : footer) {
+            row.relocate(sheet, offset, lastRowIndex);
+        }
+        for (CellRangeAddress region : merges) {
+            sheet.addMergedRegionUnsafe(new CellRangeAddress(
+                    region.getFirstRow() + offset, region.getLastRow() + offset, region.getFirstColumn(), region.getLastColumn()
+            ));
+        }
+        SheetIndex.invalidate(sheet);
+        final XSSFSheet xssfSheet = workbook.getXSSFWorkbook().getSheetAt(sheetIndex);
+        for (CellTemplate cell : headers) {
+            final String formula = cell.relocate(offset, lastRowIndex);
+            if (!Objects.equals(formula, cell.value)) {
+                xssfSheet.getRow(cell.rowIndex).getCell(cell.columnIndex).setCellFormula(formula);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * 写入表尾并保存到指定路径
+     *
+     * @param path {@link FPath} 保存路径
+     * @return {@link FPath}
+     */
+    @SneakyThrows
+    public FPath saveWorkBook(final FPath path) {
+        @Cleanup final FileOutputStream fileOutputStream = new FileOutputStream(path.file());
+        finish();
+        workbook.write(fileOutputStream);
+        path.chmod(644); // 设置文件权限
+        return path;
+    }
+
+    /**
+     * 写入表尾并保存到输出流
+     *
+     * @param outputStream {@link OutputStream}
+     */
+    @SneakyThrows
+    public void saveWorkBook(final OutputStream outputStream) {
+        finish();
+        workbook.write(outputStream);
+        outputStream.close();
+    }
+
+    /**
+     * 写入表尾并加密保存到指定路径；参考：{@link ExcelCrypto#write(org.apache.poi.ss.usermodel.Workbook, File, String)}
+     *
+     * @param path     {@link FPath} 保存路径
+     * @param password String 文件密码，为 null 时不加密
+     * @return {@link FPath}
+     */
+    public FPath saveWorkBook(final FPath path, final String password) {
+        finish();
+        ExcelCrypto.write(workbook, path.file(), password);
+        path.chmod(644); // 设置文件权限
+        return path;
+    }
+
+    /**
+     * 写入表尾并加密保存到输出流
+     *
+     * @param outputStream {@link OutputStream}
+     * @param password     String 文件密码，为 null 时不加密
+     */
+    @SneakyThrows
+    public void saveWorkBook(final OutputStream outputStream, final String password) {
+        finish();
+        ExcelCrypto.write(workbook, outputStream, password);
+        outputStream.close();
+    }
+
+    /**
+     * 删除 SXSSF 临时文件并关闭 Workbook 对象
+     */
+    @SneakyThrows
+    @Override
+    public void close() {
+        workbook.dispose();
+        workbook.close();
+    }
+
+    /**
+     * 模板行
+     */
+    private final class RowTemplate {
+        private final int rowIndex;
+        private final short height;
+        private final CellStyle rowStyle;
+        private final List<CellTemplate> cells = new ArrayList<>();
+
+        private RowTemplate(final XSSFSheet sheet, final int rowIndex) {
+            final XSSFRow row = sheet.getRow(rowIndex);
+            this.rowIndex = rowIndex;
+            this.height = Objects.nonNull(row) && row.getCTRow().isSetHt() ? row.getHeight() : -1;
+            this.rowStyle = Objects.nonNull(row) && row.isFormatted() ? row.getRowStyle() : null;
+            if (Objects.nonNull(row)) {
+                for (Cell cell : row) {
+                    cells.add(new CellTemplate(cell));
+                }
+            }
+        }
+
+        private Row create(final Sheet sheet, final int toRowIndex) {
+            final Row row = sheet.createRow(toRowIndex);
+            if (height >= 0) {
+                row.setHeight(height);
+            }
+            if (Objects.nonNull(rowStyle)) {
+                row.setRowStyle(rowStyle);
+            }
+            return row;
+        }
+
+        /**
+         * 按样例行创建数据行：复制样式和公式，不复制值
+         */
+        private Row write(final Sheet sheet, final int toRowIndex) {
+            final Row row = create(sheet, toRowIndex);
+            final int offset = toRowIndex - rowIndex;
+            for (CellTemplate template : cells) {
+                final Cell cell = row.createCell(template.columnIndex);
+                cell.setCellStyle(template.style);
+                if (CellType.FORMULA == template.type) {
+                    cell.setCellFormula(template.shift(offset));
+                }
+            }
+            return row;
+        }
+
+        /**
+         * 在新位置写入表尾行
+         */
+        private void relocate(final Sheet sheet, final int offset, final int lastRowIndex) {
+            final Row row = create(sheet, rowIndex + offset);
+            for (CellTemplate template : cells) {
+                final Cell cell = row.createCell(template.columnIndex);
+                cell.setCellStyle(template.style);
+                switch (template.type) {
+                    case NUMERIC:
+                        cell.setCellValue((Double) template.value);
+                        break;
+                    case STRING:
+                        cell.setCellValue((String) template.value);
+                        break;
+                    case BOOLEAN:
+                        cell.setCellValue((Boolean) template.value);
+                        break;
+                    case ERROR:
+                        cell.setCellErrorValue((Byte) template.value);
+                        break;
+                    case FORMULA:
+                        cell.setCellFormula(template.relocate(offset, lastRowIndex));
+                        break;
+                    default:
+                }
+            }
+        }
+    }
+
+    /**
+     * 模板单元格
+     */
+    private final class CellTemplate {
+        private final int rowIndex;
+        private final int columnIndex;
+        private final CellType type;
+        private final Object value;
+        private final CellStyle style;
+        /**
+         * 公式解析结果，只读；改写时复制
+         */
+        private final Ptg[] ptgs;
+
+        private CellTemplate(final Cell cell) {
+            this.rowIndex = cell.getRowIndex();
+            this.columnIndex = cell.getColumnIndex();
+            this.type = cell.getCellType();
+            this.style = cell.getCellStyle();
+            switch (type) {
+                case NUMERIC:
+                    this.value = cell.getNumericCellValue();
+                    break;
+                case STRING:
+                    this.value = cell.getStringCellValue();
+                    break;
+                case BOOLEAN:
+                    this.value = cell.getBooleanCellValue();
+                    break;
+                case ERROR:
+                    this.value = cell.getErrorCellValue();
+                    break;
+                case FORMULA:
+                    this.value = cell.getCellFormula();
+                    break;
+                default:
+                    this.value = null;
+            }
+            this.ptgs = CellType.FORMULA == type
+                    ? FormulaParser.parse((String) value, parsingWorkbook, FormulaType.CELL, sheetIndex, rowIndex)
+                    : null;
+        }
+
+        private Ptg[] copy() {
+            final Ptg[] copy = new Ptg[ptgs.length];
+            for (int i = 0; i < ptgs.length; i++) {
+                copy[i] = ptgs[i].copy();
+            }
+            return copy;
+        }
+
+        /**
+         * 引用当前 sheet 的单元格
+         */
+        private boolean local(final Ptg ptg) {
+            return !(ptg instanceof Pxg) || Objects.equals(((Pxg) ptg).getSheetName(), parsingWorkbook.getSheetName(sheetIndex));
+        }
+
+        /**
+         * 样例行公式复制到数据行：相对行引用按行偏移量平移
+         */
+        private String shift(final int offset) {
+            final Ptg[] copy = copy();
+            for (Ptg ptg : copy) {
+                if (ptg instanceof RefPtgBase) {
+                    final RefPtgBase ref = (RefPtgBase) ptg;
+                    if (ref.isRowRelative()) {
+                        ref.setRow(ref.getRow() + offset);
+                    }
+                } else if (ptg instanceof AreaPtgBase) {
+                    final AreaPtgBase area = (AreaPtgBase) ptg;
+                    if (area.isFirstRowRelative()) {
+                        area.setFirstRow(area.getFirstRow() + offset);
+                    }
+                    if (area.isLastRowRelative()) {
+                        area.setLastRow(area.getLastRow() + offset);
+                    }
+                }
+            }
+            return FormulaRenderer.toFormulaString(parsingWorkbook, copy);
+        }
+
+        /**
+         * 表尾移动之后改写公式：引用表尾的行号平移，完全落在样例行内的区域扩展为所有数据行
+         */
+        private String relocate(final int offset, final int lastRowIndex) {
+            final Ptg[] copy = copy();
+            for (Ptg ptg : copy) {
+                if (!local(ptg)) {
+                    continue;
+                }
+                if (ptg instanceof RefPtgBase) {
+                    final RefPtgBase ref = (RefPtgBase) ptg;
+                    if (ref.getRow() > endRowIndex) {
+                        ref.setRow(ref.getRow() + offset);
+                    }
+                } else if (ptg instanceof AreaPtgBase) {
+                    final AreaPtgBase area = (AreaPtgBase) ptg;
+                    if (beginRowIndex <= area.getFirstRow() && area.getLastRow() <= endRowIndex) {
+                        area.setFirstRow(beginRowIndex);
+                        area.setLastRow(lastRowIndex);
+                    } else {
+                        if (area.getFirstRow() > endRowIndex) {
+                            area.setFirstRow(area.getFirstRow() + offset);
+                        }
+                        if (area.getLastRow() > endRowIndex) {
+                            area.setLastRow(area.getLastRow() + offset);
+                        }
+                    }
+                }
+            }
+            return FormulaRenderer.toFormulaString(parsingWorkbook, copy);
+        }
+    }
+
+    public static void main(String[] args) {
+        try {
+            final FPath template = FPath.of("logs/14.流式改写模板.xlsx");
+            { // 生成模板：标题、表头、样例行、合计行、备注行
+                @Cleanup final XSSFWorkbook workbook = new XSSFWorkbook();
+                final XSheetWriter writer = XSheetWriter.of(workbook.createSheet("明细"))
+                        .rowNew(Rownum.of(1)).cell(A).writeText("销售明细").cell(D).writeText("合计金额：").cell(E).writeFormula("E5")
+                        .rowNew(Rownum.of(2)).cell(A).writeText("序号").cell(B).writeText("名称").cell(C).writeText("数量").cell(D).writeText("单价").cell(E).writeText("金额")
+                        .rowNew(Rownum.of(3)).cell(A).cell(B).cell(C).cell(D).cell(E).writeFormula("C3*D3")
+                        .appendStyleOfRow(CellStyles.builder().borderBottom(BorderStyle.THIN).build())
+                        .rowNew(Rownum.of(4))
+                        .cell(A).writeText("合计").cell(C).writeFormula(Formula.SUM.of("C3", "C3")).cell(E).writeFormula(Formula.SUM.of("E3", "E3"))
+                        .rowNew(Rownum.of(5)).cell(A).writeText("备注：金额 = 数量 × 单价").cell(E).writeFormula("E4")
+                        .merge(com.utils.excel.entity.Range.of("A5:D5"));
+                writer.saveWorkBook(template);
+            }
+            final long startTime = System.currentTimeMillis();
+            @Cleanup final ExcelStreamRewriter rewriter = ExcelStreamRewriter.of(
+                    template.file(), 0, TotalRange.of().beginNum(3).endNum(3).totalNum(4), ISheetWriter.Options.builder().rowAccessWindowSize(200).build()
+            );
+            for (int i = 0; i < 200_000; i++) {
+                rewriter.nextRow()
+                        .cell(A).writeNumber(i + 1)
+                        .cell(B).writeText("名称" + i % 100)
+                        .cell(C).writeNumber(i % 10)
+                        .cell(D).writeNumber(1.5);
+            }
+            log.info("数据区间：{}", rewriter.getTotalRange());
+            log.info("写入路径：{}", rewriter.saveWorkBook(FPath.of("logs/14.流式改写.xlsx")).absolute());
+            log.info("写入 200000 行，耗时：{}ms", System.currentTimeMillis() - startTime);
+            { // 模板 + 共享字符串表：重复的名称在 sharedStrings.xml 中只保存一次
+                @Cleanup final ExcelStreamRewriter shared = ExcelStreamRewriter.of(
+                        template.file(), 0, TotalRange.of().beginNum(3).endNum(3).totalNum(4),
+                        ISheetWriter.Options.builder().rowAccessWindowSize(200).sharedStrings(SXSSFSharedStrings.Mode.SHARED).build()
+                );
+                for (int i = 0; i < 20_000; i++) {
+                    shared.nextRow()
+                            .cell(A).writeNumber(i + 1)
+                            .cell(B).writeText("名称" + i % 100)
+                            .cell(C).writeNumber(i % 10)
+                            .cell(D).writeNumber(1.5);
+                }
+                log.info("共享字符串写入路径：{}", shared.saveWorkBook(FPath.of("logs/14.流式改写-共享字符串.xlsx")).absolute());
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,652 @@
+package com.utils.excel;
+
+import com.utils.exception.NotFoundException;
+import com.utils.util.Dates;
+import com.utils.util.FPath;
+import lombok.Cleanup;
+import lombok.Getter;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.hssf.usermodel.HSSFEvaluationWorkbook;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.formula.FormulaParseException;
+import org.apache.poi.ss.formula.FormulaParser;
+import org.apache.poi.ss.formula.FormulaParsingWorkbook;
+import org.apache.poi.ss.formula.FormulaRenderer;
+import org.apache.poi.ss.formula.FormulaRenderingWorkbook;
+import org.apache.poi.ss.formula.FormulaType;
+import org.apache.poi.ss.formula.ptg.AreaPtg;
+import org.apache.poi.ss.formula.ptg.IntPtg;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.formula.ptg.RefPtg;
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.usermodel.XSSFEvaluationWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * 【.xls|.xlsx】模板填充；模板只扫描一次，占位符编译为填充计划，按文件路径缓存，文件修改时间或大小变化之后重新编译
+ * <pre>
+ * 占位符：
+ * ${field} 、${user.name}：单元格内容只有一个占位符时按值类型写入（数字、日期、布尔、文本），与其他文本混合时替换为文本
+ * ${list[].field}：行循环区域；引用同一个列表的连续行组成一个区域，每个元素复制一次区域后填充；${list[]} 表示元素本身
+ * 区域之后的行整体下移，区域内的公式按行偏移；区域外的公式中，行范围在区域内并且以区域最后一行结束的引用（例：SUM(C3:C3)）扩展到填充之后的最后一行
+ * 列表为空时删除区域；区域外的公式中，完全落在区域内的引用替换为 0 ，部分在区域内的引用去掉区域内的行，避免删除之后变成 #REF!
+ * 区域之后的行在填充时会被重新写入，单元格值、样式、公式、合并单元格、超链接、行高、行样式保持不变，批注不保留
+ * 取值：Map 按 key 取值，其他对象按 getter 取值；列表可以是 Iterable 、Iterator 、Stream 、数组
+ * 日期格式使用模板单元格的样式
+ *
+ * ExcelTemplate.of(FPath.of("template.xlsx").file()).fill(data).saveWorkBook(FPath.of("logs/report.xlsx"));
+ *
+ * @author 谢长春 on 2018-8-8 .
+ */
+@Slf4j
+public final class ExcelTemplate {
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\$\\{\\s*([^}]+?)\\s*}");
+    private static final String ELEMENT = "[]";
+    /**
+     * 文件绝对路径 => 填充计划
+     */
+    private static final Map<String, ExcelTemplate> TEMPLATES = new ConcurrentHashMap<>();
+    /**
+     * 实体类 getter 缓存
+     */
+    private static final Map<Class<?>, Map<String, Method>> GETTERS = new ConcurrentHashMap<>();
+
+    @SneakyThrows
+    private ExcelTemplate(final File file, final long lastModified, final long length) {
+        this.file = file;
+        this.lastModified = lastModified;
+        this.length = length;
+        @Cleanup final FileInputStream inputStream = new FileInputStream(file);
+        @Cleanup final Workbook workbook = WorkbookFactory.create(inputStream);
+        this.sheets = IntStream.range(0, workbook.getNumberOfSheets())
+                .mapToObj(index -> new SheetPlan(index, workbook.getSheetAt(index)))
+                .filter(SheetPlan::nonEmpty)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 获取模板填充计划；同一个文件只编译一次，文件修改时间或大小变化之后重新编译
+     *
+     * @param file {@link File} 模板文件，.xls 或 .xlsx
+     * @return {@link ExcelTemplate}
+     */
+    public static ExcelTemplate of(final File file) {
+        Objects.requireNonNull(file, "参数【file】是必须的");
+        if (!file.exists()) {
+            throw new NotFoundException("文件不存在：".concat(file.getAbsolutePath()));
+        }
+        final long lastModified = file.lastModified();
+        final long length = file.length();
+        final ExcelTemplate template = TEMPLATES.get(file.getAbsolutePath());
+        if (Objects.nonNull(template) && template.lastModified == lastModified && template.length == length) {
+            return template;
+        }
+        return TEMPLATES.compute(file.getAbsolutePath(), (key, value) ->
+                Objects.nonNull(value) && value.lastModified == lastModified && value.length == length
+                        ? value
+                        : new ExcelTemplate(file, lastModified, length)
+        );
+    }
+
+    @Getter
+    private final File file;
+    private final long lastModified;
+    private final long length;
+    /**
+     * 包含占位符的 sheet
+     */
+    private final List<SheetPlan> sheets;
+
+    /**
+     * 打开模板文件并填充
+     *
+     * @param data Object 数据，Map 或实体类
+     * @return {@link ExcelRewriter} 已选中第一个 sheet ，使用完之后需要关闭
+     */
+    public ExcelRewriter fill(final Object data) {
+        return fill(ExcelRewriter.ofTemplate(file, null), data);
+    }
+
+    /**
+     * 填充已打开的模板；rewriter 必须是从当前模板文件打开的
+     *
+     * @param rewriter {@link ExcelRewriter} 模板文件
+     * @param data     Object 数据，Map 或实体类
+     * @return {@link ExcelRewriter} 已选中第一个 sheet
+     */
+    public ExcelRewriter fill(final ExcelRewriter rewriter, final Object data) {
+        Objects.requireNonNull(rewriter, "参数【rewriter】是必须的");
+        for (SheetPlan plan : sheets) {
+            plan.fill(rewriter.getWorkbook().getSheetAt(plan.index), data);
+        }
+        return rewriter.sheet(0);
+    }
+
+    /**
+     * sheet 填充计划
+     */
+    private static final class SheetPlan {
+        private SheetPlan(final int index, final Sheet sheet) {
+            this.index = index;
+            final List<Region> regions = new ArrayList<>();
+            for (Row row : sheet) {
+                String list = null;
+                final List<CellPlan> rowCells = new ArrayList<>();
+                for (Cell cell : row) {
+                    if (Objects.equals(CellType.FORMULA, cell.getCellType())) {
+                        formulas.add(new int[]{cell.getRowIndex(), cell.getColumnIndex()});
+                        continue;
+                    }
+                    if (!Objects.equals(CellType.STRING, cell.getCellType()) || !cell.getStringCellValue().contains("${")) {
+                        continue;
+                    }
+                    final CellPlan plan = new CellPlan(cell);
+                    if (Objects.nonNull(plan.list)) {
+                        if (Objects.nonNull(list) && !Objects.equals(list, plan.list)) {
+                            throw new IllegalArgumentException(String.format("第【%d】行引用了多个列表：%s、%s", row.getRowNum() + 1, list, plan.list));
+                        }
+                        list = plan.list;
+                    }
+                    rowCells.add(plan);
+                }
+                if (Objects.isNull(list)) {
+                    cells.addAll(rowCells);
+                    continue;
+                }
+                final Region last = regions.isEmpty() ? null : regions.get(regions.size() - 1);
+                if (Objects.nonNull(last) && Objects.equals(last.list, list) && last.end + 1 == row.getRowNum()) {
+                    last.add(row.getRowNum(), rowCells);
+                } else {
+                    regions.add(new Region(list, row.getRowNum(), rowCells));
+                }
+            }
+            this.regions = regions;
+            // 区域内的公式由行复制处理，只保留区域外的公式
+            this.formulas.removeIf(address -> regions.stream().anyMatch(region -> address[0] >= region.start && address[0] <= region.end));
+            // 按解析之后的单元格引用和区域引用过滤，只保留引用了区域的公式；单个单元格引用（例：E3）也需要改写
+            if (!regions.isEmpty() && !formulas.isEmpty()) {
+                final Object evaluationWorkbook = evaluationWorkbook(sheet.getWorkbook());
+                final int sheetIndex = sheet.getWorkbook().getSheetIndex(sheet);
+                this.formulas.removeIf(address -> {
+                    final Cell cell = sheet.getRow(address[0]).getCell(address[1]);
+                    try {
+                        final Ptg[] ptgs = FormulaParser.parse(cell.getCellFormula(), (FormulaParsingWorkbook) evaluationWorkbook, FormulaType.CELL, sheetIndex, address[0]);
+                        return Arrays.stream(ptgs).noneMatch(ptg -> regions.stream().anyMatch(region -> references(ptg, region.start, region.end)));
+                    } catch (FormulaParseException e) { // 无法解析的公式（例：引用外部文件）不改写
+                        log.warn("公式【{}】解析失败，不改写：{}", cell.getCellFormula(), e.getMessage());
+                        return true;
+                    }
+                });
+            }
+        }
+
+        /**
+         * 判断公式中的单元格引用或区域引用是否与行区间 [start, end] 相交
+         */
+        private static boolean references(final Ptg ptg, final int start, final int end) {
+            if (ptg instanceof AreaPtg) {
+                return ((AreaPtg) ptg).getFirstRow() <= end && ((AreaPtg) ptg).getLastRow() >= start;
+            }
+            if (ptg instanceof RefPtg) {
+                return ((RefPtg) ptg).getRow() >= start && ((RefPtg) ptg).getRow() <= end;
+            }
+            return false;
+        }
+
+        /**
+         * 公式解析、渲染使用的 workbook 包装
+         */
+        private static Object evaluationWorkbook(final Workbook workbook) {
+            return workbook instanceof HSSFWorkbook
+                    ? HSSFEvaluationWorkbook.create((HSSFWorkbook) workbook)
+                    : XSSFEvaluationWorkbook.create((XSSFWorkbook) workbook);
+        }
+
+        private final int index;
+        /**
+         * 区域外的占位符
+         */
+        private final List<CellPlan> cells = new ArrayList<>();
+        /**
+         * 行循环区域，按行号排序
+         */
+        private final List<Region> regions;
+        /**
+         * 区域外包含区域引用的公式单元格：[行索引, 列索引]
+         */
+        private final List<int[]> formulas = new ArrayList<>();
+
+        private boolean nonEmpty() {
+            return !cells.isEmpty() || !regions.isEmpty();
+        }
+
+        private void fill(final Sheet sheet, final Object data) {
+            // 区域外的占位符在行移动之前填充，行号与模板一致
+            for (CellPlan plan : cells) {
+                plan.write(sheet.getRow(plan.row).getCell(plan.column), data, null);
+            }
+            final int[] formulaRows = formulas.stream().mapToInt(address -> address[0]).toArray();
+            int shift = 0;
+            for (Region region : regions) {
+                final List<Object> items = items(resolve(data, region.list));
+                final int start = region.start + shift;
+                final int end = region.end + shift;
+                final int height = region.end - region.start + 1;
+                final int delta;
+                if (items.isEmpty()) {
+                    rewrite(sheet, formulaRows, start, end, 0); // 删除之前改写，删除之后 POI 会把引用改为 #REF!
+                    for (int i = start; i <= end; i++) {
+                        final Row row = sheet.getRow(i);
+                        if (Objects.nonNull(row)) {
+                            sheet.removeRow(row);
+                        }
+                    }
+                    if (sheet.getLastRowNum() > end) {
+                        sheet.shiftRows(end + 1, sheet.getLastRowNum(), -height, true, false);
+                    }
+                    delta = -height;
+                } else {
+                    delta = (items.size() - 1) * height;
+                    if (items.size() > 1) {
+                        final int lastRowIndex = sheet.getLastRowNum();
+                        RowReplicator tail = null;
+                        if (lastRowIndex > end) {
+                            sheet.shiftRows(end + 1, lastRowIndex, delta, true, false); // 区域之后的行只移动一次
+                            // .xlsx 在已有行之前插入行需要逐行查找插入位置，先暂存并删除区域之后的行，复制完成之后原样写回
+                            tail = RowReplicator.of(sheet, end + 1 + delta, lastRowIndex + delta);
+                            removeRows(sheet, end + 1 + delta, lastRowIndex + delta);
+                        }
+                        final RowReplicator replicator = RowReplicator.of(sheet, start, end);
+                        for (CellPlan plan : region.cells) {
+                            replicator.blank(start + plan.row, plan.column); // 占位符会被覆盖，不需要复制
+                        }
+                        replicator.repeat(end + 1, items.size() - 1);
+                        if (Objects.nonNull(tail)) {
+                            tail.copyTo(end + 1 + delta);
+                        }
+                    }
+                    for (int i = 0; i < items.size(); i++) {
+                        final int offset = start + i * height;
+                        for (CellPlan plan : region.cells) {
+                            plan.write(sheet.getRow(offset + plan.row).getCell(plan.column), data, items.get(i));
+                        }
+                    }
+                }
+                for (int i = 0; i < formulaRows.length; i++) {
+                    if (formulaRows[i] > end) {
+                        formulaRows[i] += delta;
+                    }
+                }
+                if (delta > 0) {
+                    rewrite(sheet, formulaRows, start, end, delta);
+                }
+                shift += delta;
+            }
+            SheetIndex.invalidate(sheet); // 行移动之后合并单元格和批注的位置已经变化
+        }
+
+        /**
+         * 删除行和完全落在行区间内的合并区域
+         */
+        private void removeRows(final Sheet sheet, final int firstRowIndex, final int lastRowIndex) {
+            final List<Integer> mergedRegions = new ArrayList<>();
+            for (int i = 0; i < sheet.getNumMergedRegions(); i++) {
+                final CellRangeAddress region = sheet.getMergedRegion(i);
+                if (region.getFirstRow() >= firstRowIndex && region.getLastRow() <= lastRowIndex) {
+                    mergedRegions.add(i);
+                }
+            }
+            sheet.removeMergedRegions(mergedRegions);
+            for (int i = firstRowIndex; i <= lastRowIndex; i++) {
+                final Row row = sheet.getRow(i);
+                if (Objects.nonNull(row)) {
+                    sheet.removeRow(row);
+                }
+            }
+        }
+
+        /**
+         * 改写区域外的公式中引用区域的部分
+         * delta > 0 ：区域已扩展，行范围在区域内并且以区域最后一行结束的引用扩展到填充之后的最后一行
+         * delta = 0 ：区域将被删除，完全落在区域内的引用替换为 0 ，部分在区域内的引用去掉区域内的行
+         */
+        private void rewrite(final Sheet sheet, final int[] formulaRows, final int start, final int end, final int delta) {
+            if (formulaRows.length == 0) {
+                return;
+            }
+            final Workbook workbook = sheet.getWorkbook();
+            final Object evaluationWorkbook = evaluationWorkbook(workbook);
+            final int sheetIndex = workbook.getSheetIndex(sheet);
+            for (int i = 0; i < formulaRows.length; i++) {
+                final Row row = sheet.getRow(formulaRows[i]);
+                final Cell cell = Objects.isNull(row) ? null : row.getCell(formulas.get(i)[1]);
+                if (Objects.isNull(cell) || !Objects.equals(CellType.FORMULA, cell.getCellType())) {
+                    continue;
+                }
+                final Ptg[] ptgs = FormulaParser.parse(cell.getCellFormula(), (FormulaParsingWorkbook) evaluationWorkbook, FormulaType.CELL, sheetIndex, formulaRows[i]);
+                boolean changed = false;
+                for (int j = 0; j < ptgs.length; j++) {
+                    if (ptgs[j] instanceof AreaPtg) {
+                        final AreaPtg area = (AreaPtg) ptgs[j];
+                        final boolean firstIn = area.getFirstRow() >= start && area.getFirstRow() <= end;
+                        final boolean lastIn = area.getLastRow() >= start && area.getLastRow() <= end;
+                        if (delta > 0) {
+                            if (firstIn && area.getLastRow() == end) {
+                                area.setLastRow(end + delta);
+                                changed = true;
+                            }
+                        } else if (firstIn && lastIn) {
+                            ptgs[j] = new IntPtg(0);
+                            changed = true;
+                        } else if (lastIn) {
+                            area.setLastRow(start - 1);
+                            changed = true;
+                        } else if (firstIn) {
+                            area.setFirstRow(end + 1);
+                            changed = true;
+                        }
+                    } else if (delta == 0 && ptgs[j] instanceof RefPtg) {
+                        final int rowIndex = ((RefPtg) ptgs[j]).getRow();
+                        if (rowIndex >= start && rowIndex <= end) {
+                            ptgs[j] = new IntPtg(0);
+                            changed = true;
+                        }
+                    }
+                }
+                if (changed) {
+                    cell.setCellFormula(FormulaRenderer.toFormulaString((FormulaRenderingWorkbook) evaluationWorkbook, ptgs));
+                }
+            }
+        }
+    }
+
+    /**
+     * 行循环区域
+     */
+    private static final class Region {
+        private Region(final String list, final int start, final List<CellPlan> cells) {
+            this.list = list;
+            this.start = start;
+            this.end = start;
+            cells.forEach(cell -> cell.row = 0);
+            this.cells.addAll(cells);
+        }
+
+        /**
+         * 列表取值路径
+         */
+        private final String list;
+        private final int start;
+        private int end;
+        /**
+         * 区域内的占位符，行号为相对区域起始行的偏移量
+         */
+        private final List<CellPlan> cells = new ArrayList<>();
+
+        private void add(final int rowIndex, final List<CellPlan> cells) {
+            end = rowIndex;
+            cells.forEach(cell -> cell.row = rowIndex - start);
+            this.cells.addAll(cells);
+        }
+    }
+
+    /**
+     * 单元格占位符
+     */
+    private static final class CellPlan {
+        private CellPlan(final Cell cell) {
+            this.row = cell.getRowIndex();
+            this.column = cell.getColumnIndex();
+            final String text = cell.getStringCellValue();
+            final Matcher matcher = PLACEHOLDER.matcher(text);
+            final List<String> texts = new ArrayList<>();
+            final List<Accessor> accessors = new ArrayList<>();
+            int position = 0;
+            String list = null;
+            while (matcher.find()) {
+                texts.add(text.substring(position, matcher.start()));
+                final Accessor accessor = new Accessor(matcher.group(1));
+                if (Objects.nonNull(accessor.list)) {
+                    if (Objects.nonNull(list) && !Objects.equals(list, accessor.list)) {
+                        throw new IllegalArgumentException(String.format("单元格【%s】引用了多个列表：%s、%s", cell.getAddress(), list, accessor.list));
+                    }
+                    list = accessor.list;
+                }
+                accessors.add(accessor);
+                position = matcher.end();
+            }
+            texts.add(text.substring(position));
+            this.list = list;
+            this.texts = texts.toArray(new String[0]);
+            this.accessors = accessors.toArray(new Accessor[0]);
+        }
+
+        /**
+         * 行索引；区域内为相对区域起始行的偏移量
+         */
+        private int row;
+        private final int column;
+        /**
+         * 引用的列表，没有引用列表时为 null
+         */
+        private final String list;
+        /**
+         * 占位符之间的文本，比 accessors 多一个
+         */
+        private final String[] texts;
+        private final Accessor[] accessors;
+
+        private void write(final Cell cell, final Object data, final Object element) {
+            if (accessors.length == 1 && texts[0].isEmpty() && texts[1].isEmpty()) { // 单元格只有一个占位符，按值类型写入
+                writeValue(cell, accessors[0].get(data, element));
+                return;
+            }
+            final StringBuilder sb = new StringBuilder(texts[0]);
+            for (int i = 0; i < accessors.length; i++) {
+                sb.append(Objects.toString(accessors[i].get(data, element), "")).append(texts[i + 1]);
+            }
+            cell.setCellValue(sb.toString());
+        }
+    }
+
+    /**
+     * 占位符取值路径
+     */
+    private static final class Accessor {
+        private Accessor(final String expression) {
+            final int index = expression.indexOf(ELEMENT);
+            if (index < 0) {
+                this.list = null;
+                this.path = expression.split("\\.");
+            } else {
+                this.list = expression.substring(0, index);
+                final String field = expression.substring(index + ELEMENT.length());
+                if (!field.isEmpty() && !field.startsWith(".")) {
+                    throw new IllegalArgumentException(String.format("占位符格式错误：${%s}", expression));
+                }
+                this.path = field.isEmpty() ? new String[0] : field.substring(1).split("\\.");
+            }
+        }
+
+        /**
+         * 列表取值路径，为 null 时从根对象取值，否则从列表元素取值
+         */
+        private final String list;
+        private final String[] path;
+
+        private Object get(final Object data, final Object element) {
+            Object value = Objects.isNull(list) ? data : element;
+            for (String name : path) {
+                if (Objects.isNull(value)) {
+                    return null;
+                }
+                value = property(value, name);
+            }
+            return value;
+        }
+    }
+
+    /**
+     * 按路径取值，路径以 . 分隔
+     */
+    private static Object resolve(final Object data, final String path) {
+        Object value = data;
+        for (String name : path.split("\\.")) {
+            if (Objects.isNull(value)) {
+                return null;
+            }
+            value = property(value, name);
+        }
+        return value;
+    }
+
+    @SneakyThrows
+    private static Object property(final Object object, final String name) {
+        if (object instanceof Map) {
+            return ((Map<?, ?>) object).get(name);
+        }
+        final Method method = GETTERS.computeIfAbsent(object.getClass(), ExcelTemplate::getters).get(name);
+        if (Objects.isNull(method)) {
+            throw new IllegalArgumentException(String.format("【%s】没有属性【%s】", object.getClass().getName(), name));
+        }
+        return method.invoke(object);
+    }
+
+    @SneakyThrows
+    private static Map<String, Method> getters(final Class<?> clazz) {
+        final Map<String, Method> getters = new HashMap<>();
+        for (PropertyDescriptor descriptor : Introspector.getBeanInfo(clazz).getPropertyDescriptors()) {
+            if (Objects.nonNull(descriptor.getReadMethod())) {
+                descriptor.getReadMethod().setAccessible(true);
+                getters.put(descriptor.getName(), descriptor.getReadMethod());
+            }
+        }
+        return getters;
+    }
+
+    /**
+     * 列表元素
+     */
+    private static List<Object> items(final Object value) {
+        final List<Object> items = new ArrayList<>();
+        if (Objects.isNull(value)) {
+            return items;
+        }
+        if (value instanceof Collection) {
+            items.addAll((Collection<?>) value);
+        } else if (value instanceof Iterable) {
+            ((Iterable<?>) value).forEach(items::add);
+        } else if (value instanceof Iterator) {
+            ((Iterator<?>) value).forEachRemaining(items::add);
+        } else if (value instanceof Stream) {
+            ((Stream<?>) value).forEach(items::add);
+        } else if (value.getClass().isArray()) {
+            for (int i = 0; i < Array.getLength(value); i++) {
+                items.add(Array.get(value, i));
+            }
+        } else {
+            throw new IllegalArgumentException(String.format("【%s】不是列表", value.getClass().getName()));
+        }
+        return items;
+    }
+
+    /**
+     * 按值类型写入单元格，保留模板单元格样式
+     */
+    private static void writeValue(final Cell cell, final Object value) {
+        if (Objects.isNull(value)) {
+            cell.setBlank();
+        } else if (value instanceof Number) {
+            cell.setCellValue(((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            cell.setCellValue((Boolean) value);
+        } else if (value instanceof Date) {
+            cell.setCellValue((Date) value);
+        } else if (value instanceof Dates) {
+            cell.setCellValue(((Dates) value).date());
+        } else if (value instanceof LocalDateTime) {
+            cell.setCellValue((LocalDateTime) value);
+        } else if (value instanceof LocalDate) {
+            cell.setCellValue((LocalDate) value);
+        } else if (value instanceof Calendar) {
+            cell.setCellValue((Calendar) value);
+        } else {
+            cell.setCellValue(value.toString());
+        }
+    }
+
+    @SneakyThrows
+    public static void main(String[] args) {
+        FPath.of("logs").mkdirs();
+        final File file = FPath.of("logs/12.模板.xlsx").file();
+        { // 生成模板
+            @Cleanup final XSSFWorkbook workbook = new XSSFWorkbook();
+            final Sheet sheet = workbook.createSheet("Sheet1");
+            final CellStyle dateStyle = workbook.createCellStyle();
+            dateStyle.setDataFormat(workbook.createDataFormat().getFormat("yyyy-mm-dd"));
+            sheet.createRow(0).createCell(0).setCellValue("${title}");
+            sheet.getRow(0).createCell(3).setCellValue("制表日期：${date}");
+            final Row head = sheet.createRow(1);
+            head.createCell(0).setCellValue("序号");
+            head.createCell(1).setCellValue("名称");
+            head.createCell(2).setCellValue("数量");
+            head.createCell(3).setCellValue("单价");
+            head.createCell(4).setCellValue("金额");
+            head.createCell(5).setCellValue("日期");
+            final Row body = sheet.createRow(2);
+            body.createCell(0).setCellValue("${items[].seq}");
+            body.createCell(1).setCellValue("${items[].name}");
+            body.createCell(2).setCellValue("${items[].count}");
+            body.createCell(3).setCellValue("${items[].price}");
+            body.createCell(4).setCellFormula("C3*D3");
+            body.createCell(5).setCellValue("${items[].date}");
+            body.getCell(5).setCellStyle(dateStyle);
+            final Row foot = sheet.createRow(3);
+            foot.createCell(0).setCellValue("合计");
+            foot.createCell(2).setCellFormula("SUM(C3:C3)");
+            foot.createCell(4).setCellFormula("SUM(E3:E3)");
+            @Cleanup final FileOutputStream outputStream = new FileOutputStream(file);
+            workbook.write(outputStream);
+        }
+        final Map<String, Object> data = new HashMap<>();
+        data.put("title", "模板填充");
+        data.put("date", Dates.now().formatDate());
+        data.put("items", IntStream.range(0, 10_000).mapToObj(i -> {
+            final Map<String, Object> item = new HashMap<>();
+            item.put("seq", i + 1);
+            item.put("name", "名称" + i);
+            item.put("count", i);
+            item.put("price", 1.5);
+            item.put("date", Dates.now().date());
+            return item;
+        }));
+        long start = System.currentTimeMillis();
+        final ExcelTemplate template = ExcelTemplate.of(file);
+        log.info("编译模板，耗时：{}ms", System.currentTimeMillis() - start);
+        start = System.currentTimeMillis();
+        log.info("从缓存获取模板：{}，耗时：{}ms", template == ExcelTemplate.of(file), System.currentTimeMillis() - start);
+        start = System.currentTimeMillis();
+        @Cleanup final ExcelRewriter rewriter = template.fill(data);
+        log.info("填充 10000 行，耗时：{}ms", System.currentTimeMillis() - start);
+        log.info("写入路径：{}", rewriter.saveWorkBook(FPath.of("logs/12.模板填充.xlsx")).absolute());
+    }
+}
@@ -0,0 +1,927 @@
+package com.utils.excel;
+
+import com.utils.excel.entity.Cell;
+import com.utils.excel.entity.Range;
+import com.utils.excel.enums.Column;
+import com.utils.excel.enums.DataType;
+import com.utils.util.Dates;
+import com.utils.util.FPath;
+import com.utils.util.Num;
+import lombok.Cleanup;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.ss.util.WorkbookUtil;
+import org.apache.poi.xssf.usermodel.XSSFColor;
+import org.apache.poi.xssf.usermodel.XSSFFont;
+
+import java.awt.Color;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 【.xlsx】直接输出 OOXML 的轻量写入器；不创建 POI 对象模型，数据行写入之后立即输出到 {@link ZipOutputStream}，不写临时文件
+ * 适合样式简单、没有公式的大数据量导出，下载时数据边写边输出，内存占用与行数无关
+ * <pre>
+ * 限制：
+ * 行必须按顺序写入，同一行的单元格必须按列顺序写入
+ * 冻结和列宽必须在 sheet 的第一行之前指定
+ * 文本使用内联字符串（inlineStr），不生成共享字符串表
+ * 样式通过 {@link #style(CellStyles)} 注册，只支持字体、填充、边框、对齐、数据格式、锁定和隐藏
+ *
+ * &#64;Cleanup final FastXlsxWriter writer = FastXlsxWriter.of(response.getOutputStream());
+ * writer.sheet("Sheet1").freeze(0, 1)
+ *     .row().style(headStyle).writeText("名称").style(headStyle).writeText("数量")
+ *     .rows(header, rows);
+ *
+ * @author 谢长春 on 2018-8-8 .
+ */
+@Slf4j
+public final class FastXlsxWriter implements AutoCloseable {
+    private static final String NS_MAIN = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+    private static final String NS_REL = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+    private static final String XML_HEAD = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
+    /**
+     * 1970-01-01 在 excel 中的日期序号
+     */
+    private static final int EPOCH_SERIAL = 25569;
+    private static final long DAY_MILLIS = 86_400_000L;
+    /**
+     * OOXML 填充模式，与 {@link FillPatternType#getCode()} 顺序一致
+     */
+    private static final String[] PATTERN_TYPES = {"none", "solid", "mediumGray", "darkGray", "lightGray", "darkHorizontal", "darkVertical", "darkDown", "darkUp", "darkGrid", "darkTrellis", "lightHorizontal", "lightVertical", "lightDown", "lightUp", "lightGrid", "lightTrellis", "gray125", "gray0625"};
+
+    private FastXlsxWriter(final OutputStream outputStream) {
+        this.zip = new ZipOutputStream(outputStream);
+        this.out = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8), 1 << 16);
+        this.fonts.put("<font><sz val=\"11\"/><name val=\"Calibri\"/></font>", 0);
+        this.fills.put("<fill><patternFill patternType=\"none\"/></fill>", 0);
+        this.fills.put("<fill><patternFill patternType=\"gray125\"/></fill>", 1); // excel 要求第 2 个填充必须是 gray125
+        this.borders.put("<border><left/><right/><top/><bottom/><diagonal/></border>", 0);
+        this.xfs.put("<xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/>", 0);
+    }
+
+    /**
+     * @param outputStream {@link OutputStream} 输出流，例：response.getOutputStream()；{@link #close()} 时关闭
+     * @return {@link FastXlsxWriter}
+     */
+    public static FastXlsxWriter of(final OutputStream outputStream) {
+        Objects.requireNonNull(outputStream, "参数【outputStream】是必须的");
+        return new FastXlsxWriter(outputStream);
+    }
+
+    /**
+     * @param path {@link FPath} 文件路径
+     * @return {@link FastXlsxWriter}
+     */
+    @SneakyThrows
+    public static FastXlsxWriter of(final FPath path) {
+        Objects.requireNonNull(path, "参数【path】是必须的");
+        return new FastXlsxWriter(new BufferedOutputStream(new FileOutputStream(path.file())));
+    }
+
+    private final ZipOutputStream zip;
+    private final Writer out;
+    private final TimeZone timeZone = TimeZone.getDefault();
+    /**
+     * sheet 名称，与写入顺序一致
+     */
+    private final List<String> sheetNames = new ArrayList<>();
+    // 样式组件，按 xml 去重，值为组件索引
+    private final Map<String, Integer> numFmts = new LinkedHashMap<>();
+    private final Map<String, Integer> fonts = new LinkedHashMap<>();
+    private final Map<String, Integer> fills = new LinkedHashMap<>();
+    private final Map<String, Integer> borders = new LinkedHashMap<>();
+    private final Map<String, Integer> xfs = new LinkedHashMap<>();
+    /**
+     * 列名缓存，按列索引获取
+     */
+    private String[] columnNames = new String[32];
+    /**
+     * 默认日期样式和百分比样式，使用时才注册
+     */
+    private int dateStyle = -1;
+    private int percentStyle = -1;
+
+    // 当前 sheet 状态 ***************************************************************************************************
+    /**
+     * 当前 sheet 是否可以写入
+     */
+    private boolean sheetOpen;
+    /**
+     * sheet 头部（冻结、列宽）是否已输出
+     */
+    private boolean sheetStarted;
+    private int freezeColumn;
+    private int freezeRow;
+    private final Map<Integer, Double> widths = new TreeMap<>();
+    private final List<String> merges = new ArrayList<>();
+    /**
+     * 当前行索引
+     */
+    private int rowIndex = -1;
+    /**
+     * 当前行下一个可写入的列索引
+     */
+    private int columnIndex;
+    /**
+     * 下一个单元格使用的样式
+     */
+    private int nextStyle;
+    private boolean closed;
+
+    /**
+     * 新建 sheet 并设为当前 sheet ；上一个 sheet 立即结束，不能再写入
+     *
+     * @param sheetName String sheet 名称
+     * @return {@link FastXlsxWriter}
+     */
+    @SneakyThrows
+    public FastXlsxWriter sheet(final String sheetName) {
+        Objects.requireNonNull(sheetName, "参数【sheetName】是必须的");
+        WorkbookUtil.validateSheetName(sheetName);
+        if (sheetNames.stream().anyMatch(sheetName::equalsIgnoreCase)) {
+            throw new IllegalArgumentException(String.format("sheet【%s】已存在", sheetName));
+        }
+        endSheet();
+        sheetNames.add(sheetName);
+        zip.putNextEntry(new ZipEntry(String.format("xl/worksheets/sheet%d.xml", sheetNames.size())));
+        sheetOpen = true;
+        sheetStarted = false;
+        freezeColumn = 0;
+        freezeRow = 0;
+        widths.clear();
+        merges.clear();
+        rowIndex = -1;
+        columnIndex = 0;
+        nextStyle = 0;
+        return this;
+    }
+
+    /**
+     * 冻结行和列，必须在第一行之前调用<br>
+     * freeze(1, 1) : 表示冻结第 1 列和第 1 行
+     *
+     * @param column int 冻结列号；为0表示不冻结
+     * @param row    int 冻结行号；为0表示不冻结
+     * @return {@link FastXlsxWriter}
+     */
+    public FastXlsxWriter freeze(final int column, final int row) {
+        assertHeadWritable();
+        if (column < 0 || row < 0) {
+            throw new IllegalArgumentException("冻结行列号不能小于 0");
+        }
+        this.freezeColumn = column;
+        this.freezeRow = row;
+        return this;
+    }
+
+    /**
+     * 设置列宽，必须在第一行之前调用
+     *
+     * @param columnIndex int 列索引
+     * @param width       double 列宽，单位为字符数
+     * @return {@link FastXlsxWriter}
+     */
+    public FastXlsxWriter width(final int columnIndex, final double width) {
+        assertHeadWritable();
+        widths.put(columnIndex, width);
+        return this;
+    }
+
+    /**
+     * 合并单元格；合并区域在 sheet 结束时输出
+     *
+     * @param range {@link Range} 合并区域
+     * @return {@link FastXlsxWriter}
+     */
+    public FastXlsxWriter merge(final Range range) {
+        Objects.requireNonNull(range, "参数【range】是必须的");
+        assertSheet();
+        merges.add(range.getStart().address().concat(":").concat(range.getEnd().address()));
+        return this;
+    }
+
+    /**
+     * 合并单元格
+     *
+     * @param range String 合并区域，例：A1:B2
+     * @return {@link FastXlsxWriter}
+     */
+    public FastXlsxWriter merge(final String range) {
+        return merge(Range.of(range));
+    }
+
+    /**
+     * 新起一行，当前行的下一行
+     *
+     * @return {@link FastXlsxWriter}
+     */
+    public FastXlsxWriter row() {
+        return row(rowIndex + 1);
+    }
+
+    /**
+     * 新起一行，行索引必须大于当前行索引
+     *
+     * @param rowIndex int 行索引
+     * @return {@link FastXlsxWriter}
+     */
+    @SneakyThrows
+    public FastXlsxWriter row(final int rowIndex) {
+        assertSheet();
+        if (rowIndex <= this.rowIndex) {
+            throw new IllegalArgumentException(String.format("行必须按顺序写入，当前行索引：%d ，新行索引：%d", this.rowIndex, rowIndex));
+        }
+        startSheet();
+        endRow();
+        this.rowIndex = rowIndex;
+        this.columnIndex = 0;
+        this.nextStyle = 0;
+        out.write("<row r=\"");
+        out.write(Integer.toString(rowIndex + 1));
+        out.write("\">");
+        return this;
+    }
+
+    /**
+     * 新起一行，行号从 1 开始
+     *
+     * @param rownum {@link Rownum} 行号
+     * @return {@link FastXlsxWriter}
+     */
+    public FastXlsxWriter row(final Rownum rownum) {
+        return row(rownum.index());
+    }
+
+    /**
+     * 指定下一个写入的列，列索引不能小于下一个可写入的列
+     *
+     * @param columnIndex int 列索引
+     * @return {@link FastXlsxWriter}
+     */
+    public FastXlsxWriter cell(final int columnIndex) {
+        assertRow();
+        if (columnIndex < this.columnIndex) {
+            throw new IllegalArgumentException(String.format("单元格必须按列顺序写入，下一个可写入列索引：%d ，指定列索引：%d", this.columnIndex, columnIndex));
+        }
+        this.columnIndex = columnIndex;
+        return this;
+    }
+
+    /**
+     * 指定下一个写入的列
+     *
+     * @param column {@link Column} 列
+     * @return {@link FastXlsxWriter}
+     */
+    public FastXlsxWriter cell(final Column column) {
+        return cell(column.ordinal());
+    }
+
+    /**
+     * 指定下一个写入单元格的样式，只对下一个单元格有效
+     *
+     * @param style int 样式索引，来自 {@link #style(CellStyles)}
+     * @return {@link FastXlsxWriter}
+     */
+    public FastXlsxWriter style(final int style) {
+        if (style < 0 || style >= xfs.size()) {
+            throw new IllegalArgumentException(String.format("样式索引【%d】不存在", style));
+        }
+        this.nextStyle = style;
+        return this;
+    }
+
+    /**
+     * 写入文本；值为 null 时只写入样式
+     *
+     * @param value String 文本内容
+     * @return {@link FastXlsxWriter}
+     */
+    @SneakyThrows
+    public FastXlsxWriter writeText(final String value) {
+        assertRow();
+        if (Objects.isNull(value)) {
+            return writeBlank();
+        }
+        startCell("inlineStr");
+        out.write("><is><t");
+        if (!value.isEmpty() && (Character.isWhitespace(value.charAt(0)) || Character.isWhitespace(value.charAt(value.length() - 1)))) {
+            out.write(" xml:space=\"preserve\"");
+        }
+        out.write('>');
+        escape(value);
+        out.write("</t></is></c>");
+        return this;
+    }
+
+    /**
+     * 写入数值；值为 null 时只写入样式
+     *
+     * @param value {@link Number} 数值
+     * @return {@link FastXlsxWriter}
+     */
+    public FastXlsxWriter writeNumber(final Number value) {
+        return Objects.isNull(value) ? writeBlank() : writeNumber(value.doubleValue());
+    }
+
+    /**
+     * 写入数值；NaN 和无穷大只写入样式
+     *
+     * @param value double 数值
+     * @return {@link FastXlsxWriter}
+     */
+    @SneakyThrows
+    public FastXlsxWriter writeNumber(final double value) {
+        assertRow();
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return writeBlank();
+        }
+        startCell(null);
+        out.write("><v>");
+        final long longValue = (long) value;
+        out.write(longValue == value && Math.abs(longValue) < 1_000_000_000_000_000L ? Long.toString(longValue) : Double.toString(value));
+        out.write("</v></c>");
+        return this;
+    }
+
+    /**
+     * 写入百分比，未指定样式时使用 0.00% 格式
+     *
+     * @param value {@link Number} 数值，例：0.5 显示为 50.00%
+     * @return {@link FastXlsxWriter}
+     */
+    public FastXlsxWriter writePercent(final Number value) {
+        if (nextStyle == 0) {
+            nextStyle = percentStyle();
+        }
+        return writeNumber(value);
+    }
+
+    /**
+     * 写入日期，未指定样式时使用 yyyy-mm-dd 格式
+     *
+     * @param value {@link Date} 日期
+     * @return {@link FastXlsxWriter}
+     */
+    public FastXlsxWriter writeDate(final Date value) {
+        return Objects.isNull(value) ? writeBlank() : writeDate(value.getTime());
+    }
+
+    /**
+     * 写入日期，未指定样式时使用 yyyy-mm-dd 格式
+     *
+     * @param timeMillis long 时间戳
+     * @return {@link FastXlsxWriter}
+     */
+    public FastXlsxWriter writeDate(final long timeMillis) {
+        if (nextStyle == 0) {
+            nextStyle = dateStyle();
+        }
+        return writeNumber(EPOCH_SERIAL + (double) (timeMillis + timeZone.getOffset(timeMillis)) / DAY_MILLIS);
+    }
+
+    /**
+     * 按数据类型写入；日期值可以是时间戳、{@link Date}、{@link Dates}、{@link LocalDate}、{@link LocalDateTime}；数值类型的非数字值按文本写入
+     *
+     * @param type  {@link DataType} 数据类型
+     * @param value Object 值
+     * @return {@link FastXlsxWriter}
+     */
+    public FastXlsxWriter write(final DataType type, final Object value) {
+        if (Objects.isNull(value)) {
+            return writeBlank();
+        }
+        switch (Optional.ofNullable(type).orElse(DataType.TEXT)) {
+            case DATE:
+                final Long timeMillis = timeMillis(value);
+                return Objects.isNull(timeMillis) ? writeText(value.toString()) : writeDate(timeMillis);
+            case PERCENT:
+                if (nextStyle == 0) {
+                    nextStyle = percentStyle();
+                }
+                return writeNumeric(value); // 百分比按数值写入
+            case SEQ:
+            case NUMBER:
+            case BIGDECIMAL:
+            case DOUBLE:
+            case FLOAT:
+            case LONG:
+            case INTEGER:
+            case SHORT:
+                return writeNumeric(value);
+            default:
+                return writeText(value.toString());
+        }
+    }
+
+    /**
+     * 按数值写入；非数字值按文本写入
+     *
+     * @param value Object 值
+     * @return {@link FastXlsxWriter}
+     */
+    private FastXlsxWriter writeNumeric(final Object value) {
+        if (value instanceof Number) {
+            return writeNumber((Number) value);
+        }
+        final Num num = Num.of(value.toString());
+        return num.isNull() ? writeText(value.toString()) : writeNumber(num.doubleValue());
+    }
+
+    /**
+     * 写入空单元格；未指定样式时只跳过当前列
+     *
+     * @return {@link FastXlsxWriter}
+     */
+    @SneakyThrows
+    public FastXlsxWriter writeBlank() {
+        assertRow();
+        if (nextStyle == 0) {
+            columnIndex++;
+            return this;
+        }
+        startCell(null);
+        out.write("/>");
+        return this;
+    }
+
+    /**
+     * 从当前行的下一行开始写入所有数据行；与 {@link TableWriter#ofMap(List)} 一致，优先使用 alias 取值，取不到再用 label 取值
+     * SEQ 写入序号，从 1 开始；表头 sindex 为 {@link #style(CellStyles)} 返回的样式索引
+     *
+     * @param header {@link List}{@link List<Cell>} 表头
+     * @param rows   {@link Iterable}{@link Iterable<Map>} 数据行
+     * @return {@link FastXlsxWriter}
+     */
+    public FastXlsxWriter rows(final List<Cell> header, final Iterable<? extends Map<String, ?>> rows) {
+        Objects.requireNonNull(header, "参数【header】是必须的");
+        Objects.requireNonNull(rows, "参数【rows】是必须的");
+        final List<Cell> heads = header.stream()
+                .peek(head -> Objects.requireNonNull(head.index(), "表头【index|column】是必须的"))
+                .sorted(Comparator.comparing(Cell::index))
+                .collect(Collectors.toList());
+        int seq = 0;
+        for (Map<String, ?> data : rows) {
+            row();
+            seq++;
+            for (Cell head : heads) {
+                cell(head.index());
+                if (Objects.nonNull(head.getSindex())) {
+                    style(head.getSindex());
+                }
+                if (Objects.equals(DataType.SEQ, head.getType())) {
+                    writeNumber(seq);
+                } else {
+                    final Object value = Objects.isNull(head.getAlias()) ? null : data.get(head.getAlias());
+                    write(head.getType(), Objects.isNull(value) ? data.get(head.getLabel()) : value);
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * 注册样式，相同的样式只注册一次；返回的样式索引在所有 sheet 中通用
+     * {@link CellStyles#getDataFormat()} 只支持内置格式索引，自定义格式使用 {@link #style(CellStyles, String)}
+     *
+     * @param styles {@link CellStyles} 样式
+     * @return int 样式索引
+     */
+    public int style(final CellStyles styles) {
+        Objects.requireNonNull(styles, "参数【styles】是必须的");
+        return style(styles, null);
+    }
+
+    /**
+     * 注册样式，相同的样式只注册一次；返回的样式索引在所有 sheet 中通用
+     *
+     * @param styles  {@link CellStyles} 样式
+     * @param pattern String 数据格式，例：yyyy-mm-dd、#,##0.00；为 null 时使用 {@link CellStyles#getDataFormat()}
+     * @return int 样式索引
+     */
+    public int style(final CellStyles styles, final String pattern) {
+        final CellStyles style = Optional.ofNullable(styles).orElseGet(CellStyles::new);
+        final int numFmtId;
+        if (Objects.nonNull(pattern)) {
+            final int builtin = BuiltinFormats.getBuiltinFormat(pattern);
+            numFmtId = builtin >= 0 ? builtin : numFmts.computeIfAbsent(pattern, key -> 164 + numFmts.size());
+        } else {
+            numFmtId = Optional.ofNullable(style.getDataFormat()).map(Short::intValue).orElse(0);
+            if (numFmtId >= 164) {
+                throw new IllegalArgumentException("自定义数据格式需要使用 style(styles, pattern) 指定格式字符串");
+            }
+        }
+        final int fontId = Objects.isNull(style.getFont()) ? 0 : index(fonts, font(style.getFont()));
+        final int fillId = Objects.isNull(style.getFillPattern()) || Objects.equals(FillPatternType.NO_FILL, style.getFillPattern()) ? 0 : index(fills, fill(style));
+        final int borderId = index(borders, border(style));
+        final StringBuilder alignment = new StringBuilder();
+        if (Objects.nonNull(style.getAlignment())) alignment.append(" horizontal=\"").append(horizontal(style.getAlignment())).append('"');
+        if (Objects.nonNull(style.getVerticalAlignment())) alignment.append(" vertical=\"").append(style.getVerticalAlignment().name().toLowerCase()).append('"');
+        if (Objects.nonNull(style.getRotation())) alignment.append(" textRotation=\"").append(style.getRotation()).append('"');
+        if (Boolean.TRUE.equals(style.getWrapText())) alignment.append(" wrapText=\"1\"");
+        if (Objects.nonNull(style.getIndention())) alignment.append(" indent=\"").append(style.getIndention()).append('"');
+        final StringBuilder protection = new StringBuilder();
+        if (Objects.nonNull(style.getLocked())) protection.append(" locked=\"").append(style.getLocked() ? 1 : 0).append('"');
+        if (Objects.nonNull(style.getHidden())) protection.append(" hidden=\"").append(style.getHidden() ? 1 : 0).append('"');
+        final StringBuilder xf = new StringBuilder("<xf")
+                .append(" numFmtId=\"").append(numFmtId).append('"')
+                .append(" fontId=\"").append(fontId).append('"')
+                .append(" fillId=\"").append(fillId).append('"')
+                .append(" borderId=\"").append(borderId).append('"')
+                .append(" xfId=\"0\"");
+        if (numFmtId != 0) xf.append(" applyNumberFormat=\"1\"");
+        if (fontId != 0) xf.append(" applyFont=\"1\"");
+        if (fillId != 0) xf.append(" applyFill=\"1\"");
+        if (borderId != 0) xf.append(" applyBorder=\"1\"");
+        if (alignment.length() > 0) xf.append(" applyAlignment=\"1\"");
+        if (protection.length() > 0) xf.append(" applyProtection=\"1\"");
+        xf.append('>');
+        if (alignment.length() > 0) xf.append("<alignment").append(alignment).append("/>");
+        if (protection.length() > 0) xf.append("<protection").append(protection).append("/>");
+        xf.append("</xf>");
+        return index(xfs, xf.toString());
+    }
+
+    /**
+     * 结束当前 sheet ，输出 workbook 、样式等其他文件，关闭输出流
+     */
+    @SneakyThrows
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        if (sheetNames.isEmpty()) { // xlsx 至少需要一个 sheet
+            sheet("Sheet1");
+        }
+        endSheet();
+        closed = true;
+        entry("[Content_Types].xml", contentTypes());
+        entry("_rels/.rels", XML_HEAD + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+                + "<Relationship Id=\"rId1\" Type=\"" + NS_REL + "/officeDocument\" Target=\"xl/workbook.xml\"/>"
+                + "</Relationships>");
+        entry("xl/workbook.xml", workbook());
+        entry("xl/_rels/workbook.xml.rels", workbookRels());
+        entry("xl/styles.xml", styles());
+        out.flush();
+        zip.close();
+    }
+
+    private int dateStyle() {
+        if (dateStyle < 0) {
+            dateStyle = style(null, "yyyy-mm-dd");
+        }
+        return dateStyle;
+    }
+
+    private int percentStyle() {
+        if (percentStyle < 0) {
+            percentStyle = style(null, "0.00%");
+        }
+        return percentStyle;
+    }
+
+    private void assertSheet() {
+        if (closed) {
+            throw new IllegalStateException("写入器已关闭");
+        }
+        if (!sheetOpen) {
+            throw new IllegalStateException("请先调用 sheet 方法创建 sheet");
+        }
+    }
+
+    private void assertHeadWritable() {
+        assertSheet();
+        if (sheetStarted) {
+            throw new IllegalStateException("冻结和列宽必须在第一行之前指定");
+        }
+    }
+
+    private void assertRow() {
+        assertSheet();
+        if (rowIndex < 0) {
+            throw new IllegalStateException("请先调用 row 方法新起一行");
+        }
+    }
+
+    /**
+     * 输出单元格开始标签，不包含结束的 &gt;
+     *
+     * @param type String 单元格类型，数值为 null
+     */
+    @SneakyThrows
+    private void startCell(final String type) {
+        out.write("<c r=\"");
+        out.write(columnName(columnIndex));
+        out.write(Integer.toString(rowIndex + 1));
+        out.write('"');
+        if (nextStyle != 0) {
+            out.write(" s=\"");
+            out.write(Integer.toString(nextStyle));
+            out.write('"');
+        }
+        if (Objects.nonNull(type)) {
+            out.write(" t=\"");
+            out.write(type);
+            out.write('"');
+        }
+        columnIndex++;
+        nextStyle = 0;
+    }
+
+    /**
+     * 输出 sheet 头部：视图、列宽、sheetData 开始标签
+     */
+    @SneakyThrows
+    private void startSheet() {
+        if (sheetStarted) {
+            return;
+        }
+        sheetStarted = true;
+        out.write(XML_HEAD);
+        out.write("<worksheet xmlns=\"" + NS_MAIN + "\" xmlns:r=\"" + NS_REL + "\">");
+        out.write("<sheetViews><sheetView workbookViewId=\"0\"");
+        if (sheetNames.size() == 1) {
+            out.write(" tabSelected=\"1\"");
+        }
+        if (freezeColumn > 0 || freezeRow > 0) {
+            out.write("><pane");
+            if (freezeColumn > 0) out.write(" xSplit=\"" + freezeColumn + "\"");
+            if (freezeRow > 0) out.write(" ySplit=\"" + freezeRow + "\"");
+            out.write(" topLeftCell=\"" + columnName(freezeColumn) + (freezeRow + 1) + "\"");
+            out.write(" activePane=\"" + (freezeColumn > 0 && freezeRow > 0 ? "bottomRight" : freezeRow > 0 ? "bottomLeft" : "topRight") + "\"");
+            out.write(" state=\"frozen\"/></sheetView>");
+        } else {
+            out.write("/>");
+        }
+        out.write("</sheetViews>");
+        if (!widths.isEmpty()) {
+            out.write("<cols>");
+            for (Map.Entry<Integer, Double> entry : widths.entrySet()) {
+                out.write("<col min=\"" + (entry.getKey() + 1) + "\" max=\"" + (entry.getKey() + 1) + "\" width=\"" + entry.getValue() + "\" customWidth=\"1\"/>");
+            }
+            out.write("</cols>");
+        }
+        out.write("<sheetData>");
+    }
+
+    @SneakyThrows
+    private void endRow() {
+        if (rowIndex >= 0) {
+            out.write("</row>");
+        }
+    }
+
+    /**
+     * 结束当前 sheet ：输出 sheetData 结束标签和合并区域
+     */
+    @SneakyThrows
+    private void endSheet() {
+        if (!sheetOpen) {
+            return;
+        }
+        startSheet();
+        endRow();
+        out.write("</sheetData>");
+        if (!merges.isEmpty()) {
+            out.write("<mergeCells count=\"" + merges.size() + "\">");
+            for (String ref : merges) {
+                out.write("<mergeCell ref=\"" + ref + "\"/>");
+            }
+            out.write("</mergeCells>");
+        }
+        out.write("</worksheet>");
+        out.flush();
+        zip.closeEntry();
+        sheetOpen = false;
+    }
+
+    @SneakyThrows
+    private void entry(final String name, final String content) {
+        zip.putNextEntry(new ZipEntry(name));
+        out.write(content);
+        out.flush();
+        zip.closeEntry();
+    }
+
+    private String contentTypes() {
+        final StringBuilder sb = new StringBuilder(XML_HEAD)
+                .append("<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">")
+                .append("<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>")
+                .append("<Default Extension=\"xml\" ContentType=\"application/xml\"/>")
+                .append("<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>")
+                .append("<Override PartName=\"/xl/styles.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>");
+        for (int i = 1; i <= sheetNames.size(); i++) {
+            sb.append("<Override PartName=\"/xl/worksheets/sheet").append(i).append(".xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>");
+        }
+        return sb.append("</Types>").toString();
+    }
+
+    private String workbook() {
+        final StringBuilder sb = new StringBuilder(XML_HEAD)
+                .append("<workbook xmlns=\"" + NS_MAIN + "\" xmlns:r=\"" + NS_REL + "\"><sheets>");
+        for (int i = 1; i <= sheetNames.size(); i++) {
+            sb.append("<sheet name=\"").append(escapeAttribute(sheetNames.get(i - 1))).append("\" sheetId=\"").append(i).append("\" r:id=\"rId").append(i).append("\"/>");
+        }
+        return sb.append("</sheets></workbook>").toString();
+    }
+
+    private String workbookRels() {
+        final StringBuilder sb = new StringBuilder(XML_HEAD)
+                .append("<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">");
+        for (int i = 1; i <= sheetNames.size(); i++) {
+            sb.append("<Relationship Id=\"rId").append(i).append("\" Type=\"" + NS_REL + "/worksheet\" Target=\"worksheets/sheet").append(i).append(".xml\"/>");
+        }
+        sb.append("<Relationship Id=\"rId").append(sheetNames.size() + 1).append("\" Type=\"" + NS_REL + "/styles\" Target=\"styles.xml\"/>");
+        return sb.append("</Relationships>").toString();
+    }
+
+    private String styles() {
+        final StringBuilder sb = new StringBuilder(XML_HEAD).append("<styleSheet xmlns=\"" + NS_MAIN + "\">");
+        if (!numFmts.isEmpty()) {
+            sb.append("<numFmts count=\"").append(numFmts.size()).append("\">");
+            numFmts.forEach((pattern, id) -> sb.append("<numFmt numFmtId=\"").append(id).append("\" formatCode=\"").append(escapeAttribute(pattern)).append("\"/>"));
+            sb.append("</numFmts>");
+        }
+        sb.append("<fonts count=\"").append(fonts.size()).append("\">");
+        fonts.keySet().forEach(sb::append);
+        sb.append("</fonts><fills count=\"").append(fills.size()).append("\">");
+        fills.keySet().forEach(sb::append);
+        sb.append("</fills><borders count=\"").append(borders.size()).append("\">");
+        borders.keySet().forEach(sb::append);
+        sb.append("</borders>")
+                .append("<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>")
+                .append("<cellXfs count=\"").append(xfs.size()).append("\">");
+        xfs.keySet().forEach(sb::append);
+        return sb.append("</cellXfs>")
+                .append("<cellStyles count=\"1\"><cellStyle name=\"Normal\" xfId=\"0\" builtinId=\"0\"/></cellStyles>")
+                .append("</styleSheet>")
+                .toString();
+    }
+
+    private static int index(final Map<String, Integer> components, final String xml) {
+        return components.computeIfAbsent(xml, key -> components.size());
+    }
+
+    private static String font(final Font font) {
+        final StringBuilder sb = new StringBuilder("<font>");
+        if (font.getBold()) sb.append("<b/>");
+        if (font.getItalic()) sb.append("<i/>");
+        if (font.getStrikeout()) sb.append("<strike/>");
+        if (font.getUnderline() != Font.U_NONE) sb.append("<u/>");
+        sb.append("<sz val=\"").append(font.getFontHeightInPoints()).append("\"/>");
+        final XSSFColor color = font instanceof XSSFFont ? ((XSSFFont) font).getXSSFColor() : null;
+        if (Objects.nonNull(color) && Objects.nonNull(color.getARGBHex())) {
+            sb.append("<color rgb=\"").append(color.getARGBHex()).append("\"/>");
+        } else if (font.getColor() != IndexedColors.AUTOMATIC.getIndex() && font.getColor() != 0) {
+            sb.append("<color indexed=\"").append(font.getColor()).append("\"/>");
+        }
+        sb.append("<name val=\"").append(escapeAttribute(Optional.ofNullable(font.getFontName()).orElse("Calibri"))).append("\"/>");
+        return sb.append("</font>").toString();
+    }
+
+    private static String fill(final CellStyles style) {
+        final StringBuilder sb = new StringBuilder("<fill><patternFill patternType=\"")
+                .append(PATTERN_TYPES[style.getFillPattern().getCode()])
+                .append("\">");
+        if (Objects.nonNull(style.getFillForegroundColor())) sb.append("<fgColor rgb=\"").append(argb(style.getFillForegroundColor())).append("\"/>");
+        if (Objects.nonNull(style.getFillBackgroundColor())) sb.append("<bgColor rgb=\"").append(argb(style.getFillBackgroundColor())).append("\"/>");
+        return sb.append("</patternFill></fill>").toString();
+    }
+
+    private static String border(final CellStyles style) {
+        return "<border>"
+                + borderSide("left", style.getBorderLeft(), style.getLeftBorderColor())
+                + borderSide("right", style.getBorderRight(), style.getRightBorderColor())
+                + borderSide("top", style.getBorderTop(), style.getTopBorderColor())
+                + borderSide("bottom", style.getBorderBottom(), style.getBottomBorderColor())
+                + "<diagonal/></border>";
+    }
+
+    private static String borderSide(final String side, final BorderStyle border, final IndexedColors color) {
+        if (Objects.isNull(border) || Objects.equals(BorderStyle.NONE, border)) {
+            return "<" + side + "/>";
+        }
+        final String name = Objects.equals(BorderStyle.SLANTED_DASH_DOT, border) ? "slantDashDot" : camel(border.name());
+        return "<" + side + " style=\"" + name + "\"><color indexed=\"" + (Objects.isNull(color) ? IndexedColors.BLACK.getIndex() : color.getIndex()) + "\"/></" + side + ">";
+    }
+
+    private static String horizontal(final HorizontalAlignment alignment) {
+        return Objects.equals(HorizontalAlignment.CENTER_SELECTION, alignment) ? "centerContinuous" : alignment.name().toLowerCase();
+    }
+
+    /**
+     * MEDIUM_DASH_DOT =&gt; mediumDashDot
+     */
+    private static String camel(final String name) {
+        final StringBuilder sb = new StringBuilder();
+        for (String word : name.toLowerCase().split("_")) {
+            sb.append(sb.length() == 0 ? word : Character.toUpperCase(word.charAt(0)) + word.substring(1));
+        }
+        return sb.toString();
+    }
+
+    private static String argb(final Color color) {
+        return String.format("%02X%02X%02X%02X", color.getAlpha(), color.getRed(), color.getGreen(), color.getBlue());
+    }
+
+    private String columnName(final int index) {
+        if (index >= columnNames.length) {
+            columnNames = Arrays.copyOf(columnNames, Math.max(index + 1, columnNames.length << 1));
+        }
+        String name = columnNames[index];
+        if (Objects.isNull(name)) {
+            columnNames[index] = name = CellReference.convertNumToColString(index);
+        }
+        return name;
+    }
+
+    /**
+     * 转换为时间戳，无法转换时返回 null
+     */
+    private static Long timeMillis(final Object value) {
+        if (value instanceof Number) return ((Number) value).longValue();
+        if (value instanceof Date) return ((Date) value).getTime();
+        if (value instanceof Dates) return ((Dates) value).getTimeMillis();
+        if (value instanceof LocalDateTime) return ((LocalDateTime) value).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        if (value instanceof LocalDate) return ((LocalDate) value).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        final Dates date = Num.of(value.toString()).toDate();
+        return Objects.isNull(date) ? null : date.getTimeMillis();
+    }
+
+    /**
+     * 转义 xml 文本，xml 不支持的控制字符直接丢弃
+     */
+    @SneakyThrows
+    private void escape(final String value) {
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            final String replace;
+            if (c == '<') replace = "&lt;";
+            else if (c == '>') replace = "&gt;";
+            else if (c == '&') replace = "&amp;";
+            else if (c < 0x20 && c != '\t' && c != '\n' && c != '\r' || c == 0xFFFE || c == 0xFFFF) replace = "";
+            else continue;
+            out.write(value, start, i - start);
+            out.write(replace);
+            start = i + 1;
+        }
+        out.write(value, start, value.length() - start);
+    }
+
+    private static String escapeAttribute(final String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    public static void main(String[] args) {
+        final List<Cell> header = Arrays.asList(
+                Cell.builder().column(Column.A).label("序号").type(DataType.SEQ).build(),
+                Cell.builder().column(Column.B).label("名称").alias("name").type(DataType.TEXT).build(),
+                Cell.builder().column(Column.C).label("数量").alias("count").type(DataType.NUMBER).build(),
+                Cell.builder().column(Column.D).label("占比").alias("rate").type(DataType.PERCENT).build(),
+                Cell.builder().column(Column.E).label("日期").alias("date").type(DataType.DATE).build()
+        );
+        final List<Map<String, Object>> rows = IntStream.range(0, 100_000)
+                .mapToObj(i -> {
+                    final Map<String, Object> row = new HashMap<>();
+                    row.put("name", "名称<" + i + ">");
+                    row.put("count", i);
+                    row.put("rate", i / 100_000D);
+                    row.put("date", Dates.now().getTimeMillis());
+                    return row;
+                })
+                .collect(Collectors.toList());
+        try {
+            final long start = System.currentTimeMillis();
+            @Cleanup final FastXlsxWriter writer = FastXlsxWriter.of(FPath.of("logs/9.直接输出xlsx.xlsx"));
+            final int headStyle = writer.style(CellStyles.builder()
+                    .fillPattern(FillPatternType.SOLID_FOREGROUND)
+                    .fillForegroundColor(com.utils.enums.Colors.SkyBlue.color)
+                    .alignment(HorizontalAlignment.CENTER)
+                    .borderBottom(BorderStyle.THIN)
+                    .build());
+            writer.sheet("Sheet1").freeze(0, 2).width(1, 20).width(4, 12)
+                    .row().style(headStyle).writeText("表格标题").merge("A1:E1")
+                    .row();
+            header.forEach(head -> writer.cell(head.index()).style(headStyle).writeText(head.getLabel()));
+            writer.rows(header, rows);
+            writer.sheet("Sheet2").row().writeText("第二个 sheet");
+            writer.close();
+            log.info("写入 {} 行，耗时：{}ms", rows.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,532 @@
+package com.utils.excel;
+
+import lombok.Getter;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.hssf.usermodel.HSSFEvaluationWorkbook;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.formula.BaseFormulaEvaluator;
+import org.apache.poi.ss.formula.FormulaParser;
+import org.apache.poi.ss.formula.FormulaParsingWorkbook;
+import org.apache.poi.ss.formula.FormulaType;
+import org.apache.poi.ss.formula.ptg.*;
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.usermodel.XSSFEvaluationWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.FileOutputStream;
+import java.util.*;
+
+/**
+ * 公式增量计算；第一次计算时解析所有公式建立依赖关系，之后每次只重新计算被修改的单元格影响到的公式
+ * <pre>
+ * 修改检测：记录公式引用区域内所有非公式单元格的值，计算前对比，不需要在写入时登记
+ * 依赖传递：被修改的单元格 => 引用它的公式 => 引用这些公式的公式 ...
+ * 求值：整个生命周期复用同一个 FormulaEvaluator ，未修改单元格的计算结果保留在求值缓存中
+ * 无法确定引用范围的公式每次都重新计算：INDIRECT 、OFFSET 等易失函数、名称引用、跨文件引用、跨多个 sheet 的引用、解析失败的公式
+ * 新增、删除行，引用区域内新增、删除单元格或者普通单元格被改为公式时自动重建依赖关系并全部计算
+ * 修改已有公式、公式单元格被改为普通值、移动行之后需要调用 {@link #reset()}
+ * 只支持 HSSFWorkbook 和 XSSFWorkbook ；SXSSFWorkbook 已写入磁盘的行无法读取，使用 {@link ISheetWriter#evaluateAllFormulaCells()}
+ *
+ * final FormulaRecalculator recalculator = FormulaRecalculator.of(workbook);
+ * recalculator.evaluate(); // 第一次计算所有公式
+ * sheet.getRow(1).getCell(1).setCellValue(100);
+ * recalculator.evaluate(); // 只计算受 B2 影响的公式
+ *
+ * @author 谢长春 on 2018-8-8 .
+ */
+@Slf4j
+public final class FormulaRecalculator {
+    /**
+     * 区域跨越的列数超过该值时不按列索引
+     */
+    private static final int WIDE_COLUMNS = 32;
+    /**
+     * 行索引分块大小，2 的幂
+     */
+    private static final int BLOCK_SHIFT = 6;
+    /**
+     * 区域跨越的块数超过该值时只按列索引
+     */
+    private static final int TALL_BLOCKS = 64;
+    /**
+     * 无法确定引用范围的函数
+     */
+    private static final Set<String> VOLATILE_FUNCTIONS = new HashSet<>(Arrays.asList(
+            "INDIRECT", "OFFSET", "NOW", "TODAY", "RAND", "RANDBETWEEN", "CELL", "INFO"
+    ));
+
+    private FormulaRecalculator(final Workbook workbook) {
+        this.workbook = workbook;
+        this.evaluator = workbook.getCreationHelper().createFormulaEvaluator();
+        this.parsingWorkbook = workbook instanceof HSSFWorkbook
+                ? HSSFEvaluationWorkbook.create((HSSFWorkbook) workbook)
+                : XSSFEvaluationWorkbook.create((XSSFWorkbook) workbook);
+    }
+
+    /**
+     * 创建公式增量计算器；同一个 workbook 应该只使用一个计算器
+     *
+     * @param workbook {@link Workbook} HSSFWorkbook 或 XSSFWorkbook
+     * @return {@link FormulaRecalculator}
+     */
+    public static FormulaRecalculator of(final Workbook workbook) {
+        Objects.requireNonNull(workbook, "参数【workbook】是必须的");
+        if (!(workbook instanceof HSSFWorkbook || workbook instanceof XSSFWorkbook)) {
+            throw new IllegalArgumentException("只支持 HSSFWorkbook 和 XSSFWorkbook ：".concat(workbook.getClass().getName()));
+        }
+        return new FormulaRecalculator(workbook);
+    }
+
+    @Getter
+    private final Workbook workbook;
+    private final FormulaEvaluator evaluator;
+    private final FormulaParsingWorkbook parsingWorkbook;
+    /**
+     * 依赖关系；null 表示需要重建
+     */
+    private Graph graph;
+    /**
+     * 最近一次计算的公式数量
+     */
+    @Getter
+    private int lastEvaluated;
+
+    /**
+     * 清除依赖关系和求值缓存，下一次计算时重新解析所有公式并全部计算
+     *
+     * @return {@link FormulaRecalculator}
+     */
+    public FormulaRecalculator reset() {
+        graph = null;
+        evaluator.clearAllCachedResultValues();
+        return this;
+    }
+
+    /**
+     * 计算上次计算之后受修改影响的公式，并将结果写入公式单元格的缓存值；第一次调用时计算所有公式
+     *
+     * @return int 本次计算的公式数量
+     */
+    public int evaluate() {
+        if (Objects.isNull(graph) || !graph.scan()) {
+            evaluator.clearAllCachedResultValues();
+            graph = new Graph();
+            lastEvaluated = graph.evaluate(graph.nodes.values());
+        } else {
+            lastEvaluated = graph.evaluate(graph.affected());
+        }
+        return lastEvaluated;
+    }
+
+    private static long key(final int sheetIndex, final int rowIndex, final int columnIndex) {
+        return ((long) sheetIndex << 34) | ((long) rowIndex << 14) | columnIndex;
+    }
+
+    private static Object valueOf(final Cell cell) {
+        switch (cell.getCellType()) {
+            case NUMERIC:
+                return cell.getNumericCellValue();
+            case STRING:
+                return cell.getStringCellValue();
+            case BOOLEAN:
+                return cell.getBooleanCellValue();
+            case ERROR:
+                return "#".concat(Byte.toString(cell.getErrorCellValue()));
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 公式单元格
+     */
+    private static final class Node {
+        private final int sheetIndex;
+        private final int rowIndex;
+        private final int columnIndex;
+        private final long key;
+        /**
+         * 每次都需要重新计算
+         */
+        private boolean always;
+
+        private Node(final int sheetIndex, final int rowIndex, final int columnIndex) {
+            this.sheetIndex = sheetIndex;
+            this.rowIndex = rowIndex;
+            this.columnIndex = columnIndex;
+            this.key = key(sheetIndex, rowIndex, columnIndex);
+        }
+    }
+
+    /**
+     * 公式引用的区域；相同的区域只保存一次，dependents 为引用该区域的公式
+     */
+    private static final class Area {
+        private final int sheetIndex;
+        private final int firstRow;
+        private final int lastRow;
+        private final int firstColumn;
+        private final int lastColumn;
+        private final List<Node> dependents = new ArrayList<>(1);
+
+        private Area(final int sheetIndex, final int firstRow, final int lastRow, final int firstColumn, final int lastColumn) {
+            this.sheetIndex = sheetIndex;
+            this.firstRow = firstRow;
+            this.lastRow = lastRow;
+            this.firstColumn = firstColumn;
+            this.lastColumn = lastColumn;
+        }
+
+        private boolean contains(final int rowIndex, final int columnIndex) {
+            return firstRow <= rowIndex && rowIndex <= lastRow && firstColumn <= columnIndex && columnIndex <= lastColumn;
+        }
+    }
+
+    /**
+     * 非公式单元格的值快照
+     */
+    private static final class Value {
+        private final Row row;
+        private final int columnIndex;
+        private final Cell cell;
+        private final long key;
+        private Object value;
+
+        private Value(final Row row, final Cell cell, final long key) {
+            this.row = row;
+            this.columnIndex = cell.getColumnIndex();
+            this.cell = cell;
+            this.key = key;
+            this.value = valueOf(cell);
+        }
+    }
+
+    /**
+     * 引用区域内的行快照，用于检测新增、删除的单元格
+     */
+    private static final class Track {
+        private final Sheet sheet;
+        private final int rowIndex;
+        private final Row row;
+        private final int cells;
+
+        private Track(final Sheet sheet, final Row row) {
+            this.sheet = sheet;
+            this.rowIndex = row.getRowNum();
+            this.row = row;
+            this.cells = row.getPhysicalNumberOfCells();
+        }
+    }
+
+    /**
+     * 依赖关系
+     */
+    private final class Graph {
+        private final Map<Long, Node> nodes = new LinkedHashMap<>();
+        private final Map<List<Integer>, Area> areas = new LinkedHashMap<>();
+        /**
+         * 区域索引：sheet => (列 << 15 | 行块) => 区域
+         */
+        private final Map<Integer, Map<Long, List<Area>>> blocks = new HashMap<>();
+        /**
+         * 行数较多的区域：sheet => 列 => 区域
+         */
+        private final Map<Integer, Map<Integer, List<Area>>> columns = new HashMap<>();
+        /**
+         * 列数较多的区域：sheet => 区域
+         */
+        private final Map<Integer, List<Area>> wides = new HashMap<>();
+        private final List<Value> values = new ArrayList<>();
+        private final List<Track> tracks = new ArrayList<>();
+        /**
+         * 每个 sheet 的行数
+         */
+        private final int[] sheetRows;
+        /**
+         * 上次计算之后被修改的单元格
+         */
+        private final List<Long> changed = new ArrayList<>();
+
+        private Graph() {
+            for (int sheetIndex = 0; sheetIndex < workbook.getNumberOfSheets(); sheetIndex++) {
+                for (Row row : workbook.getSheetAt(sheetIndex)) {
+                    for (Cell cell : row) {
+                        if (CellType.FORMULA == cell.getCellType()) {
+                            final Node node = new Node(sheetIndex, cell.getRowIndex(), cell.getColumnIndex());
+                            nodes.put(node.key, node);
+                            parse(node, cell);
+                        }
+                    }
+                }
+            }
+            areas.values().forEach(this::index);
+            sheetRows = new int[workbook.getNumberOfSheets()];
+            for (int sheetIndex = 0; sheetIndex < sheetRows.length; sheetIndex++) {
+                sheetRows[sheetIndex] = workbook.getSheetAt(sheetIndex).getPhysicalNumberOfRows();
+            }
+            snapshot();
+            log.debug("公式依赖关系：{} 个公式，{} 个引用区域", nodes.size(), areas.size());
+        }
+
+        private void parse(final Node node, final Cell cell) {
+            final Ptg[] ptgs;
+            try {
+                ptgs = FormulaParser.parse(cell.getCellFormula(), parsingWorkbook, FormulaType.CELL, node.sheetIndex, node.rowIndex);
+            } catch (Exception e) {
+                log.debug("公式解析失败，每次重新计算：{}", cell.getAddress(), e);
+                node.always = true;
+                return;
+            }
+            for (Ptg ptg : ptgs) {
+                if (ptg instanceof AbstractFunctionPtg) {
+                    node.always |= VOLATILE_FUNCTIONS.contains(((AbstractFunctionPtg) ptg).getName());
+                } else if (ptg instanceof NamePtg || ptg instanceof NameXPtg
+                        || ptg instanceof RefErrorPtg || ptg instanceof AreaErrPtg
+                        || ptg instanceof DeletedRef3DPtg || ptg instanceof DeletedArea3DPtg || ptg instanceof Deleted3DPxg) {
+                    node.always = true;
+                } else if (ptg instanceof RefPtgBase) {
+                    final RefPtgBase ref = (RefPtgBase) ptg;
+                    final int sheetIndex = sheetIndexOf(node, ptg);
+                    if (sheetIndex >= 0) {
+                        reference(node, sheetIndex, ref.getRow(), ref.getRow(), ref.getColumn(), ref.getColumn());
+                    }
+                } else if (ptg instanceof AreaPtgBase) {
+                    final AreaPtgBase area = (AreaPtgBase) ptg;
+                    final int sheetIndex = sheetIndexOf(node, ptg);
+                    if (sheetIndex >= 0) {
+                        reference(node, sheetIndex, area.getFirstRow(), area.getLastRow(), area.getFirstColumn(), area.getLastColumn());
+                    }
+                }
+            }
+        }
+
+        /**
+         * 引用所在的 sheet ；无法确定时标记公式每次重新计算，返回 -1
+         */
+        private int sheetIndexOf(final Node node, final Ptg ptg) {
+            if (ptg instanceof Pxg) {
+                final Pxg pxg = (Pxg) ptg;
+                if (pxg.getExternalWorkbookNumber() > 0
+                        || (ptg instanceof Area3DPxg && Objects.nonNull(((Area3DPxg) ptg).getLastSheetName()))
+                        || (ptg instanceof Ref3DPxg && Objects.nonNull(((Ref3DPxg) ptg).getLastSheetName()))) {
+                    node.always = true;
+                    return -1;
+                }
+                return sheetIndexOf(node, pxg.getSheetName());
+            }
+            if (ptg instanceof Ref3DPtg || ptg instanceof Area3DPtg) {
+                final int externSheetIndex = ptg instanceof Ref3DPtg
+                        ? ((Ref3DPtg) ptg).getExternSheetIndex()
+                        : ((Area3DPtg) ptg).getExternSheetIndex();
+                final HSSFEvaluationWorkbook hssf = (HSSFEvaluationWorkbook) parsingWorkbook;
+                final String first = hssf.getSheetFirstNameByExternSheet(externSheetIndex);
+                if (Objects.nonNull(hssf.getExternalSheet(externSheetIndex))
+                        || !Objects.equals(first, hssf.getSheetLastNameByExternSheet(externSheetIndex))) {
+                    node.always = true;
+                    return -1;
+                }
+                return sheetIndexOf(node, first);
+            }
+            return node.sheetIndex;
+        }
+
+        private int sheetIndexOf(final Node node, final String sheetName) {
+            final int sheetIndex = Objects.isNull(sheetName) ? node.sheetIndex : workbook.getSheetIndex(sheetName);
+            if (sheetIndex < 0) {
+                node.always = true;
+            }
+            return sheetIndex;
+        }
+
+        private void reference(final Node node, final int sheetIndex, final int firstRow, final int lastRow, final int firstColumn, final int lastColumn) {
+            areas.computeIfAbsent(
+                    Arrays.asList(sheetIndex, firstRow, lastRow, firstColumn, lastColumn),
+                    key -> new Area(sheetIndex, firstRow, lastRow, firstColumn, lastColumn)
+            ).dependents.add(node);
+        }
+
+        private void index(final Area area) {
+            if (area.lastColumn - area.firstColumn >= WIDE_COLUMNS) {
+                wides.computeIfAbsent(area.sheetIndex, key -> new ArrayList<>()).add(area);
+            } else if ((area.lastRow >> BLOCK_SHIFT) - (area.firstRow >> BLOCK_SHIFT) >= TALL_BLOCKS) {
+                final Map<Integer, List<Area>> map = columns.computeIfAbsent(area.sheetIndex, key -> new HashMap<>());
+                for (int c = area.firstColumn; c <= area.lastColumn; c++) {
+                    map.computeIfAbsent(c, key -> new ArrayList<>()).add(area);
+                }
+            } else {
+                final Map<Long, List<Area>> map = blocks.computeIfAbsent(area.sheetIndex, key -> new HashMap<>());
+                for (int c = area.firstColumn; c <= area.lastColumn; c++) {
+                    for (int b = area.firstRow >> BLOCK_SHIFT; b <= area.lastRow >> BLOCK_SHIFT; b++) {
+                        map.computeIfAbsent(((long) c << 15) | b, key -> new ArrayList<>()).add(area);
+                    }
+                }
+            }
+        }
+
+        /**
+         * 记录引用区域内所有非公式单元格的值
+         */
+        private void snapshot() {
+            final Set<Long> keys = new HashSet<>();
+            final Set<Row> rows = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Area area : areas.values()) {
+                final Sheet sheet = workbook.getSheetAt(area.sheetIndex);
+                final int lastRow = Math.min(area.lastRow, sheet.getLastRowNum());
+                for (int r = Math.max(area.firstRow, sheet.getFirstRowNum()); r <= lastRow; r++) {
+                    final Row row = sheet.getRow(r);
+                    if (Objects.isNull(row)) {
+                        continue;
+                    }
+                    if (rows.add(row)) {
+                        tracks.add(new Track(sheet, row));
+                    }
+                    final int lastColumn = Math.min(area.lastColumn, row.getLastCellNum() - 1);
+                    for (int c = Math.max(area.firstColumn, row.getFirstCellNum()); c <= lastColumn; c++) {
+                        final Cell cell = row.getCell(c);
+                        final long key = key(area.sheetIndex, r, c);
+                        if (Objects.nonNull(cell) && !nodes.containsKey(key) && keys.add(key)) {
+                            values.add(new Value(row, cell, key));
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * 对比引用区域内的单元格与上次的快照，记录被修改的单元格，并通知求值缓存
+         *
+         * @return boolean false：新增或删除了行、单元格，或者单元格被改为公式，需要重建依赖关系
+         */
+        private boolean scan() {
+            changed.clear();
+            if (workbook.getNumberOfSheets() != sheetRows.length) {
+                return false;
+            }
+            for (int sheetIndex = 0; sheetIndex < sheetRows.length; sheetIndex++) {
+                if (workbook.getSheetAt(sheetIndex).getPhysicalNumberOfRows() != sheetRows[sheetIndex]) {
+                    return false;
+                }
+            }
+            for (Track track : tracks) {
+                if (track.sheet.getRow(track.rowIndex) != track.row || track.row.getPhysicalNumberOfCells() != track.cells) {
+                    return false;
+                }
+            }
+            for (Value value : values) {
+                if (value.row.getCell(value.columnIndex) != value.cell || CellType.FORMULA == value.cell.getCellType()) {
+                    return false;
+                }
+                final Object current = valueOf(value.cell);
+                if (!Objects.equals(value.value, current)) {
+                    value.value = current;
+                    changed.add(value.key);
+                    evaluator.notifyUpdateCell(value.cell);
+                }
+            }
+            for (Node node : nodes.values()) {
+                if (node.always) {
+                    final Cell cell = cellOf(node);
+                    if (Objects.isNull(cell) || CellType.FORMULA != cell.getCellType()) {
+                        return false;
+                    }
+                    evaluator.notifyUpdateCell(cell);
+                }
+            }
+            return true;
+        }
+
+        /**
+         * 受本次修改影响的公式，包含间接影响和每次都需要重新计算的公式
+         */
+        private Collection<Node> affected() {
+            final Set<Node> result = new LinkedHashSet<>();
+            final Deque<Long> queue = new ArrayDeque<>(changed);
+            for (Node node : nodes.values()) {
+                if (node.always && result.add(node)) {
+                    queue.add(node.key);
+                }
+            }
+            while (!queue.isEmpty()) {
+                final long key = queue.poll();
+                final int sheetIndex = (int) (key >>> 34);
+                final int rowIndex = (int) ((key >>> 14) & 0xFFFFF);
+                final int columnIndex = (int) (key & 0x3FFF);
+                for (List<Area> list : candidates(sheetIndex, rowIndex, columnIndex)) {
+                    for (Area area : list) {
+                        if (area.contains(rowIndex, columnIndex)) {
+                            for (Node node : area.dependents) {
+                                if (result.add(node)) {
+                                    queue.add(node.key);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+            return result;
+        }
+
+        private List<List<Area>> candidates(final int sheetIndex, final int rowIndex, final int columnIndex) {
+            final List<List<Area>> list = new ArrayList<>(3);
+            Optional.ofNullable(blocks.get(sheetIndex))
+                    .map(map -> map.get(((long) columnIndex << 15) | (rowIndex >> BLOCK_SHIFT)))
+                    .ifPresent(list::add);
+            Optional.ofNullable(columns.get(sheetIndex))
+                    .map(map -> map.get(columnIndex))
+                    .ifPresent(list::add);
+            Optional.ofNullable(wides.get(sheetIndex)).ifPresent(list::add);
+            return list;
+        }
+
+        private Cell cellOf(final Node node) {
+            final Row row = workbook.getSheetAt(node.sheetIndex).getRow(node.rowIndex);
+            return Objects.isNull(row) ? null : row.getCell(node.columnIndex);
+        }
+
+        private int evaluate(final Collection<Node> list) {
+            int count = 0;
+            for (Node node : list) {
+                final Cell cell = cellOf(node);
+                if (Objects.nonNull(cell) && CellType.FORMULA == cell.getCellType()) {
+                    evaluator.evaluateFormulaCell(cell);
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    @SneakyThrows
+    public static void main(String[] args) {
+        final XSSFWorkbook workbook = new XSSFWorkbook();
+        final Sheet sheet = workbook.createSheet("预算");
+        final int rows = 20000;
+        for (int i = 0; i < rows; i++) {
+            final Row row = sheet.createRow(i);
+            row.createCell(0).setCellValue(i);
+            row.createCell(1).setCellValue(1.5);
+            row.createCell(2).setCellFormula(String.format("A%d*B%d", i + 1, i + 1));
+            row.createCell(3).setCellFormula(String.format("C%d*2", i + 1));
+        }
+        final Row total = sheet.createRow(rows);
+        total.createCell(2).setCellFormula(String.format("SUM(C1:C%d)", rows));
+        total.createCell(3).setCellFormula(String.format("SUM(D1:D%d)", rows));
+        final FormulaRecalculator recalculator = FormulaRecalculator.of(workbook);
+        long startTime = System.currentTimeMillis();
+        log.info("首次计算 {} 个公式，耗时：{}ms", recalculator.evaluate(), System.currentTimeMillis() - startTime);
+
+        sheet.getRow(rows - 10).getCell(1).setCellValue(2);
+        startTime = System.currentTimeMillis();
+        log.info("修改 B{} 之后计算 {} 个公式，耗时：{}ms", rows - 9, recalculator.evaluate(), System.currentTimeMillis() - startTime);
+        log.info("D{}={}", rows + 1, total.getCell(3).getNumericCellValue());
+
+        startTime = System.currentTimeMillis();
+        BaseFormulaEvaluator.evaluateAllFormulaCells(workbook);
+        log.info("evaluateAllFormulaCells 耗时：{}ms ，D{}={}", System.currentTimeMillis() - startTime, rows + 1, total.getCell(3).getNumericCellValue());
+        try (final FileOutputStream outputStream = new FileOutputStream("logs/13.公式增量计算.xlsx")) {
+            workbook.write(outputStream);
+        }
+        workbook.close();
+    }
+}
@@ -0,0 +1,566 @@
+package com.utils.excel;
+
+import com.utils.exception.NotFoundException;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.hssf.eventusermodel.EventWorkbookBuilder.SheetRecordCollectingListener;
+import org.apache.poi.hssf.eventusermodel.FormatTrackingHSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFListener;
+import org.apache.poi.hssf.eventusermodel.MissingRecordAwareHSSFListener;
+import org.apache.poi.hssf.eventusermodel.dummyrecord.LastCellOfRowDummyRecord;
+import org.apache.poi.hssf.model.HSSFFormulaParser;
+import org.apache.poi.hssf.record.*;
+import org.apache.poi.hssf.record.crypto.Biff8EncryptionKey;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.poifs.filesystem.DocumentInputStream;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.formula.ptg.ExpPtg;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DataFormat;
+import org.apache.poi.ss.util.CellAddress;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * 【.xls】 流式读取；基于 HSSF 事件模型按记录解析，内存占用只与当前行有关，适用于大文件读取
+ * 只能从上往下顺序读取，不能回退到已经读过的行；读取完成之后需要调用 close 方法
+ * 批注记录位于 sheet 末尾，逐行读取时单元格不带批注，需要批注时使用 {@link HSSFStreamReader#comments()}
+ *
+ * @author 谢长春 on 2018-8-8 .
+ */
+@Slf4j
+public final class HSSFStreamReader extends AbstractStreamReader<HSSFStreamReader> {
+    @SneakyThrows
+    private HSSFStreamReader(final File file, final POIFSFileSystem fs) {
+        this.file = file;
+        this.fs = fs;
+        this.documentName = HSSFWorkbook.getWorkbookDirEntryName(fs.getRoot());
+        final List<Integer> xfFormats = new ArrayList<>(); // XF 对应的数字格式索引，按 XF 索引存放
+        final boolean[] flags = new boolean[2]; // {date1904, encrypted}
+        final FormatTrackingHSSFListener formats = new FormatTrackingHSSFListener(record -> {
+            if (record instanceof ExtendedFormatRecord) {
+                xfFormats.add((int) ((ExtendedFormatRecord) record).getFormatIndex());
+            } else if (record instanceof DateWindow1904Record) {
+                flags[0] = ((DateWindow1904Record) record).getWindowing() == 1;
+            }
+        });
+        final SheetRecordCollectingListener collector = new SheetRecordCollectingListener(formats);
+        // 读取全局记录：sheet 、共享字符串、数字格式、单元格样式
+        try (final DocumentInputStream is = fs.createDocumentInputStream(documentName)) {
+            final RecordFactoryInputStream records = new RecordFactoryInputStream(is, false);
+            Record record;
+            while (Objects.nonNull(record = records.nextRecord())) {
+                if (record instanceof FilePassRecord) {
+                    flags[1] = true;
+                }
+                collector.processRecord(record);
+                if (record instanceof EOFRecord) {
+                    break;
+                }
+            }
+        }
+        this.date1904 = flags[0];
+        this.encrypted = flags[1];
+        this.password = encrypted ? Biff8EncryptionKey.getCurrentUserPassword() : null;
+        this.boundSheets = collector.getBoundSheetRecords();
+        this.sheetNames = new ArrayList<>(boundSheets.length);
+        for (BoundSheetRecord boundSheet : boundSheets) {
+            sheetNames.add(boundSheet.getSheetname());
+        }
+        this.bofOrder = Arrays.asList(BoundSheetRecord.orderByBofPosition(Arrays.asList(boundSheets)));
+        this.sst = collector.getSSTRecord();
+        this.stubWorkbook = collector.getStubHSSFWorkbook();
+        this.styleWorkbook = new HSSFWorkbook();
+        this.cellStyles = new CellStyle[xfFormats.size()];
+        // 样式在这里一次性创建，之后只读，复制的读取器可以在多线程中共享
+        final DataFormat dataFormat = styleWorkbook.createDataFormat();
+        for (int index = 0; index < cellStyles.length; index++) {
+            while (styleWorkbook.getNumCellStyles() <= index) {
+                styleWorkbook.createCellStyle();
+            }
+            final CellStyle style = styleWorkbook.getCellStyleAt(index);
+            final String format = formats.getFormatString(xfFormats.get(index));
+            if (Objects.nonNull(format)) {
+                style.setDataFormat(dataFormat.getFormat(format));
+            }
+            cellStyles[index] = style;
+        }
+        this.fork = false;
+    }
+
+    /**
+     * 复制读取器，共享已经解析的全局记录，使用独立的文件句柄
+     *
+     * @param source {@link HSSFStreamReader} 原读取器
+     */
+    @SneakyThrows
+    private HSSFStreamReader(final HSSFStreamReader source) {
+        this.file = source.file;
+        this.fs = new POIFSFileSystem(source.file, true);
+        this.documentName = source.documentName;
+        this.date1904 = source.date1904;
+        this.encrypted = source.encrypted;
+        this.password = source.password;
+        this.boundSheets = source.boundSheets;
+        this.sheetNames = source.sheetNames;
+        this.bofOrder = source.bofOrder;
+        this.sst = source.sst;
+        this.stubWorkbook = source.stubWorkbook;
+        this.styleWorkbook = source.styleWorkbook;
+        this.cellStyles = source.cellStyles;
+        this.fork = true;
+    }
+
+    public static HSSFStreamReader of(final String path, String... names) {
+        return of(com.utils.util.FPath.of(path, names).file());
+    }
+
+    @SneakyThrows
+    public static HSSFStreamReader of(final File file) {
+        Objects.requireNonNull(file, "参数【file】是必须的");
+        if (!file.exists()) {
+            throw new NotFoundException("文件不存在：".concat(file.getAbsolutePath()));
+        }
+        if (!file.getName().endsWith(".xls")) {
+            throw new IllegalArgumentException("未知的文件后缀，流式读取只支持【.xls】");
+        }
+        return new HSSFStreamReader(file, new POIFSFileSystem(file, true));
+    }
+
+    /**
+     * 流式读取加密的【.xls】；.xls 按记录解密，不需要临时文件
+     *
+     * @param file     {@link File}
+     * @param password String 文件密码，为 null 时按未加密文件读取
+     * @return {@link HSSFStreamReader}
+     */
+    public static HSSFStreamReader of(final File file, final String password) {
+        final String current = Biff8EncryptionKey.getCurrentUserPassword();
+        try { // 构造方法中读取全局记录时从 ThreadLocal 获取密码，之后保存在读取器中
+            Biff8EncryptionKey.setCurrentUserPassword(password);
+            return of(file);
+        } finally {
+            Biff8EncryptionKey.setCurrentUserPassword(current);
+        }
+    }
+
+    private final File file;
+    private final POIFSFileSystem fs;
+    private final String documentName;
+    private final BoundSheetRecord[] boundSheets;
+    /**
+     * sheet 在文件中的存放顺序，与 sheet 索引顺序可能不一致
+     */
+    private final List<BoundSheetRecord> bofOrder;
+    private final List<String> sheetNames;
+    private final SSTRecord sst;
+    /**
+     * 公式解析需要的 Workbook ，只包含 sheet 名称和外部引用
+     */
+    private final HSSFWorkbook stubWorkbook;
+    /**
+     * 单元格样式需要的 Workbook ，样式索引与文件中的 XF 索引一致，只同步数字格式
+     */
+    private final HSSFWorkbook styleWorkbook;
+    /**
+     * 样式，按 XF 索引存放
+     */
+    private final CellStyle[] cellStyles;
+    /**
+     * 是否使用 1904 日期系统
+     */
+    private final boolean date1904;
+    /**
+     * 文件是否加密，加密的文件不能直接定位到 sheet ，需要从头读取
+     */
+    private final boolean encrypted;
+    /**
+     * 打开文件时的密码，复制的读取器在其他线程中解密时使用
+     */
+    private final String password;
+    /**
+     * 是否为复制的读取器，复制的读取器关闭时不释放共享的全局记录
+     */
+    private final boolean fork;
+
+    private DocumentInputStream sheetStream;
+    private RecordFactoryInputStream records;
+    /**
+     * 当前 sheet 的监听器，补全缺失的行和单元格，每行结束时发出 LastCellOfRowDummyRecord
+     */
+    private HSSFListener listener;
+    /**
+     * BOF 嵌套深度，sheet 内嵌图表也有 BOF 和 EOF 记录
+     */
+    private int depth;
+    /**
+     * 已经读完的行
+     */
+    private final Deque<StreamRow> ready = new ArrayDeque<>();
+    /**
+     * 正在读取的行
+     */
+    private StreamRow building;
+    /**
+     * 等待 STRING 、SHRFMLA 、ARRAY 记录的公式单元格
+     */
+    private FormulaRecord formulaRecord;
+    private StreamCell formulaCell;
+    private String formulaString;
+    /**
+     * 当前 sheet 的共享公式和数组公式
+     */
+    private final List<SharedValueRecordBase> sharedValues = new ArrayList<>();
+
+    @Override
+    public List<String> sheetNames() {
+        return Collections.unmodifiableList(sheetNames);
+    }
+
+    @Override
+    public HSSFStreamReader fork() {
+        return new HSSFStreamReader(this);
+    }
+
+    @Override
+    void openSheet(final int index) {
+        records = openRecords(index);
+        listener = new MissingRecordAwareHSSFListener(this::process);
+        depth = 0;
+        ready.clear();
+        building = null;
+        formulaRecord = null;
+        sharedValues.clear();
+    }
+
+    @SneakyThrows
+    @Override
+    void closeSheet() {
+        records = null;
+        listener = null;
+        if (Objects.nonNull(sheetStream)) {
+            sheetStream.close();
+            sheetStream = null;
+        }
+    }
+
+    @SneakyThrows
+    @Override
+    void closeFile() {
+        fs.close();
+        if (!fork) {
+            styleWorkbook.close();
+        }
+    }
+
+    @Override
+    StreamRow readRow() {
+        while (ready.isEmpty() && Objects.nonNull(records)) {
+            final Record record = records.nextRecord();
+            if (Objects.isNull(record)) {
+                endSheet();
+                break;
+            }
+            if (record instanceof BOFRecord) {
+                depth++;
+            }
+            if (depth == 1) {
+                listener.processRecord(record);
+            }
+            if (record instanceof EOFRecord && --depth == 0) {
+                endSheet();
+            }
+        }
+        return ready.pollFirst();
+    }
+
+    /**
+     * 读取当前 sheet 末尾的批注记录
+     *
+     * @return {@link Map>{@link Map<String:A1单元格坐标, String:批注>
+     */
+    @Override
+    public Map<String, String> comments() {
+        final Map<String, String> map = new HashMap<>();
+        if (sheetIndex() < 0) {
+            return map;
+        }
+        final DocumentInputStream current = sheetStream;
+        try {
+            final RecordFactoryInputStream comments = openRecords(sheetIndex());
+            final Map<Integer, String> texts = new HashMap<>();
+            final List<NoteRecord> notes = new ArrayList<>();
+            int objectId = -1;
+            int level = 0;
+            Record record;
+            while (Objects.nonNull(record = comments.nextRecord())) {
+                if (record instanceof BOFRecord) {
+                    level++;
+                } else if (record instanceof EOFRecord && --level == 0) {
+                    break;
+                } else if (record instanceof ObjRecord) {
+                    objectId = ((ObjRecord) record).getSubRecords().stream()
+                            .filter(sub -> sub instanceof CommonObjectDataSubRecord)
+                            .map(sub -> (CommonObjectDataSubRecord) sub)
+                            .filter(sub -> sub.getObjectType() == CommonObjectDataSubRecord.OBJECT_TYPE_COMMENT)
+                            .findFirst()
+                            .map(CommonObjectDataSubRecord::getObjectId)
+                            .orElse(-1);
+                } else if (record instanceof TextObjectRecord && objectId >= 0) {
+                    texts.put(objectId, ((TextObjectRecord) record).getStr().getString());
+                    objectId = -1;
+                } else if (record instanceof NoteRecord) {
+                    notes.add((NoteRecord) record);
+                }
+            }
+            notes.forEach(note -> Optional.ofNullable(texts.get(note.getShapeId()))
+                    .ifPresent(text -> map.put(new CellAddress(note.getRow(), note.getColumn()).formatAsString(), text))
+            );
+        } finally {
+            closeStream();
+            sheetStream = current;
+        }
+        return map;
+    }
+
+    /**
+     * 打开记录流并定位到指定 sheet 的 BOF 记录
+     *
+     * @param index int sheet索引
+     * @return {@link RecordFactoryInputStream}
+     */
+    @SneakyThrows
+    private RecordFactoryInputStream openRecords(final int index) {
+        final BoundSheetRecord boundSheet = boundSheets[index];
+        sheetStream = fs.createDocumentInputStream(documentName);
+        if (!encrypted) {
+            sheetStream.skip(boundSheet.getPositionOfBof());
+            return new RecordFactoryInputStream(sheetStream, false);
+        }
+        // 加密文件需要从头解密，跳过全局记录和排在前面的 sheet
+        final String current = Biff8EncryptionKey.getCurrentUserPassword();
+        final RecordFactoryInputStream stream;
+        try { // 密码保存在 ThreadLocal 中，在其他线程中读取时需要重新设置
+            Biff8EncryptionKey.setCurrentUserPassword(password);
+            stream = new RecordFactoryInputStream(sheetStream, false);
+        } finally {
+            Biff8EncryptionKey.setCurrentUserPassword(current);
+        }
+        int skip = bofOrder.indexOf(boundSheet) + 1; // +1 全局记录
+        int level = 0;
+        while (skip > 0) {
+            final Record record = stream.nextRecord();
+            if (Objects.isNull(record)) {
+                break;
+            }
+            if (record instanceof BOFRecord) {
+                level++;
+            } else if (record instanceof EOFRecord && --level == 0) {
+                skip--;
+            }
+        }
+        return stream;
+    }
+
+    @SneakyThrows
+    private void closeStream() {
+        if (Objects.nonNull(sheetStream)) {
+            sheetStream.close();
+        }
+    }
+
+    /**
+     * sheet 读完，提交最后一行
+     */
+    private void endSheet() {
+        finishFormula();
+        finishRow();
+        closeSheet();
+    }
+
+    /**
+     * 提交正在读取的行，没有单元格的行不提交
+     */
+    private void finishRow() {
+        if (Objects.nonNull(building) && building.getPhysicalNumberOfCells() > 0) {
+            ready.addLast(building);
+        }
+        building = null;
+    }
+
+    /**
+     * 获取正在读取的行，行索引变化时提交上一行
+     *
+     * @param rowIndex int 行索引
+     * @return {@link StreamRow}
+     */
+    private StreamRow building(final int rowIndex) {
+        if (Objects.nonNull(building) && building.getRowNum() != rowIndex) {
+            finishRow();
+        }
+        if (Objects.isNull(building)) {
+            building = new StreamRow(rowIndex, date1904);
+        }
+        return building;
+    }
+
+    /**
+     * 处理 sheet 中的单元格记录
+     *
+     * @param record {@link Record}
+     */
+    private void process(final Record record) {
+        switch (record.getSid()) {
+            case StringRecord.sid:
+                formulaString = ((StringRecord) record).getString();
+                return;
+            case SharedFormulaRecord.sid:
+            case ArrayRecord.sid:
+                sharedValues.add((SharedValueRecordBase) record);
+                return;
+            default:
+                finishFormula();
+        }
+        switch (record.getSid()) {
+            case DimensionsRecord.sid:
+                dimensionLastRowIndex = ((DimensionsRecord) record).getLastRow() - 1;
+                break;
+            case NumberRecord.sid:
+                final NumberRecord number = (NumberRecord) record;
+                cell(number).numeric(number.getValue());
+                break;
+            case LabelSSTRecord.sid:
+                final LabelSSTRecord label = (LabelSSTRecord) record;
+                cell(label).string(sst.getString(label.getSSTIndex()).getString());
+                break;
+            case LabelRecord.sid:
+                final LabelRecord text = (LabelRecord) record;
+                cell(text).string(text.getValue());
+                break;
+            case BoolErrRecord.sid:
+                final BoolErrRecord boolErr = (BoolErrRecord) record;
+                if (boolErr.isBoolean()) {
+                    cell(boolErr).bool(boolErr.getBooleanValue());
+                } else {
+                    cell(boolErr).error(boolErr.getErrorValue());
+                }
+                break;
+            case BlankRecord.sid:
+                cell((BlankRecord) record);
+                break;
+            case FormulaRecord.sid:
+                formulaRecord = (FormulaRecord) record;
+                formulaCell = cell(formulaRecord);
+                formulaString = null;
+                break;
+            default:
+                if (record instanceof LastCellOfRowDummyRecord
+                        && Objects.nonNull(building)
+                        && building.getRowNum() == ((LastCellOfRowDummyRecord) record).getRow()) {
+                    finishRow();
+                }
+        }
+    }
+
+    /**
+     * 新增单元格
+     *
+     * @param record {@link CellValueRecordInterface}
+     * @return {@link StreamCell}
+     */
+    private StreamCell cell(final CellValueRecordInterface record) {
+        return building(record.getRow()).addCell(record.getColumn(), style(record.getXFIndex()));
+    }
+
+    /**
+     * 公式计算结果类型；FormulaRecord.getCachedResultType 返回的是 POI {@link CellType} 的旧版整数编码（0：数字，1：文本，4：布尔，5：错误），不是 BIFF8 记录中的结果类型字节
+     * CellType.forInt 已废弃，这里直接按编码转换
+     *
+     * @param code int 类型编码
+     * @return {@link CellType}
+     */
+    private static CellType cachedResultType(final int code) {
+        switch (code) {
+            case 1:
+                return CellType.STRING;
+            case 4:
+                return CellType.BOOLEAN;
+            case 5:
+                return CellType.ERROR;
+            default:
+                return CellType.NUMERIC;
+        }
+    }
+
+    /**
+     * 公式单元格的计算结果和共享公式在后续记录中，遇到其他记录时完成公式单元格
+     */
+    private void finishFormula() {
+        if (Objects.isNull(formulaRecord)) {
+            return;
+        }
+        switch (cachedResultType(formulaRecord.getCachedResultType())) {
+            case STRING:
+                formulaCell.string(Objects.toString(formulaString, ""));
+                break;
+            case BOOLEAN:
+                formulaCell.bool(formulaRecord.getCachedBooleanValue());
+                break;
+            case ERROR:
+                formulaCell.error((byte) formulaRecord.getCachedErrorValue());
+                break;
+            default:
+                formulaCell.numeric(formulaRecord.getValue());
+        }
+        formulaCell.formula(formula(formulaRecord));
+        formulaRecord = null;
+        formulaCell = null;
+        formulaString = null;
+    }
+
+    /**
+     * 获取公式文本，共享公式和数组公式从 SHRFMLA 、ARRAY 记录中获取
+     *
+     * @param record {@link FormulaRecord}
+     * @return String 公式
+     */
+    private String formula(final FormulaRecord record) {
+        Ptg[] ptgs = record.getParsedExpression();
+        try {
+            if (ptgs.length > 0 && ptgs[0] instanceof ExpPtg) {
+                final ExpPtg exp = (ExpPtg) ptgs[0];
+                final SharedValueRecordBase shared = sharedValues.stream()
+                        .filter(value -> value.isFirstCell(exp.getRow(), exp.getColumn()))
+                        .findFirst()
+                        .orElse(null);
+                if (shared instanceof SharedFormulaRecord) {
+                    ptgs = ((SharedFormulaRecord) shared).getFormulaTokens(record);
+                } else if (shared instanceof ArrayRecord) {
+                    ptgs = ((ArrayRecord) shared).getFormulaTokens();
+                } else {
+                    return "";
+                }
+            }
+            return HSSFFormulaParser.toFormulaString(stubWorkbook, ptgs);
+        } catch (Exception e) {
+            log.warn("公式解析失败：{}", new CellAddress(record.getRow(), record.getColumn()).formatAsString(), e);
+            return "";
+        }
+    }
+
+    /**
+     * 获取样式，样式索引与 XF 索引一致
+     *
+     * @param index int XF索引
+     * @return {@link CellStyle}
+     */
+    private CellStyle style(final int index) {
+        if (index < 0 || index >= cellStyles.length) {
+            return cellStyles.length > 0 ? cellStyles[0] : null;
+        }
+        return cellStyles[index];
+    }
+}
@@ -0,0 +1,246 @@
+package com.utils.excel;
+
+import com.utils.excel.entity.Cell;
+import com.utils.excel.enums.DataType;
+import lombok.Getter;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.ss.util.CellRangeAddress;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * 多行表头解析；表头只扫描一次，合并单元格使用 {@link SheetIndex} 查找，生成 group/label/tag 组合键和 组合键 => 列索引 映射，所有数据行共用
+ * <pre>
+ * 表头自上而下每一行为一层，纵向合并的单元格只算一层；最下面一层为 label ，有 3 层及以上时最下面一层为 tag 、倒数第二层为 label ；label 之上的所有层用 {@link #SEPARATOR} 连接为 group
+ * |            第一季度             |        |
+ * |    1月        |      2月        |  备注  |
+ * | 销售量 | 销售额 | 销售量 | 销售额 |        |
+ * => {group:"第一季度", label:"1月", tag:"销售量"} ... {label:"备注"}
+ *
+ * 合并单元格：读取器能获取 sheet 时（{@link ExcelReader}、{@link ExcelRewriter}）使用 sheet 中的合并单元格；
+ * 流式读取器没有合并单元格信息，按单元格值推断：除最后一行之外，空白单元格与左侧单元格属于同一个父节点时继承左侧单元格
+ *
+ * 组合键：非空的 group、label、tag 用 {@link #SEPARATOR} 连接；不重复的 label 、group|label 、label|tag 也可以作为键
+ *
+ * final HeaderResolver resolver = reader.sheet(0).row(Rownum.of(4)).resolveHeaders(3);
+ * final int index = resolver.indexOf("第一季度", "1月", "销售额");
+ * while (reader.hasNext()) { reader.cell(index).stringValue(); }
+ *
+ * @author 谢长春 on 2018-8-8 .
+ */
+public final class HeaderResolver {
+    /**
+     * 组合键分隔符
+     */
+    public static final String SEPARATOR = "|";
+    /**
+     * 重复的键
+     */
+    private static final int AMBIGUOUS = -1;
+
+    /**
+     * 从读取器当前行开始解析 rows 行表头；解析完成之后读取器停在表头最后一行，继续调用 hasNext() 读取数据行
+     *
+     * @param reader {@link ISheetReader} 已选中表头第一行的读取器
+     * @param rows   int 表头行数
+     * @return {@link HeaderResolver}
+     */
+    public static HeaderResolver of(final ISheetReader<?> reader, final int rows) {
+        Objects.requireNonNull(reader, "参数【reader】是必须的");
+        if (rows <= 0) {
+            throw new IllegalArgumentException("参数【rows】必须大于 0");
+        }
+        return new HeaderResolver(reader, rows);
+    }
+
+    private HeaderResolver(final ISheetReader<?> reader, final int rows) {
+        final int firstRowIndex = reader.getRowIndex();
+        final int lastRowIndex = firstRowIndex + rows - 1;
+        final SheetIndex regions = Objects.isNull(reader.getSheet()) ? null : SheetIndex.of(reader.getSheet());
+        final String[][] values = new String[rows][];
+        final Integer[] sindexes;
+        { // 读取表头所有单元格
+            int row = 0;
+            while (true) {
+                if (Objects.isNull(reader.getRow())) {
+                    throw new IllegalStateException(String.format("表头第 %d 行不存在", reader.getRowIndex() + 1));
+                }
+                values[row] = new String[Math.max(0, reader.getRow().getLastCellNum())];
+                for (int c = 0; c < values[row].length; c++) {
+                    values[row][c] = StringUtils.trimToEmpty(reader.cell(c).stringValue());
+                }
+                if (++row == rows) {
+                    break;
+                }
+                if (!reader.hasNext() || reader.getRowIndex() != firstRowIndex + row) {
+                    throw new IllegalStateException(String.format("表头第 %d 行不存在", firstRowIndex + row + 1));
+                }
+            }
+            sindexes = new Integer[values[rows - 1].length];
+            for (int c = 0; c < sindexes.length; c++) {
+                sindexes[c] = reader.cell(c).sindex();
+            }
+        }
+        int columns = 0;
+        for (String[] value : values) {
+            columns = Math.max(columns, value.length);
+        }
+        if (Objects.nonNull(regions)) {
+            final int lastColumnIndex = reader.getWorkbook().getSpreadsheetVersion().getLastColumnIndex();
+            for (CellRangeAddress region : regions.mergedRegionsIn(new CellRangeAddress(firstRowIndex, lastRowIndex, 0, lastColumnIndex))) {
+                columns = Math.max(columns, region.getLastColumn() + 1);
+            }
+        }
+        // 每个单元格的来源编号，合并单元格和继承左侧的单元格与来源单元格编号相同；0：空白
+        final int[][] ids = new int[rows][columns];
+        final String[] texts = new String[rows * columns + 1];
+        final int[] origins = new int[rows * columns + 1]; // 来源单元格列索引
+        int seq = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                final CellRangeAddress region = Objects.isNull(regions) ? null : regions.mergedRegionAt(firstRowIndex + r, c);
+                if (Objects.nonNull(region) && (region.getFirstRow() != firstRowIndex + r || region.getFirstColumn() != c)) {
+                    final int firstRow = region.getFirstRow() - firstRowIndex;
+                    ids[r][c] = firstRow < 0 ? 0 : ids[firstRow][region.getFirstColumn()];
+                    continue;
+                }
+                final String text = c < values[r].length ? values[r][c] : "";
+                if (!text.isEmpty()) {
+                    texts[ids[r][c] = ++seq] = text;
+                    origins[seq] = c;
+                } else if (Objects.isNull(regions) && r < rows - 1 && c > 0 && (r == 0 || ids[r - 1][c] == ids[r - 1][c - 1])) {
+                    ids[r][c] = ids[r][c - 1]; // 流式读取：推断为横向合并
+                }
+            }
+        }
+        this.headers = new ArrayList<>();
+        final List<String> levels = new ArrayList<>(rows);
+        for (int c = 0; c < columns; c++) {
+            levels.clear();
+            int previous = 0;
+            int last = 0; // 最下面一层的来源编号
+            for (int r = 0; r < rows; r++) {
+                if (ids[r][c] != 0 && ids[r][c] != previous) {
+                    levels.add(texts[ids[r][c]]);
+                    last = ids[r][c];
+                }
+                previous = ids[r][c];
+            }
+            // 最下面一层来自左侧列（横向合并或推断继承）时不是数据列，只在合并区域的第一列输出表头
+            if (levels.isEmpty() || origins[last] != c) {
+                continue;
+            }
+            final Cell.CellBuilder builder = Cell.builder()
+                    .index(c)
+                    .type(DataType.TEXT)
+                    .sindex(c < sindexes.length ? sindexes[c] : null);
+            final int size = levels.size();
+            if (size == 1) {
+                builder.label(levels.get(0));
+            } else if (size == 2) {
+                builder.group(levels.get(0)).label(levels.get(1));
+            } else {
+                builder.group(String.join(SEPARATOR, levels.subList(0, size - 2))).label(levels.get(size - 2)).tag(levels.get(size - 1));
+            }
+            headers.add(builder.build());
+        }
+        this.indexes = new HashMap<>(headers.size() * 8);
+        this.mapHeaders = new LinkedHashMap<>(headers.size() * 2);
+        for (Cell header : headers) {
+            final String key = key(header.getGroup(), header.getLabel(), header.getTag());
+            mapHeaders.put(key, header.getIndex());
+            indexes.put(key, indexes.containsKey(key) ? AMBIGUOUS : header.getIndex());
+        }
+        for (Cell header : headers) { // 简写键，重复时不能使用
+            for (String key : new String[]{
+                    header.getLabel(),
+                    key(header.getGroup(), header.getLabel(), null),
+                    key(null, header.getLabel(), header.getTag())
+            }) {
+                if (mapHeaders.containsKey(key)) { // 完整组合键优先
+                    continue;
+                }
+                final Integer index = indexes.get(key);
+                if (Objects.isNull(index)) {
+                    indexes.put(key, header.getIndex());
+                } else if (index != header.getIndex().intValue()) {
+                    indexes.put(key, AMBIGUOUS);
+                }
+            }
+        }
+    }
+
+    /**
+     * 解析结果，按列索引排序；group 、tag 可能为 null
+     */
+    @Getter
+    private final List<Cell> headers;
+    /**
+     * 完整组合键 => 列索引，按列索引排序；可以直接用于 {@link ISheetReader#rowObject(Map)}
+     */
+    @Getter
+    private final LinkedHashMap<String, Integer> mapHeaders;
+    /**
+     * 组合键和简写键 => 列索引
+     */
+    private final Map<String, Integer> indexes;
+
+    /**
+     * 生成组合键
+     *
+     * @param group String 分组，可以为 null
+     * @param label String 列名
+     * @param tag   String 标签，可以为 null
+     * @return String
+     */
+    public static String key(final String group, final String label, final String tag) {
+        final StringBuilder builder = new StringBuilder();
+        for (String part : new String[]{group, label, tag}) {
+            if (StringUtils.isNotEmpty(part)) {
+                if (builder.length() > 0) {
+                    builder.append(SEPARATOR);
+                }
+                builder.append(part);
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 按组合键或简写键查找列索引
+     *
+     * @param key String 组合键，参考 {@link #key(String, String, String)}
+     * @return int 列索引；不存在时返回 -1
+     * @throws IllegalArgumentException 简写键对应多列时抛出异常
+     */
+    public int indexOf(final String key) {
+        final Integer index = indexes.get(key);
+        if (Objects.isNull(index)) {
+            return -1;
+        }
+        if (index == AMBIGUOUS) {
+            throw new IllegalArgumentException(String.format("表头【%s】对应多列，需要指定 group 或 tag", key));
+        }
+        return index;
+    }
+
+    /**
+     * 按 group 、label 、tag 查找列索引
+     *
+     * @param group String 分组，可以为 null
+     * @param label String 列名
+     * @param tag   String 标签，可以为 null
+     * @return int 列索引；不存在时返回 -1
+     */
+    public int indexOf(final String group, final String label, final String tag) {
+        return indexOf(key(group, label, tag));
+    }
+
+    @Override
+    public String toString() {
+        return headers.stream()
+                .map(header -> header.getIndex() + "=" + key(header.getGroup(), header.getLabel(), header.getTag()))
+                .collect(Collectors.joining(", ", "HeaderResolver{", "}"));
+    }
+}
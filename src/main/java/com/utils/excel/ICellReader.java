@@ -35,6 +35,31 @@ public interface ICellReader<T extends ICellReader<T>> {
      */
     DataFormatter getDataFormatter();
 
+    /**
+     * 读取单元格格式时，需要使用样式格式缓存；每个 workbook 一个，相同样式的单元格只解析一次格式
+     *
+     * @return {@link CellFormats}
+     */
+    CellFormats getCellFormats();
+
+    /**
+     * 获取单元格样式格式，从样式格式缓存中读取
+     *
+     * @return {@link CellFormats.Entry}
+     */
+    default CellFormats.Entry cellFormat() {
+        return cellIsNull() ? null : getCellFormats().of(getCell().getCellStyle());
+    }
+
+    /**
+     * 判断单元格数值是否为日期格式，与 {@link DateUtil#isCellDateFormatted} 一致；前置条件是单元格数据为数值
+     *
+     * @return boolean true：日期
+     */
+    default boolean cellIsDate() {
+        return cellFormat().isDate(getCell().getNumericCellValue());
+    }
+
     /**
      * 判断单元格是否非空，对 {@link ICellReader#cellIsNull} 取反
      *
@@ -86,24 +111,16 @@ public interface ICellReader<T extends ICellReader<T>> {
                 return Optional.of(getCell().getStringCellValue());
             case NUMERIC:
                 if (format) {
-                    final CellStyle style = getCell().getCellStyle();
-                    final String formatPattern = Optional
-                            .ofNullable(getCell().getCellStyle().getDataFormatString())
-                            .map(v -> "".equals(v) ? null : v)
-                            .orElse(BuiltinFormats.getBuiltinFormat(style.getDataFormat()));
-                    return Optional.of(getDataFormatter().formatRawCellContents(getCell().getNumericCellValue(), style.getDataFormat(), formatPattern));
+                    final CellFormats.Entry entry = cellFormat();
+                    return Optional.of(getDataFormatter().formatRawCellContents(getCell().getNumericCellValue(), entry.getIndex(), entry.getPattern()));
                 }
-                return Optional.of(DateUtil.isCellDateFormatted(getCell()) ? getCell().getDateCellValue().getTime() : getCell().getNumericCellValue());
+                return Optional.of(cellIsDate() ? getCell().getDateCellValue().getTime() : getCell().getNumericCellValue());
             case BOOLEAN:
                 return Optional.of(getCell().getBooleanCellValue());
             case FORMULA:
-                if (format) {
-                    final CellStyle style = getCell().getCellStyle();
-                    final String formatPattern = Optional
-                            .ofNullable(getCell().getCellStyle().getDataFormatString())
-                            .map(v -> "".equals(v) ? null : v)
-                            .orElse(BuiltinFormats.getBuiltinFormat(style.getDataFormat()));
-                    return Optional.of(new DataFormatter().formatRawCellContents(getCell().getNumericCellValue(), style.getDataFormat(), formatPattern));
+                if (format && CellType.NUMERIC == getCell().getCachedFormulaResultType()) { // 只有数值结果需要格式化，其他结果类型按原始值返回
+                    final CellFormats.Entry entry = cellFormat();
+                    return Optional.of(getDataFormatter().formatRawCellContents(getCell().getNumericCellValue(), entry.getIndex(), entry.getPattern()));
                 }
                 // Cell.getCachedFormulaResultTypeEnum() 可以判断公式计算结果得出的数据类型；前置条件必须是 Cell.getCellTypeEnum() = CellType.FORMULA
                 switch (getCell().getCachedFormulaResultType()) {
@@ -161,7 +178,7 @@ public interface ICellReader<T extends ICellReader<T>> {
             case STRING:
                 return getCell().getStringCellValue();
             case NUMERIC:
-                return (DateUtil.isCellDateFormatted(getCell()))
+                return cellIsDate()
                         ? Dates.of(getCell().getDateCellValue().getTime()).format(yyyy_MM_dd_HH_mm_ss)
                         : Optional.ofNullable(Num.of(getCell().getNumericCellValue()).toBigDecimal()).map(BigDecimal::toPlainString).orElse(null); // 解决科学计数法 toString()问题
 //                        : Num.of(getCell().getNumericCellValue()).toBigDecimal().setScale(4, ROUND_HALF_UP).toPlainString(); // 解决科学计数法 toString()问题
@@ -225,7 +242,7 @@ public interface ICellReader<T extends ICellReader<T>> {
             case STRING:
                 return Num.of(getCell().getStringCellValue());
             case NUMERIC:
-                return Num.of(DateUtil.isCellDateFormatted(getCell())
+                return Num.of(cellIsDate()
                         ? getCell().getDateCellValue().getTime()
                         : getCell().getNumericCellValue()); // 解决科学计数法 toString()问题
             case BOOLEAN:
@@ -415,9 +432,17 @@ public interface ICellReader<T extends ICellReader<T>> {
      */
     default Dates dateValue() {
 //        return value().map(v -> Num.of(v.toString()).toDate()).orElse(null);
-        return (cellNotBlank() && DateUtil.isCellDateFormatted(getCell()))
-                ? Dates.of(getCell().getDateCellValue().getTime())
-                : null;
+        if (cellIsBlank()) {
+            return null;
+        }
+        switch (getCell().getCellType()) {
+            case FORMULA: // 公式计算结果为数值时，与数值单元格一样判断日期格式
+                return CellType.NUMERIC == getCell().getCachedFormulaResultType() && cellIsDate() ? Dates.of(getCell().getDateCellValue().getTime()) : null;
+            case NUMERIC:
+                return cellIsDate() ? Dates.of(getCell().getDateCellValue().getTime()) : null;
+            default:
+                return null;
+        }
     }
 
     /**
@@ -555,9 +580,9 @@ public interface ICellReader<T extends ICellReader<T>> {
         }
         switch (getCell().getCellType()) {
             case NUMERIC:
-                if (DateUtil.isCellDateFormatted(getCell())) {
+                if (cellIsDate()) {
                     return DataType.DATE;
-                } else if (Optional.ofNullable(dataFormat()).orElse("").endsWith("%")) {
+                } else if (cellFormat().isPercent()) {
                     return DataType.PERCENT;
                 } else {
                     return DataType.NUMBER;
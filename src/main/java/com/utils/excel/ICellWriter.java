@@ -403,10 +403,11 @@ public interface ICellWriter<T extends ICellWriter<T>> {
      * @return <T extends ICellWriter>
      */
     default T writeComment(final String content) {
+        final Sheet sheet = getCell().getSheet();
         if (Objects.isNull(content)) {
             getCell().removeCellComment();
+            SheetIndex.commentChanged(sheet, getCell().getRowIndex(), getCell().getColumnIndex(), false);
         } else {
-            final Sheet sheet = getCell().getSheet();
             final CreationHelper factory = sheet.getWorkbook().getCreationHelper();
             final ClientAnchor anchor = factory.createClientAnchor();
             anchor.setRow1(getCell().getRowIndex());
@@ -415,6 +416,7 @@ public interface ICellWriter<T extends ICellWriter<T>> {
             anchor.setCol2(getCell().getColumnIndex() + 2);
             final Comment comment = sheet.createDrawingPatriarch().createCellComment(anchor);
             comment.setString(factory.createRichTextString(content));
+            SheetIndex.commentChanged(sheet, getCell().getRowIndex(), getCell().getColumnIndex(), true);
         }
         return (T) this;
     }
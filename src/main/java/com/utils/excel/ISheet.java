@@ -1,16 +1,20 @@
 package com.utils.excel;
 
 import com.utils.excel.entity.Position;
+import com.utils.excel.entity.Range;
 import com.utils.util.FPath;
 import com.utils.util.Maps;
 import lombok.Cleanup;
 import lombok.SneakyThrows;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.ss.util.CellAddress;
+import org.apache.poi.ss.util.CellRangeAddress;
 
 import java.io.FileOutputStream;
 import java.io.OutputStream;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
@@ -267,6 +271,42 @@ public interface ISheet<T extends ISheet<T>> {
                 .orElseGet(HashMap::new);
     }
 
+    /**
+     * 获取包含指定单元格的合并单元格；使用 {@link SheetIndex} 索引，不遍历所有合并单元格
+     * 流式读取器（{@link IStreamReader}）不读取合并单元格，抛出 {@link UnsupportedOperationException}
+     *
+     * @param rowIndex    int 行索引
+     * @param columnIndex int 列索引
+     * @return {@link CellRangeAddress} 不在合并单元格内时返回 null
+     */
+    default CellRangeAddress mergedRegionAt(final int rowIndex, final int columnIndex) {
+        return SheetIndex.of(getSheet()).mergedRegionAt(rowIndex, columnIndex);
+    }
+
+    /**
+     * 获取与指定区域相交的合并单元格
+     * 流式读取器（{@link IStreamReader}）不读取合并单元格，抛出 {@link UnsupportedOperationException}
+     *
+     * @param range {@link Range} 查找区域
+     * @return {@link List}{@link List<CellRangeAddress>} 按起始行、起始列排序
+     */
+    default List<CellRangeAddress> mergedRegionsIn(final Range range) {
+        Objects.requireNonNull(range, "参数【range】是必须的");
+        return SheetIndex.of(getSheet()).mergedRegionsIn(range.getCellRangeAddress());
+    }
+
+    /**
+     * 获取指定区域内的批注；使用 {@link SheetIndex} 索引，只访问区域内有批注的行
+     * 流式读取器中只有 {@link XSSFStreamReader} 支持，从打开文件时读取的批注中过滤；{@link HSSFStreamReader} 抛出 {@link UnsupportedOperationException} ，使用 {@link #comments()}
+     *
+     * @param range {@link Range} 查找区域
+     * @return {@link LinkedHashMap}{@link LinkedHashMap<CellAddress:单元格坐标, Comment:批注>} 按行、列排序
+     */
+    default LinkedHashMap<CellAddress, Comment> commentsIn(final Range range) {
+        Objects.requireNonNull(range, "参数【range】是必须的");
+        return SheetIndex.of(getSheet()).commentsIn(getSheet(), range.getCellRangeAddress());
+    }
+
     /**
      * 保存到指定路径
      *
@@ -287,6 +327,32 @@ public interface ISheet<T extends ISheet<T>> {
         outputStream.close();
     }
 
+    /**
+     * 加密保存到指定路径；.xlsx 使用 Agile 加密，加密过程经过临时文件，不在内存中缓存整个文件；.xls 使用 RC4 加密
+     * 参考：{@link ExcelCrypto#write(Workbook, java.io.File, String)}
+     *
+     * @param path     {@link FPath} 保存路径
+     * @param password String 文件密码，为 null 时不加密
+     * @return {@link FPath}
+     */
+    default FPath saveWorkBook(final FPath path, final String password) {
+        ExcelCrypto.write(getWorkbook(), path.file(), password);
+        path.chmod(644); // 设置文件权限
+        return path;
+    }
+
+    /**
+     * 加密保存到输出流，写入完成之后关闭输出流
+     *
+     * @param outputStream {@link OutputStream}
+     * @param password     String 文件密码，为 null 时不加密
+     */
+    @SneakyThrows
+    default void saveWorkBook(final OutputStream outputStream, final String password) {
+        ExcelCrypto.write(getWorkbook(), outputStream, password);
+        outputStream.close();
+    }
+
     /**
      * 判断 sheet 是否为隐藏状态
      *
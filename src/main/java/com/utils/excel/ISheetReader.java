@@ -1,10 +1,16 @@
 package com.utils.excel;
 
+import com.alibaba.fastjson.JSONObject;
 import com.utils.excel.entity.Cell;
+import com.utils.excel.entity.ColumnarTable;
 import com.utils.excel.enums.DataType;
+import org.apache.poi.ss.usermodel.CellType;
 
 import java.util.*;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Sheet 读操作相关的方法封装
@@ -40,15 +46,16 @@ public interface ISheetReader<T extends ISheetReader<T>> extends ISheet<T>, ICel
      * @return <T extends ISheetReader>
      */
     default T next() {
-        setRowIndex(getRowIndex() + 1); // 设置下一行 rowIndex ，判断是否已读完
-        if (hasEnd()) {
-            return null;
-        }
-        row(getRowIndex());
-        if (Objects.isNull(getRow())) {
-            return next();
+        while (true) { // 跳过不存在的行，稀疏 sheet 循环跳过，不使用递归
+            setRowIndex(getRowIndex() + 1); // 设置下一行 rowIndex ，判断是否已读完
+            if (hasEnd()) {
+                return null;
+            }
+            row(getRowIndex());
+            if (Objects.nonNull(getRow())) {
+                return (T) this;
+            }
         }
-        return (T) this;
     }
 
     /**
@@ -108,4 +115,290 @@ public interface ISheetReader<T extends ISheetReader<T>> extends ISheet<T>, ICel
         return map;
     }
 
+    /**
+     * 以当前行作为第一行，解析多行表头；支持合并单元格，生成 group/label/tag ；解析完成之后停在表头最后一行
+     * <pre>
+     * final HeaderResolver resolver = reader.row(Rownum.of(4)).resolveHeaders(3);
+     * reader.rows(resolver.getHeaders()).forEach(row -> {});
+     *
+     * @param rows int 表头行数
+     * @return {@link HeaderResolver}
+     */
+    default HeaderResolver resolveHeaders(final int rows) {
+        return HeaderResolver.of(this, rows);
+    }
+
+    /**
+     * 获取当前行指定列数据
+     *
+     * @param headers {@link List}{@link List< com.utils.excel.entity.Cell >} 来自 {@link ISheetReader#headers()}
+     * @return {@link com.utils.excel.entity.Row}{@link com.utils.excel.entity.Row<int:Header对象中的index字段值, String:单元格内容>}
+     */
+    default com.utils.excel.entity.Row rowObject(final List<com.utils.excel.entity.Cell> headers) {
+//        final LinkedHashMap<String, String> map = new LinkedHashMap<>();
+        final com.utils.excel.entity.Row row = com.utils.excel.entity.Row.build();
+        headers.forEach(header -> row.addCell(header.index(),
+                com.utils.excel.entity.Cell.builder()
+                        .text(cell(header.index()).stringValue())
+//                        .type()
+//                        .value()
+//                        .formula()
+//                        .sindex()
+                        .build()
+        ));
+        return row;
+    }
+
+    /**
+     * 获取当前行指定列数据
+     *
+     * @param mapHeaders {@link Map}{@link Map<String:列头字段名, Integer:列索引>} 来自 {@link ISheetReader#mapHeaders()}
+     * @return {@link LinkedHashMap}{@link LinkedHashMap<String:Header对象中的label字段值, String:单元格内容>}
+     */
+    default LinkedHashMap<String, String> rowObject(final Map<String, Integer> mapHeaders) {
+        final LinkedHashMap<String, String> map = new LinkedHashMap<>();
+        mapHeaders.forEach((key, value) -> map.put(key, cell(value).stringValue()));
+        return map;
+    }
+
+    /**
+     * 获取当前行，整行数据
+     *
+     * @return {@link LinkedHashMap}{@link LinkedHashMap<Integer:列索引, String:单元格内容>}
+     */
+    default LinkedHashMap<Integer, String> rowObject() {
+        final LinkedHashMap<Integer, String> map = new LinkedHashMap<>();
+        for (int i = 0; i < getRow().getLastCellNum(); i++) {
+            map.put(i, cell(i).stringValue());
+        }
+        return map;
+    }
+
+    /**
+     * 获取当前行指定列数据
+     *
+     * @param headers {@link List}{@link List< com.utils.excel.entity.Cell >} 来自 {@link ISheetReader#headers()}
+     * @return {@link JSONObject}{@link JSONObject<int:Header对象中的alias或label, String:单元格内容>}
+     */
+    default JSONObject rowJSONObject(final List<com.utils.excel.entity.Cell> headers) {
+//        final LinkedHashMap<String, String> map = new LinkedHashMap<>();
+        final JSONObject row = new JSONObject(true);
+        headers.forEach(header -> cell(header.index())
+                .value()
+                .ifPresent(value -> row.put(Optional.ofNullable(header.getAlias()).orElseGet(header::getLabel), value))
+        );
+        return row;
+    }
+
+    /**
+     * 数据行处理
+     */
+    interface RowHandler {
+        /**
+         * 处理数据行
+         *
+         * @param rowIndex int 行索引
+         * @param row      {@link com.utils.excel.entity.Row} 数据行
+         * @return boolean true：继续读取，false：终止读取
+         */
+        boolean handle(final int rowIndex, final com.utils.excel.entity.Row row);
+    }
+
+    /**
+     * 判断当前行指定列是否全部为空
+     *
+     * @param headers {@link List}{@link List< com.utils.excel.entity.Cell >} 来自 {@link ISheetReader#headers()}
+     * @return boolean true：全部为空
+     */
+    default boolean rowIsBlank(final List<com.utils.excel.entity.Cell> headers) {
+        for (com.utils.excel.entity.Cell header : headers) {
+            if (cell(header.index()).cellNotBlank()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 以当前行作为表头，按需读取后面的数据行；流只能消费一次，读取过程中不要再移动当前行
+     *
+     * @return {@link Stream}{@link Stream< com.utils.excel.entity.Row >}
+     */
+    default Stream<com.utils.excel.entity.Row> rows() {
+        return rows(headers());
+    }
+
+    /**
+     * 从当前行的下一行开始按需读取数据行，跳过不存在的行和指定列全部为空的行；流只能消费一次，读取过程中不要再移动当前行
+     * <pre>
+     * reader.row(Rownum.of(1)).rows(headers).limit(100).forEach(row -> {});
+     *
+     * @param headers {@link List}{@link List< com.utils.excel.entity.Cell >} 来自 {@link ISheetReader#headers()}
+     * @return {@link Stream}{@link Stream< com.utils.excel.entity.Row >}
+     */
+    default Stream<com.utils.excel.entity.Row> rows(final List<com.utils.excel.entity.Cell> headers) {
+        return rows(headers, reader -> reader.rowObject(headers));
+    }
+
+    /**
+     * 以当前行作为表头，按需读取后面的数据行并转换为实体类；表头只解析一次，不产生中间 Map
+     * <pre>
+     * reader.row(Rownum.of(1)).rows(User.class).forEach(user -> {});
+     *
+     * @param clazz {@link Class} 实体类，字段使用 {@link ExcelColumn} 注解
+     * @param <E>   实体类型
+     * @return {@link Stream}{@link Stream<E>}
+     */
+    default <E> Stream<E> rows(final Class<E> clazz) {
+        return rows(headers(), clazz);
+    }
+
+    /**
+     * 从当前行的下一行开始按需读取数据行并转换为实体类，跳过不存在的行和指定列全部为空的行
+     *
+     * @param headers {@link List}{@link List< com.utils.excel.entity.Cell >} 来自 {@link ISheetReader#headers()}
+     * @param clazz   {@link Class} 实体类，字段使用 {@link ExcelColumn} 注解
+     * @param <E>     实体类型
+     * @return {@link Stream}{@link Stream<E>}
+     */
+    default <E> Stream<E> rows(final List<com.utils.excel.entity.Cell> headers, final Class<E> clazz) {
+        final RowMapper<E> mapper = RowMapper.of(clazz, headers);
+        return rows(headers, mapper::map);
+    }
+
+    /**
+     * 从当前行的下一行开始按需读取数据行，跳过不存在的行和指定列全部为空的行，每行使用 function 转换；流只能消费一次，读取过程中不要再移动当前行
+     *
+     * @param headers  {@link List}{@link List< com.utils.excel.entity.Cell >} 来自 {@link ISheetReader#headers()}
+     * @param function {@link Function}{@link Function<T:已定位到数据行的读取器, R:转换结果>}
+     * @param <R>      转换结果类型
+     * @return {@link Stream}{@link Stream<R>}
+     */
+    default <R> Stream<R> rows(final List<com.utils.excel.entity.Cell> headers, final Function<T, R> function) {
+        Objects.requireNonNull(headers, "参数【headers】是必须的");
+        Objects.requireNonNull(function, "参数【function】是必须的");
+        return StreamSupport.stream(new Spliterators.AbstractSpliterator<R>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(final Consumer<? super R> action) {
+                while (hasNext()) {
+                    if (!rowIsBlank(headers)) {
+                        action.accept(function.apply((T) ISheetReader.this));
+                        return true;
+                    }
+                }
+                return false;
+            }
+        }, false);
+    }
+
+    /**
+     * 以当前行作为表头，读取后面所有数据行，按列存储；适用于以数值为主的大表格，不为每个单元格创建对象
+     *
+     * @return {@link ColumnarTable}
+     */
+    default ColumnarTable columnar() {
+        return columnar(headers());
+    }
+
+    /**
+     * 从当前行的下一行开始读取所有数据行，按列存储，跳过不存在的行和指定列全部为空的行
+     * 列类型由表头 type 决定，未指定时按第一个非空单元格推断，参考 {@link ColumnarTable}
+     *
+     * @param headers {@link List}{@link List< com.utils.excel.entity.Cell >} 来自 {@link ISheetReader#headers()}
+     * @return {@link ColumnarTable}
+     */
+    default ColumnarTable columnar(final List<com.utils.excel.entity.Cell> headers) {
+        Objects.requireNonNull(headers, "参数【headers】是必须的");
+        final ColumnarTable table = new ColumnarTable(sheetIndex(), sheetName(), headers);
+        while (hasNext()) {
+            if (rowIsBlank(headers)) {
+                continue;
+            }
+            table.next();
+            for (int i = 0; i < headers.size(); i++) {
+                if (cell(headers.get(i).index()).cellIsBlank()) {
+                    continue;
+                }
+                final CellType type = Objects.equals(CellType.FORMULA, getCell().getCellType())
+                        ? getCell().getCachedFormulaResultType()
+                        : getCell().getCellType();
+                switch (type) {
+                    case NUMERIC:
+                        if (cellIsDate()) {
+                            table.setDate(i, getCell().getDateCellValue().getTime());
+                        } else {
+                            table.setDouble(i, getCell().getNumericCellValue());
+                        }
+                        break;
+                    case STRING:
+                        table.setString(i, getCell().getStringCellValue());
+                        break;
+                    case BOOLEAN:
+                        table.setString(i, Boolean.toString(getCell().getBooleanCellValue()));
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+        return table;
+    }
+
+    /**
+     * 从当前行的下一行开始逐行读取数据行，跳过不存在的行和指定列全部为空的行；handler 返回 false 时终止读取
+     *
+     * @param headers {@link List}{@link List< com.utils.excel.entity.Cell >} 来自 {@link ISheetReader#headers()}
+     * @param handler {@link RowHandler} 数据行处理
+     * @return <T extends ISheetReader>
+     */
+    default T forEachRow(final List<com.utils.excel.entity.Cell> headers, final RowHandler handler) {
+        Objects.requireNonNull(headers, "参数【headers】是必须的");
+        Objects.requireNonNull(handler, "参数【handler】是必须的");
+        while (hasNext()) {
+            if (!rowIsBlank(headers) && !handler.handle(getRowIndex(), rowObject(headers))) {
+                break;
+            }
+        }
+        return (T) this;
+    }
+
+    /**
+     * 以当前行作为表头，分批读取后面的数据行，每批最多 size 行；适用于读取之后直接分批写入数据库
+     *
+     * @param size     int 每批行数
+     * @param consumer {@link Consumer}{@link Consumer<List< com.utils.excel.entity.Row >>} 批处理
+     * @return <T extends ISheetReader>
+     */
+    default T forEachBatch(final int size, final Consumer<List<com.utils.excel.entity.Row>> consumer) {
+        return forEachBatch(size, headers(), consumer);
+    }
+
+    /**
+     * 从当前行的下一行开始分批读取数据行，每批最多 size 行；批处理完成之后才会继续读取，同一时间只持有一批数据
+     *
+     * @param size     int 每批行数
+     * @param headers  {@link List}{@link List< com.utils.excel.entity.Cell >} 来自 {@link ISheetReader#headers()}
+     * @param consumer {@link Consumer}{@link Consumer<List< com.utils.excel.entity.Row >>} 批处理
+     * @return <T extends ISheetReader>
+     */
+    default T forEachBatch(final int size, final List<com.utils.excel.entity.Cell> headers, final Consumer<List<com.utils.excel.entity.Row>> consumer) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("参数【size】必须大于 0");
+        }
+        Objects.requireNonNull(consumer, "参数【consumer】是必须的");
+        final List<com.utils.excel.entity.Row> batch = new ArrayList<>(size);
+        forEachRow(headers, (rowIndex, row) -> {
+            batch.add(row);
+            if (batch.size() == size) {
+                consumer.accept(new ArrayList<>(batch));
+                batch.clear();
+            }
+            return true;
+        });
+        if (!batch.isEmpty()) {
+            consumer.accept(batch);
+        }
+        return (T) this;
+    }
+
 }
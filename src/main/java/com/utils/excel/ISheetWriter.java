@@ -15,9 +15,9 @@ import org.apache.poi.ss.util.CellRangeAddress;
 import org.apache.poi.xssf.eventusermodel.XSSFReader;
 import org.apache.poi.xssf.model.StylesTable;
 import org.apache.poi.xssf.streaming.*;
-import org.apache.poi.xssf.usermodel.XSSFHyperlink;
 import org.apache.poi.xssf.usermodel.XSSFSheet;
 
+import java.io.File;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -36,7 +36,7 @@ import static com.utils.enums.Regs.d_FIND;
  */
 @SuppressWarnings("unchecked")
 public interface ISheetWriter<T extends ISheetWriter<T>> extends ISheet<T>, ICellWriter<T> {
-    @Builder
+    @Builder(toBuilder = true)
     class Options {
         /**
          * POI Excel 复制行规则，默认设置，会复制单元格值
@@ -49,6 +49,34 @@ public interface ISheetWriter<T extends ISheetWriter<T>> extends ISheet<T>, ICel
          */
         @Builder.Default
         CloneStyles cloneStyles = new CloneStyles(null, null);
+        /**
+         * SXSSF 内存中保留的行数，超出的行写入临时文件；只对 {@link SSheetWriter#newWorkbook(Options)} 创建的 workbook 有效
+         */
+        @Builder.Default
+        int rowAccessWindowSize = 500;
+        /**
+         * SXSSF 临时文件是否使用 gzip 压缩；压缩可以减少磁盘占用，但会增加 CPU 开销；只对 {@link SSheetWriter#newWorkbook(Options)} 创建的 workbook 有效
+         */
+        @Builder.Default
+        boolean compressTempFiles = false;
+        /**
+         * SXSSF 临时文件目录，为 null 时使用 POI 默认目录：java.io.tmpdir/poifiles ；只对 {@link SSheetWriter#newWorkbook(Options)} 创建的 workbook 有效
+         */
+        File tempDirectory;
+        /**
+         * SXSSF 自动调整列宽采样行数；跟踪列宽需要计算每个单元格的文本宽度，宽表格会占用大量 CPU
+         * -1：跟踪所有行，默认值，与旧版本行为一致
+         * 0：不跟踪列宽，调用 autoColumnWidth 时只按内存中的行计算
+         * N：只跟踪前 N 行，写到第 N 行时自动调整列宽并停止跟踪
+         */
+        @Builder.Default
+        int autoSizeRows = -1;
+        /**
+         * SXSSF 字符串写入方式：内联、共享字符串表、采样之后自动选择；只对 {@link SSheetWriter#newWorkbook(Options)} 创建的 workbook 有效
+         * 参考：{@link SXSSFSharedStrings}
+         */
+        @Builder.Default
+        SXSSFSharedStrings.Mode sharedStrings = SXSSFSharedStrings.Mode.INLINE;
     }
 
     /**
@@ -104,6 +132,7 @@ public interface ISheetWriter<T extends ISheetWriter<T>> extends ISheet<T>, ICel
      */
     default T clearRow() {
         getSheet().removeRow(getRow());
+        SheetIndex.invalidate(getSheet());
         return (T) this;
     }
 
@@ -115,6 +144,7 @@ public interface ISheetWriter<T extends ISheetWriter<T>> extends ISheet<T>, ICel
     default T deleteRow() {
         final int rowIndex = getRowIndex();
         getSheet().shiftRows(rowIndex, rowIndex, 1);
+        SheetIndex.invalidate(getSheet());
         return (T) this;
     }
 
@@ -348,13 +378,27 @@ public interface ISheetWriter<T extends ISheetWriter<T>> extends ISheet<T>, ICel
     }
 
     /**
-     * 合并单元格
+     * 合并单元格；由 POI 检查重叠和数组公式，已经建立的 {@link SheetIndex} 索引同步更新
      *
      * @param range {@link Range} 合并区域
      * @return <T extends ISheetWriter>
      */
     default T merge(final Range range) {
-        getSheet().addMergedRegion(range.getCellRangeAddress());
+        final CellRangeAddress region = range.getCellRangeAddress();
+        getSheet().addMergedRegion(region);
+        SheetIndex.added(getSheet(), region);
+        return (T) this;
+    }
+
+    /**
+     * 合并单元格；只使用 {@link SheetIndex} 检查重叠，不遍历所有合并单元格（POI addMergedRegion 每次都遍历，合并区域越多越慢），适用于大量合并
+     * 索引不会发现直接使用 POI 添加、删除的合并单元格和移动的行，这些操作之后需要先调用 {@link SheetIndex#invalidate(Sheet)}；不检查数组公式
+     *
+     * @param range {@link Range} 合并区域
+     * @return <T extends ISheetWriter>
+     */
+    default T mergeUnsafe(final Range range) {
+        SheetIndex.of(getSheet()).addMergedRegion(getSheet(), range.getCellRangeAddress());
         return (T) this;
     }
 
@@ -517,13 +561,12 @@ public interface ISheetWriter<T extends ISheetWriter<T>> extends ISheet<T>, ICel
      */
     default T writeComments(final String content, final Range range) {
         final Sheet sheet = getSheet();
+        final SheetIndex index = SheetIndex.of(sheet);
         if (Objects.isNull(content)) { // 批注内容为空则删除该批注
-            final CellRangeAddress rangeAddress = range.getCellRangeAddress();
-            sheet.getCellComments().forEach((address, comment) -> {
-                if (rangeAddress.isInRange(address.getRow(), address.getColumn())) // 批注在选定区间，则删除
-                {
-                    sheet.getRow(address.getRow()).getCell(address.getColumn()).removeCellComment();
-                }
+            // 只查找选定区间内的批注，不遍历整个 sheet 的批注
+            index.commentAddressesIn(sheet, range.getCellRangeAddress()).forEach(address -> {
+                sheet.getRow(address.getRow()).getCell(address.getColumn()).removeCellComment();
+                index.updateComment(address.getRow(), address.getColumn(), false);
             });
         } else {
             final CreationHelper factory = sheet.getWorkbook().getCreationHelper();
@@ -541,6 +584,7 @@ public interface ISheetWriter<T extends ISheetWriter<T>> extends ISheet<T>, ICel
                     anchor.setCol2(columnIndex + 2);
                     final Comment comment = sheet.createDrawingPatriarch().createCellComment(anchor);
                     comment.setString(factory.createRichTextString(content));
+                    index.updateComment(rowIndex, columnIndex, true);
                 } else { // 批注存在则替换内容
                     cell.getCellComment().setString(factory.createRichTextString(content));
                 }
@@ -809,6 +853,16 @@ public interface ISheetWriter<T extends ISheetWriter<T>> extends ISheet<T>, ICel
         return (T) this;
     }
 
+    /**
+     * 增量刷新公式单元格：只重新计算上次刷新之后被修改的单元格影响到的公式，第一次调用时计算所有公式
+     * 默认实现等同于 {@link #evaluateAllFormulaCells()} ；{@link ExcelRewriter} 、{@link XSheetWriter} 使用 {@link FormulaRecalculator} 实现增量计算
+     *
+     * @return <T extends ISheetWriter>
+     */
+    default T evaluateChangedFormulaCells() {
+        return evaluateAllFormulaCells();
+    }
+
     /**
      * 锁定当前选定区域单元格，禁止编辑<br>
      * 需要调用 {@link ISheetWriter#password(String)} 设置保护密码才生效<br>
@@ -954,6 +1008,7 @@ public interface ISheetWriter<T extends ISheetWriter<T>> extends ISheet<T>, ICel
                         for (int i = 0; i < repeatCount; i++) {
                             xsheet.copyRows(fromStratRowIndex, fromEndRowIndex, toRowIndex + i + (i * (fromEndRowIndex - fromStratRowIndex)), cellCopyPolicy);
                         }
+                        SheetIndex.invalidate(sheet);
                     }),
             /**
              * .xlsx限制最大缓存写入
@@ -961,102 +1016,8 @@ public interface ISheetWriter<T extends ISheetWriter<T>> extends ISheet<T>, ICel
             SXSSFSHEET(".xlsx限制最大缓存写入",
                     (sheet) -> sheet instanceof SXSSFSheet,
                     (sheet, fromStratRowIndex, fromEndRowIndex, toRowIndex, repeatCount, cellCopyPolicy) -> {
-                        // 实现 .xlsx 带最大缓存航的 行复制功能
-                        // 本身并不支持复制操作，尝试实现复制操作
-//                        Stream.iterate(0, v -> v + 1).limit(repeatCount).forEach(i -> { });
-                        final CellCopyPolicy policy = Objects.isNull(cellCopyPolicy) ? DEFAULT_CELL_COPY_POLICY : cellCopyPolicy;
-                        for (int i = 0; i < repeatCount; i++) {
-                            for (int j = fromStratRowIndex; j <= fromEndRowIndex; j++) {
-                                // 参考:org.apache.poi.xssf.usermodel.XSSFRow#copyRowFrom
-                                // 自定义实现 SXSSFSheet 复制行操作
-                                // 只支持单行复制，且公式列只支持号替换行
-                                final SXSSFRow srcRow = ((SXSSFSheet) sheet).getRow(fromStratRowIndex);
-                                final SXSSFRow destRow = ((SXSSFSheet) sheet).createRow(toRowIndex + i + (i * (fromEndRowIndex - fromStratRowIndex)));
-                                srcRow.forEach(srcCell -> { // 循环复制单元格
-                                    final SXSSFCell destCell = destRow.createCell(srcCell.getColumnIndex(), srcCell.getCellType());
-                                    { // 参考: org.apache.poi.xssf.usermodel.XSSFCell > copyCellFrom
-                                        if (policy.isCopyCellValue()) {
-                                            CellType copyCellType = srcCell.getCellType();
-                                            if (copyCellType == CellType.FORMULA && !policy.isCopyCellFormula()) {
-                                                copyCellType = srcCell.getCachedFormulaResultType();
-                                            }
-
-                                            switch (copyCellType) {
-                                                case NUMERIC:
-                                                    if (DateUtil.isCellDateFormatted(srcCell)) {
-                                                        destCell.setCellValue(srcCell.getDateCellValue());
-                                                    } else {
-                                                        destCell.setCellValue(srcCell.getNumericCellValue());
-                                                    }
-                                                    break;
-                                                case STRING:
-                                                    destCell.setCellValue(srcCell.getStringCellValue());
-                                                    break;
-                                                case FORMULA:
-                                                    // 重写公式规则说明：假设当前行号为100
-                                                    // 公式：A1+B1 > A100+B100
-                                                    // 公式：SUM(A1:C1) > SUM(A100:C100)
-                                                    // 公式：A1*C1 > A100*C100
-                                                    // 公式：A1*C1-D1 > A100*C100-D100
-                                                    // 公式(无法处理案例演示)：A1+A2+A3 > A100+A2+A3；因为：A1+A2+A3 属于跨行计算
-                                                    // 公式(无法处理案例演示)：SUM(A1:A3) > SUM(A100:A3)；因为：A1:A3 属于跨行计算
-                                                    // 以上案例说明，只支持横向的单行公式，不支持跨行和跨表
-                                                    destCell.setCellFormula(
-                                                            srcCell.getCellFormula()
-                                                                    .replaceAll(
-                                                                            String.format("(((?<=.?[A-Z])(%d)(?=\\D?.*))|(?<=.?[A-Z])(%d)$)", srcRow.getRowNum() + 1, srcRow.getRowNum() + 1),
-                                                                            (destRow.getRowNum() + 1) + ""
-                                                                    )
-                                                    );
-                                                    break;
-                                                case BLANK:
-                                                    destCell.setBlank();
-                                                    break;
-                                                case BOOLEAN:
-                                                    destCell.setCellValue(srcCell.getBooleanCellValue());
-                                                    break;
-                                                case ERROR:
-                                                    destCell.setCellErrorValue(srcCell.getErrorCellValue());
-                                                    break;
-                                                default:
-                                                    throw new IllegalArgumentException("Invalid cell type " + srcCell.getCellType());
-                                            }
-                                        }
-                                        if (policy.isCopyCellStyle()) {
-                                            destCell.setCellStyle(srcCell.getCellStyle());
-                                        }
-                                        Hyperlink srcHyperlink = srcCell.getHyperlink();
-                                        if (policy.isMergeHyperlink()) {
-                                            if (Objects.nonNull(srcHyperlink)) {
-                                                destCell.setHyperlink(new XSSFHyperlink(srcHyperlink));
-                                            }
-                                        } else if (policy.isCopyHyperlink()) {
-                                            if (Objects.nonNull(srcHyperlink)) {
-                                                destCell.setHyperlink(new XSSFHyperlink(srcHyperlink));
-                                            }
-                                        }
-                                    }
-                                });
-                                if (policy.isCopyRowHeight()) {
-                                    destRow.setHeight(srcRow.getHeight());
-                                }
-                            }
-                        }
-                        // 设置合并单元格
-                        // 参考： org.apache.poi.xssf.usermodel.XSSFRow#copyRowFrom
-                        if (policy.isCopyMergedRegions()) {
-                            sheet.getMergedRegions().forEach(cellRangeAddress -> {
-                                if (fromStratRowIndex == cellRangeAddress.getFirstRow()) { // fromStratRowIndex == cellRangeAddress.getLastRow()
-                                    for (int i = 0; i < repeatCount; i++) {
-                                        final CellRangeAddress destRegion = cellRangeAddress.copy();
-                                        final int offset = (toRowIndex + i + (i * (fromEndRowIndex - fromStratRowIndex))) - destRegion.getFirstRow();
-                                        destRegion.setFirstRow(destRegion.getFirstRow() + offset);
-                                        destRegion.setLastRow(destRegion.getLastRow() + offset);
-                                        sheet.addMergedRegion(destRegion);
-                                    }
-                                }
-                            });
-                        }
+                        // 实现 .xlsx 带最大缓存航的 行复制功能；模板区间编译一次之后批量复制，参考 RowReplicator
+                        RowReplicator.of(sheet, fromStratRowIndex, fromEndRowIndex, cellCopyPolicy).repeat(toRowIndex, repeatCount);
                     }),
             /**
              * .xls 写入
@@ -1064,8 +1025,8 @@ public interface ISheetWriter<T extends ISheetWriter<T>> extends ISheet<T>, ICel
             HSSFSHEET(".xls",
                     (sheet) -> sheet instanceof HSSFSheet,
                     (sheet, fromStratRowIndex, fromEndRowIndex, toRowIndex, repeatCount, cellCopyPolicy) -> {
-                        // 实现 .xls 行复制功能
-
+                        // 实现 .xls 行复制功能；与 .xlsx 限制最大缓存写入使用同一个模板行复制实现，参考 RowReplicator
+                        RowReplicator.of(sheet, fromStratRowIndex, fromEndRowIndex, cellCopyPolicy).repeat(toRowIndex, repeatCount);
                     }),
             ;
             final String comment;
@@ -1139,6 +1100,22 @@ public interface ISheetWriter<T extends ISheetWriter<T>> extends ISheet<T>, ICel
             return (T) this;
         }
 
+        /**
+         * 复制多行区间到目标行，目标行可以是多个区间，通过 repeatCount 指定复制次数
+         *
+         * @param fromStartRowIndex int 被复制区间起始行索引，非行号
+         * @param fromEndRowIndex   int 被复制区间结束行索引（包含），非行号
+         * @param toRowIndex        int 目标起始行索引，非行号
+         * @param repeatCount       int 区间复制次数
+         * @return <T extends ISheetWriter>
+         */
+        default T copyRows(final int fromStartRowIndex, final int fromEndRowIndex, final int toRowIndex, final int repeatCount) {
+            SheetTypes.valueOf(getSheet().getClass().getSimpleName().toUpperCase())
+                    .instance
+                    .copy(getSheet(), fromStartRowIndex, fromEndRowIndex, toRowIndex, repeatCount, null);
+            return (T) this;
+        }
+
         /**
          * 复制指定行到目标行
          *
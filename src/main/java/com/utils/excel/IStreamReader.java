@@ -0,0 +1,110 @@
+package com.utils.excel;
+
+import com.utils.excel.entity.Cell;
+import com.utils.excel.entity.Table;
+import lombok.SneakyThrows;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 【.xls|.xlsx】 流式读取需要的基本方法；按行解析，内存占用只与当前行有关，适用于大文件读取
+ * 只能从上往下顺序读取，不能回退到已经读过的行；不加载 Workbook 对象模型，getWorkbook()、getSheet() 返回 null
+ *
+ * @author 谢长春 on 2018-8-8 .
+ */
+@SuppressWarnings("unchecked")
+public interface IStreamReader<T extends IStreamReader<T>> extends ISheetReader<T> {
+    /**
+     * 按索引选择读取sheet
+     *
+     * @param index int sheet索引
+     * @return <T extends IStreamReader>
+     */
+    T sheet(final int index);
+
+    /**
+     * 按名称选择读取sheet
+     *
+     * @param name String sheet名称
+     * @return <T extends IStreamReader>
+     */
+    T sheet(final String name);
+
+    /**
+     * 获取所有 sheet 名称，按 sheet 索引排序
+     *
+     * @return {@link List}{@link List<String:sheet名称>}
+     */
+    List<String> sheetNames();
+
+    /**
+     * 复制读取器；共享已经解析的共享字符串和样式，使用独立的 sheet 流，用于多线程同时读取不同 sheet
+     * 每个读取器只能在一个线程中使用，复制的读取器使用完之后需要调用 close 方法
+     *
+     * @return <T extends IStreamReader>
+     */
+    T fork();
+
+    /**
+     * 多线程读取所有 sheet ；每个 sheet 使用一个复制的读取器在 executor 中执行 function ，结果按 sheet 顺序返回
+     * <pre>
+     * reader.parallel(executor, sheet -> sheet.row(Rownum.of(1)).rows().count());
+     *
+     * @param executor {@link Executor} 执行读取的线程池
+     * @param function {@link Function}{@link Function<T:已选中 sheet 的读取器, R:读取结果>}
+     * @param <R>      读取结果类型
+     * @return {@link LinkedHashMap}{@link LinkedHashMap<String:sheet名称, R:读取结果>}
+     */
+    @SneakyThrows
+    default <R> LinkedHashMap<String, R> parallel(final Executor executor, final Function<T, R> function) {
+        Objects.requireNonNull(executor, "参数【executor】是必须的");
+        Objects.requireNonNull(function, "参数【function】是必须的");
+        final List<String> names = sheetNames();
+        final List<CompletableFuture<R>> futures = new ArrayList<>(names.size());
+        for (int i = 0; i < names.size(); i++) {
+            final int index = i;
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                final T reader = fork();
+                try {
+                    return function.apply(reader.sheet(index));
+                } finally {
+                    reader.close();
+                }
+            }, executor));
+        }
+        final LinkedHashMap<String, R> map = new LinkedHashMap<>();
+        try {
+            for (int i = 0; i < names.size(); i++) {
+                map.put(names.get(i), futures.get(i).join());
+            }
+        } catch (CompletionException e) {
+            futures.forEach(future -> future.cancel(false));
+            throw Objects.isNull(e.getCause()) ? e : e.getCause();
+        }
+        return map;
+    }
+
+    /**
+     * 多线程读取所有 sheet ；每个 sheet 以第 1 行作为表头，读取后面所有数据行
+     *
+     * @param executor {@link Executor} 执行读取的线程池
+     * @return {@link LinkedHashMap}{@link LinkedHashMap<String:sheet名称, Table:sheet表格>}
+     */
+    default LinkedHashMap<String, Table> tables(final Executor executor) {
+        return parallel(executor, reader -> {
+            reader.row(Rownum.of(1));
+            final List<Cell> headers = Objects.isNull(reader.getRow()) ? new ArrayList<>() : reader.headers(); // 第 1 行不存在时返回空表格
+            return Table.builder()
+                    .index(reader.sheetIndex())
+                    .name(reader.sheetName())
+                    .header(headers)
+                    .body(reader.rows(headers).collect(Collectors.toList()))
+                    .build();
+        });
+    }
+}
@@ -0,0 +1,651 @@
+package com.utils.excel;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.utils.enums.Regs;
+import com.utils.excel.entity.Cell;
+import com.utils.excel.entity.ParseConfig;
+import com.utils.excel.entity.Position;
+import com.utils.excel.entity.Row;
+import com.utils.excel.enums.DataType;
+import com.utils.util.Dates;
+import com.utils.util.FPath;
+import com.utils.util.Num;
+import lombok.Cleanup;
+import lombok.Getter;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.ss.util.CellReference;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * 按 {@link ParseConfig} 导入 sheet 数据：读取、类型转换和校验并行执行
+ * <pre>
+ * 读取：调用线程读取扩展字段（extras），从数据起始行（startRowNum）开始逐行读取表头（header）指定的列，跳过空行，遇到合计行（footer）停止；
+ *      每 batchSize 行为一批，放入有界队列，队列满时读取线程等待，内存中最多保留 capacity 批数据
+ * 转换：threads 个工作线程按表头 type 转换单元格数据，校验 required ，错误记录单元格坐标
+ * 输出：一个输出线程按读取顺序把校验通过的数据行交给 consumer ；consumer 在输出线程中执行，不需要线程安全
+ * 任意阶段异常时停止所有线程并抛出异常
+ *
+ * 流式读取器只能向后读取，扩展字段必须在数据起始行之前
+ *
+ * final ImportPipeline.Result result = ImportPipeline.of(config).run(ExcelReader.ofStream(file).sheet(0), rows -> dao.insert(rows));
+ * result.getErrors().forEach(error -> log.warn("{}", error));
+ *
+ * @author 谢长春 on 2018-8-8 .
+ */
+@Slf4j
+public final class ImportPipeline {
+    /**
+     * 队列结束标记
+     */
+    private static final Batch END = new Batch(0);
+
+    private ImportPipeline(final ParseConfig config) {
+        Objects.requireNonNull(config, "参数【config】是必须的");
+        if (config.getStartRowNum() <= 0) {
+            throw new IllegalArgumentException("参数【config.startRowNum】必须大于 0");
+        }
+        if (Objects.isNull(config.getHeader()) || config.getHeader().isEmpty()) {
+            throw new IllegalArgumentException("参数【config.header】是必须的");
+        }
+        this.config = config;
+        this.headers = config.getHeader().toArray(new Cell[0]);
+        this.indexes = new int[headers.length];
+        this.types = new DataType[headers.length];
+        for (int i = 0; i < headers.length; i++) {
+            indexes[i] = headers[i].index();
+            types[i] = Optional.ofNullable(headers[i].getType()).orElse(DataType.TEXT);
+        }
+        if (Objects.isNull(config.getFooter()) || config.getFooter().isEmpty()) {
+            this.footerColumnIndex = -1;
+            this.footerLabel = null;
+        } else {
+            this.footerColumnIndex = config.getFooterColumnAddress().columnIndex();
+            this.footerLabel = config.getFooter().getOrDefault("label", "合计");
+        }
+    }
+
+    /**
+     * @param config {@link ParseConfig} 解析配置，startRowNum 和 header 是必须的
+     * @return {@link ImportPipeline}
+     */
+    public static ImportPipeline of(final ParseConfig config) {
+        return new ImportPipeline(config);
+    }
+
+    @Getter
+    private final ParseConfig config;
+    private final Cell[] headers;
+    /**
+     * 与 headers 顺序一致的列索引和数据类型
+     */
+    private final int[] indexes;
+    private final DataType[] types;
+    /**
+     * 合计行文本所在列索引；-1：没有合计行
+     */
+    private final int footerColumnIndex;
+    private final String footerLabel;
+    /**
+     * 转换线程数
+     */
+    private int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    /**
+     * 每批行数
+     */
+    private int batchSize = 1000;
+    /**
+     * 队列中最多保留的批数
+     */
+    private int capacity = 16;
+    /**
+     * 最多保留的错误数量，超出之后只计数
+     */
+    private int maxErrors = 1000;
+
+    /**
+     * @param threads int 转换线程数，默认：CPU 核数 - 1
+     * @return {@link ImportPipeline}
+     */
+    public ImportPipeline setThreads(final int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("参数【threads】必须大于 0");
+        }
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * @param batchSize int 每批行数，默认：1000
+     * @return {@link ImportPipeline}
+     */
+    public ImportPipeline setBatchSize(final int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("参数【batchSize】必须大于 0");
+        }
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * @param capacity int 队列中最多保留的批数，默认：16
+     * @return {@link ImportPipeline}
+     */
+    public ImportPipeline setCapacity(final int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("参数【capacity】必须大于 0");
+        }
+        this.capacity = capacity;
+        return this;
+    }
+
+    /**
+     * @param maxErrors int 最多保留的错误数量，默认：1000
+     * @return {@link ImportPipeline}
+     */
+    public ImportPipeline setMaxErrors(final int maxErrors) {
+        if (maxErrors < 0) {
+            throw new IllegalArgumentException("参数【maxErrors】不能小于 0");
+        }
+        this.maxErrors = maxErrors;
+        return this;
+    }
+
+    /**
+     * 只校验，不输出数据行
+     *
+     * @param reader {@link ISheetReader} 已选中 sheet 的读取器
+     * @return {@link Result}
+     */
+    public Result validate(final ISheetReader<?> reader) {
+        return run(reader, rows -> {
+        });
+    }
+
+    /**
+     * 读取、转换、校验，按读取顺序分批输出校验通过的数据行；等待全部完成之后返回
+     *
+     * @param reader   {@link ISheetReader} 已选中 sheet 的读取器
+     * @param consumer {@link Consumer}{@link Consumer<List<Row>>} 批处理，在输出线程中执行
+     * @return {@link Result}
+     */
+    public Result run(final ISheetReader<?> reader, final Consumer<List<Row>> consumer) {
+        Objects.requireNonNull(reader, "参数【reader】是必须的");
+        Objects.requireNonNull(consumer, "参数【consumer】是必须的");
+        final Result result = new Result();
+        result.extras = extras(reader);
+
+        final BlockingQueue<Batch> input = new ArrayBlockingQueue<>(capacity);
+        final BlockingQueue<Batch> ordered = new ArrayBlockingQueue<>(capacity);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final AtomicInteger counter = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(threads + 1, runnable -> {
+            final Thread thread = new Thread(runnable, "excel-import-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        final long start = System.currentTimeMillis();
+        try {
+            final List<Future<?>> futures = new ArrayList<>(threads + 1);
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> convert(input, failure)));
+            }
+            futures.add(executor.submit(() -> output(ordered, consumer, result, failure)));
+
+            Batch batch = new Batch(batchSize);
+            reader.setRowIndex(config.getStartRowNum() - 2); // hasNext() 之后定位到数据起始行
+            while (Objects.isNull(failure.get()) && reader.hasNext()) {
+                if (footerColumnIndex >= 0 && Objects.equals(footerLabel, StringUtils.trim(reader.cell(footerColumnIndex).stringValue()))) {
+                    result.footerRowIndex = reader.getRowIndex();
+                    break;
+                }
+                final RawRow raw = read(reader);
+                if (Objects.isNull(raw)) {
+                    continue;
+                }
+                batch.raws.add(raw);
+                if (batch.raws.size() == batchSize) {
+                    put(ordered, batch, failure); // 先进入输出队列占位，保证输出顺序，同时限制内存中的批数
+                    put(input, batch, failure);
+                    batch = new Batch(batchSize);
+                }
+            }
+            if (!batch.raws.isEmpty()) {
+                put(ordered, batch, failure);
+                put(input, batch, failure);
+            }
+            for (int i = 0; i < threads; i++) {
+                put(input, END, failure);
+            }
+            put(ordered, END, failure);
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    failure.compareAndSet(null, e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("数据导入被中断", e);
+        } finally {
+            executor.shutdownNow(); // 失败时中断其他线程
+        }
+        if (Objects.nonNull(failure.get())) {
+            throw new IllegalStateException("数据导入异常", failure.get());
+        }
+        log.debug("导入完成，数据行：{}，错误行：{}，错误：{}，耗时：{}ms", result.rows, result.invalidRows, result.errorCount, System.currentTimeMillis() - start);
+        return result;
+    }
+
+    /**
+     * 读取扩展字段
+     *
+     * @param reader {@link ISheetReader} 已选中 sheet 的读取器
+     * @return {@link JSONObject}{@link JSONObject<String:扩展字段名, String:单元格内容>}
+     */
+    private JSONObject extras(final ISheetReader<?> reader) {
+        final JSONObject extras = new JSONObject(true);
+        if (Objects.isNull(config.getExtras())) {
+            return extras;
+        }
+        final TreeMap<Integer, List<Map.Entry<String, Position>>> rows = new TreeMap<>(); // 按行排序，流式读取只能向后读
+        ((JSONObject) JSON.toJSON(config.getExtras())).forEach((key, address) -> {
+            final Position position = Position.of(Objects.toString(address, ""));
+            if (Objects.isNull(position.getColumn())) {
+                throw new IllegalArgumentException(String.format("扩展字段【%s】坐标【%s】无效", key, address));
+            }
+            if (Objects.isNull(reader.getSheet()) && position.rowIndex() >= config.getStartRowNum() - 1) {
+                throw new IllegalArgumentException(String.format("流式读取时扩展字段【%s】坐标【%s】必须在数据起始行之前", key, address));
+            }
+            extras.put(key, null);
+            rows.computeIfAbsent(position.rowIndex(), k -> new ArrayList<>()).add(new AbstractMap.SimpleEntry<>(key, position));
+        });
+        rows.forEach((rowIndex, positions) -> {
+            reader.row(rowIndex);
+            if (Objects.nonNull(reader.getRow())) {
+                positions.forEach(entry -> extras.put(entry.getKey(), reader.cell(entry.getValue().columnIndex()).stringValue()));
+            }
+        });
+        return extras;
+    }
+
+    /**
+     * 读取当前行表头指定的列；读取线程只取出单元格文本和原始值，类型转换在工作线程中执行
+     *
+     * @param reader {@link ISheetReader} 已定位到数据行的读取器
+     * @return {@link RawRow} 空行返回 null
+     */
+    private RawRow read(final ISheetReader<?> reader) {
+        final RawRow raw = new RawRow(reader.getRowIndex(), headers.length);
+        boolean blank = true;
+        for (int i = 0; i < headers.length; i++) {
+            final ICellReader<?> cell = reader.cell(indexes[i]);
+            if (cell.cellIsBlank()) {
+                continue;
+            }
+            blank = false;
+            raw.texts[i] = cell.stringValue();
+            switch (types[i]) {
+                case DATE:
+                    raw.values[i] = Optional.ofNullable(cell.dateValue()).map(Dates::getTimeMillis).orElse(null);
+                    break;
+                case STRING:
+                case TEXT:
+                case FORMULA:
+                    break;
+                default:
+                    raw.values[i] = cell.value().orElse(null);
+                    break;
+            }
+        }
+        return blank ? null : raw;
+    }
+
+    /**
+     * 转换线程：按表头转换并校验每一批数据
+     */
+    @SneakyThrows
+    private void convert(final BlockingQueue<Batch> input, final AtomicReference<Throwable> failure) {
+        while (true) {
+            final Batch batch = take(input, failure);
+            if (Objects.isNull(batch) || END == batch) {
+                return;
+            }
+            try {
+                batch.rows = new ArrayList<>(batch.raws.size());
+                batch.errors = new ArrayList<>();
+                for (RawRow raw : batch.raws) {
+                    final Row row = convert(raw, batch.errors);
+                    if (Objects.isNull(row)) {
+                        batch.invalidRows++;
+                    } else {
+                        batch.rows.add(row);
+                    }
+                }
+                batch.raws = null;
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+                throw e;
+            } finally {
+                batch.done.countDown();
+            }
+        }
+    }
+
+    /**
+     * 转换一行数据
+     *
+     * @param raw    {@link RawRow} 原始数据
+     * @param errors {@link List}{@link List<CellError>} 收集错误
+     * @return {@link Row} 校验失败返回 null
+     */
+    private Row convert(final RawRow raw, final List<CellError> errors) {
+        final Row row = Row.build();
+        final int size = errors.size();
+        for (int i = 0; i < headers.length; i++) {
+            final String text = raw.texts[i];
+            if (StringUtils.isBlank(text) && Objects.isNull(raw.values[i])) {
+                if (Objects.equals(Boolean.TRUE, headers[i].getRequired())) {
+                    errors.add(new CellError(raw.rowIndex, indexes[i], headers[i].getLabel(), text, "不能为空"));
+                }
+                continue;
+            }
+            final Object value;
+            try {
+                value = value(types[i], text, raw.values[i]);
+            } catch (IllegalArgumentException e) {
+                errors.add(new CellError(raw.rowIndex, indexes[i], headers[i].getLabel(), text, e.getMessage()));
+                continue;
+            }
+            row.addCell(indexes[i], Cell.builder().type(types[i]).text(text).value(value).build());
+        }
+        return errors.size() == size ? row : null;
+    }
+
+    /**
+     * 按数据类型转换单元格数据
+     *
+     * @param type  {@link DataType} 数据类型
+     * @param text  String 单元格文本
+     * @param value Object 读取线程取出的原始值：数值类型为 Double 或 String ，日期类型为毫秒数
+     * @return Object 转换之后的值
+     * @throws IllegalArgumentException 转换失败
+     */
+    private static Object value(final DataType type, final String text, final Object value) {
+        switch (type) {
+            case STRING:
+            case TEXT:
+            case FORMULA:
+                return text;
+            case DATE:
+                if (Objects.nonNull(value)) {
+                    return value;
+                }
+                try {
+                    return Dates.parse(text).getTimeMillis();
+                } catch (Exception e) {
+                    throw new IllegalArgumentException("不是有效的日期");
+                }
+            default:
+                break;
+        }
+        final Num num;
+        if (value instanceof Number) {
+            num = Num.of((Number) value);
+        } else if (value instanceof Boolean) {
+            num = Num.of((Boolean) value ? 1 : 0);
+        } else {
+            final String string = StringUtils.trimToEmpty(Objects.toString(value, text)).replace(",", "");
+            if (!Regs.NUMBER.test(string)) { // 先校验，避免 Num 转换失败时输出警告日志
+                throw new IllegalArgumentException("不是有效的数值");
+            }
+            num = Num.of(string);
+        }
+        switch (type) {
+            case LONG:
+            case INTEGER:
+            case SHORT:
+                if (num.doubleValue() != Math.rint(num.doubleValue())) {
+                    throw new IllegalArgumentException("不是整数");
+                }
+                if (DataType.LONG == type) {
+                    return num.toLong();
+                }
+                if (num.doubleValue() > (DataType.SHORT == type ? Short.MAX_VALUE : Integer.MAX_VALUE)
+                        || num.doubleValue() < (DataType.SHORT == type ? Short.MIN_VALUE : Integer.MIN_VALUE)) {
+                    throw new IllegalArgumentException("超出取值范围");
+                }
+                return DataType.SHORT == type ? num.toShort() : num.toInteger();
+            case BIGDECIMAL:
+                return num.toBigDecimal();
+            case FLOAT:
+                return num.toFloat();
+            default:
+                return num.toDouble();
+        }
+    }
+
+    /**
+     * 输出线程：按读取顺序等待每一批转换完成，汇总错误并输出数据行
+     */
+    @SneakyThrows
+    private void output(final BlockingQueue<Batch> ordered, final Consumer<List<Row>> consumer, final Result result, final AtomicReference<Throwable> failure) {
+        try {
+            while (true) {
+                final Batch batch = take(ordered, failure);
+                if (Objects.isNull(batch) || END == batch) {
+                    return;
+                }
+                while (!batch.done.await(100, TimeUnit.MILLISECONDS)) {
+                    if (Objects.nonNull(failure.get())) {
+                        return;
+                    }
+                }
+                if (Objects.nonNull(failure.get())) {
+                    return;
+                }
+                result.rows += batch.rows.size();
+                result.invalidRows += batch.invalidRows;
+                result.errorCount += batch.errors.size();
+                for (int i = 0; i < batch.errors.size() && result.errors.size() < maxErrors; i++) {
+                    result.errors.add(batch.errors.get(i));
+                }
+                if (!batch.rows.isEmpty()) {
+                    consumer.accept(batch.rows);
+                }
+            }
+        } catch (Throwable e) {
+            failure.compareAndSet(null, e);
+            throw e;
+        }
+    }
+
+    /**
+     * 放入队列，队列满时等待；其他线程失败时抛出异常
+     */
+    private static void put(final BlockingQueue<Batch> queue, final Batch batch, final AtomicReference<Throwable> failure) throws InterruptedException {
+        while (!queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+            if (Objects.nonNull(failure.get())) {
+                throw new IllegalStateException("数据导入异常", failure.get());
+            }
+        }
+    }
+
+    /**
+     * 从队列取出，队列空时等待；其他线程失败时返回 null
+     */
+    private static Batch take(final BlockingQueue<Batch> queue, final AtomicReference<Throwable> failure) throws InterruptedException {
+        while (true) {
+            final Batch batch = queue.poll(100, TimeUnit.MILLISECONDS);
+            if (Objects.nonNull(batch)) {
+                return batch;
+            }
+            if (Objects.nonNull(failure.get())) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * 读取线程取出的一行原始数据，与 headers 顺序一致
+     */
+    private static final class RawRow {
+        private RawRow(final int rowIndex, final int size) {
+            this.rowIndex = rowIndex;
+            this.texts = new String[size];
+            this.values = new Object[size];
+        }
+
+        private final int rowIndex;
+        private final String[] texts;
+        private final Object[] values;
+    }
+
+    /**
+     * 一批数据；转换完成之后 raws 置空，由 rows 、errors 替代
+     */
+    private static final class Batch {
+        private Batch(final int size) {
+            this.raws = new ArrayList<>(size);
+        }
+
+        private List<RawRow> raws;
+        private List<Row> rows;
+        private List<CellError> errors;
+        private int invalidRows;
+        private final CountDownLatch done = new CountDownLatch(1);
+    }
+
+    /**
+     * 单元格校验错误
+     */
+    @Getter
+    public static final class CellError {
+        private CellError(final int rowIndex, final int columnIndex, final String label, final String text, final String message) {
+            this.rowIndex = rowIndex;
+            this.columnIndex = columnIndex;
+            this.address = new CellReference(rowIndex, columnIndex).formatAsString();
+            this.label = label;
+            this.text = text;
+            this.message = message;
+        }
+
+        /**
+         * 行索引
+         */
+        private final int rowIndex;
+        /**
+         * 列索引
+         */
+        private final int columnIndex;
+        /**
+         * 单元格坐标，例：C7
+         */
+        private final String address;
+        /**
+         * 表头 label
+         */
+        private final String label;
+        /**
+         * 单元格文本
+         */
+        private final String text;
+        /**
+         * 错误说明
+         */
+        private final String message;
+
+        @Override
+        public String toString() {
+            return String.format("%s【%s】%s：%s", address, label, message, Objects.toString(text, ""));
+        }
+    }
+
+    /**
+     * 导入结果
+     */
+    @Getter
+    public static final class Result {
+        /**
+         * 扩展字段 => 单元格内容
+         */
+        private JSONObject extras;
+        /**
+         * 校验通过的数据行数
+         */
+        private long rows;
+        /**
+         * 校验失败的数据行数
+         */
+        private long invalidRows;
+        /**
+         * 错误总数；超出 maxErrors 的错误只计数，不保存
+         */
+        private long errorCount;
+        /**
+         * 校验错误，按读取顺序排序
+         */
+        private final List<CellError> errors = new ArrayList<>();
+        /**
+         * 合计行索引；-1：没有读到合计行
+         */
+        private int footerRowIndex = -1;
+
+        /**
+         * @return boolean true：所有数据行校验通过
+         */
+        public boolean valid() {
+            return errorCount == 0;
+        }
+    }
+
+    @SneakyThrows
+    public static void main(String[] args) {
+        final FPath path = FPath.of("logs", "16.导入校验.xlsx");
+        { // 第 1 行标题，第 2 行扩展字段，第 3 行表头，第 4 行开始数据，最后一行合计
+            @Cleanup final SSheetWriter writer = SSheetWriter.ofNewWorkBook("导入");
+            writer.rowNew(Rownum.of(1)).cellNew(0).writeText("数据导入");
+            writer.rowNew(Rownum.of(2)).cellNew(0).writeText("部门").cellNew(1).writeText("研发部");
+            writer.rowNew(Rownum.of(3))
+                    .cellNew(0).writeText("序号")
+                    .cellNew(1).writeText("名称")
+                    .cellNew(2).writeText("数量")
+                    .cellNew(3).writeText("单价");
+            for (int i = 1; i <= 1_000_000; i++) {
+                writer.nextRowOfNew()
+                        .cellOfNew(0).writeNumber(i)
+                        .cellOfNew(1).writeText(i % 100_000 == 0 ? "" : "名称" + i)
+                        .cellOfNew(2).writeText(i % 250_000 == 0 ? "十" : Integer.toString(i % 100))
+                        .cellOfNew(3).writeNumber(1.5);
+            }
+            writer.nextRowOfNew().cellOfNew(0).writeText("合计");
+            writer.saveWorkBook(path);
+        }
+        final ParseConfig config = ParseConfig.builder()
+                .startRowNum(4)
+                .header(Arrays.asList(
+                        Cell.builder().index(0).label("序号").type(DataType.INTEGER).required(true).build(),
+                        Cell.builder().index(1).label("名称").type(DataType.TEXT).required(true).build(),
+                        Cell.builder().index(2).label("数量").type(DataType.INTEGER).build(),
+                        Cell.builder().index(3).label("单价").type(DataType.BIGDECIMAL).build()
+                ))
+                .footer(ParseConfig.defaultFooter())
+                .extras(JSON.parseObject("{\"dept\":\"B2\"}"))
+                .build();
+        @Cleanup final IStreamReader<?> reader = ExcelReader.ofStream(path.file());
+        final long start = System.currentTimeMillis();
+        final Result result = ImportPipeline.of(config).run(reader.sheet(0), rows -> {
+        });
+        log.info("扩展字段：{}", result.getExtras());
+        log.info("数据行：{}，错误行：{}，合计行：{}，耗时：{}ms", result.getRows(), result.getInvalidRows(), result.getFooterRowIndex() + 1, System.currentTimeMillis() - start);
+        result.getErrors().forEach(error -> log.info("{}", error));
+    }
+}
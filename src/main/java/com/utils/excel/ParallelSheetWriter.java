@@ -0,0 +1,335 @@
+package com.utils.excel;
+
+import com.utils.excel.ISheetWriter.Options;
+import com.utils.excel.entity.Cell;
+import com.utils.excel.enums.Column;
+import com.utils.excel.enums.DataType;
+import com.utils.util.FPath;
+import lombok.Cleanup;
+import lombok.Getter;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * 【.xlsx】多 sheet 并行写入；每个 sheet 在工作线程中写入各自的 SXSSF 临时文件，全部写完之后一次性组装成 .xlsx 文件
+ * sheet 在调用线程中按添加顺序创建，文件中的 sheet 顺序与添加顺序一致
+ * <pre>
+ * 线程安全约定：
+ * 每个 sheet 只在一个工作线程中写入，{@link SSheetWriter} 不能跨 sheet 共享
+ * 样式只能通过 {@link #style(CellStyles)} 、{@link #dataFormat(String)} 、{@link ICellWriter#appendStyle(CellStyles)} 或样式库 sindex 获取，这些方法通过 {@link StyleRegistry} 在 workbook 上加锁
+ * 工作线程中不要调用 workbook.createCellStyle 、createFont 、createDrawingPatriarch 等修改 workbook 共享部分的方法
+ *
+ * ParallelSheetWriter.of(ops)
+ *     .sheet("部门A", writer -&gt; TableWriter.ofMap(header).write(writer.rowNew(Rownum.of(1)), rowsA))
+ *     .sheet("部门B", writer -&gt; TableWriter.ofMap(header).write(writer.rowNew(Rownum.of(1)), rowsB))
+ *     .saveWorkBook(FPath.of("logs/report.xlsx"));
+ *
+ * @author 谢长春 on 2018-8-8 .
+ */
+@Slf4j
+public final class ParallelSheetWriter implements AutoCloseable {
+    private ParallelSheetWriter(final Options ops, final int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("参数【threads】必须大于 0");
+        }
+        this.ops = ops.toBuilder().build(); // 复制写入参数，修改参数不影响调用方的对象
+        this.threads = threads;
+        this.workbook = SSheetWriter.newWorkbook(ops);
+    }
+
+    public static ParallelSheetWriter of() {
+        return of(null);
+    }
+
+    /**
+     * 使用 CPU 核数个工作线程
+     *
+     * @param ops {@link Options} 写入参数，所有 sheet 共享
+     * @return {@link ParallelSheetWriter}
+     */
+    public static ParallelSheetWriter of(final Options ops) {
+        return of(ops, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param ops     {@link Options} 写入参数，所有 sheet 共享；使用副本，不会修改传入的对象
+     * @param threads int 工作线程数
+     * @return {@link ParallelSheetWriter}
+     */
+    public static ParallelSheetWriter of(final Options ops, final int threads) {
+        return new ParallelSheetWriter(Objects.isNull(ops) ? Options.builder().build() : ops, threads);
+    }
+
+    @Getter
+    private final Options ops;
+    @Getter
+    private final SXSSFWorkbook workbook;
+    private final int threads;
+    /**
+     * 待写入的 sheet ，与添加顺序一致
+     */
+    private final List<Task> tasks = new ArrayList<>();
+    /**
+     * 任意 sheet 写入失败之后置为 true ，其他 sheet 在切换行时停止写入
+     */
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+
+    /**
+     * 指定样式库，所有 sheet 共享；样式库克隆样式时在 workbook 上加锁
+     * 只修改写入参数副本，不影响创建时传入的 {@link Options}
+     *
+     * @param stylesTable {@link StylesTable} 样式库来源
+     * @return {@link ParallelSheetWriter}
+     */
+    public ParallelSheetWriter setCloneStyles(final StylesTable stylesTable) {
+        ops.cloneStyles = new CloneStyles(stylesTable, workbook);
+        return this;
+    }
+
+    /**
+     * 指定样式库，所有 sheet 共享
+     *
+     * @param path String 样式库来源文件绝对路径，只支持 .xlsx
+     * @return {@link ParallelSheetWriter}
+     */
+    public ParallelSheetWriter setCloneStyles(final String path) {
+        if (path.endsWith(".xlsx")) { // 非 .xlsx 后缀的文件直接跳过
+            try {
+                @Cleanup OPCPackage pkg = OPCPackage.open(path, PackageAccess.READ);
+                setCloneStyles(new XSSFReader(pkg).getStylesTable());
+            } catch (Exception e) {
+                throw new IllegalArgumentException(String.format("从【%s】文件读取样式异常", path), e);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * 获取样式；属性相同的样式只创建一次，工作线程中可以调用
+     *
+     * @param styles {@link CellStyles} 样式
+     * @return {@link CellStyle}
+     */
+    public CellStyle style(final CellStyles styles) {
+        Objects.requireNonNull(styles, "参数【styles】是必须的");
+        return styles.createCellStyle(workbook);
+    }
+
+    /**
+     * 获取样式注册表，可以查看样式命中次数
+     *
+     * @return {@link StyleRegistry}
+     */
+    public StyleRegistry getStyleRegistry() {
+        return StyleRegistry.of(workbook);
+    }
+
+    /**
+     * 获取格式索引，工作线程中可以调用
+     *
+     * @param pattern String 格式，例：yyyy-MM-dd
+     * @return short 格式索引
+     */
+    public short dataFormat(final String pattern) {
+        Objects.requireNonNull(pattern, "参数【pattern】是必须的");
+        synchronized (StyleRegistry.owner(workbook)) { // 与 StyleRegistry 创建样式使用同一个锁
+            return workbook.createDataFormat().getFormat(pattern);
+        }
+    }
+
+    /**
+     * 添加 sheet ；sheet 立即创建，写入方法在 {@link #write()} 时由工作线程执行
+     *
+     * @param sheetName String sheet 名称
+     * @param consumer  {@link Consumer}{@link Consumer<SSheetWriter>} sheet 写入方法
+     * @return {@link ParallelSheetWriter}
+     */
+    public ParallelSheetWriter sheet(final String sheetName, final Consumer<SSheetWriter> consumer) {
+        Objects.requireNonNull(sheetName, "参数【sheetName】是必须的");
+        Objects.requireNonNull(consumer, "参数【consumer】是必须的");
+        tasks.add(new Task(workbook.createSheet(sheetName), consumer));
+        return this;
+    }
+
+    /**
+     * 并行写入所有已添加的 sheet ，等待全部完成；按完成顺序检查结果，任意 sheet 写入失败时立即取消其他 sheet 并抛出异常
+     * SXSSF 写入不响应线程中断，其他 sheet 在切换行时检查取消标记并停止写入
+     *
+     * @return {@link ParallelSheetWriter}
+     */
+    public ParallelSheetWriter write() {
+        if (tasks.isEmpty()) {
+            return this;
+        }
+        final AtomicInteger counter = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, tasks.size()), runnable -> {
+            final Thread thread = new Thread(runnable, "sheet-writer-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        final CompletionService<Task> service = new ExecutorCompletionService<>(executor);
+        final List<Future<Task>> futures = new ArrayList<>(tasks.size());
+        try {
+            for (Task task : tasks) {
+                futures.add(service.submit(task, task));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                final Future<Task> future = service.take(); // 按完成顺序获取，失败的 sheet 不需要等待前面的 sheet 写完
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    final int index = futures.indexOf(future);
+                    throw new IllegalStateException(String.format("sheet【%s】写入异常", tasks.get(index).sheet.getSheetName()), e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("sheet 写入被中断", e);
+        } finally {
+            if (futures.stream().anyMatch(future -> !future.isDone())) { // 写入失败或被中断，通知未完成的 sheet 停止写入
+                cancelled.set(true);
+                futures.forEach(future -> future.cancel(true));
+            }
+            executor.shutdownNow();
+        }
+        tasks.clear();
+        return this;
+    }
+
+    /**
+     * 写入所有 sheet 并保存到文件
+     *
+     * @param path {@link FPath} 文件路径
+     * @return {@link FPath}
+     */
+    @SneakyThrows
+    public FPath saveWorkBook(final FPath path) {
+        write();
+        @Cleanup final FileOutputStream fileOutputStream = new FileOutputStream(path.file());
+        workbook.write(fileOutputStream);
+        path.chmod(644); // 设置文件权限
+        return path;
+    }
+
+    /**
+     * 写入所有 sheet 并输出到流，输出完成之后关闭流
+     *
+     * @param outputStream {@link OutputStream}
+     */
+    @SneakyThrows
+    public void saveWorkBook(final OutputStream outputStream) {
+        write();
+        workbook.write(outputStream);
+        outputStream.close();
+    }
+
+    /**
+     * 写入所有 sheet 并加密保存到文件；参考：{@link ExcelCrypto#write(org.apache.poi.ss.usermodel.Workbook, java.io.File, String)}
+     *
+     * @param path     {@link FPath} 文件路径
+     * @param password String 文件密码，为 null 时不加密
+     * @return {@link FPath}
+     */
+    public FPath saveWorkBook(final FPath path, final String password) {
+        write();
+        ExcelCrypto.write(workbook, path.file(), password);
+        path.chmod(644); // 设置文件权限
+        return path;
+    }
+
+    /**
+     * 写入所有 sheet 并加密输出到流，输出完成之后关闭流
+     *
+     * @param outputStream {@link OutputStream}
+     * @param password     String 文件密码，为 null 时不加密
+     */
+    @SneakyThrows
+    public void saveWorkBook(final OutputStream outputStream, final String password) {
+        write();
+        ExcelCrypto.write(workbook, outputStream, password);
+        outputStream.close();
+    }
+
+    /**
+     * 删除 SXSSF 临时文件并关闭 Workbook 对象
+     */
+    @SneakyThrows
+    @Override
+    public void close() {
+        workbook.dispose();
+        workbook.close();
+    }
+
+    /**
+     * sheet 写入任务
+     */
+    private final class Task implements Runnable {
+        private Task(final SXSSFSheet sheet, final Consumer<SSheetWriter> consumer) {
+            this.sheet = sheet;
+            this.consumer = consumer;
+        }
+
+        private final SXSSFSheet sheet;
+        private final Consumer<SSheetWriter> consumer;
+
+        @Override
+        public void run() {
+            final long start = System.currentTimeMillis();
+            consumer.accept(SSheetWriter.of(sheet, ops).cancelled(cancelled));
+            log.debug("sheet【{}】写入完成，耗时：{}ms", sheet.getSheetName(), System.currentTimeMillis() - start);
+        }
+    }
+
+    public static void main(String[] args) {
+        final List<Cell> header = Arrays.asList(
+                Cell.builder().column(Column.A).label("序号").type(DataType.SEQ).build(),
+                Cell.builder().column(Column.B).label("名称").alias("name").type(DataType.TEXT).build(),
+                Cell.builder().column(Column.C).label("数量").alias("count").type(DataType.NUMBER).build(),
+                Cell.builder().column(Column.D).label("单价").alias("price").type(DataType.NUMBER).build(),
+                Cell.builder().column(Column.E).label("金额").type(DataType.FORMULA).formula("C{0}*D{0}").build()
+        );
+        final List<Map<String, Object>> rows = IntStream.range(0, 20_000)
+                .mapToObj(i -> {
+                    final Map<String, Object> row = new HashMap<>();
+                    row.put("name", "名称" + i);
+                    row.put("count", i);
+                    row.put("price", 1.5);
+                    return row;
+                })
+                .collect(Collectors.toList());
+        final CellStyles headStyles = CellStyles.builder().fillPattern(FillPatternType.SOLID_FOREGROUND).fillForegroundColor(com.utils.enums.Colors.SkyBlue.color).build();
+        try {
+            @Cleanup final ParallelSheetWriter writer = ParallelSheetWriter.of(Options.builder().build());
+            IntStream.rangeClosed(1, 40).forEach(i -> writer.sheet("部门" + i, sheet -> {
+                final CellStyle headStyle = writer.style(headStyles);
+                sheet.rowNew(Rownum.of(1));
+                header.forEach(head -> sheet.cellNew(head.index()).writeText(head.getLabel()).writeStyle(headStyle));
+                TableWriter.ofMap(header).write(sheet, rows);
+            }));
+            final long start = System.currentTimeMillis();
+            final FPath path = writer.saveWorkBook(FPath.of("logs/8.多sheet并行写入.xlsx"));
+            log.info("写入 40 个 sheet ，耗时：{}ms", System.currentTimeMillis() - start);
+            log.info("写入路径：{}", path.absolute());
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package com.utils.excel;
+
+import com.utils.excel.entity.Cell;
+import com.utils.excel.enums.DataType;
+import com.utils.util.Dates;
+import com.utils.util.Num;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.ClassUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.ss.usermodel.CellType;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 数据行映射为实体类；按 {@link ExcelColumn} 注解匹配表头，表头只解析一次，单元格直接写入实体类字段，不产生中间 Map
+ * 字段写入使用 LambdaMetafactory 生成的 setter ，同一个实体类只生成一次
+ * 生成的 lambda 类定义在 RowMapper 的类加载器中；实体类来自其他类加载器（如子类加载器）且不可见时，使用 MethodHandle 或反射
+ * <pre>
+ * final RowMapper&lt;User&gt; mapper = RowMapper.of(User.class, reader.headers());
+ * while (reader.hasNext()) { final User user = mapper.map(reader); }
+ *
+ * @author 谢长春 on 2018-8-8 .
+ */
+@Slf4j
+public final class RowMapper<E> {
+    /**
+     * 实体类字段映射缓存；使用 {@link ClassValue} 保存在实体类上，不强引用实体类，不会阻止子类加载器被回收
+     */
+    private static final ClassValue<Plan<?>> PLANS = new ClassValue<Plan<?>>() {
+        @Override
+        protected Plan<?> computeValue(final Class<?> type) {
+            return new Plan<>(type);
+        }
+    };
+
+    private RowMapper(final Supplier<E> constructor, final int[] indexes, final List<Property<E>> properties) {
+        this.constructor = constructor;
+        this.indexes = indexes;
+        this.properties = properties;
+    }
+
+    /**
+     * 按表头构建映射
+     *
+     * @param clazz   {@link Class} 实体类
+     * @param headers {@link List}{@link List<Cell>} 来自 {@link ISheetReader#headers()}
+     * @param <E>     实体类型
+     * @return {@link RowMapper}
+     */
+    @SuppressWarnings("unchecked")
+    public static <E> RowMapper<E> of(final Class<E> clazz, final List<Cell> headers) {
+        Objects.requireNonNull(clazz, "参数【clazz】是必须的");
+        Objects.requireNonNull(headers, "参数【headers】是必须的");
+        final Plan<E> plan = (Plan<E>) PLANS.get(clazz);
+        final int[] indexes = new int[plan.properties.size()];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = plan.properties.get(i).index(headers);
+        }
+        return new RowMapper<>(plan.constructor, indexes, plan.properties);
+    }
+
+    private final Supplier<E> constructor;
+    /**
+     * 字段对应的列索引，与 properties 顺序一致
+     */
+    private final int[] indexes;
+    private final List<Property<E>> properties;
+
+    /**
+     * 将当前行转换为实体类，空单元格不写入
+     *
+     * @param reader {@link ISheetReader} 已经定位到数据行的读取器
+     * @return <E> 实体类对象
+     */
+    public E map(final ISheetReader<?> reader) {
+        final E bean = constructor.get();
+        for (int i = 0; i < indexes.length; i++) {
+            if (reader.cell(indexes[i]).cellIsBlank()) {
+                continue;
+            }
+            final Property<E> property = properties.get(i);
+            final Object value = property.reader.apply(reader);
+            if (Objects.nonNull(value)) {
+                property.setter.accept(bean, value);
+            }
+        }
+        return bean;
+    }
+
+    /**
+     * 实体类字段映射，与表头无关，按实体类缓存
+     *
+     * @param <E> 实体类型
+     */
+    private static final class Plan<E> {
+        @SuppressWarnings("unchecked")
+        private Plan(final Class<?> clazz) {
+            this.constructor = constructor((Class<E>) clazz);
+            this.properties = new ArrayList<>();
+            for (Class<?> type = clazz; Objects.nonNull(type) && !Objects.equals(Object.class, type); type = type.getSuperclass()) {
+                for (Field field : type.getDeclaredFields()) {
+                    final ExcelColumn column = field.getAnnotation(ExcelColumn.class);
+                    if (Objects.nonNull(column) && !Modifier.isStatic(field.getModifiers())) {
+                        properties.add(new Property<>(field, column, setter((Class<E>) clazz, field)));
+                    }
+                }
+            }
+            if (properties.isEmpty()) {
+                throw new IllegalArgumentException(String.format("【%s】没有 @ExcelColumn 注解的字段", clazz.getName()));
+            }
+        }
+
+        private final Supplier<E> constructor;
+        private final List<Property<E>> properties;
+    }
+
+    /**
+     * 字段映射：列匹配规则、单元格读取方法、字段写入方法
+     *
+     * @param <E> 实体类型
+     */
+    private static final class Property<E> {
+        private Property(final Field field, final ExcelColumn column, final BiConsumer<E, Object> setter) {
+            this.name = field.getName();
+            this.column = column;
+            this.setter = setter;
+            this.reader = reader(field.getType(), column.type().length > 0 ? column.type()[0] : dataType(field.getType()));
+        }
+
+        private final String name;
+        private final ExcelColumn column;
+        private final BiConsumer<E, Object> setter;
+        private final Function<ICellReader<?>, Object> reader;
+
+        /**
+         * 按 index 、label 、alias 、字段名的顺序匹配列索引
+         *
+         * @param headers {@link List}{@link List<Cell>} 表头
+         * @return int 列索引
+         */
+        private int index(final List<Cell> headers) {
+            if (column.index() >= 0) {
+                return column.index();
+            }
+            for (Cell header : headers) {
+                if (StringUtils.isNotEmpty(column.label()) ? Objects.equals(column.label(), header.getLabel())
+                        : StringUtils.isNotEmpty(column.alias()) ? Objects.equals(column.alias(), header.getAlias())
+                        : Objects.equals(name, header.getAlias())) {
+                    return header.index();
+                }
+            }
+            throw new IllegalArgumentException(String.format("字段【%s】在表头中找不到对应的列：%s", name,
+                    StringUtils.firstNonEmpty(column.label(), column.alias(), name)));
+        }
+    }
+
+    /**
+     * 按字段类型推断数据类型
+     *
+     * @param type {@link Class} 字段类型
+     * @return {@link DataType}
+     */
+    private static DataType dataType(final Class<?> type) {
+        final Class<?> clazz = ClassUtils.primitiveToWrapper(type);
+        if (Number.class.isAssignableFrom(clazz)) {
+            return DataType.NUMBER;
+        }
+        if (Date.class.isAssignableFrom(clazz) || Dates.class.equals(clazz) || LocalDate.class.equals(clazz) || LocalDateTime.class.equals(clazz)) {
+            return DataType.DATE;
+        }
+        return DataType.TEXT;
+    }
+
+    /**
+     * 按字段类型和数据类型生成单元格读取方法，返回值类型与字段类型一致
+     *
+     * @param type     {@link Class} 字段类型
+     * @param dataType {@link DataType} 数据类型
+     * @return {@link Function}{@link Function<ICellReader, Object>}
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Function<ICellReader<?>, Object> reader(final Class<?> type, final DataType dataType) {
+        final Class<?> clazz = ClassUtils.primitiveToWrapper(type);
+        if (String.class.equals(clazz)) {
+            return Objects.equals(DataType.FORMULA, dataType) ? ICellReader::formula : ICellReader::stringValue;
+        }
+        if (Objects.equals(DataType.DATE, dataType)) {
+            if (Dates.class.equals(clazz)) return ICellReader::dateValue;
+            if (Timestamp.class.equals(clazz)) return date(Dates::timestamp);
+            if (Date.class.equals(clazz)) return date(Dates::date);
+            if (LocalDateTime.class.equals(clazz)) return date(Dates::get);
+            if (LocalDate.class.equals(clazz)) return date(value -> value.get().toLocalDate());
+            if (Long.class.equals(clazz)) return date(Dates::getTimeMillis);
+        }
+        if (Integer.class.equals(clazz)) return number(Num::toInteger);
+        if (Long.class.equals(clazz)) return number(Num::toLong);
+        if (Double.class.equals(clazz)) return number(Num::toDouble);
+        if (Float.class.equals(clazz)) return number(Num::toFloat);
+        if (Short.class.equals(clazz)) return number(Num::toShort);
+        if (BigDecimal.class.equals(clazz)) return number(Num::toBigDecimal);
+        if (Num.class.equals(clazz)) return ICellReader::numberValue;
+        if (Boolean.class.equals(clazz)) {
+            return reader -> Objects.equals(CellType.BOOLEAN, reader.cellType())
+                    ? reader.getCell().getBooleanCellValue()
+                    : Optional.ofNullable(reader.stringValue()).map(value -> "true".equalsIgnoreCase(value) || "1".equals(value)).orElse(null);
+        }
+        if (clazz.isEnum()) {
+            return reader -> Optional.ofNullable(reader.stringValue()).map(String::trim).map(value -> Enum.valueOf((Class<Enum>) clazz, value)).orElse(null);
+        }
+        return reader -> reader.value().orElse(null);
+    }
+
+    private static Function<ICellReader<?>, Object> number(final Function<Num, Object> function) {
+        return reader -> Optional.ofNullable(reader.numberValue()).map(function).orElse(null);
+    }
+
+    private static Function<ICellReader<?>, Object> date(final Function<Dates, Object> function) {
+        return reader -> Optional.ofNullable(reader.dateValue()).map(function).orElse(null);
+    }
+
+    /**
+     * 生成实体类构造方法；优先使用 LambdaMetafactory ，实体类不可访问或对 RowMapper 的类加载器不可见时使用反射
+     *
+     * @param clazz {@link Class} 实体类
+     * @param <E>   实体类型
+     * @return {@link Supplier}{@link Supplier<E>}
+     */
+    @SuppressWarnings("unchecked")
+    @SneakyThrows
+    private static <E> Supplier<E> constructor(final Class<E> clazz) {
+        try {
+            if (!visible(clazz)) {
+                throw new IllegalStateException("实体类对 RowMapper 的类加载器不可见");
+            }
+            final MethodHandles.Lookup lookup = MethodHandles.lookup();
+            final MethodHandle handle = lookup.findConstructor(clazz, MethodType.methodType(void.class));
+            final CallSite site = LambdaMetafactory.metafactory(lookup, "get",
+                    MethodType.methodType(Supplier.class),
+                    MethodType.methodType(Object.class),
+                    handle,
+                    MethodType.methodType(clazz)
+            );
+            return (Supplier<E>) site.getTarget().invokeExact();
+        } catch (Throwable e) {
+            log.debug("{} 无法生成构造方法，使用反射：{}", clazz.getName(), e.getMessage());
+            final Constructor<E> constructor = clazz.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return new Supplier<E>() {
+                @SneakyThrows
+                @Override
+                public E get() {
+                    return constructor.newInstance();
+                }
+            };
+        }
+    }
+
+    /**
+     * 生成字段写入方法；优先使用 setter 方法生成 LambdaMetafactory ，没有 setter 、不可访问或对 RowMapper 的类加载器不可见时直接写字段
+     *
+     * @param clazz {@link Class} 实体类
+     * @param field {@link Field} 字段
+     * @param <E>   实体类型
+     * @return {@link BiConsumer}{@link BiConsumer<E:实体类, Object:字段值>}
+     */
+    @SuppressWarnings("unchecked")
+    @SneakyThrows
+    private static <E> BiConsumer<E, Object> setter(final Class<E> clazz, final Field field) {
+        final MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            final Method method = clazz.getMethod("set".concat(StringUtils.capitalize(field.getName())), field.getType());
+            if (!visible(clazz) || !visible(method.getDeclaringClass()) || !visible(field.getType())) {
+                throw new IllegalStateException("实体类或字段类型对 RowMapper 的类加载器不可见");
+            }
+            final CallSite site = LambdaMetafactory.metafactory(lookup, "accept",
+                    MethodType.methodType(BiConsumer.class),
+                    MethodType.methodType(void.class, Object.class, Object.class),
+                    lookup.unreflect(method),
+                    MethodType.methodType(void.class, clazz, ClassUtils.primitiveToWrapper(field.getType()))
+            );
+            return (BiConsumer<E, Object>) site.getTarget().invokeExact();
+        } catch (Throwable e) {
+            log.debug("{}.{} 无法生成 setter ，直接写字段：{}", clazz.getName(), field.getName(), e.getMessage());
+            field.setAccessible(true);
+            final MethodHandle handle = lookup.unreflectSetter(field);
+            return new BiConsumer<E, Object>() {
+                @SneakyThrows
+                @Override
+                public void accept(final E bean, final Object value) {
+                    handle.invoke(bean, value);
+                }
+            };
+        }
+    }
+
+    /**
+     * 判断类型对 RowMapper 的类加载器是否可见；LambdaMetafactory 生成的类需要按名称解析实体类和参数类型
+     *
+     * @param clazz {@link Class}
+     * @return boolean true：可见
+     */
+    private static boolean visible(final Class<?> clazz) {
+        if (clazz.isPrimitive()) {
+            return true;
+        }
+        if (clazz.isArray()) {
+            return visible(clazz.getComponentType());
+        }
+        try {
+            return Class.forName(clazz.getName(), false, RowMapper.class.getClassLoader()) == clazz;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+}
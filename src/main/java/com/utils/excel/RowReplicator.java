@@ -0,0 +1,434 @@
+package com.utils.excel;
+
+import com.utils.excel.entity.Range;
+import com.utils.util.FPath;
+import lombok.Cleanup;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.hssf.usermodel.HSSFEvaluationWorkbook;
+import org.apache.poi.hssf.usermodel.HSSFSheet;
+import org.apache.poi.ss.formula.FormulaParser;
+import org.apache.poi.ss.formula.FormulaParsingWorkbook;
+import org.apache.poi.ss.formula.FormulaRenderingWorkbook;
+import org.apache.poi.ss.formula.FormulaRenderer;
+import org.apache.poi.ss.formula.FormulaShifter;
+import org.apache.poi.ss.formula.FormulaType;
+import org.apache.poi.ss.formula.ptg.AreaPtgBase;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.formula.ptg.RefPtgBase;
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.streaming.*;
+import org.apache.poi.xssf.usermodel.XSSFEvaluationWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFHyperlink;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTMergeCells;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTWorksheet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static com.utils.excel.enums.Column.*;
+
+/**
+ * SXSSF 、.xlsx 、.xls 模板行复制；模板区间（可以是多行）只编译一次，之后按目标行号批量生成副本；目标行已存在时会被覆盖，不会插入或移动其他行
+ * <pre>
+ * 编译时保存模板行的单元格值、样式、超链接、行高、行样式，公式通过 {@link FormulaParser} 解析为 {@link Ptg} ，只记录相对行引用的位置
+ * 复制时按行偏移量改写相对行引用后渲染公式，绝对引用（$A$1）不变；跨行引用（SUM(A1:A3)、A1+A2）同样按偏移量平移
+ * 偏移之后超出 sheet 范围的引用交给 {@link FormulaShifter} 处理，结果为 #REF!
+ * 合并单元格只取完全落在模板区间内的区域，编译时计算一次；写入时不检查区域重叠，目标区间不能与已有的合并区域重叠
+ * SXSSF 编译之后模板行可以被写入临时文件，不影响之后的复制；同一个对象不能在多个线程中同时复制
+ *
+ * final RowReplicator replicator = RowReplicator.of(sheet, Rownum.of(2).index(), Rownum.of(3).index());
+ * replicator.repeat(Rownum.of(4).index(), 50_000);
+ *
+ * @author 谢长春 on 2018-8-8 .
+ */
+@Slf4j
+public final class RowReplicator {
+    private RowReplicator(final Sheet sheet, final int fromStartRowIndex, final int fromEndRowIndex, final CellCopyPolicy policy) {
+        Objects.requireNonNull(sheet, "参数【sheet】是必须的");
+        if (fromStartRowIndex < 0 || fromEndRowIndex < fromStartRowIndex) {
+            throw new IllegalArgumentException(String.format("模板行区间【%d:%d】无效", fromStartRowIndex, fromEndRowIndex));
+        }
+        this.sheet = sheet;
+        this.fromStartRowIndex = fromStartRowIndex;
+        this.height = fromEndRowIndex - fromStartRowIndex + 1;
+        this.policy = Objects.isNull(policy) ? ISheetWriter.ICopyRows.DEFAULT_CELL_COPY_POLICY : policy;
+        this.sheetIndex = sheet.getWorkbook().getSheetIndex(sheet);
+        if (sheet instanceof SXSSFSheet) {
+            final SXSSFSheet sxssfSheet = (SXSSFSheet) sheet;
+            if (fromStartRowIndex <= sxssfSheet.getLastFlushedRowNum()) {
+                throw new IllegalStateException(String.format("模板行【%d】已写入临时文件，无法复制；最后写入临时文件的行【%d】", fromStartRowIndex, sxssfSheet.getLastFlushedRowNum()));
+            }
+            final SXSSFEvaluationWorkbook workbook = SXSSFEvaluationWorkbook.create(sxssfSheet.getWorkbook());
+            this.parsingWorkbook = workbook;
+            this.renderingWorkbook = workbook;
+            this.version = SpreadsheetVersion.EXCEL2007;
+            this.worksheet = sxssfSheet.getWorkbook().getXSSFWorkbook().getSheetAt(sheetIndex).getCTWorksheet();
+        } else if (sheet instanceof HSSFSheet) {
+            final HSSFEvaluationWorkbook workbook = HSSFEvaluationWorkbook.create(((HSSFSheet) sheet).getWorkbook());
+            this.parsingWorkbook = workbook;
+            this.renderingWorkbook = workbook;
+            this.version = SpreadsheetVersion.EXCEL97;
+            this.worksheet = null;
+        } else if (sheet instanceof XSSFSheet) {
+            final XSSFEvaluationWorkbook workbook = XSSFEvaluationWorkbook.create(((XSSFSheet) sheet).getWorkbook());
+            this.parsingWorkbook = workbook;
+            this.renderingWorkbook = workbook;
+            this.version = SpreadsheetVersion.EXCEL2007;
+            this.worksheet = ((XSSFSheet) sheet).getCTWorksheet();
+        } else {
+            throw new IllegalArgumentException(String.format("不支持的 sheet 类型【%s】", sheet.getClass().getName()));
+        }
+        this.rows = new ArrayList<>(height);
+        for (int i = fromStartRowIndex; i <= fromEndRowIndex; i++) {
+            final Row row = sheet.getRow(i);
+            if (Objects.nonNull(row)) {
+                rows.add(new RowTemplate(row));
+            }
+        }
+        this.mergedRegions = new ArrayList<>();
+        if (this.policy.isCopyMergedRegions()) {
+            sheet.getMergedRegions().forEach(region -> {
+                if (region.getFirstRow() >= fromStartRowIndex && region.getLastRow() <= fromEndRowIndex) {
+                    mergedRegions.add(region);
+                }
+            });
+        }
+    }
+
+    /**
+     * 编译模板行区间，使用默认复制规则
+     *
+     * @param sheet             {@link SXSSFSheet} 、{@link XSSFSheet} 或 {@link HSSFSheet}
+     * @param fromStartRowIndex int 模板起始行索引
+     * @param fromEndRowIndex   int 模板结束行索引（包含）
+     * @return {@link RowReplicator}
+     */
+    public static RowReplicator of(final Sheet sheet, final int fromStartRowIndex, final int fromEndRowIndex) {
+        return new RowReplicator(sheet, fromStartRowIndex, fromEndRowIndex, null);
+    }
+
+    /**
+     * 编译模板行区间
+     *
+     * @param sheet             {@link SXSSFSheet} 、{@link XSSFSheet} 或 {@link HSSFSheet}
+     * @param fromStartRowIndex int 模板起始行索引
+     * @param fromEndRowIndex   int 模板结束行索引（包含）
+     * @param policy            {@link CellCopyPolicy} 复制规则，为 null 时使用默认规则
+     * @return {@link RowReplicator}
+     */
+    public static RowReplicator of(final Sheet sheet, final int fromStartRowIndex, final int fromEndRowIndex, final CellCopyPolicy policy) {
+        return new RowReplicator(sheet, fromStartRowIndex, fromEndRowIndex, policy);
+    }
+
+    private final Sheet sheet;
+    private final int fromStartRowIndex;
+    /**
+     * 模板区间行数
+     */
+    @Getter
+    private final int height;
+    private final CellCopyPolicy policy;
+    private final FormulaParsingWorkbook parsingWorkbook;
+    private final FormulaRenderingWorkbook renderingWorkbook;
+    private final SpreadsheetVersion version;
+    private final int sheetIndex;
+    /**
+     * .xlsx 合并区域；SXSSF 的合并区域保存在内部的 XSSFSheet 中；.xls 为 null
+     */
+    private final CTWorksheet worksheet;
+    private final List<RowTemplate> rows;
+    /**
+     * 完全落在模板区间内的合并区域
+     */
+    private final List<CellRangeAddress> mergedRegions;
+
+    /**
+     * 复制模板区间，目标区间从 toRowIndex 开始
+     *
+     * @param toRowIndex int 目标起始行索引
+     * @return {@link RowReplicator}
+     */
+    public RowReplicator copyTo(final int toRowIndex) {
+        final int offset = toRowIndex - fromStartRowIndex;
+        for (RowTemplate row : rows) {
+            row.copy(offset);
+        }
+        if (!mergedRegions.isEmpty() && Objects.isNull(worksheet)) {
+            for (CellRangeAddress region : mergedRegions) {
+                sheet.addMergedRegionUnsafe(new CellRangeAddress(
+                        region.getFirstRow() + offset,
+                        region.getLastRow() + offset,
+                        region.getFirstColumn(),
+                        region.getLastColumn()
+                ));
+            }
+        } else if (!mergedRegions.isEmpty()) {
+            // 不使用 addMergedRegionUnsafe ：每次添加都会重新统计合并区域数量，合并区域越多越慢；这里直接追加并累加数量
+            final CTMergeCells mergeCells = worksheet.isSetMergeCells() ? worksheet.getMergeCells() : worksheet.addNewMergeCells();
+            for (CellRangeAddress region : mergedRegions) {
+                final CellRangeAddress destRegion = new CellRangeAddress(
+                        region.getFirstRow() + offset,
+                        region.getLastRow() + offset,
+                        region.getFirstColumn(),
+                        region.getLastColumn()
+                );
+                destRegion.validate(version);
+                mergeCells.addNewMergeCell().setRef(destRegion.formatAsString());
+            }
+            mergeCells.setCount(mergeCells.getCount() + mergedRegions.size());
+        }
+        SheetIndex.invalidate(sheet);
+        return this;
+    }
+
+    /**
+     * 连续复制模板区间 repeatCount 次，第 i 个副本从 toRowIndex + i * height 开始
+     *
+     * @param toRowIndex  int 目标起始行索引
+     * @param repeatCount int 复制次数
+     * @return {@link RowReplicator}
+     */
+    public RowReplicator repeat(final int toRowIndex, final int repeatCount) {
+        for (int i = 0; i < repeatCount; i++) {
+            copyTo(toRowIndex + i * height);
+        }
+        return this;
+    }
+
+    /**
+     * 复制时只保留指定单元格的样式，不复制值；用于复制之后会被覆盖的单元格，避免无效写入
+     *
+     * @param rowIndex    int 模板行索引
+     * @param columnIndex int 列索引
+     * @return {@link RowReplicator}
+     */
+    RowReplicator blank(final int rowIndex, final int columnIndex) {
+        for (RowTemplate row : rows) {
+            if (row.rowIndex == rowIndex) {
+                for (CellTemplate cell : row.cells) {
+                    if (cell.columnIndex == columnIndex) {
+                        cell.type = CellType.BLANK;
+                    }
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * 模板行
+     */
+    private final class RowTemplate {
+        private RowTemplate(final Row row) {
+            this.rowIndex = row.getRowNum();
+            this.height = row.getHeight();
+            this.rowStyle = row.isFormatted() ? row.getRowStyle() : null;
+            this.cells = new ArrayList<>(Math.max(row.getPhysicalNumberOfCells(), 0));
+            row.forEach(cell -> cells.add(new CellTemplate(cell)));
+        }
+
+        private final int rowIndex;
+        private final short height;
+        private final CellStyle rowStyle;
+        private final List<CellTemplate> cells;
+
+        private void copy(final int offset) {
+            final Row exists = sheet.getRow(rowIndex + offset);
+            if (Objects.nonNull(exists)) {
+                sheet.removeRow(exists); // .xls 重新创建行不会删除原有的单元格
+            }
+            final Row destRow = sheet.createRow(rowIndex + offset);
+            for (CellTemplate cell : cells) {
+                cell.copy(destRow, offset);
+            }
+            if (policy.isCopyRowHeight()) {
+                destRow.setHeight(height);
+            }
+            if (Objects.nonNull(rowStyle) && policy.isCopyCellStyle()) {
+                destRow.setRowStyle(rowStyle);
+            }
+        }
+    }
+
+    /**
+     * 模板单元格
+     */
+    private final class CellTemplate {
+        private CellTemplate(final Cell cell) {
+            this.rowIndex = cell.getRowIndex();
+            this.columnIndex = cell.getColumnIndex();
+            this.style = policy.isCopyCellStyle() ? cell.getCellStyle() : null;
+            this.hyperlink = (policy.isCopyHyperlink() || policy.isMergeHyperlink()) ? cell.getHyperlink() : null;
+            CellType type = policy.isCopyCellValue() ? cell.getCellType() : CellType.BLANK;
+            if (type == CellType.FORMULA && !policy.isCopyCellFormula()) {
+                type = cell.getCachedFormulaResultType();
+            }
+            this.type = type;
+            switch (type) {
+                case NUMERIC:
+                    this.value = cell.getNumericCellValue();
+                    break;
+                case STRING:
+                    this.value = cell.getStringCellValue();
+                    break;
+                case BOOLEAN:
+                    this.value = cell.getBooleanCellValue();
+                    break;
+                case ERROR:
+                    this.value = cell.getErrorCellValue();
+                    break;
+                case FORMULA:
+                    this.value = cell.getCellFormula();
+                    break;
+                default:
+                    this.value = null;
+            }
+            if (type == CellType.FORMULA) {
+                this.ptgs = FormulaParser.parse((String) value, parsingWorkbook, FormulaType.CELL, sheetIndex, rowIndex);
+                final List<Integer> relatives = new ArrayList<>();
+                for (int i = 0; i < ptgs.length; i++) {
+                    final Ptg ptg = ptgs[i];
+                    if ((ptg instanceof RefPtgBase && ((RefPtgBase) ptg).isRowRelative())
+                            || (ptg instanceof AreaPtgBase && (((AreaPtgBase) ptg).isFirstRowRelative() || ((AreaPtgBase) ptg).isLastRowRelative()))) {
+                        relatives.add(i);
+                    }
+                }
+                this.relatives = relatives.stream().mapToInt(Integer::intValue).toArray();
+                this.work = new Ptg[ptgs.length];
+                for (int i = 0; i < ptgs.length; i++) {
+                    work[i] = ptgs[i].copy();
+                }
+            } else {
+                this.ptgs = null;
+                this.relatives = null;
+                this.work = null;
+            }
+        }
+
+        private final int rowIndex;
+        private final int columnIndex;
+        private CellType type;
+        private final Object value;
+        private final CellStyle style;
+        private final Hyperlink hyperlink;
+        /**
+         * 解析之后的公式，不修改
+         */
+        private final Ptg[] ptgs;
+        /**
+         * 复制时改写行号的公式副本
+         */
+        private final Ptg[] work;
+        /**
+         * 包含相对行引用的 Ptg 位置
+         */
+        private final int[] relatives;
+
+        private void copy(final Row destRow, final int offset) {
+            final Cell destCell = destRow.createCell(columnIndex);
+            switch (type) {
+                case NUMERIC:
+                    destCell.setCellValue((Double) value);
+                    break;
+                case STRING:
+                    destCell.setCellValue((String) value);
+                    break;
+                case BOOLEAN:
+                    destCell.setCellValue((Boolean) value);
+                    break;
+                case ERROR:
+                    destCell.setCellErrorValue((Byte) value);
+                    break;
+                case FORMULA:
+                    destCell.setCellFormula(formula(offset));
+                    break;
+                default:
+            }
+            if (Objects.nonNull(style)) {
+                destCell.setCellStyle(style);
+            }
+            if (Objects.nonNull(hyperlink)) {
+                if (sheet instanceof HSSFSheet) {
+                    final Hyperlink link = sheet.getWorkbook().getCreationHelper().createHyperlink(hyperlink.getType());
+                    link.setAddress(hyperlink.getAddress());
+                    link.setLabel(hyperlink.getLabel());
+                    destCell.setHyperlink(link);
+                } else {
+                    destCell.setHyperlink(new XSSFHyperlink(hyperlink));
+                }
+            }
+        }
+
+        /**
+         * 按行偏移量改写相对行引用并渲染公式
+         */
+        private String formula(final int offset) {
+            if (relatives.length == 0) {
+                return (String) value;
+            }
+            final int maxRowIndex = version.getLastRowIndex();
+            for (int i : relatives) {
+                if (ptgs[i] instanceof RefPtgBase) {
+                    final RefPtgBase from = (RefPtgBase) ptgs[i];
+                    final int row = from.getRow() + offset;
+                    if (row < 0 || row > maxRowIndex) return shift(offset);
+                    ((RefPtgBase) work[i]).setRow(row);
+                } else {
+                    final AreaPtgBase from = (AreaPtgBase) ptgs[i];
+                    final AreaPtgBase to = (AreaPtgBase) work[i];
+                    if (from.isFirstRowRelative()) {
+                        final int row = from.getFirstRow() + offset;
+                        if (row < 0 || row > maxRowIndex) return shift(offset);
+                        to.setFirstRow(row);
+                    }
+                    if (from.isLastRowRelative()) {
+                        final int row = from.getLastRow() + offset;
+                        if (row < 0 || row > maxRowIndex) return shift(offset);
+                        to.setLastRow(row);
+                    }
+                }
+            }
+            return FormulaRenderer.toFormulaString(renderingWorkbook, work);
+        }
+
+        /**
+         * 引用超出 sheet 范围，由 POI 生成 #REF!
+         */
+        private String shift(final int offset) {
+            final Ptg[] copy = new Ptg[ptgs.length];
+            for (int i = 0; i < ptgs.length; i++) {
+                copy[i] = ptgs[i].copy();
+            }
+            FormulaShifter.createForRowCopy(sheetIndex, sheet.getSheetName(), rowIndex, rowIndex, offset, version)
+                    .adjustFormula(copy, sheetIndex);
+            return FormulaRenderer.toFormulaString(renderingWorkbook, copy);
+        }
+    }
+
+    public static void main(String[] args) {
+        try {
+            @Cleanup final SXSSFWorkbook workbook = new SXSSFWorkbook(500);
+            final SSheetWriter writer = SSheetWriter.of(workbook.createSheet("Sheet1"))
+                    .rowNew(Rownum.of(1))
+                    .cell(A).writeText("名称").cell(B).writeText("数量").cell(C).writeText("单价").cell(D).writeText("金额").cell(E).writeText("累计")
+                    // 模板区间：第 2 、3 行
+                    .rowNew(Rownum.of(2))
+                    .cell(A).writeText("明细").cell(B).writeNumber(1).cell(C).writeNumber(2.5).cell(D).writeFormula("B2*C2").cell(E).writeFormula("SUM(D$2:D2)")
+                    .rowNew(Rownum.of(3))
+                    .cell(A).writeText("小计").cell(D).writeFormula("D2*$C$2").cell(E).writeFormula("E2+D3")
+                    .merge(Range.of("A3:C3"));
+            final long start = System.currentTimeMillis();
+            RowReplicator.of((SXSSFSheet) writer.getSheet(), Rownum.of(2).index(), Rownum.of(3).index())
+                    .repeat(Rownum.of(4).index(), 50_000);
+            log.info("复制 50000 次，耗时：{}ms", System.currentTimeMillis() - start);
+            log.info("写入路径：{}", writer.saveWorkBook(FPath.of("logs/11.模板行复制.xlsx")).absolute());
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+}
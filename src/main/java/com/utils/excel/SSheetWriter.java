@@ -13,16 +13,15 @@ import lombok.Cleanup;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.streaming.SXSSFCell;
-import org.apache.poi.xssf.streaming.SXSSFRow;
-import org.apache.poi.xssf.streaming.SXSSFSheet;
-import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.streaming.*;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
+import java.io.File;
+import java.io.IOException;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-import java.util.Objects;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -40,15 +39,93 @@ public final class SSheetWriter implements ISheetWriter<SSheetWriter>, ISheetWri
         this.ops = Objects.isNull(ops) ? Options.builder().build() : ops;
         this.workbook = sheet.getWorkbook();
         this.sheet = sheet;
-        this.sheet.trackAllColumnsForAutoSizing(); // 自动调整列宽
+        if (this.ops.autoSizeRows != 0) { // 跟踪列宽会计算每个单元格的文本宽度，autoSizeRows 为 0 时不开启
+            this.sheet.trackAllColumnsForAutoSizing();
+        }
 //        this.sheet.setForceFormulaRecalculation(true); // 设置强制刷新公式
         // 若此上面一行设置不起作用，则在写入文件之前使用这行代码强制刷新公式： SXSSFFormulaEvaluator.evaluateAllFormulaCells(workbook, true);
     }
 
     public static SSheetWriter ofNewWorkBook(final String sheetName) {
-        final SXSSFWorkbook wb = new SXSSFWorkbook(500);
+        return ofNewWorkBook(sheetName, null);
+    }
+
+    /**
+     * 按 {@link Options} 指定的缓存行数、临时文件压缩、临时文件目录创建 workbook
+     *
+     * @param sheetName String sheet 名称
+     * @param ops       {@link Options} 写入参数
+     * @return {@link SSheetWriter}
+     */
+    public static SSheetWriter ofNewWorkBook(final String sheetName, final Options ops) {
+        final Options options = Objects.isNull(ops) ? Options.builder().build() : ops;
+        final SXSSFWorkbook wb = newWorkbook(options);
         wb.createSheet(sheetName);
-        return of(wb.getSheet(sheetName));
+        return of(wb.getSheet(sheetName), options);
+    }
+
+    /**
+     * 按 {@link Options} 创建 workbook ；指定了临时文件目录时，该 workbook 的临时文件写入指定目录，不影响其他 workbook
+     * 字符串写入方式参考 {@link SXSSFSharedStrings}
+     *
+     * @param ops {@link Options} 写入参数
+     * @return {@link SXSSFWorkbook}
+     */
+    public static SXSSFWorkbook newWorkbook(final Options ops) {
+        return newWorkbook(null, ops);
+    }
+
+    /**
+     * 按 {@link Options} 创建 workbook ；template 不为 null 时以 template 为模板，模板中已有的行保留在 XSSF 中，新增的行只能写在模板最后一行之后
+     *
+     * @param template {@link XSSFWorkbook} 模板，可以为 null
+     * @param ops      {@link Options} 写入参数
+     * @return {@link SXSSFWorkbook}
+     */
+    public static SXSSFWorkbook newWorkbook(final XSSFWorkbook template, final Options ops) {
+        Objects.requireNonNull(ops, "参数【ops】是必须的");
+        final File directory = ops.tempDirectory;
+        if (Objects.nonNull(directory) && !directory.exists() && !directory.mkdirs() && !directory.isDirectory()) {
+            throw new IllegalArgumentException(String.format("临时文件目录创建失败：%s", directory.getAbsolutePath()));
+        }
+        if (SXSSFSharedStrings.Mode.INLINE != ops.sharedStrings) {
+            return new SXSSFWorkbook(template, ops.rowAccessWindowSize, ops.compressTempFiles) {
+                /**
+                 * 模板中已有 sheet 时，父类构造方法会调用 createSheetDataWriter ，此时子类字段还没有初始化，所以不能使用字段初始化，只能在第一次使用时创建
+                 */
+                private SXSSFSharedStrings strings;
+
+                @Override
+                protected SheetDataWriter createSheetDataWriter() {
+                    if (Objects.isNull(strings)) {
+                        strings = new SXSSFSharedStrings(getXSSFWorkbook().getSharedStringSource(), ops.sharedStrings, SXSSFSharedStrings.MAX_SIZE);
+                    }
+                    return strings.newSheetDataWriter(directory, isCompressTempFiles());
+                }
+            };
+        }
+        if (Objects.isNull(directory)) {
+            return new SXSSFWorkbook(template, ops.rowAccessWindowSize, ops.compressTempFiles);
+        }
+        return new SXSSFWorkbook(template, ops.rowAccessWindowSize, ops.compressTempFiles) {
+            @Override
+            protected SheetDataWriter createSheetDataWriter() throws IOException {
+                if (isCompressTempFiles()) {
+                    return new GZIPSheetDataWriter() {
+                        @Override
+                        public File createTempFile() throws IOException {
+                            return File.createTempFile("poi-sxssf-sheet-xml", ".gz", directory);
+                        }
+                    };
+                }
+                return new SheetDataWriter() {
+                    @Override
+                    public File createTempFile() throws IOException {
+                        return File.createTempFile("poi-sxssf-sheet", ".xml", directory);
+                    }
+                };
+            }
+        };
     }
 
     public static SSheetWriter of(final SXSSFSheet sheet) {
@@ -77,6 +154,25 @@ public final class SSheetWriter implements ISheetWriter<SSheetWriter>, ISheetWri
      * 当前操作单元格
      */
     private SXSSFCell cell;
+    /**
+     * 已按采样行调整列宽，并停止跟踪列宽
+     */
+    private boolean autoSized;
+    /**
+     * 取消标记；由 {@link ParallelSheetWriter} 指定，其他 sheet 写入失败时切换行会抛出 {@link CancellationException}
+     */
+    private AtomicBoolean cancelled;
+
+    /**
+     * 指定取消标记；SXSSF 写入不响应线程中断，只能在切换行时检查取消标记
+     *
+     * @param cancelled {@link AtomicBoolean} 取消标记
+     * @return {@link SSheetWriter}
+     */
+    SSheetWriter cancelled(final AtomicBoolean cancelled) {
+        this.cancelled = cancelled;
+        return this;
+    }
 
     @Override
     public Workbook getWorkbook() {
@@ -124,12 +220,54 @@ public final class SSheetWriter implements ISheetWriter<SSheetWriter>, ISheetWri
      */
     public SSheetWriter row(final SXSSFRow row) {
         Objects.requireNonNull(row, "参数【row】是必须的");
+        if (Objects.nonNull(cancelled) && cancelled.get()) {
+            throw new CancellationException(String.format("sheet【%s】写入已取消", sheet.getSheetName()));
+        }
         rowIndex = row.getRowNum();
         this.row = row;
         this.cell = null; // 切换行，需要将 cell 置空
+        if (ops.autoSizeRows > 0 && !autoSized && rowIndex >= ops.autoSizeRows) { // 采样行已写完，调整列宽之后停止跟踪
+            autoSizeColumns();
+            sheet.untrackAllColumnsForAutoSizing();
+            autoSized = true;
+        }
         return this;
     }
 
+    /**
+     * 自动调整列宽；SXSSF 已写入临时文件的行不能再读取
+     * autoSizeRows 为 0 时只按内存中的行计算；为 N 时写到第 N 行已经按采样行调整过列宽，不再重复计算
+     *
+     * @return {@link SSheetWriter}
+     */
+    @Override
+    public SSheetWriter autoColumnWidth() {
+        if (autoSized) {
+            return this;
+        }
+        if (ops.autoSizeRows == 0) {
+            sheet.trackAllColumnsForAutoSizing();
+            autoSizeColumns();
+            sheet.untrackAllColumnsForAutoSizing();
+        } else {
+            autoSizeColumns();
+        }
+        return this;
+    }
+
+    /**
+     * 调整已跟踪的列和内存中所有行的列宽
+     */
+    private void autoSizeColumns() {
+        final Set<Integer> columns = new TreeSet<>(sheet.getTrackedColumnsForAutoSizing());
+        for (Row row : sheet) {
+            for (int i = Math.max(row.getFirstCellNum(), 0); i < row.getLastCellNum(); i++) {
+                columns.add(i);
+            }
+        }
+        columns.forEach(column -> sheet.autoSizeColumn(column, true));
+    }
+
     @Override
     public SSheetWriter cell(final int columnIndex) {
         cellOfNew(columnIndex);
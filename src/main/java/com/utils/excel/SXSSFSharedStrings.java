@@ -0,0 +1,249 @@
+package com.utils.excel;
+
+import lombok.Getter;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.TempFile;
+import org.apache.poi.xssf.model.SharedStringsTable;
+import org.apache.poi.xssf.streaming.SXSSFRow;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.streaming.SheetDataWriter;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * SXSSF 字符串写入方式；POI 只能在创建 workbook 时选择所有字符串都写入共享字符串表（sharedStrings.xml）或者都内联写入单元格
+ * <pre>
+ * {@link Mode#INLINE}：字符串内联写入单元格，与 POI 默认行为一致
+ * {@link Mode#SHARED}：字符串写入共享字符串表，单元格只保存索引；重复字符串越多，文件越小，Excel 打开越快
+ * {@link Mode#AUTO}：按列采样，每列前 {@link #SAMPLES} 个字符串单元格写入共享字符串表并统计不重复字符串的比例，比例不超过 {@link #RATIO} 的列（例：状态、部门）继续写入共享字符串表，其他列（例：编号、备注）之后的字符串内联写入
+ * 共享字符串表的容量上限为 maxSize ，超出之后新出现的字符串内联写入，已经写入的字符串仍然按索引引用
+ * 查找索引使用 HashMap ，只在首次出现的字符串上调用 POI SharedStringsTable（每次调用都会序列化 xml ，比较慢）
+ * 同一个 workbook 的所有 sheet 共用一个共享字符串表，并行写入多个 sheet 时在共享字符串表上加锁
+ * 富文本（包含格式的字符串）始终内联写入
+ *
+ * SSheetWriter.ofNewWorkBook("sheet", Options.builder().sharedStrings(SXSSFSharedStrings.Mode.AUTO).build());
+ *
+ * @author 谢长春 on 2018-8-8 .
+ */
+@Slf4j
+public final class SXSSFSharedStrings {
+    /**
+     * {@link Mode#AUTO} 每列的采样数量
+     */
+    public static final int SAMPLES = 1000;
+    /**
+     * {@link Mode#AUTO} 采样中不重复字符串的比例上限
+     */
+    public static final double RATIO = 0.2;
+    /**
+     * 默认容量上限
+     */
+    public static final int MAX_SIZE = 100_000;
+
+    public enum Mode {
+        /**
+         * 字符串内联写入单元格
+         */
+        INLINE,
+        /**
+         * 字符串写入共享字符串表
+         */
+        SHARED,
+        /**
+         * 采样之后自动选择
+         */
+        AUTO,
+    }
+
+    /**
+     * @param sharedStringsTable {@link SharedStringsTable} workbook 的共享字符串表
+     * @param mode               {@link Mode} 写入方式
+     * @param maxSize            int 容量上限
+     */
+    public SXSSFSharedStrings(final SharedStringsTable sharedStringsTable, final Mode mode, final int maxSize) {
+        Objects.requireNonNull(sharedStringsTable, "参数【sharedStringsTable】是必须的");
+        Objects.requireNonNull(mode, "参数【mode】是必须的");
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("参数【maxSize】必须大于 0");
+        }
+        this.sharedStringsTable = sharedStringsTable;
+        this.mode = mode;
+        this.maxSize = maxSize;
+    }
+
+    private final SharedStringsTable sharedStringsTable;
+    @Getter
+    private final Mode mode;
+    private final int maxSize;
+    /**
+     * 字符串 => 共享字符串表索引
+     */
+    private final Map<String, Integer> indexes = new HashMap<>();
+
+    /**
+     * 获取字符串在共享字符串表中的索引，不存在则添加
+     *
+     * @param value String 字符串
+     * @return int 索引；共享字符串表已满时返回 -1
+     */
+    private int indexOf(final String value) {
+        synchronized (sharedStringsTable) {
+            final Integer index = indexes.get(value);
+            if (Objects.nonNull(index)) {
+                return index;
+            }
+            if (indexes.size() >= maxSize) {
+                return -1;
+            }
+            final int added = sharedStringsTable.addSharedStringItem(new XSSFRichTextString(value));
+            indexes.put(value, added);
+            return added;
+        }
+    }
+
+    /**
+     * @return int 共享字符串表中的字符串数量
+     */
+    public int size() {
+        synchronized (sharedStringsTable) {
+            return indexes.size();
+        }
+    }
+
+    /**
+     * 创建 sheet 数据写入器；用于覆盖 {@link SXSSFWorkbook} 的 createSheetDataWriter 方法
+     *
+     * @param directory File 临时文件目录，为 null 时使用 POI 默认目录
+     * @param compress  boolean 临时文件是否使用 gzip 压缩
+     * @return {@link SheetDataWriter}
+     */
+    @SneakyThrows
+    SheetDataWriter newSheetDataWriter(final File directory, final boolean compress) {
+        // 父类构造方法中会调用 createTempFile 、createWriter ，匿名类捕获的变量在父类构造方法之前赋值，可以在这些方法中使用
+        return new StringsSheetDataWriter(this) {
+            @Override
+            public File createTempFile() throws IOException {
+                final String prefix = compress ? "poi-sxssf-sheet-xml" : "poi-sxssf-sheet";
+                final String suffix = compress ? ".gz" : ".xml";
+                return Objects.isNull(directory)
+                        ? TempFile.createTempFile(prefix, suffix)
+                        : File.createTempFile(prefix, suffix, directory);
+            }
+
+            @Override
+            protected OutputStream decorateOutputStream(final FileOutputStream fos) throws IOException {
+                return compress ? new GZIPOutputStream(fos) : fos;
+            }
+
+            @Override
+            protected InputStream decorateInputStream(final FileInputStream fis) throws IOException {
+                return compress ? new GZIPInputStream(fis) : fis;
+            }
+        };
+    }
+
+    /**
+     * sheet 数据写入器；字符串单元格按写入方式选择共享字符串或内联，其他单元格由 POI 写入
+     */
+    private static class StringsSheetDataWriter extends SheetDataWriter {
+        private StringsSheetDataWriter(final SXSSFSharedStrings strings) throws IOException {
+            super();
+            this.strings = strings;
+        }
+
+        private final SXSSFSharedStrings strings;
+        /**
+         * 父类的输出流；在父类构造方法中赋值，不能有初始值
+         */
+        private Writer out;
+        private int rowIndex;
+        /**
+         * {@link Mode#AUTO} 列索引 => 采样
+         */
+        private Map<Integer, Sample> samples;
+
+        @Override
+        public Writer createWriter(final File fd) throws IOException {
+            return out = super.createWriter(fd);
+        }
+
+        @Override
+        public void writeRow(final int rowIndex, final SXSSFRow row) throws IOException {
+            this.rowIndex = rowIndex;
+            super.writeRow(rowIndex, row);
+        }
+
+        @Override
+        public void writeCell(final int columnIndex, final Cell cell) throws IOException {
+            if (Objects.isNull(cell) || Mode.INLINE == strings.mode || CellType.STRING != cell.getCellType()
+                    || cell.getRichStringCellValue().numFormattingRuns() > 0) {
+                super.writeCell(columnIndex, cell);
+                return;
+            }
+            final String value = cell.getStringCellValue();
+            if (Mode.AUTO == strings.mode && !sample(columnIndex, value)) {
+                super.writeCell(columnIndex, cell);
+                return;
+            }
+            final int index = strings.indexOf(value);
+            if (index < 0) {
+                super.writeCell(columnIndex, cell);
+                return;
+            }
+            out.write("<c r=\"");
+            out.write(new CellReference(rowIndex, columnIndex).formatAsString());
+            out.write('"');
+            final short styleIndex = cell.getCellStyle().getIndex();
+            if (styleIndex != 0) {
+                out.write(" s=\"");
+                out.write(Integer.toString(styleIndex & 0xffff));
+                out.write('"');
+            }
+            out.write(" t=\"s\"><v>");
+            out.write(Integer.toString(index));
+            out.write("</v></c>");
+        }
+
+        /**
+         * 按列采样
+         *
+         * @return boolean true：写入共享字符串表
+         */
+        private boolean sample(final int columnIndex, final String value) {
+            if (Objects.isNull(samples)) {
+                samples = new HashMap<>();
+            }
+            final Sample sample = samples.computeIfAbsent(columnIndex, key -> new Sample());
+            if (Objects.nonNull(sample.distinct)) {
+                sample.distinct.add(value);
+                if (++sample.count >= SAMPLES) {
+                    sample.shared = sample.distinct.size() <= SAMPLES * RATIO;
+                    log.debug("第 {} 列字符串采样：{} 个，不重复：{} 个，{}", columnIndex, sample.count, sample.distinct.size(), sample.shared ? "使用共享字符串" : "使用内联字符串");
+                    sample.distinct = null;
+                }
+            }
+            return sample.shared;
+        }
+    }
+
+    /**
+     * 列采样；采样期间写入共享字符串表
+     */
+    private static final class Sample {
+        private int count;
+        private Set<String> distinct = new HashSet<>();
+        private boolean shared = true;
+    }
+}
@@ -0,0 +1,304 @@
+package com.utils.excel;
+
+import org.apache.poi.ss.usermodel.Comment;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellAddress;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTMergeCells;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTWorksheet;
+
+import java.util.*;
+
+/**
+ * sheet 空间索引：合并单元格、批注；避免每次查找都遍历 sheet 中所有的合并单元格和批注
+ * <pre>
+ * 合并单元格：按 {@link #BUCKET_ROWS} 行分桶，跨桶的合并单元格在每个桶中都保存一份；桶内按起始列排序并记录截止列前缀最大值，查找时二分定位之后向前扫描到前缀最大值小于目标列为止
+ * 批注：行索引 => 列索引有序集合，按区域查找时只访问区域内有批注的行
+ * 批注索引在第一次按区域查找批注时建立，只使用合并单元格时不会读取批注
+ *
+ * 索引按 sheet 缓存（弱引用，sheet 回收之后自动释放）；.xlsx 统计合并单元格数量需要遍历 xml 节点，所以不在每次查找时校验索引是否过期
+ * 通过本工具类的方法（{@link ISheetWriter#merge}、{@link ISheetWriter#writeComments}、{@link ICellWriter#writeComment}）修改时同步更新索引，移动、复制、删除行之后删除索引；
+ * 直接使用 POI 修改合并单元格、批注或者移动行之后需要调用 {@link #invalidate(Sheet)}
+ * {@link ISheetWriter#merge} 由 POI 检查重叠，不依赖索引；{@link ISheetWriter#mergeUnsafe} 只使用索引检查重叠，索引过期时不能发现重叠
+ *
+ * reader.mergedRegionAt(rowIndex, columnIndex);
+ * reader.commentsIn(Range.of("A1:D10"));
+ *
+ * @author 谢长春 on 2018-8-8 .
+ */
+public final class SheetIndex {
+    /**
+     * 每个桶的行数
+     */
+    public static final int BUCKET_ROWS = 32;
+    private static final int BUCKET_BITS = Integer.numberOfTrailingZeros(BUCKET_ROWS);
+    /**
+     * sheet => 索引；只保存坐标，不引用 sheet 中的对象
+     */
+    private static final Map<Sheet, SheetIndex> CACHE = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * 获取 sheet 的索引，不存在时建立
+     *
+     * @param sheet {@link Sheet}
+     * @return {@link SheetIndex}
+     */
+    public static SheetIndex of(final Sheet sheet) {
+        Objects.requireNonNull(sheet, "参数【sheet】是必须的");
+        return CACHE.computeIfAbsent(sheet, SheetIndex::new);
+    }
+
+    /**
+     * 删除 sheet 的索引，下次使用时重新建立
+     *
+     * @param sheet {@link Sheet}
+     */
+    public static void invalidate(final Sheet sheet) {
+        Objects.requireNonNull(sheet, "参数【sheet】是必须的");
+        CACHE.remove(sheet);
+    }
+
+    /**
+     * 合并单元格已经由 POI 添加之后同步更新索引；sheet 还没有建立索引时不处理
+     *
+     * @param sheet  {@link Sheet}
+     * @param region {@link CellRangeAddress} 合并区域
+     */
+    static void added(final Sheet sheet, final CellRangeAddress region) {
+        final SheetIndex index = CACHE.get(sheet);
+        if (Objects.nonNull(index)) {
+            synchronized (index) {
+                index.put(region);
+            }
+        }
+    }
+
+    /**
+     * 批注已经由 POI 增加或删除之后同步更新索引；sheet 还没有建立索引时不处理
+     *
+     * @param sheet       {@link Sheet}
+     * @param rowIndex    int 行索引
+     * @param columnIndex int 列索引
+     * @param exists      boolean true：批注存在
+     */
+    static void commentChanged(final Sheet sheet, final int rowIndex, final int columnIndex, final boolean exists) {
+        Optional.ofNullable(CACHE.get(sheet)).ifPresent(index -> index.updateComment(rowIndex, columnIndex, exists));
+    }
+
+    private SheetIndex(final Sheet sheet) {
+        for (CellRangeAddress region : sheet.getMergedRegions()) {
+            put(region);
+        }
+    }
+
+    /**
+     * 桶索引 => 桶
+     */
+    private final TreeMap<Integer, Bucket> buckets = new TreeMap<>();
+    /**
+     * 行索引 => 有批注的列索引；为 null 时还没有建立
+     */
+    private TreeMap<Integer, TreeSet<Integer>> comments;
+
+    private void put(final CellRangeAddress region) {
+        for (int bucket = region.getFirstRow() >> BUCKET_BITS; bucket <= region.getLastRow() >> BUCKET_BITS; bucket++) {
+            buckets.computeIfAbsent(bucket, key -> new Bucket()).add(region);
+        }
+    }
+
+    /**
+     * 查找包含指定单元格的合并单元格
+     *
+     * @param rowIndex    int 行索引
+     * @param columnIndex int 列索引
+     * @return {@link CellRangeAddress} 不存在时返回 null
+     */
+    public synchronized CellRangeAddress mergedRegionAt(final int rowIndex, final int columnIndex) {
+        final Bucket bucket = buckets.get(rowIndex >> BUCKET_BITS);
+        if (Objects.isNull(bucket)) {
+            return null;
+        }
+        final CellRangeAddress[] found = new CellRangeAddress[1];
+        bucket.scan(columnIndex, columnIndex, region -> {
+            if (region.isInRange(rowIndex, columnIndex)) {
+                found[0] = region;
+                return false;
+            }
+            return true;
+        });
+        return found[0];
+    }
+
+    /**
+     * 查找与指定区域相交的合并单元格
+     *
+     * @param range {@link CellRangeAddress} 查找区域
+     * @return {@link List}{@link List<CellRangeAddress>} 按起始行、起始列排序
+     */
+    public synchronized List<CellRangeAddress> mergedRegionsIn(final CellRangeAddress range) {
+        Objects.requireNonNull(range, "参数【range】是必须的");
+        final List<CellRangeAddress> list = new ArrayList<>();
+        buckets.subMap(range.getFirstRow() >> BUCKET_BITS, true, range.getLastRow() >> BUCKET_BITS, true).forEach((key, bucket) ->
+                bucket.scan(range.getFirstColumn(), range.getLastColumn(), region -> {
+                    // 跨桶的合并单元格只在第一个与查找区域相交的桶中返回
+                    if (region.intersects(range) && Math.max(region.getFirstRow(), range.getFirstRow()) >> BUCKET_BITS == key) {
+                        list.add(region);
+                    }
+                    return true;
+                })
+        );
+        list.sort(Comparator.comparingInt(CellRangeAddress::getFirstRow).thenComparingInt(CellRangeAddress::getFirstColumn));
+        return list;
+    }
+
+    /**
+     * 查找指定区域内的批注坐标
+     *
+     * @param sheet {@link Sheet} 建立索引的 sheet
+     * @param range {@link CellRangeAddress} 查找区域
+     * @return {@link List}{@link List<CellAddress>} 按行、列排序
+     */
+    public synchronized List<CellAddress> commentAddressesIn(final Sheet sheet, final CellRangeAddress range) {
+        Objects.requireNonNull(range, "参数【range】是必须的");
+        if (Objects.isNull(comments)) {
+            comments = new TreeMap<>();
+            for (CellAddress address : sheet.getCellComments().keySet()) {
+                comments.computeIfAbsent(address.getRow(), key -> new TreeSet<>()).add(address.getColumn());
+            }
+        }
+        final List<CellAddress> list = new ArrayList<>();
+        comments.subMap(range.getFirstRow(), true, range.getLastRow(), true).forEach((rowIndex, columns) ->
+                columns.subSet(range.getFirstColumn(), true, range.getLastColumn(), true)
+                        .forEach(columnIndex -> list.add(new CellAddress(rowIndex, columnIndex)))
+        );
+        return list;
+    }
+
+    /**
+     * 查找指定区域内的批注
+     *
+     * @param sheet {@link Sheet} 建立索引的 sheet
+     * @param range {@link CellRangeAddress} 查找区域
+     * @return {@link LinkedHashMap}{@link LinkedHashMap<CellAddress:单元格坐标, Comment:批注>} 按行、列排序
+     */
+    public LinkedHashMap<CellAddress, Comment> commentsIn(final Sheet sheet, final CellRangeAddress range) {
+        final LinkedHashMap<CellAddress, Comment> map = new LinkedHashMap<>();
+        for (CellAddress address : commentAddressesIn(sheet, range)) {
+            Optional.ofNullable(sheet.getCellComment(address)).ifPresent(comment -> map.put(address, comment));
+        }
+        return map;
+    }
+
+    /**
+     * 使用索引检查重叠之后添加合并单元格，同步更新索引；索引过期时不能发现重叠，只用于 {@link ISheetWriter#mergeUnsafe}
+     * .xlsx 直接追加 xml 节点：POI addMergedRegion 每次都会遍历已有的合并单元格检查重叠并统计数量，合并单元格越多越慢
+     *
+     * @param sheet  {@link Sheet} 建立索引的 sheet
+     * @param region {@link CellRangeAddress} 合并区域
+     */
+    synchronized void addMergedRegion(final Sheet sheet, final CellRangeAddress region) {
+        if (region.getNumberOfCells() < 2) {
+            throw new IllegalArgumentException(String.format("合并区域【%s】至少需要包含 2 个单元格", region.formatAsString()));
+        }
+        region.validate(sheet.getWorkbook().getSpreadsheetVersion());
+        final List<CellRangeAddress> overlaps = mergedRegionsIn(region);
+        if (!overlaps.isEmpty()) {
+            throw new IllegalStateException(String.format("合并区域【%s】与已有合并区域【%s】重叠", region.formatAsString(), overlaps.get(0).formatAsString()));
+        }
+        final XSSFSheet xssfSheet = sheet instanceof SXSSFSheet
+                ? ((SXSSFSheet) sheet).getWorkbook().getXSSFWorkbook().getSheetAt(sheet.getWorkbook().getSheetIndex(sheet))
+                : sheet instanceof XSSFSheet ? (XSSFSheet) sheet : null;
+        if (Objects.isNull(xssfSheet)) {
+            sheet.addMergedRegionUnsafe(region);
+        } else {
+            final CTWorksheet worksheet = xssfSheet.getCTWorksheet();
+            final CTMergeCells mergeCells = worksheet.isSetMergeCells() ? worksheet.getMergeCells() : worksheet.addNewMergeCells();
+            mergeCells.addNewMergeCell().setRef(region.formatAsString());
+            mergeCells.setCount(mergeCells.getCount() + 1);
+        }
+        put(region);
+    }
+
+    /**
+     * 批注增加或删除之后同步更新索引
+     *
+     * @param rowIndex    int 行索引
+     * @param columnIndex int 列索引
+     * @param exists      boolean true：批注存在
+     */
+    synchronized void updateComment(final int rowIndex, final int columnIndex, final boolean exists) {
+        if (Objects.isNull(comments)) {
+            return;
+        }
+        if (exists) {
+            comments.computeIfAbsent(rowIndex, key -> new TreeSet<>()).add(columnIndex);
+        } else {
+            Optional.ofNullable(comments.get(rowIndex)).ifPresent(columns -> {
+                columns.remove(columnIndex);
+                if (columns.isEmpty()) {
+                    comments.remove(rowIndex);
+                }
+            });
+        }
+    }
+
+    /**
+     * 桶内的合并单元格，按起始列排序
+     */
+    private static final class Bucket {
+        private final List<CellRangeAddress> regions = new ArrayList<>();
+        /**
+         * maxLastColumns[i]：regions[0..i] 中最大的截止列；为 null 时需要重新计算
+         */
+        private int[] maxLastColumns;
+
+        private void add(final CellRangeAddress region) {
+            int low = 0, high = regions.size();
+            while (low < high) { // 插入到最后一个起始列 <= region 起始列的位置之后，保持有序
+                final int mid = (low + high) >>> 1;
+                if (regions.get(mid).getFirstColumn() <= region.getFirstColumn()) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            regions.add(low, region);
+            maxLastColumns = null;
+        }
+
+        /**
+         * 遍历与列区间 [firstColumn, lastColumn] 可能相交的合并单元格，visitor 返回 false 时停止
+         */
+        private void scan(final int firstColumn, final int lastColumn, final Visitor visitor) {
+            if (Objects.isNull(maxLastColumns)) {
+                maxLastColumns = new int[regions.size()];
+                int max = -1;
+                for (int i = 0; i < maxLastColumns.length; i++) {
+                    maxLastColumns[i] = max = Math.max(max, regions.get(i).getLastColumn());
+                }
+            }
+            int low = 0, high = regions.size() - 1, found = -1;
+            while (low <= high) { // 最后一个起始列 <= lastColumn 的合并单元格
+                final int mid = (low + high) >>> 1;
+                if (regions.get(mid).getFirstColumn() <= lastColumn) {
+                    found = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            for (int i = found; i >= 0 && maxLastColumns[i] >= firstColumn; i--) {
+                final CellRangeAddress region = regions.get(i);
+                if (region.getLastColumn() >= firstColumn && !visitor.visit(region)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private interface Visitor {
+        boolean visit(final CellRangeAddress region);
+    }
+}
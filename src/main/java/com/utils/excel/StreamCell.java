@@ -0,0 +1,358 @@
+package com.utils.excel;
+
+import org.apache.poi.ss.formula.FormulaParseException;
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.ss.util.CellAddress;
+import org.apache.poi.ss.util.CellRangeAddress;
+
+import java.time.LocalDateTime;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Objects;
+
+/**
+ * 流式读取得到的只读单元格；只保留读取需要的值、样式、公式和批注，不依赖 Workbook 对象模型
+ * 所有写操作都会抛出 {@link UnsupportedOperationException}
+ *
+ * @author 谢长春 on 2018-8-8 .
+ */
+final class StreamCell implements Cell {
+    StreamCell(final StreamRow row, final int columnIndex, final CellStyle style) {
+        this.row = row;
+        this.columnIndex = columnIndex;
+        this.style = style;
+    }
+
+    private final StreamRow row;
+    private final int columnIndex;
+    private final CellStyle style;
+    private CellType cellType = CellType.BLANK;
+    /**
+     * 公式计算结果类型，只有 cellType 为 FORMULA 时有效
+     */
+    private CellType cachedType = CellType._NONE;
+    private double numericValue;
+    private String stringValue;
+    private boolean booleanValue;
+    private byte errorValue;
+    private String formula;
+    private Comment comment;
+
+    StreamCell numeric(final double value) {
+        this.cellType = CellType.NUMERIC;
+        this.numericValue = value;
+        return this;
+    }
+
+    StreamCell string(final String value) {
+        this.cellType = CellType.STRING;
+        this.stringValue = value;
+        return this;
+    }
+
+    StreamCell bool(final boolean value) {
+        this.cellType = CellType.BOOLEAN;
+        this.booleanValue = value;
+        return this;
+    }
+
+    StreamCell error(final byte value) {
+        this.cellType = CellType.ERROR;
+        this.errorValue = value;
+        return this;
+    }
+
+    /**
+     * 将已写入的值转换为公式计算结果，单元格类型变更为 FORMULA
+     *
+     * @param formula String 公式，不带 = 号
+     * @return {@link StreamCell}
+     */
+    StreamCell formula(final String formula) {
+        this.cachedType = this.cellType;
+        this.cellType = CellType.FORMULA;
+        this.formula = formula;
+        return this;
+    }
+
+    StreamCell comment(final Comment comment) {
+        this.comment = comment;
+        return this;
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("流式读取不支持写操作");
+    }
+
+    private IllegalStateException typeMismatch(final CellType expected) {
+        return new IllegalStateException(String.format("Cannot get a %s value from a %s cell", expected, cellType == CellType.FORMULA ? cachedType + " formula" : cellType));
+    }
+
+    /**
+     * 获取值类型，公式单元格返回计算结果类型
+     *
+     * @return {@link CellType}
+     */
+    private CellType valueType() {
+        return cellType == CellType.FORMULA ? cachedType : cellType;
+    }
+
+    @Override
+    public int getColumnIndex() {
+        return columnIndex;
+    }
+
+    @Override
+    public int getRowIndex() {
+        return row.getRowNum();
+    }
+
+    @Override
+    public Sheet getSheet() {
+        return null;
+    }
+
+    @Override
+    public Row getRow() {
+        return row;
+    }
+
+    @Override
+    @Deprecated
+    public void setCellType(final CellType cellType) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setBlank() {
+        throw readOnly();
+    }
+
+    @Override
+    public CellType getCellType() {
+        return cellType;
+    }
+
+    @Override
+    @Deprecated
+    public CellType getCellTypeEnum() {
+        return getCellType();
+    }
+
+    @Override
+    public CellType getCachedFormulaResultType() {
+        if (cellType != CellType.FORMULA) {
+            throw new IllegalStateException("Only formula cells have cached results");
+        }
+        return cachedType;
+    }
+
+    @Override
+    @Deprecated
+    public CellType getCachedFormulaResultTypeEnum() {
+        return getCachedFormulaResultType();
+    }
+
+    @Override
+    public void setCellValue(final double value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setCellValue(final Date value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setCellValue(final LocalDateTime value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setCellValue(final Calendar value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setCellValue(final RichTextString value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setCellValue(final String value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setCellFormula(final String formula) throws FormulaParseException, IllegalStateException {
+        throw readOnly();
+    }
+
+    @Override
+    public void removeFormula() throws IllegalStateException {
+        throw readOnly();
+    }
+
+    @Override
+    public String getCellFormula() {
+        if (cellType != CellType.FORMULA) {
+            throw typeMismatch(CellType.FORMULA);
+        }
+        return formula;
+    }
+
+    @Override
+    public double getNumericCellValue() {
+        switch (valueType()) {
+            case NUMERIC:
+                return numericValue;
+            case BLANK:
+                return 0.0;
+            default:
+                throw typeMismatch(CellType.NUMERIC);
+        }
+    }
+
+    @Override
+    public Date getDateCellValue() {
+        if (valueType() == CellType.BLANK) {
+            return null;
+        }
+        return DateUtil.getJavaDate(getNumericCellValue(), row.isDate1904());
+    }
+
+    @Override
+    public LocalDateTime getLocalDateTimeCellValue() {
+        if (valueType() == CellType.BLANK) {
+            return null;
+        }
+        return DateUtil.getLocalDateTime(getNumericCellValue(), row.isDate1904());
+    }
+
+    @Override
+    public RichTextString getRichStringCellValue() {
+        throw new UnsupportedOperationException("流式读取不支持富文本，请使用 getStringCellValue()");
+    }
+
+    @Override
+    public String getStringCellValue() {
+        switch (valueType()) {
+            case STRING:
+                return stringValue;
+            case BLANK:
+                return "";
+            default:
+                throw typeMismatch(CellType.STRING);
+        }
+    }
+
+    @Override
+    public void setCellValue(final boolean value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setCellErrorValue(final byte value) {
+        throw readOnly();
+    }
+
+    @Override
+    public boolean getBooleanCellValue() {
+        switch (valueType()) {
+            case BOOLEAN:
+                return booleanValue;
+            case BLANK:
+                return false;
+            default:
+                throw typeMismatch(CellType.BOOLEAN);
+        }
+    }
+
+    @Override
+    public byte getErrorCellValue() {
+        switch (valueType()) {
+            case ERROR:
+                return errorValue;
+            case BLANK:
+                return 0;
+            default:
+                throw typeMismatch(CellType.ERROR);
+        }
+    }
+
+    @Override
+    public void setCellStyle(final CellStyle style) {
+        throw readOnly();
+    }
+
+    @Override
+    public CellStyle getCellStyle() {
+        return style;
+    }
+
+    @Override
+    public void setAsActiveCell() {
+        throw readOnly();
+    }
+
+    @Override
+    public CellAddress getAddress() {
+        return new CellAddress(getRowIndex(), columnIndex);
+    }
+
+    @Override
+    public void setCellComment(final Comment comment) {
+        throw readOnly();
+    }
+
+    @Override
+    public Comment getCellComment() {
+        return comment;
+    }
+
+    @Override
+    public void removeCellComment() {
+        throw readOnly();
+    }
+
+    @Override
+    public Hyperlink getHyperlink() {
+        return null;
+    }
+
+    @Override
+    public void setHyperlink(final Hyperlink link) {
+        throw readOnly();
+    }
+
+    @Override
+    public void removeHyperlink() {
+        throw readOnly();
+    }
+
+    @Override
+    public CellRangeAddress getArrayFormulaRange() {
+        throw new IllegalStateException("流式读取不支持数组公式");
+    }
+
+    @Override
+    public boolean isPartOfArrayFormulaGroup() {
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        switch (valueType()) {
+            case NUMERIC:
+                return Objects.toString(numericValue);
+            case STRING:
+                return stringValue;
+            case BOOLEAN:
+                return booleanValue ? "TRUE" : "FALSE";
+            case ERROR:
+                return FormulaError.forInt(errorValue).getString();
+            default:
+                return "";
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.utils.excel;
+
+import org.apache.poi.ss.usermodel.*;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * 流式读取得到的只读行；单元格按列索引存放，读取时按列索引直接定位
+ * 所有写操作都会抛出 {@link UnsupportedOperationException}
+ *
+ * @author 谢长春 on 2018-8-8 .
+ */
+final class StreamRow implements Row {
+    StreamRow(final int rowIndex, final boolean date1904) {
+        this.rowIndex = rowIndex;
+        this.date1904 = date1904;
+    }
+
+    private final int rowIndex;
+    /**
+     * 是否使用 1904 日期系统
+     */
+    private final boolean date1904;
+    private StreamCell[] cells = new StreamCell[16];
+    private int firstColumnIndex = -1;
+    private int lastColumnIndex = -1;
+    private int physicalCount;
+
+    boolean isDate1904() {
+        return date1904;
+    }
+
+    /**
+     * 新增单元格，同一列重复新增时覆盖之前的单元格
+     *
+     * @param columnIndex int 列索引
+     * @param style       {@link CellStyle} 单元格样式
+     * @return {@link StreamCell}
+     */
+    StreamCell addCell(final int columnIndex, final CellStyle style) {
+        if (columnIndex >= cells.length) {
+            cells = Arrays.copyOf(cells, Math.max(columnIndex + 1, cells.length << 1));
+        }
+        if (Objects.isNull(cells[columnIndex])) {
+            physicalCount++;
+        }
+        if (firstColumnIndex < 0 || columnIndex < firstColumnIndex) {
+            firstColumnIndex = columnIndex;
+        }
+        if (columnIndex > lastColumnIndex) {
+            lastColumnIndex = columnIndex;
+        }
+        return cells[columnIndex] = new StreamCell(this, columnIndex, style);
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("流式读取不支持写操作");
+    }
+
+    @Override
+    public Cell createCell(final int column) {
+        throw readOnly();
+    }
+
+    @Override
+    public Cell createCell(final int column, final CellType type) {
+        throw readOnly();
+    }
+
+    @Override
+    public void removeCell(final Cell cell) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setRowNum(final int rowNum) {
+        throw readOnly();
+    }
+
+    @Override
+    public int getRowNum() {
+        return rowIndex;
+    }
+
+    @Override
+    public Cell getCell(final int cellnum) {
+        return cellnum < 0 || cellnum > lastColumnIndex ? null : cells[cellnum];
+    }
+
+    @Override
+    public Cell getCell(final int cellnum, final MissingCellPolicy policy) {
+        final Cell cell = getCell(cellnum);
+        switch (policy) {
+            case RETURN_NULL_AND_BLANK:
+                return cell;
+            case RETURN_BLANK_AS_NULL:
+                return Objects.nonNull(cell) && cell.getCellType() == CellType.BLANK ? null : cell;
+            case CREATE_NULL_AS_BLANK:
+                return Objects.isNull(cell) ? new StreamCell(this, cellnum, null) : cell;
+            default:
+                throw new IllegalArgumentException("Illegal policy " + policy);
+        }
+    }
+
+    @Override
+    public short getFirstCellNum() {
+        return (short) firstColumnIndex;
+    }
+
+    @Override
+    public short getLastCellNum() {
+        return (short) (lastColumnIndex < 0 ? -1 : lastColumnIndex + 1);
+    }
+
+    @Override
+    public int getPhysicalNumberOfCells() {
+        return physicalCount;
+    }
+
+    @Override
+    public void setHeight(final short height) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setZeroHeight(final boolean zHeight) {
+        throw readOnly();
+    }
+
+    @Override
+    public boolean getZeroHeight() {
+        return false;
+    }
+
+    @Override
+    public void setHeightInPoints(final float height) {
+        throw readOnly();
+    }
+
+    @Override
+    public short getHeight() {
+        return -1;
+    }
+
+    @Override
+    public float getHeightInPoints() {
+        return -1;
+    }
+
+    @Override
+    public boolean isFormatted() {
+        return false;
+    }
+
+    @Override
+    public CellStyle getRowStyle() {
+        return null;
+    }
+
+    @Override
+    public void setRowStyle(final CellStyle style) {
+        throw readOnly();
+    }
+
+    @Override
+    public Iterator<Cell> cellIterator() {
+        return new Iterator<Cell>() {
+            private int index = seek(firstColumnIndex);
+
+            private int seek(int from) {
+                if (from < 0) {
+                    return lastColumnIndex + 1;
+                }
+                while (from <= lastColumnIndex && Objects.isNull(cells[from])) {
+                    from++;
+                }
+                return from;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return index <= lastColumnIndex;
+            }
+
+            @Override
+            public Cell next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final Cell cell = cells[index];
+                index = seek(index + 1);
+                return cell;
+            }
+        };
+    }
+
+    @Override
+    public Iterator<Cell> iterator() {
+        return cellIterator();
+    }
+
+    @Override
+    public Sheet getSheet() {
+        return null;
+    }
+
+    @Override
+    public int getOutlineLevel() {
+        return 0;
+    }
+
+    @Override
+    public void shiftCellsRight(final int firstShiftColumnIndex, final int lastShiftColumnIndex, final int step) {
+        throw readOnly();
+    }
+
+    @Override
+    public void shiftCellsLeft(final int firstShiftColumnIndex, final int lastShiftColumnIndex, final int step) {
+        throw readOnly();
+    }
+}
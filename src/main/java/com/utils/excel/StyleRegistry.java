@@ -0,0 +1,219 @@
+package com.utils.excel;
+
+import org.apache.poi.hssf.usermodel.HSSFCellStyle;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 样式注册表；每个 workbook 一个注册表，按【基础样式 + {@link CellStyles}】缓存样式，相同的组合在 workbook 中只创建一次
+ * 循环调用 {@link ICellWriter#appendStyle(CellStyles)} 时不会因为重复创建样式超出 Excel 样式数量上限，也可以减小 styles.xml
+ * <pre>
+ * 使用约定：
+ * {@link CellStyles#createCellStyle(Workbook)}、{@link CellStyles#appendClone(Workbook, CellStyle)}、{@link CloneStyles} 都从注册表获取样式
+ * 缓存 key 为基础样式索引、字体索引与 {@link CellStyles} 副本（不含字体），覆盖 CellStyles 能设置的全部属性；查找时不读取样式属性
+ * 注册表只保存索引和样式定义，不保存 CellStyle 、Font 等引用 workbook 的对象；命中时按索引从 workbook 获取样式
+ * 基础样式或字体来自其他文档时不缓存，直接创建；{@link CloneStyles} 按来源样式索引自行缓存
+ * 注册表返回的样式会被多个单元格共享，不能再修改样式属性，需要修改时使用新的 {@link CellStyles} 获取样式
+ * 线程安全：查找和创建都在 workbook 上加锁；SXSSFWorkbook 与其内部的 XSSFWorkbook 共用同一个注册表和锁
+ * 注册表只弱引用 workbook ，workbook 被回收之后注册表随之释放
+ *
+ * StyleRegistry.of(workbook).getHits();
+ *
+ * @author 谢长春 on 2018-8-8 .
+ */
+public final class StyleRegistry {
+    /**
+     * 所有 workbook 的注册表；key 为弱引用，value 只保存索引和 {@link CellStyles} 副本
+     * value 不能引用 CellStyle 、Font ：这些对象通过样式库引用 workbook ，会导致弱引用永远不会被清除
+     */
+    private static final Map<Workbook, StyleRegistry> REGISTRIES = new WeakHashMap<>();
+
+    private StyleRegistry(final Workbook workbook) {
+        this.maxStyles = workbook.getSpreadsheetVersion().getMaxCellStyles();
+    }
+
+    /**
+     * 获取 workbook 的样式注册表，不存在则创建
+     *
+     * @param workbook {@link Workbook}
+     * @return {@link StyleRegistry}
+     */
+    public static StyleRegistry of(final Workbook workbook) {
+        Objects.requireNonNull(workbook, "参数【workbook】是必须的");
+        final Workbook owner = owner(workbook);
+        synchronized (REGISTRIES) {
+            return REGISTRIES.computeIfAbsent(owner, StyleRegistry::new);
+        }
+    }
+
+    /**
+     * 样式实际所属的 workbook ；SXSSFWorkbook 的样式保存在内部的 XSSFWorkbook 中
+     * 在 workbook 上修改共享部分（样式、格式、字体）的代码需要在该对象上加锁
+     *
+     * @param workbook {@link Workbook}
+     * @return {@link Workbook}
+     */
+    static Workbook owner(final Workbook workbook) {
+        return workbook instanceof SXSSFWorkbook ? ((SXSSFWorkbook) workbook).getXSSFWorkbook() : workbook;
+    }
+
+    /**
+     * 基础样式 + 追加样式 => 样式索引；只在 owner 锁内访问
+     */
+    private final Map<Key, Integer> STYLES = new HashMap<>();
+    /**
+     * workbook 允许的最大样式数量
+     */
+    private final int maxStyles;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private volatile int size;
+
+    /**
+     * 获取样式：以 baseStyle 为基础追加 cellStyles 中非空的属性；相同的组合已存在则直接返回，否则创建并注册
+     *
+     * @param workbook   {@link Workbook} 目标文档
+     * @param baseStyle  {@link CellStyle} 基础样式，可以来自其他文档；为 null 时使用默认样式
+     * @param cellStyles {@link CellStyles} 追加的样式，可以为 null
+     * @return {@link CellStyle}
+     */
+    public CellStyle resolve(final Workbook workbook, final CellStyle baseStyle, final CellStyles cellStyles) {
+        Objects.requireNonNull(workbook, "参数【workbook】是必须的");
+        final Workbook owner = owner(workbook);
+        synchronized (owner) { // workbook 的样式库不是线程安全的，读取样式库和创建样式都需要加锁
+            final CellStyle fromStyle = Objects.isNull(baseStyle) ? owner.getCellStyleAt(0) : baseStyle;
+            final Font font = Objects.isNull(cellStyles) ? null : cellStyles.getFont();
+            final boolean cacheable = belongs(owner, fromStyle) && (Objects.isNull(font) || belongs(owner, font));
+            // 保存副本，调用方之后修改 cellStyles 不影响缓存；字体按索引比较，副本中不保存字体对象
+            final CellStyles copy = Objects.isNull(cellStyles) ? null : cellStyles.copy().setFont(null);
+            final int fontIndex = Objects.isNull(font) ? -1 : font.getIndexAsInt();
+            final Key key = cacheable ? new Key(fromStyle.getIndex() & 0xFFFF, fontIndex, copy) : null;
+            final Integer exists = cacheable ? STYLES.get(key) : null;
+            if (Objects.nonNull(exists)) {
+                hits.incrementAndGet();
+                return owner.getCellStyleAt(exists);
+            }
+            if (owner.getNumCellStyles() >= maxStyles) {
+                throw new IllegalStateException(String.format("样式数量超出上限【%d】，已注册样式【%d】", maxStyles, STYLES.size()));
+            }
+            final CellStyle style = owner.createCellStyle();
+            style.cloneStyleFrom(fromStyle);
+            if (Objects.nonNull(cellStyles)) {
+                cellStyles.append(style);
+            }
+            if (cacheable) {
+                final int index = style.getIndex() & 0xFFFF;
+                STYLES.put(key, index);
+                STYLES.put(new Key(index, fontIndex, copy), index); // 在结果样式上再追加同样的属性没有变化，直接返回结果样式
+                size = STYLES.size();
+            }
+            misses.incrementAndGet();
+            return style;
+        }
+    }
+
+    /**
+     * 命中次数：直接返回已注册样式的次数
+     *
+     * @return long
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * 未命中次数：新创建样式的次数
+     *
+     * @return long
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * 已注册的组合数量
+     *
+     * @return int
+     */
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("StyleRegistry{size=%d, hits=%d, misses=%d}", size(), getHits(), getMisses());
+    }
+
+    /**
+     * 判断样式是否属于 owner ；只有属于 owner 的样式可以按索引缓存
+     */
+    private static boolean belongs(final Workbook owner, final CellStyle style) {
+        if (style instanceof XSSFCellStyle && owner instanceof XSSFWorkbook) {
+            final StylesTable stylesSource = ((XSSFWorkbook) owner).getStylesSource();
+            final int index = style.getIndex() & 0xFFFF;
+            return index < stylesSource.getNumCellStyles() && stylesSource.getCellXfAt(index) == ((XSSFCellStyle) style).getCoreXf();
+        }
+        if (style instanceof HSSFCellStyle && owner instanceof HSSFWorkbook) {
+            try {
+                ((HSSFCellStyle) style).verifyBelongsToWorkbook((HSSFWorkbook) owner);
+                return true;
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 判断字体是否属于 owner ；owner 按索引返回的字体就是该对象
+     */
+    private static boolean belongs(final Workbook owner, final Font font) {
+        final int index = font.getIndexAsInt();
+        return index >= 0 && index < owner.getNumberOfFontsAsInt() && owner.getFontAt(index) == font;
+    }
+
+    /**
+     * 缓存 key ：基础样式索引 + 字体索引 + 追加样式（不含字体）
+     */
+    private static final class Key {
+        private final int index;
+        /**
+         * 字体索引，未指定字体时为 -1
+         */
+        private final int font;
+        private final CellStyles cellStyles;
+        private final int hash;
+
+        private Key(final int index, final int font, final CellStyles cellStyles) {
+            this.index = index;
+            this.font = font;
+            this.cellStyles = cellStyles;
+            this.hash = 31 * (31 * index + font) + Objects.hashCode(cellStyles);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            final Key key = (Key) o;
+            return index == key.index && font == key.font && Objects.equals(cellStyles, key.cellStyles);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
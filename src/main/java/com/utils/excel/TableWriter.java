@@ -0,0 +1,295 @@
+package com.utils.excel;
+
+import com.utils.excel.entity.Cell;
+import com.utils.excel.entity.Table;
+import com.utils.excel.enums.Column;
+import com.utils.excel.enums.DataType;
+import com.utils.util.Dates;
+import com.utils.util.Num;
+import lombok.Cleanup;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * 表格批量写入；表头只编译一次，生成每列的写入计划：列索引、单元格样式、按数据类型选定的写入方法、公式模板
+ * 逐行写入时不再按数据类型判断，也不会为每个单元格创建 {@link Cell} 对象
+ * <pre>
+ * 写入规则：
+ * SEQ：写入序号，从 1 开始
+ * FORMULA：写入表头 formula ；{column} 替换为列名，{0} 替换为当前行号；表头未指定 formula 时，值作为公式写入
+ * DATE：值可以是时间戳、{@link Date}、{@link Dates}、{@link LocalDate}、{@link LocalDateTime}
+ * 数值类型：值可以是 {@link Number} 或数字字符串，非数字按文本写入
+ * 其他：按文本写入
+ * 值为 null 时只写入样式
+ *
+ * TableWriter.of(table.getHeader()).write(SSheetWriter.of(sheet).row(Rownum.of(1)), table.getBody());
+ *
+ * @param <E> 数据行类型
+ * @author 谢长春 on 2018-8-8 .
+ */
+@Slf4j
+public final class TableWriter<E> {
+    private TableWriter(final List<Cell> header, final BiFunction<E, Cell, Object> getter) {
+        Objects.requireNonNull(header, "参数【header】是必须的");
+        Objects.requireNonNull(getter, "参数【getter】是必须的");
+        this.header = header;
+        this.getter = getter;
+        this.plans = header.stream().map(Plan::new).toArray(Plan[]::new);
+    }
+
+    /**
+     * 写入 {@link Table#getBody()} 数据行；按表头 index 获取单元格，优先使用 value ，value 为 null 时使用 text
+     *
+     * @param header {@link List}{@link List<Cell>} 表头
+     * @return {@link TableWriter}
+     */
+    public static TableWriter<com.utils.excel.entity.Row> of(final List<Cell> header) {
+        return new TableWriter<>(header, (row, head) -> {
+            final Cell cell = row.getCell(head.index().intValue());
+            return Objects.isNull(cell) ? null : Optional.ofNullable(cell.getValue()).orElseGet(cell::getText);
+        });
+    }
+
+    /**
+     * 写入 {@link Map} 数据行；与 {@link Cell#write(ICellWriter, com.alibaba.fastjson.JSONObject)} 一致，优先使用 alias 取值，取不到再用 label 取值
+     *
+     * @param header {@link List}{@link List<Cell>} 表头
+     * @return {@link TableWriter}
+     */
+    public static TableWriter<Map<String, Object>> ofMap(final List<Cell> header) {
+        return new TableWriter<>(header, (row, head) -> {
+            final Object value = Objects.isNull(head.getAlias()) ? null : row.get(head.getAlias());
+            return Objects.isNull(value) ? row.get(head.getLabel()) : value;
+        });
+    }
+
+    /**
+     * 写入任意类型数据行
+     *
+     * @param header {@link List}{@link List<Cell>} 表头
+     * @param getter {@link BiFunction}{@link BiFunction<E:数据行, Cell:表头, Object:单元格值>} 取值方法
+     * @param <E>    数据行类型
+     * @return {@link TableWriter}
+     */
+    public static <E> TableWriter<E> of(final List<Cell> header, final BiFunction<E, Cell, Object> getter) {
+        return new TableWriter<>(header, getter);
+    }
+
+    private final List<Cell> header;
+    private final BiFunction<E, Cell, Object> getter;
+    /**
+     * 列写入计划，与表头顺序一致
+     */
+    private final Plan[] plans;
+
+    /**
+     * 从当前行的下一行开始写入所有数据行；写入完成之后当前行为最后写入的行
+     *
+     * @param writer {@link ISheetWriter} 写入器
+     * @param rows   {@link Iterable}{@link Iterable<E>} 数据行
+     * @param <W>    写入器类型
+     * @return <W extends ISheetWriter>
+     */
+    public <W extends ISheetWriter<W>> W write(final W writer, final Iterable<E> rows) {
+        Objects.requireNonNull(rows, "参数【rows】是必须的");
+        return write(writer, rows.iterator());
+    }
+
+    /**
+     * 从当前行的下一行开始写入所有数据行；写入完成之后当前行为最后写入的行
+     *
+     * @param writer {@link ISheetWriter} 写入器
+     * @param rows   {@link Iterator}{@link Iterator<E>} 数据行
+     * @param <W>    写入器类型
+     * @return <W extends ISheetWriter>
+     */
+    public <W extends ISheetWriter<W>> W write(final W writer, final Iterator<E> rows) {
+        Objects.requireNonNull(writer, "参数【writer】是必须的");
+        Objects.requireNonNull(rows, "参数【rows】是必须的");
+        final CellStyle[] styles = new CellStyle[plans.length]; // 样式属于写入器的 workbook ，每次写入只解析一次
+        for (int i = 0; i < plans.length; i++) {
+            styles[i] = Objects.isNull(plans[i].sindex) ? null : writer.getCloneStyles().clone(plans[i].sindex);
+        }
+        int seq = 0;
+        while (rows.hasNext()) {
+            final E data = rows.next();
+            final Row row = writer.nextRowOfNew().getRow();
+            final int rownum = row.getRowNum() + 1;
+            seq++;
+            for (int i = 0; i < plans.length; i++) {
+                final Plan plan = plans[i];
+                org.apache.poi.ss.usermodel.Cell cell = row.getCell(plan.index);
+                if (Objects.isNull(cell)) {
+                    cell = row.createCell(plan.index);
+                }
+                if (Objects.nonNull(styles[i])) {
+                    cell.setCellStyle(styles[i]);
+                }
+                switch (plan.kind) {
+                    case Plan.SEQ:
+                        cell.setCellValue(seq);
+                        break;
+                    case Plan.FORMULA:
+                        cell.setCellFormula(plan.formula(rownum));
+                        break;
+                    default:
+                        final Object value = getter.apply(data, header.get(i));
+                        if (Objects.nonNull(value)) {
+                            plan.writer.write(cell, value, rownum);
+                        }
+                }
+            }
+        }
+        return writer;
+    }
+
+    /**
+     * 单元格写入方法
+     */
+    private interface ValueWriter {
+        void write(final org.apache.poi.ss.usermodel.Cell cell, final Object value, final int rownum);
+    }
+
+    /**
+     * 列写入计划
+     */
+    private static final class Plan {
+        private static final int VALUE = 0;
+        private static final int SEQ = 1;
+        private static final int FORMULA = 2;
+
+        private Plan(final Cell head) {
+            this.index = Objects.requireNonNull(head.index(), "表头【index|column】是必须的");
+            this.sindex = head.getSindex();
+            final DataType type = Optional.ofNullable(head.getType()).orElse(DataType.TEXT);
+            if (Objects.equals(DataType.SEQ, type)) {
+                this.kind = SEQ;
+            } else if (Objects.equals(DataType.FORMULA, type) && Objects.nonNull(head.getFormula())) {
+                this.kind = FORMULA;
+            } else {
+                this.kind = VALUE;
+            }
+            this.formula = Objects.isNull(head.getFormula()) ? null : template(head.getFormula().replace("{column}", Objects.toString(head.column(), "")));
+            this.writer = writer(type);
+        }
+
+        /**
+         * 列索引
+         */
+        private final int index;
+        /**
+         * 样式索引，从写入器样式库中获取样式
+         */
+        private final Integer sindex;
+        private final int kind;
+        /**
+         * 公式模板，按 {0} 拆分
+         */
+        private final String[] formula;
+        private final ValueWriter writer;
+
+        private String formula(final int rownum) {
+            return join(formula, rownum);
+        }
+
+        private static String[] template(final String formula) {
+            return formula.split("\\{0}", -1);
+        }
+
+        private static String join(final String[] parts, final int rownum) {
+            if (parts.length == 1) {
+                return parts[0];
+            }
+            final StringBuilder sb = new StringBuilder(parts[0]);
+            for (int i = 1; i < parts.length; i++) {
+                sb.append(rownum).append(parts[i]);
+            }
+            return sb.toString();
+        }
+
+        private static ValueWriter writer(final DataType type) {
+            switch (type) {
+                case FORMULA:
+                    return (cell, value, rownum) -> cell.setCellFormula(join(template(value.toString()), rownum));
+                case DATE:
+                    return (cell, value, rownum) -> {
+                        if (value instanceof Number) {
+                            cell.setCellValue(new Date(((Number) value).longValue()));
+                        } else if (value instanceof Date) {
+                            cell.setCellValue((Date) value);
+                        } else if (value instanceof Dates) {
+                            cell.setCellValue(((Dates) value).date());
+                        } else if (value instanceof LocalDateTime) {
+                            cell.setCellValue((LocalDateTime) value);
+                        } else if (value instanceof LocalDate) {
+                            cell.setCellValue((LocalDate) value);
+                        } else {
+                            final Dates date = Num.of(value.toString()).toDate();
+                            if (Objects.isNull(date)) cell.setCellValue(value.toString());
+                            else cell.setCellValue(date.date());
+                        }
+                    };
+                case NUMBER:
+                case BIGDECIMAL:
+                case DOUBLE:
+                case FLOAT:
+                case LONG:
+                case INTEGER:
+                case SHORT:
+                case PERCENT:
+                    return (cell, value, rownum) -> {
+                        if (value instanceof Number) {
+                            cell.setCellValue(((Number) value).doubleValue());
+                        } else {
+                            final Num num = Num.of(value.toString());
+                            if (num.isNull()) cell.setCellValue(value.toString());
+                            else cell.setCellValue(num.doubleValue());
+                        }
+                    };
+                default:
+                    return (cell, value, rownum) -> cell.setCellValue(value.toString());
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        final List<Cell> header = Arrays.asList(
+                Cell.builder().column(Column.A).label("序号").type(DataType.SEQ).build(),
+                Cell.builder().column(Column.B).label("名称").alias("name").type(DataType.TEXT).build(),
+                Cell.builder().column(Column.C).label("数量").alias("count").type(DataType.NUMBER).build(),
+                Cell.builder().column(Column.D).label("单价").alias("price").type(DataType.NUMBER).build(),
+                Cell.builder().column(Column.E).label("金额").type(DataType.FORMULA).formula("C{0}*D{0}").build(),
+                Cell.builder().column(Column.F).label("日期").alias("date").type(DataType.DATE).build()
+        );
+        final List<Map<String, Object>> rows = IntStream.range(0, 100_000)
+                .mapToObj(i -> {
+                    final Map<String, Object> row = new HashMap<>();
+                    row.put("name", "名称" + i);
+                    row.put("count", i);
+                    row.put("price", 1.5);
+                    row.put("date", Dates.now().getTimeMillis());
+                    return row;
+                })
+                .collect(Collectors.toList());
+        try {
+            @Cleanup final SXSSFWorkbook workbook = new SXSSFWorkbook(500);
+            final SSheetWriter writer = SSheetWriter.of(workbook.createSheet("Sheet1")).rowNew(Rownum.of(1));
+            header.forEach(head -> writer.cellNew(head.index()).writeText(head.getLabel()));
+            final long start = System.currentTimeMillis();
+            TableWriter.ofMap(header).write(writer, rows);
+            log.info("写入 {} 行，耗时：{}ms", rows.size(), System.currentTimeMillis() - start);
+            log.info("写入路径：{}", writer.saveWorkBook(com.utils.util.FPath.of("logs/7.表格批量写入.xlsx")).absolute());
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.utils.excel;
+
+import com.utils.exception.NotFoundException;
+import lombok.Cleanup;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 模板文件缓存；同一个模板只从磁盘读取一次，每次使用时从内存中的母本创建一个新的 workbook ，调用方修改 workbook 不会影响母本和模板文件
+ * <pre>
+ * 母本：.xlsx 解压之后以不压缩（STORED）的方式重新打包保存，创建 workbook 时跳过解压；.xls 和加密文件保存原始字节
+ * 失效：每次获取时比较文件修改时间和大小，变化之后重新加载
+ * 淘汰：按最近使用顺序（LRU）淘汰，母本数量超过 maxEntries 或总字节数超过 maxBytes 时淘汰最久未使用的母本；单个母本超过 maxBytes 时不缓存
+ * 线程安全：查找和淘汰在缓存上加锁，读取文件和创建 workbook 不加锁；多个线程同时首次加载同一个模板时可能重复读取，结果一致
+ * POI 不支持复制已经解析的 workbook ，所以每次仍然需要解析 xml ，缓存省去的是磁盘读取和解压
+ *
+ * TemplateCache.getDefault().open(FPath.of("template.xlsx").file(), null);
+ *
+ * @author 谢长春 on 2018-8-8 .
+ */
+@Slf4j
+public final class TemplateCache {
+    /**
+     * 默认缓存：最多 64 个模板，总共 128M
+     */
+    private static final TemplateCache DEFAULT = new TemplateCache(64, 128L * 1024 * 1024);
+
+    /**
+     * @param maxEntries int 最多缓存的模板数量
+     * @param maxBytes   long 所有母本的总字节数上限
+     */
+    public TemplateCache(final int maxEntries, final long maxBytes) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("参数【maxEntries】必须大于 0");
+        }
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("参数【maxBytes】必须大于 0");
+        }
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 获取默认缓存；{@link ExcelRewriter#ofTemplate(File, ISheetWriter.Options, String)} 使用该缓存
+     *
+     * @return {@link TemplateCache}
+     */
+    public static TemplateCache getDefault() {
+        return DEFAULT;
+    }
+
+    private final int maxEntries;
+    private final long maxBytes;
+    /**
+     * 文件绝对路径 => 母本；按访问顺序排列，第一个是最久未使用的
+     */
+    private final LinkedHashMap<String, Master> masters = new LinkedHashMap<>(16, 0.75F, true);
+    private long bytes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * 从母本创建一个新的 workbook ；母本不存在或模板文件已修改时重新加载
+     *
+     * @param file     {@link File} 模板文件，.xls 或 .xlsx
+     * @param password String 文件密码，没有密码时为 null
+     * @return {@link Workbook} 使用完之后需要关闭
+     */
+    @SneakyThrows
+    public Workbook open(final File file, final String password) {
+        return WorkbookFactory.create(new ByteArrayInputStream(master(file).bytes), password);
+    }
+
+    /**
+     * 获取母本的字节流，可以用于 WorkbookFactory 或流式读取
+     *
+     * @param file {@link File} 模板文件
+     * @return {@link InputStream}
+     */
+    public InputStream openStream(final File file) {
+        return new ByteArrayInputStream(master(file).bytes);
+    }
+
+    @SneakyThrows
+    private Master master(final File file) {
+        Objects.requireNonNull(file, "参数【file】是必须的");
+        if (!file.exists()) {
+            throw new NotFoundException("文件不存在：".concat(file.getAbsolutePath()));
+        }
+        final String key = file.getAbsolutePath();
+        final long lastModified = file.lastModified();
+        final long length = file.length();
+        synchronized (masters) {
+            final Master master = masters.get(key);
+            if (Objects.nonNull(master) && master.lastModified == lastModified && master.length == length) {
+                hits.incrementAndGet();
+                return master;
+            }
+        }
+        misses.incrementAndGet();
+        final byte[] source = Files.readAllBytes(file.toPath());
+        final Master master = new Master(lastModified, length, source.length == length ? prepare(source) : source);
+        if (source.length != length || file.lastModified() != lastModified) { // 读取过程中文件被修改，本次使用读取到的内容，不缓存
+            return master;
+        }
+        synchronized (masters) {
+            final Master old = masters.remove(key);
+            if (Objects.nonNull(old)) {
+                bytes -= old.bytes.length;
+            }
+            if (master.bytes.length <= maxBytes) {
+                masters.put(key, master);
+                bytes += master.bytes.length;
+                evict();
+            }
+        }
+        return master;
+    }
+
+    /**
+     * 淘汰最久未使用的母本，直到数量和总字节数都不超过上限；调用方需要持有缓存锁
+     */
+    private void evict() {
+        final Iterator<Map.Entry<String, Master>> iterator = masters.entrySet().iterator();
+        while ((masters.size() > maxEntries || bytes > maxBytes) && iterator.hasNext()) {
+            final Map.Entry<String, Master> entry = iterator.next();
+            bytes -= entry.getValue().bytes.length;
+            iterator.remove();
+            log.debug("模板缓存淘汰：{}", entry.getKey());
+        }
+    }
+
+    /**
+     * .xlsx 解压之后以不压缩的方式重新打包；不是 zip 文件（.xls 或加密文件）时返回原始字节
+     *
+     * @param source byte[] 文件内容
+     * @return byte[]
+     */
+    @SneakyThrows
+    private static byte[] prepare(final byte[] source) {
+        if (source.length < 4 || source[0] != 'P' || source[1] != 'K' || source[2] != 3 || source[3] != 4) {
+            return source;
+        }
+        final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(source.length * 4);
+        @Cleanup final ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(source));
+        try (final ZipOutputStream zipOutputStream = new ZipOutputStream(byteArrayOutputStream)) {
+            final ByteArrayOutputStream part = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            final CRC32 crc = new CRC32();
+            ZipEntry entry;
+            while (Objects.nonNull(entry = zipInputStream.getNextEntry())) {
+                part.reset();
+                for (int n; (n = zipInputStream.read(buffer)) > 0; ) {
+                    part.write(buffer, 0, n);
+                }
+                crc.reset();
+                crc.update(part.toByteArray(), 0, part.size());
+                final ZipEntry stored = new ZipEntry(entry.getName());
+                stored.setMethod(ZipEntry.STORED);
+                stored.setSize(part.size());
+                stored.setCompressedSize(part.size());
+                stored.setCrc(crc.getValue());
+                zipOutputStream.putNextEntry(stored);
+                part.writeTo(zipOutputStream);
+                zipOutputStream.closeEntry();
+            }
+        }
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    /**
+     * 移除指定模板的母本
+     *
+     * @param file {@link File} 模板文件
+     */
+    public void invalidate(final File file) {
+        Objects.requireNonNull(file, "参数【file】是必须的");
+        synchronized (masters) {
+            final Master old = masters.remove(file.getAbsolutePath());
+            if (Objects.nonNull(old)) {
+                bytes -= old.bytes.length;
+            }
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        synchronized (masters) {
+            masters.clear();
+            bytes = 0;
+        }
+    }
+
+    /**
+     * @return int 缓存的母本数量
+     */
+    public int size() {
+        synchronized (masters) {
+            return masters.size();
+        }
+    }
+
+    /**
+     * @return long 所有母本的总字节数
+     */
+    public long getBytes() {
+        synchronized (masters) {
+            return bytes;
+        }
+    }
+
+    /**
+     * @return long 命中次数
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return long 未命中（读取文件）次数
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TemplateCache{size=%d, bytes=%d, hits=%d, misses=%d}", size(), getBytes(), getHits(), getMisses());
+    }
+
+    /**
+     * 母本；bytes 创建之后不再修改
+     */
+    private static final class Master {
+        private final long lastModified;
+        private final long length;
+        private final byte[] bytes;
+
+        private Master(final long lastModified, final long length, final byte[] bytes) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,485 @@
+package com.utils.excel;
+
+import com.utils.excel.entity.Range;
+import com.utils.exception.NotFoundException;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.formula.FormulaParser;
+import org.apache.poi.ss.formula.FormulaRenderer;
+import org.apache.poi.ss.formula.FormulaType;
+import org.apache.poi.ss.formula.SharedFormula;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.ss.util.CellAddress;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.CommentsTable;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.apache.poi.xssf.usermodel.XSSFEvaluationWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import java.io.File;
+import java.io.InputStream;
+import java.util.*;
+
+/**
+ * 【.xlsx】 流式读取；按行解析 sheet xml ，内存占用只与当前行有关，适用于大文件读取
+ * 只能从上往下顺序读取，不能回退到已经读过的行；读取完成之后需要调用 close 方法
+ * 使用方式与 {@link ExcelReader} 一致：
+ * <pre>
+ * XSSFStreamReader.of(file).sheet(0).row(Rownum.of(1)).headers();
+ * while (reader.hasNext()) { reader.rowObject(headers); }
+ * </pre>
+ *
+ * @author 谢长春 on 2018-8-8 .
+ */
+@Slf4j
+public final class XSSFStreamReader extends AbstractStreamReader<XSSFStreamReader> {
+    private static final XMLInputFactory XML_INPUT_FACTORY = XMLHelper.newXMLInputFactory();
+
+    @SneakyThrows
+    private XSSFStreamReader(final OPCPackage pkg) {
+        this.pkg = pkg;
+        final XSSFReader reader = new XSSFReader(pkg);
+        this.sharedStrings = new ReadOnlySharedStringsTable(pkg, false);
+        final StylesTable styles = Optional.ofNullable(reader.getStylesTable()).orElseGet(StylesTable::new);
+        this.cellStyles = new CellStyle[styles.getNumCellStyles()];
+        for (int index = 0; index < cellStyles.length; index++) { // 样式在这里一次性创建，之后只读，复制的读取器可以在多线程中共享
+            cellStyles[index] = styles.getStyleAt(index);
+        }
+        this.date1904 = date1904(reader);
+        this.sheetNames = new ArrayList<>();
+        this.sheetParts = new ArrayList<>();
+        this.sheetComments = new ArrayList<>();
+        final XSSFReader.SheetIterator iterator = (XSSFReader.SheetIterator) reader.getSheetsData();
+        while (iterator.hasNext()) {
+            iterator.next().close(); // 只需要 sheet 名称和 PackagePart ，流在读取 sheet 时再打开
+            sheetNames.add(iterator.getSheetName());
+            sheetParts.add(iterator.getSheetPart());
+            sheetComments.add(comments(iterator.getSheetComments()));
+        }
+        this.fork = false;
+    }
+
+    /**
+     * 复制读取器，共享已经解析的共享字符串和样式
+     *
+     * @param source {@link XSSFStreamReader} 原读取器
+     */
+    private XSSFStreamReader(final XSSFStreamReader source) {
+        this.pkg = source.pkg;
+        this.sharedStrings = source.sharedStrings;
+        this.cellStyles = source.cellStyles;
+        this.date1904 = source.date1904;
+        this.sheetNames = source.sheetNames;
+        this.sheetParts = source.sheetParts;
+        this.sheetComments = source.sheetComments;
+        this.fork = true;
+    }
+
+    public static XSSFStreamReader of(final String path, String... names) {
+        return of(com.utils.util.FPath.of(path, names).file());
+    }
+
+    @SneakyThrows
+    public static XSSFStreamReader of(final File file) {
+        Objects.requireNonNull(file, "参数【file】是必须的");
+        if (!file.exists()) {
+            throw new NotFoundException("文件不存在：".concat(file.getAbsolutePath()));
+        }
+        if (!file.getName().endsWith(".xlsx")) {
+            throw new IllegalArgumentException("未知的文件后缀，流式读取只支持【.xlsx】");
+        }
+        return new XSSFStreamReader(OPCPackage.open(file, PackageAccess.READ));
+    }
+
+    /**
+     * 流式读取加密的【.xlsx】；先按块解密到临时文件，关闭读取器时删除临时文件；未加密的文件直接读取
+     * 参考：{@link ExcelCrypto#decrypt(File, String)}
+     *
+     * @param file     {@link File}
+     * @param password String 文件密码，为 null 时按未加密文件读取
+     * @return {@link XSSFStreamReader}
+     */
+    @SneakyThrows
+    public static XSSFStreamReader of(final File file, final String password) {
+        if (Objects.isNull(password) || !ExcelCrypto.isEncrypted(file)) {
+            return of(file);
+        }
+        final File temp = ExcelCrypto.decrypt(file, password);
+        try {
+            final XSSFStreamReader reader = new XSSFStreamReader(OPCPackage.open(temp, PackageAccess.READ));
+            reader.tempFile = temp;
+            return reader;
+        } catch (Exception e) {
+            ExcelCrypto.delete(temp);
+            throw e;
+        }
+    }
+
+    private final OPCPackage pkg;
+    private final ReadOnlySharedStringsTable sharedStrings;
+    /**
+     * 样式，按样式索引存放，避免每个单元格都创建样式对象
+     */
+    private final CellStyle[] cellStyles;
+    /**
+     * 是否使用 1904 日期系统
+     */
+    private final boolean date1904;
+    private final List<String> sheetNames;
+    private final List<PackagePart> sheetParts;
+    /**
+     * 按 sheet 索引存放的批注，打开文件时一次性建立，之后只读，复制的读取器可以在多线程中共享；没有批注的 sheet 为空集合
+     */
+    private final List<Map<CellAddress, Comment>> sheetComments;
+
+    /**
+     * 建立批注坐标映射；CommentsTable.findCellComment 第一次调用时才建立内部映射，XSSFComment.getString 第一次调用时才解析文本，都没有同步，
+     * 这里在单线程中全部完成，之后多个读取器只读访问
+     *
+     * @param comments {@link CommentsTable} sheet 批注，可以为 null
+     * @return {@link Map}{@link Map<CellAddress:单元格坐标, Comment:批注>}
+     */
+    private static Map<CellAddress, Comment> comments(final CommentsTable comments) {
+        if (Objects.isNull(comments) || comments.getNumberOfComments() == 0) {
+            return Collections.emptyMap();
+        }
+        final Map<CellAddress, Comment> map = new HashMap<>(comments.getNumberOfComments() << 1);
+        comments.getCellAddresses().forEachRemaining(address -> {
+            final XSSFComment comment = comments.findCellComment(address);
+            if (Objects.nonNull(comment)) {
+                comment.getString(); // 提前解析批注文本
+                map.put(address, comment);
+            }
+        });
+        return Collections.unmodifiableMap(map);
+    }
+    /**
+     * 是否为复制的读取器，复制的读取器关闭时不关闭文件
+     */
+    private final boolean fork;
+    /**
+     * 加密文件解密之后的临时文件，关闭时删除
+     */
+    private File tempFile;
+    /**
+     * 共享公式解析需要的 Workbook ，只有遇到共享公式时才初始化
+     */
+    private XSSFEvaluationWorkbook formulaWorkbook;
+    /**
+     * 共享公式：si => {主单元格行索引, 主单元格列索引, 公式}
+     */
+    private final Map<String, Object[]> sharedFormulas = new HashMap<>();
+    private InputStream sheetStream;
+    private XMLStreamReader xml;
+    /**
+     * 上一行行索引，row 标记没有 r 属性时按上一行递增
+     */
+    private int previousRowIndex;
+
+    @Override
+    public List<String> sheetNames() {
+        return Collections.unmodifiableList(sheetNames);
+    }
+
+    @Override
+    public XSSFStreamReader fork() {
+        return new XSSFStreamReader(this);
+    }
+
+    @SneakyThrows
+    @Override
+    void openSheet(final int index) {
+        previousRowIndex = -1;
+        sheetStream = sheetParts.get(index).getInputStream();
+        xml = XML_INPUT_FACTORY.createXMLStreamReader(sheetStream);
+        while (xml.hasNext()) { // 定位到 sheetData ，顺带读取 dimension
+            if (xml.next() == XMLStreamConstants.START_ELEMENT) {
+                if ("dimension".equals(xml.getLocalName())) {
+                    final String ref = xml.getAttributeValue(null, "ref");
+                    if (Objects.nonNull(ref)) {
+                        dimensionLastRowIndex = new CellReference(ref.substring(ref.indexOf(':') + 1)).getRow();
+                    }
+                } else if ("sheetData".equals(xml.getLocalName())) {
+                    return;
+                }
+            }
+        }
+        closeSheet();
+    }
+
+    @SneakyThrows
+    @Override
+    void closeSheet() {
+        if (Objects.nonNull(xml)) {
+            xml.close();
+            xml = null;
+        }
+        if (Objects.nonNull(sheetStream)) {
+            sheetStream.close();
+            sheetStream = null;
+        }
+        sharedFormulas.clear();
+    }
+
+    @SneakyThrows
+    @Override
+    void closeFile() {
+        if (!fork) {
+            pkg.revert(); // 只读打开，不需要保存
+            ExcelCrypto.delete(tempFile);
+        }
+    }
+
+    @Override
+    public Map<String, String> comments() {
+        final Map<String, String> map = new HashMap<>();
+        if (sheetIndex() >= 0) {
+            sheetComments.get(sheetIndex()).forEach((address, comment) -> map.put(address.formatAsString(), comment.getString().getString()));
+        }
+        return map;
+    }
+
+    /**
+     * 获取指定区域内的批注；批注在打开文件时已经读取，直接从当前 sheet 的批注中过滤，不需要建立 {@link SheetIndex}
+     *
+     * @param range {@link Range} 查找区域
+     * @return {@link LinkedHashMap}{@link LinkedHashMap<CellAddress:单元格坐标, Comment:批注>} 按行、列排序
+     */
+    @Override
+    public LinkedHashMap<CellAddress, Comment> commentsIn(final Range range) {
+        Objects.requireNonNull(range, "参数【range】是必须的");
+        final LinkedHashMap<CellAddress, Comment> map = new LinkedHashMap<>();
+        if (sheetIndex() < 0) {
+            return map;
+        }
+        final CellRangeAddress region = range.getCellRangeAddress();
+        sheetComments.get(sheetIndex()).entrySet().stream()
+                .filter(entry -> region.isInRange(entry.getKey()))
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> map.put(entry.getKey(), entry.getValue()));
+        return map;
+    }
+
+    /**
+     * 从 xml 中读取下一行
+     *
+     * @return {@link StreamRow}
+     */
+    @SneakyThrows
+    @Override
+    StreamRow readRow() {
+        if (Objects.isNull(xml)) {
+            return null;
+        }
+        while (xml.hasNext()) {
+            final int event = xml.next();
+            if (event == XMLStreamConstants.START_ELEMENT && "row".equals(xml.getLocalName())) {
+                final String r = xml.getAttributeValue(null, "r");
+                final StreamRow streamRow = new StreamRow(Objects.isNull(r) ? previousRowIndex + 1 : Integer.parseInt(r) - 1, date1904);
+                previousRowIndex = streamRow.getRowNum();
+                readCells(streamRow);
+                return streamRow;
+            } else if (event == XMLStreamConstants.END_ELEMENT && "sheetData".equals(xml.getLocalName())) {
+                break;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 读取 row 标记下所有单元格
+     *
+     * @param streamRow {@link StreamRow}
+     */
+    @SneakyThrows
+    private void readCells(final StreamRow streamRow) {
+        int columnIndex = -1;
+        while (xml.hasNext()) {
+            final int event = xml.next();
+            if (event == XMLStreamConstants.START_ELEMENT && "c".equals(xml.getLocalName())) {
+                final String r = xml.getAttributeValue(null, "r");
+                columnIndex = Objects.isNull(r) ? columnIndex + 1 : new CellReference(r).getCol();
+                readCell(streamRow, columnIndex);
+            } else if (event == XMLStreamConstants.END_ELEMENT && "row".equals(xml.getLocalName())) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 读取 c 标记，解析单元格值、公式、样式和批注
+     *
+     * @param streamRow   {@link StreamRow}
+     * @param columnIndex int 列索引
+     */
+    @SneakyThrows
+    private void readCell(final StreamRow streamRow, final int columnIndex) {
+        final String type = xml.getAttributeValue(null, "t");
+        final String s = xml.getAttributeValue(null, "s");
+        String value = null;
+        String formula = null;
+        StringBuilder inline = null;
+        int depth = 0; // 富文本中 rPh（拼音）的嵌套深度，拼音内容不读取
+        while (xml.hasNext()) {
+            final int event = xml.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                switch (xml.getLocalName()) {
+                    case "v":
+                        value = xml.getElementText();
+                        break;
+                    case "f":
+                        final String ft = xml.getAttributeValue(null, "t");
+                        final String si = xml.getAttributeValue(null, "si");
+                        formula = xml.getElementText();
+                        if ("shared".equals(ft) && Objects.nonNull(si)) {
+                            formula = sharedFormula(si, formula, streamRow.getRowNum(), columnIndex);
+                        }
+                        break;
+                    case "is":
+                        inline = new StringBuilder();
+                        break;
+                    case "rPh":
+                        depth++;
+                        break;
+                    case "t":
+                        if (Objects.nonNull(inline) && depth == 0) {
+                            inline.append(xml.getElementText());
+                        }
+                        break;
+                    default:
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                if ("rPh".equals(xml.getLocalName())) {
+                    depth--;
+                } else if ("c".equals(xml.getLocalName())) {
+                    break;
+                }
+            }
+        }
+        final StreamCell streamCell = streamRow.addCell(columnIndex, style(Objects.isNull(s) ? 0 : Integer.parseInt(s)));
+        if ("s".equals(type)) {
+            if (Objects.nonNull(value)) {
+                streamCell.string(sharedStrings.getItemAt(Integer.parseInt(value.trim())).getString());
+            }
+        } else if ("inlineStr".equals(type)) {
+            if (Objects.nonNull(inline)) {
+                streamCell.string(inline.toString());
+            } else if (Objects.nonNull(value)) {
+                streamCell.string(value);
+            }
+        } else if ("str".equals(type)) {
+            streamCell.string(Objects.toString(value, ""));
+        } else if ("b".equals(type)) {
+            if (Objects.nonNull(value)) {
+                streamCell.bool("1".equals(value) || "true".equalsIgnoreCase(value));
+            }
+        } else if ("e".equals(type)) {
+            if (Objects.nonNull(value)) {
+                try {
+                    streamCell.error(FormulaError.forString(value).getCode());
+                } catch (IllegalArgumentException e) {
+                    streamCell.string(value);
+                }
+            }
+        } else if (Objects.nonNull(value) && !value.isEmpty()) {
+            streamCell.numeric(Double.parseDouble(value));
+        }
+        if (Objects.nonNull(formula)) {
+            streamCell.formula(formula);
+        }
+        final Map<CellAddress, Comment> comments = sheetComments.get(sheetIndex());
+        if (!comments.isEmpty()) {
+            streamCell.comment(comments.get(new CellAddress(streamRow.getRowNum(), columnIndex)));
+        }
+    }
+
+    /**
+     * 获取样式
+     *
+     * @param index int 样式索引
+     * @return {@link CellStyle}
+     */
+    private CellStyle style(final int index) {
+        if (index < 0 || index >= cellStyles.length) {
+            return cellStyles.length > 0 ? cellStyles[0] : null;
+        }
+        return cellStyles[index];
+    }
+
+    /**
+     * 获取共享公式；主单元格记录公式，其他单元格按相对主单元格的偏移量转换公式中的相对引用
+     *
+     * @param si          String 共享公式索引
+     * @param formula     String 公式，只有主单元格有值
+     * @param rowIndex    int 行索引
+     * @param columnIndex int 列索引
+     * @return String 公式
+     */
+    private String sharedFormula(final String si, final String formula, final int rowIndex, final int columnIndex) {
+        if (Objects.nonNull(formula) && !formula.isEmpty()) {
+            sharedFormulas.put(si, new Object[]{rowIndex, columnIndex, formula});
+            return formula;
+        }
+        final Object[] master = sharedFormulas.get(si);
+        if (Objects.isNull(master)) {
+            return formula;
+        }
+        try {
+            if (Objects.isNull(formulaWorkbook)) {
+                final XSSFWorkbook workbook = new XSSFWorkbook();
+                sheetNames.forEach(workbook::createSheet);
+                formulaWorkbook = XSSFEvaluationWorkbook.create(workbook);
+            }
+            final Ptg[] ptgs = new SharedFormula(SpreadsheetVersion.EXCEL2007).convertSharedFormulas(
+                    FormulaParser.parse((String) master[2], formulaWorkbook, FormulaType.CELL, sheetIndex(), rowIndex),
+                    rowIndex - (Integer) master[0],
+                    columnIndex - (Integer) master[1]
+            );
+            return FormulaRenderer.toFormulaString(formulaWorkbook, ptgs);
+        } catch (Exception e) {
+            log.warn("共享公式解析失败：{}", master[2], e);
+            return (String) master[2];
+        }
+    }
+
+    /**
+     * 读取 workbook.xml 中的 workbookPr 标记，判断是否使用 1904 日期系统
+     *
+     * @param reader {@link XSSFReader}
+     * @return boolean
+     */
+    @SneakyThrows
+    private static boolean date1904(final XSSFReader reader) {
+        try (final InputStream is = reader.getWorkbookData()) {
+            final XMLStreamReader xml = XML_INPUT_FACTORY.createXMLStreamReader(is);
+            try {
+                while (xml.hasNext()) {
+                    if (xml.next() == XMLStreamConstants.START_ELEMENT) {
+                        if ("workbookPr".equals(xml.getLocalName())) {
+                            final String value = xml.getAttributeValue(null, "date1904");
+                            return "1".equals(value) || "true".equalsIgnoreCase(value);
+                        } else if ("sheets".equals(xml.getLocalName())) {
+                            return false;
+                        }
+                    }
+                }
+                return false;
+            } finally {
+                xml.close();
+            }
+        }
+    }
+}
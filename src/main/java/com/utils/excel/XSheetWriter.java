@@ -73,6 +73,10 @@ public final class XSheetWriter implements ISheetWriter<XSheetWriter>, ISheetWri
      * 当前操作单元格
      */
     private XSSFCell cell;
+    /**
+     * 公式增量计算，第一次调用 {@link #evaluateChangedFormulaCells()} 时创建
+     */
+    private FormulaRecalculator formulaRecalculator;
     private ExcelReader reader;
 
     public ExcelReader getReader() {
@@ -102,6 +106,15 @@ public final class XSheetWriter implements ISheetWriter<XSheetWriter>, ISheetWri
         return this.cell;
     }
 
+    @Override
+    public XSheetWriter evaluateChangedFormulaCells() {
+        if (Objects.isNull(formulaRecalculator)) {
+            formulaRecalculator = FormulaRecalculator.of(workbook);
+        }
+        formulaRecalculator.evaluate();
+        return this;
+    }
+
     @Override
     public XSheetWriter setRowIndex(int rowIndex) {
         this.rowIndex = rowIndex;
@@ -148,6 +161,7 @@ public final class XSheetWriter implements ISheetWriter<XSheetWriter>, ISheetWri
     @Override
     public XSheetWriter copyTo(int toRowIndex) {
         sheet.copyRows(Collections.singletonList(row), toRowIndex, ops.cellCopyPolicy);
+        SheetIndex.invalidate(sheet);
         return this;
     }
 
@@ -0,0 +1,646 @@
+package com.utils.excel.entity;
+
+import com.utils.enums.Regs;
+import com.utils.excel.enums.DataType;
+import com.utils.excel.enums.Formula;
+import com.utils.util.Dates;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+import static com.utils.util.Dates.Pattern.yyyy_MM_dd_HH_mm_ss;
+
+/**
+ * Excel sheet 列式存储表格；适用于以数值为主的大表格导入，每列只保存一个基本类型数组，不为每个单元格创建对象
+ * 数值列使用 double[]，整数列和日期列使用 long[]（日期保存为毫秒时间戳），空值使用 {@link BitSet} 标记
+ * 文本列使用字典编码，相同文本只保存一份
+ * <pre>
+ * 列类型由表头 type 决定：
+ * NUMBER、DOUBLE、FLOAT、BIGDECIMAL、PERCENT、SEQ：数值列
+ * LONG、INTEGER、SHORT：整数列
+ * DATE：日期列
+ * STRING：文本列
+ * TEXT、FORMULA 或未指定：按第一个非空单元格推断
+ * 数值列、整数列、日期列写入无法转换的数据时（例："N/A"），单独保存该单元格文本，不改变列类型；计算时与 excel 函数一致忽略文本
+ * 整数列写入小数时整列转换为数值列，不截断小数
+ *
+ * final ColumnarTable table = reader.row(Rownum.of(1)).columnar();
+ * table.sum("金额");
+ *
+ * @author 谢长春 on 2018-8-8 .
+ */
+public class ColumnarTable {
+    public ColumnarTable(final int index, final String name, final List<Cell> header) {
+        Objects.requireNonNull(header, "参数【header】是必须的");
+        this.index = index;
+        this.name = name;
+        this.header = header;
+        this.columns = new Column[header.size()];
+        this.names = new HashMap<>(header.size() << 1);
+        for (int i = 0; i < header.size(); i++) {
+            final Cell cell = header.get(i);
+            columns[i] = Column.of(cell.getType(), 0);
+            if (Objects.nonNull(cell.getLabel())) names.putIfAbsent(cell.getLabel(), i);
+            if (Objects.nonNull(cell.getAlias())) names.putIfAbsent(cell.getAlias(), i);
+        }
+    }
+
+    /**
+     * excel sheet 标签页索引
+     */
+    @Getter
+    private final int index;
+    /**
+     * excel sheet 标签页名称
+     */
+    @Getter
+    private final String name;
+    /**
+     * 表头集合，列顺序与表头顺序一致
+     */
+    @Getter
+    private final List<Cell> header;
+    /**
+     * 数据行数
+     */
+    @Getter
+    private int size;
+    /**
+     * 数据列，未确定类型的列为 null
+     */
+    private final Column[] columns;
+    /**
+     * 表头 label、alias 与列位置的映射
+     */
+    private final Map<String, Integer> names;
+
+    /**
+     * 新增一行，新增行所有列默认为空
+     *
+     * @return {@link ColumnarTable}
+     */
+    public ColumnarTable next() {
+        size++;
+        for (Column column : columns) {
+            if (Objects.nonNull(column)) column.grow(size);
+        }
+        return this;
+    }
+
+    /**
+     * 设置最后一行指定列的数值
+     *
+     * @param column int 列位置，与表头位置一致
+     * @param value  double 数值
+     * @return {@link ColumnarTable}
+     */
+    public ColumnarTable setDouble(final int column, final double value) {
+        final Column col = column(column, DataType.NUMBER);
+        if (!col.setDouble(size - 1, value)) {
+            if (col.decimal()) {
+                toDouble(column).setDouble(size - 1, value);
+            } else {
+                col.setText(size - 1, Column.text(value));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * 设置最后一行指定列的日期
+     *
+     * @param column int 列位置，与表头位置一致
+     * @param value  long 毫秒时间戳
+     * @return {@link ColumnarTable}
+     */
+    public ColumnarTable setDate(final int column, final long value) {
+        final Column col = column(column, DataType.DATE);
+        if (!col.setDate(size - 1, value)) {
+            col.setText(size - 1, Dates.of(value).format(yyyy_MM_dd_HH_mm_ss));
+        }
+        return this;
+    }
+
+    /**
+     * 设置最后一行指定列的文本；数值列和整数列会尝试将文本转换为数字，无法转换时单独保存文本
+     *
+     * @param column int 列位置，与表头位置一致
+     * @param value  String 文本
+     * @return {@link ColumnarTable}
+     */
+    public ColumnarTable setString(final int column, final String value) {
+        if (Objects.isNull(value)) {
+            return this;
+        }
+        final Column col = column(column, DataType.TEXT);
+        if (!col.setString(size - 1, value)) {
+            final String number = value.trim().replace(",", "");
+            if (col.decimal() && Regs.NUMBER.test(number)) {
+                toDouble(column).setDouble(size - 1, Double.parseDouble(number));
+            } else {
+                col.setText(size - 1, value);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * 获取列位置
+     *
+     * @param name String 表头 label 或 alias
+     * @return int 列位置
+     */
+    public int indexOf(final String name) {
+        final Integer index = names.get(name);
+        if (Objects.isNull(index)) {
+            throw new IllegalArgumentException(String.format("表头中不存在【%s】", name));
+        }
+        return index;
+    }
+
+    /**
+     * 获取数据列
+     *
+     * @param column int 列位置，与表头位置一致
+     * @return {@link Column}
+     */
+    public Column getColumn(final int column) {
+        if (Objects.isNull(columns[column])) { // 整列为空时按文本列返回
+            columns[column] = Column.of(DataType.STRING, size);
+        }
+        return columns[column];
+    }
+
+    /**
+     * 获取数据列
+     *
+     * @param name String 表头 label 或 alias
+     * @return {@link Column}
+     */
+    public Column getColumn(final String name) {
+        return getColumn(indexOf(name));
+    }
+
+    /**
+     * 按公式计算列数据，忽略空值和文本，与 excel 函数一致
+     *
+     * @param formula {@link Formula} 公式
+     * @param column  int 列位置，与表头位置一致
+     * @return double
+     */
+    public double aggregate(final Formula formula, final int column) {
+        return getColumn(column).aggregate(formula);
+    }
+
+    /**
+     * 列求和
+     *
+     * @param name String 表头 label 或 alias
+     * @return double
+     */
+    public double sum(final String name) {
+        return aggregate(Formula.SUM, indexOf(name));
+    }
+
+    /**
+     * 列求平均值；没有数值时返回 {@link Double#NaN}，与 excel 的 #DIV/0! 对应
+     *
+     * @param name String 表头 label 或 alias
+     * @return double
+     */
+    public double avg(final String name) {
+        return aggregate(Formula.AVG, indexOf(name));
+    }
+
+    /**
+     * 获取数据行，按表头 index 构建单元格
+     *
+     * @param rowIndex int 数据行位置
+     * @return {@link Row}
+     */
+    public Row getRow(final int rowIndex) {
+        if (rowIndex < 0 || rowIndex >= size) {
+            throw new IndexOutOfBoundsException(String.format("数据行位置【%d】超出范围【0-%d】", rowIndex, size - 1));
+        }
+        final Row row = Row.build();
+        for (int i = 0; i < columns.length; i++) {
+            final Column column = columns[i];
+            if (Objects.nonNull(column) && !column.isNull(rowIndex)) {
+                row.addCell(header.get(i).index(), Cell.builder()
+                        .type(column.getType())
+                        .text(column.getString(rowIndex))
+                        .value(column.getValue(rowIndex))
+                        .build()
+                );
+            }
+        }
+        return row;
+    }
+
+    /**
+     * 转换为 {@link Table}；会为每个单元格创建对象，只在需要兼容 {@link Table} 时使用
+     *
+     * @return {@link Table}
+     */
+    public Table toTable() {
+        final List<Row> body = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            body.add(getRow(i));
+        }
+        return Table.builder().index(index).name(name).header(header).body(body).build();
+    }
+
+    private Column column(final int column, final DataType type) {
+        if (size == 0) {
+            throw new IllegalStateException("请先调用 next() 新增一行");
+        }
+        if (Objects.isNull(columns[column])) { // 未确定类型的列按第一个值确定类型
+            columns[column] = Column.of(type, size);
+        }
+        return columns[column];
+    }
+
+    /**
+     * 整数列转换为数值列，保留已写入的数值和文本
+     */
+    private Column toDouble(final int column) {
+        final Column source = columns[column];
+        final DoubleColumn target = new DoubleColumn(DataType.DOUBLE, size);
+        for (int i = 0; i < size; i++) {
+            if (!source.noValue(i)) {
+                target.setDouble(i, source.getDouble(i));
+            }
+        }
+        target.texts = source.texts;
+        return columns[column] = target;
+    }
+
+    /**
+     * 数据列
+     */
+    public static abstract class Column {
+        private static Column of(final DataType type, final int size) {
+            if (Objects.isNull(type)) return null;
+            switch (type) {
+                case SEQ:
+                case NUMBER:
+                case BIGDECIMAL:
+                case DOUBLE:
+                case FLOAT:
+                case PERCENT:
+                    return new DoubleColumn(type, size);
+                case LONG:
+                case INTEGER:
+                case SHORT:
+                case DATE:
+                    return new LongColumn(type, size);
+                case STRING:
+                    return new StringColumn(type, size);
+                case TEXT:
+                case FORMULA:
+                default:
+                    return size == 0 ? null : new StringColumn(DataType.STRING, size);
+            }
+        }
+
+        private static String text(final double value) {
+            return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString(); // 解决科学计数法 toString()问题
+        }
+
+        Column(final DataType type, final int size) {
+            this.type = type;
+            this.nulls = new BitSet();
+            this.nulls.set(0, size);
+            this.capacity = Math.max(16, size);
+            this.size = size;
+        }
+
+        /**
+         * 列数据类型
+         */
+        @Getter
+        private final DataType type;
+        /**
+         * 空值标记；无法转换为列类型的单元格也标记为空值，文本保存在 texts
+         */
+        private final BitSet nulls;
+        /**
+         * 行位置 => 无法转换为列类型的单元格文本；没有时为 null
+         */
+        Map<Integer, String> texts;
+        int capacity;
+        /**
+         * 数据行数
+         */
+        int size;
+
+        /**
+         * 判断单元格是否为空
+         *
+         * @param rowIndex int 数据行位置
+         * @return boolean true：空
+         */
+        public boolean isNull(final int rowIndex) {
+            return nulls.get(rowIndex) && Objects.isNull(text(rowIndex));
+        }
+
+        /**
+         * 获取单元格数值，空值和文本返回 {@link Double#NaN}
+         *
+         * @param rowIndex int 数据行位置
+         * @return double
+         */
+        public abstract double getDouble(final int rowIndex);
+
+        /**
+         * 获取单元格文本，数值不使用科学计数法，日期格式为 yyyy-MM-dd HH:mm:ss
+         *
+         * @param rowIndex int 数据行位置
+         * @return String
+         */
+        public abstract String getString(final int rowIndex);
+
+        /**
+         * 获取单元格原始值；数值列返回 Double，整数列和日期列返回 Long，文本列和无法转换为列类型的单元格返回 String
+         *
+         * @param rowIndex int 数据行位置
+         * @return Object
+         */
+        public abstract Object getValue(final int rowIndex);
+
+        /**
+         * 按公式计算列数据，忽略空值和文本
+         *
+         * @param formula {@link Formula} 公式
+         * @return double
+         */
+        public abstract double aggregate(final Formula formula);
+
+        void grow(final int size) {
+            if (size > capacity) {
+                capacity = Math.max(size, capacity + (capacity >> 1));
+                resize(capacity);
+            }
+            nulls.set(size - 1);
+            this.size = size;
+        }
+
+        void clearNull(final int rowIndex) {
+            nulls.clear(rowIndex);
+            if (Objects.nonNull(texts)) {
+                texts.remove(rowIndex);
+            }
+        }
+
+        /**
+         * 单元格没有列类型的值：空值或文本
+         */
+        boolean noValue(final int rowIndex) {
+            return nulls.get(rowIndex);
+        }
+
+        /**
+         * 保存无法转换为列类型的单元格文本
+         */
+        void setText(final int rowIndex, final String value) {
+            if (Objects.isNull(texts)) {
+                texts = new HashMap<>();
+            }
+            nulls.set(rowIndex);
+            texts.put(rowIndex, value);
+        }
+
+        String text(final int rowIndex) {
+            return Objects.isNull(texts) ? null : texts.get(rowIndex);
+        }
+
+        /**
+         * @return boolean true：整数列，写入小数时需要转换为数值列
+         */
+        boolean decimal() {
+            return false;
+        }
+
+        abstract void resize(final int capacity);
+
+        abstract boolean setDouble(final int rowIndex, final double value);
+
+        abstract boolean setDate(final int rowIndex, final long value);
+
+        abstract boolean setString(final int rowIndex, final String value);
+    }
+
+    /**
+     * 数值列
+     */
+    private static final class DoubleColumn extends Column {
+        private DoubleColumn(final DataType type, final int size) {
+            super(type, size);
+            this.values = new double[capacity];
+        }
+
+        private double[] values;
+
+        @Override
+        public double getDouble(final int rowIndex) {
+            return noValue(rowIndex) ? Double.NaN : values[rowIndex];
+        }
+
+        @Override
+        public String getString(final int rowIndex) {
+            return noValue(rowIndex) ? text(rowIndex) : Column.text(values[rowIndex]);
+        }
+
+        @Override
+        public Object getValue(final int rowIndex) {
+            return noValue(rowIndex) ? text(rowIndex) : values[rowIndex];
+        }
+
+        @Override
+        public double aggregate(final Formula formula) {
+            double sum = 0;
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (!noValue(i)) {
+                    sum += values[i];
+                    count++;
+                }
+            }
+            return Objects.equals(Formula.AVG, formula) ? (count == 0 ? Double.NaN : sum / count) : sum;
+        }
+
+        @Override
+        void resize(final int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        boolean setDouble(final int rowIndex, final double value) {
+            values[rowIndex] = value;
+            clearNull(rowIndex);
+            return true;
+        }
+
+        @Override
+        boolean setDate(final int rowIndex, final long value) {
+            return false;
+        }
+
+        @Override
+        boolean setString(final int rowIndex, final String value) {
+            final String number = value.trim().replace(",", "");
+            return Regs.NUMBER.test(number) && setDouble(rowIndex, Double.parseDouble(number));
+        }
+    }
+
+    /**
+     * 整数列和日期列，日期保存为毫秒时间戳
+     */
+    private static final class LongColumn extends Column {
+        private LongColumn(final DataType type, final int size) {
+            super(type, size);
+            this.values = new long[capacity];
+            this.date = Objects.equals(DataType.DATE, type);
+        }
+
+        private long[] values;
+        private final boolean date;
+
+        @Override
+        public double getDouble(final int rowIndex) {
+            return noValue(rowIndex) ? Double.NaN : values[rowIndex];
+        }
+
+        @Override
+        public String getString(final int rowIndex) {
+            if (noValue(rowIndex)) {
+                return text(rowIndex);
+            }
+            return date ? Dates.of(values[rowIndex]).format(yyyy_MM_dd_HH_mm_ss) : Long.toString(values[rowIndex]);
+        }
+
+        @Override
+        public Object getValue(final int rowIndex) {
+            return noValue(rowIndex) ? text(rowIndex) : values[rowIndex];
+        }
+
+        @Override
+        public double aggregate(final Formula formula) {
+            long sum = 0;
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (!noValue(i)) {
+                    sum += values[i];
+                    count++;
+                }
+            }
+            return Objects.equals(Formula.AVG, formula) ? (count == 0 ? Double.NaN : (double) sum / count) : sum;
+        }
+
+        @Override
+        void resize(final int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        boolean setDouble(final int rowIndex, final double value) {
+            if (date || value != Math.rint(value) || value > Long.MAX_VALUE || value < Long.MIN_VALUE) { // 日期列写入未设置日期格式的数值，无法确定时间；小数不截断
+                return false;
+            }
+            values[rowIndex] = (long) value;
+            clearNull(rowIndex);
+            return true;
+        }
+
+        @Override
+        boolean setDate(final int rowIndex, final long value) {
+            if (!date) {
+                return false;
+            }
+            values[rowIndex] = value;
+            clearNull(rowIndex);
+            return true;
+        }
+
+        @Override
+        boolean setString(final int rowIndex, final String value) {
+            final String number = value.trim().replace(",", "");
+            return !date && Regs.NUMBER.test(number) && setDouble(rowIndex, Double.parseDouble(number));
+        }
+
+        @Override
+        boolean decimal() {
+            return !date;
+        }
+    }
+
+    /**
+     * 文本列，字典编码
+     */
+    private static final class StringColumn extends Column {
+        private StringColumn(final DataType type, final int size) {
+            super(type, size);
+            this.codes = new int[capacity];
+            this.dictionary = new ArrayList<>();
+            this.lookup = new HashMap<>();
+        }
+
+        /**
+         * 文本在字典中的位置
+         */
+        private int[] codes;
+        /**
+         * 文本字典
+         */
+        private final List<String> dictionary;
+        private final Map<String, Integer> lookup;
+
+        @Override
+        public double getDouble(final int rowIndex) {
+            return Double.NaN;
+        }
+
+        @Override
+        public String getString(final int rowIndex) {
+            return isNull(rowIndex) ? null : dictionary.get(codes[rowIndex]);
+        }
+
+        @Override
+        public Object getValue(final int rowIndex) {
+            return getString(rowIndex);
+        }
+
+        @Override
+        public double aggregate(final Formula formula) {
+            return Objects.equals(Formula.AVG, formula) ? Double.NaN : 0;
+        }
+
+        @Override
+        void resize(final int capacity) {
+            codes = Arrays.copyOf(codes, capacity);
+        }
+
+        @Override
+        boolean setDouble(final int rowIndex, final double value) {
+            return setString(rowIndex, Column.text(value));
+        }
+
+        @Override
+        boolean setDate(final int rowIndex, final long value) {
+            return setString(rowIndex, Dates.of(value).format(yyyy_MM_dd_HH_mm_ss));
+        }
+
+        @Override
+        boolean setString(final int rowIndex, final String value) {
+            Integer code = lookup.get(value);
+            if (Objects.isNull(code)) {
+                lookup.put(value, code = dictionary.size());
+                dictionary.add(value);
+            }
+            codes[rowIndex] = code;
+            clearNull(rowIndex);
+            return true;
+        }
+    }
+}
@@ -1,35 +1,51 @@
 package com.utils.excel.entity;
 
-import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
 import com.alibaba.fastjson.annotation.JSONField;
+import com.alibaba.fastjson.util.TypeUtils;
 import com.utils.excel.enums.DataType;
 import com.utils.util.Dates;
-import com.utils.util.Maps;
 import com.utils.util.Num;
-import lombok.NoArgsConstructor;
 import org.apache.commons.collections4.CollectionUtils;
 
 import java.util.*;
+import java.util.stream.Collectors;
 
 /**
  * excel 数据行（解析得到数据行，也可以自由构建数据行）
+ * 单元格按列索引保存在数组中，不使用 HashMap ；JSON 格式与 {@link JSONObject} 一致：{"0":{单元格}, "1":{单元格}, "childs":[], "table":{}}
+ * 反序列化得到的单元格在第一次读取时转换为 {@link Cell} 对象
  *
  * @author 谢长春 on 2017/11/3 .
  */
-@NoArgsConstructor
 public class Row extends JSONObject {
+    public Row() {
+        this(new Cells());
+    }
+
     /**
-     * 指定是否使用 {@link LinkedHashMap}
+     * 兼容旧版本构造方法；参数 ordered 不再生效：单元格始终按列索引排序，非数字 key 始终按写入顺序排序（等同于旧版本 ordered=true）
      *
-     * @param ordered {@link Boolean} true:{@link LinkedHashMap}, false:{@link HashMap}
+     * @param ordered {@link Boolean} 不再生效
+     * @deprecated 使用 {@link #Row()} 或 {@link #build()}
      */
+    @Deprecated
     public Row(final boolean ordered) {
-        super(ordered);
+        this(new Cells());
     }
 
+    private Row(final Cells cells) {
+        super(cells);
+        this.cells = cells;
+    }
+
+    /**
+     * 单元格存储
+     */
+    private final Cells cells;
+
     public static Row build() {
-        return new Row(true);
+        return new Row();
     }
 
     /**
@@ -40,7 +56,10 @@ public class Row extends JSONObject {
      * @return {@link Row}
      */
     public Row addCell(int key, Cell value) {
-        return addCell("" + key, value);
+        if (key >= 0 && Objects.nonNull(value)) {
+            cells.set(key, value);
+        }
+        return this;
     }
 
     /**
@@ -90,6 +109,16 @@ public class Row extends JSONObject {
      * @return {@link Row}
      */
     public Row copy(Row values) {
+        return copy((Map<String, Object>) values);
+    }
+
+    /**
+     * 复制单元格，将某行的单元格复制到当前行
+     *
+     * @param values {@link Row} 数据行对象，或反序列化得到的 {@link Map}
+     * @return {@link Row}
+     */
+    public Row copy(Map<String, Object> values) {
         if (Objects.nonNull(values)) {
             super.putAll(values);
         }
@@ -103,8 +132,21 @@ public class Row extends JSONObject {
      * @return {@link Row}
      */
     @JSONField(serialize = false, deserialize = false)
+    @SuppressWarnings("unchecked")
     public List<Row> getChilds() {
-        return super.containsKey("childs") ? JSON.parseArray(super.getString("childs"), Row.class) : null;
+        final Object value = super.get("childs");
+        if (Objects.isNull(value)) {
+            return null;
+        }
+        final List<Object> list = (List<Object>) value;
+        if (list.stream().allMatch(item -> item instanceof Row)) {
+            return (List<Row>) value;
+        }
+        final List<Row> rows = list.stream() // 反序列化得到的子节点只转换一次
+                .map(item -> item instanceof Row ? (Row) item : Row.build().copy((Map<String, Object>) item))
+                .collect(Collectors.toList());
+        super.put("childs", rows);
+        return rows;
     }
 
     /**
@@ -115,7 +157,27 @@ public class Row extends JSONObject {
      */
     @JSONField(serialize = false, deserialize = false)
     public Cell getCell(final String key) {
-        return super.containsKey(key) ? super.getObject(key, Cell.class) : null;
+        final int index = Cells.index(key);
+        return index < 0
+                ? (super.containsKey(key) ? super.getObject(key, Cell.class) : null)
+                : getCell(index);
+    }
+
+    /**
+     * 获取单元格对象
+     *
+     * @param index int 列索引
+     * @return {@link Cell}
+     */
+    @JSONField(serialize = false, deserialize = false)
+    public Cell getCell(final int index) {
+        final Object value = cells.get(index);
+        if (Objects.isNull(value) || value instanceof Cell) {
+            return (Cell) value;
+        }
+        final Cell cell = TypeUtils.castToJavaBean(value, Cell.class); // 反序列化得到的单元格只转换一次
+        cells.set(index, cell);
+        return cell;
     }
 
     /**
@@ -126,7 +188,7 @@ public class Row extends JSONObject {
      */
     @JSONField(serialize = false, deserialize = false)
     public Cell getCell(final Object key) {
-        return getCell(Objects.toString(key, null));
+        return key instanceof Integer ? getCell(((Integer) key).intValue()) : getCell(Objects.toString(key, null));
     }
 
     /**
@@ -187,16 +249,17 @@ public class Row extends JSONObject {
      * @return {@link Map<String, String>}
      */
     public Map<String, String> toMapString(final List<Cell> header) {
-        return header.stream()
-                .map(head -> Optional.ofNullable(getCell(head.index()))
-                        .map(cell -> Objects.toString(cell.getValue(), cell.getText()))
-                        .map(v -> Maps.bySS(Optional.ofNullable(head.getAlias()).orElseGet(head::getLabel), v))
-                        .orElse(Collections.emptyMap())
-                )
-                .reduce(new LinkedHashMap<>(), (s, v) -> {
-                    s.putAll(v);
-                    return s;
-                });
+        final Map<String, String> map = new LinkedHashMap<>();
+        for (Cell head : header) {
+            final Cell cell = getCell(head.index());
+            if (Objects.nonNull(cell)) {
+                final String value = Objects.toString(cell.getValue(), cell.getText());
+                if (Objects.nonNull(value)) {
+                    map.put(Optional.ofNullable(head.getAlias()).orElseGet(head::getLabel), value);
+                }
+            }
+        }
+        return map;
     }
 
     /**
@@ -209,16 +272,9 @@ public class Row extends JSONObject {
      * @return {@link Map<String, Object>}
      */
     public Map<String, Object> toMapObject(final List<Cell> header) {
-        return header.stream()
-                .map(head -> Optional.ofNullable(getCell(head.index()))
-                        .map(cell -> Optional.ofNullable(cell.getValue()).orElseGet(cell::getText))
-                        .map(v -> Maps.bySO(Optional.ofNullable(head.getAlias()).orElseGet(head::getLabel), v))
-                        .orElse(Collections.emptyMap())
-                )
-                .reduce(new LinkedHashMap<>(), (s, v) -> {
-                    s.putAll(v);
-                    return s;
-                });
+        final Map<String, Object> map = new LinkedHashMap<>();
+        putValues(header, map);
+        return map;
     }
 
     /**
@@ -231,23 +287,214 @@ public class Row extends JSONObject {
      * @return {@link Map<String, Object>}
      */
     public JSONObject toJSONObject(final List<Cell> header) {
-        return header.stream()
-                .map(head -> Optional.ofNullable(getCell(head.index()))
-                        .map(cell -> Optional.ofNullable(cell.getValue()).orElseGet(cell::getText))
-                        .map(v -> Maps.ofSO().put(Optional.ofNullable(head.getAlias()).orElseGet(head::getLabel), v).buildJSONObject())
-                        .orElse(new JSONObject(true))
-                )
-                .reduce(new JSONObject(true), (s, v) -> {
-                    s.putAll(v);
-                    return s;
-                });
+        final JSONObject map = new JSONObject(true);
+        putValues(header, map);
+        return map;
     }
 
+    private void putValues(final List<Cell> header, final Map<String, Object> map) {
+        for (Cell head : header) {
+            final Cell cell = getCell(head.index());
+            if (Objects.nonNull(cell)) {
+                final Object value = Optional.ofNullable(cell.getValue()).orElseGet(cell::getText);
+                if (Objects.nonNull(value)) {
+                    map.put(Optional.ofNullable(head.getAlias()).orElseGet(head::getLabel), value);
+                }
+            }
+        }
+    }
 
     @Override
     public Row clone() {
         final Row row = Row.build();
-        row.putAll((JSONObject) super.clone());
+        row.putAll(this);
         return row;
     }
+
+    /**
+     * 单元格存储：数字 key 按列索引保存在数组中，其他 key（childs、table 等）保存在 {@link LinkedHashMap}
+     */
+    private static final class Cells extends AbstractMap<String, Object> {
+        /**
+         * excel 最大列数，超出范围的数字 key 按普通 key 保存
+         */
+        private static final int MAX_COLUMNS = 16384;
+
+        /**
+         * 将 key 转换为列索引；只接受没有前导 0 的非负整数，其他 key 返回 -1
+         *
+         * @param key Object
+         * @return int 列索引
+         */
+        private static int index(final Object key) {
+            if (!(key instanceof String)) {
+                return -1;
+            }
+            final String text = (String) key;
+            final int length = text.length();
+            if (length == 0 || length > 5 || (length > 1 && text.charAt(0) == '0')) {
+                return -1;
+            }
+            int index = 0;
+            for (int i = 0; i < length; i++) {
+                final char c = text.charAt(i);
+                if (c < '0' || c > '9') {
+                    return -1;
+                }
+                index = index * 10 + (c - '0');
+            }
+            return index < MAX_COLUMNS ? index : -1;
+        }
+
+        private Object[] values = new Object[8];
+        /**
+         * 非空单元格数量
+         */
+        private int count;
+        private LinkedHashMap<String, Object> others;
+
+        private Object get(final int index) {
+            return index < values.length ? values[index] : null;
+        }
+
+        private Object set(final int index, final Object value) {
+            if (index >= values.length) {
+                values = Arrays.copyOf(values, Math.max(index + 1, values.length << 1));
+            }
+            final Object old = values[index];
+            values[index] = value;
+            if (Objects.isNull(old) && Objects.nonNull(value)) count++;
+            if (Objects.nonNull(old) && Objects.isNull(value)) count--;
+            return old;
+        }
+
+        @Override
+        public Object get(final Object key) {
+            final int index = index(key);
+            return index < 0 ? (Objects.isNull(others) ? null : others.get(key)) : get(index);
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            final int index = index(key);
+            return index < 0 ? Objects.nonNull(others) && others.containsKey(key) : Objects.nonNull(get(index));
+        }
+
+        @Override
+        public Object put(final String key, final Object value) {
+            final int index = index(key);
+            if (index >= 0 && Objects.nonNull(value)) {
+                return set(index, value);
+            }
+            if (index >= 0) {
+                return set(index, null);
+            }
+            if (Objects.isNull(others)) {
+                others = new LinkedHashMap<>();
+            }
+            return others.put(key, value);
+        }
+
+        @Override
+        public Object remove(final Object key) {
+            final int index = index(key);
+            return index < 0 ? (Objects.isNull(others) ? null : others.remove(key)) : (index < values.length ? set(index, null) : null);
+        }
+
+        @Override
+        public int size() {
+            return count + (Objects.isNull(others) ? 0 : others.size());
+        }
+
+        @Override
+        public void clear() {
+            Arrays.fill(values, null);
+            count = 0;
+            others = null;
+        }
+
+        /**
+         * 列索引单元格的 entry ；setValue 同时写入单元格存储
+         */
+        private static final class CellEntry extends SimpleEntry<String, Object> {
+            private static final long serialVersionUID = 1L;
+
+            private CellEntry(final Cells cells, final int index, final Object value) {
+                super(Integer.toString(index), value);
+                this.cells = cells;
+                this.index = index;
+            }
+
+            private final transient Cells cells;
+            private final int index;
+
+            @Override
+            public Object setValue(final Object value) {
+                super.setValue(value);
+                return cells.set(index, value);
+            }
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<Entry<String, Object>>() {
+                @Override
+                public int size() {
+                    return Cells.this.size();
+                }
+
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return new Iterator<Entry<String, Object>>() {
+                        private int next = seek(0);
+                        private int last = -1;
+                        private Iterator<Entry<String, Object>> iterator;
+
+                        private int seek(int index) {
+                            while (index < values.length && Objects.isNull(values[index])) index++;
+                            return index;
+                        }
+
+                        @Override
+                        public boolean hasNext() {
+                            if (next < values.length) {
+                                return true;
+                            }
+                            if (Objects.isNull(iterator)) {
+                                iterator = Objects.isNull(others) ? Collections.emptyIterator() : others.entrySet().iterator();
+                            }
+                            return iterator.hasNext();
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            if (next < values.length) {
+                                last = next;
+                                next = seek(next + 1);
+                                final int index = last;
+                                return new CellEntry(Cells.this, index, values[index]);
+                            }
+                            last = -1;
+                            return iterator.next();
+                        }
+
+                        @Override
+                        public void remove() {
+                            if (last >= 0) {
+                                set(last, null);
+                                last = -1;
+                            } else if (Objects.nonNull(iterator)) {
+                                iterator.remove();
+                            } else {
+                                throw new IllegalStateException();
+                            }
+                        }
+                    };
+                }
+            };
+        }
+    }
 }